@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cburch.logisim.analyze.model.AnalyzerModel;
+import com.cburch.logisim.analyze.model.Entry;
+import com.cburch.logisim.analyze.model.TruthTable;
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+
+/**
+ * Combinational analysis of the small adders: building the expressions and
+ * the truth table from the circuit, and minimising every output.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AnalysisBenchmark {
+	@Param({ "adder-2", "adder-4" })
+	public String circuit;
+
+	private Project proj;
+	private Circuit main;
+	private Map<Instance, String> pinLabels;
+	private List<String> inputs;
+	private List<String> outputs;
+	private Entry[][] columns;
+
+	@Setup
+	public void setUp() throws Exception {
+		LogisimFile file = Corpus.load(circuit);
+		proj = new Project(file);
+		main = file.getMainCircuit();
+		pinLabels = Analyze.getPinLabels(main);
+
+		AnalyzerModel model = new AnalyzerModel();
+		Analyze.computeTable(model, proj, main, pinLabels);
+		inputs = model.getInputs().getAll();
+		outputs = model.getOutputs().getAll();
+		TruthTable table = model.getTruthTable();
+		columns = new Entry[outputs.size()][];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = table.getOutputColumn(i);
+		}
+	}
+
+	@Benchmark
+	public AnalyzerModel expression() throws Exception {
+		AnalyzerModel model = new AnalyzerModel();
+		Analyze.computeExpression(model, main, pinLabels);
+		return model;
+	}
+
+	@Benchmark
+	public AnalyzerModel truthTable() {
+		AnalyzerModel model = new AnalyzerModel();
+		Analyze.computeTable(model, proj, main, pinLabels);
+		return model;
+	}
+
+	@Benchmark
+	public void minimize(Blackhole bh) {
+		AnalyzerModel model = new AnalyzerModel();
+		model.setVariables(inputs, outputs);
+		for (int i = 0; i < columns.length; i++) {
+			model.getTruthTable().setOutputColumn(i, columns[i]);
+		}
+		for (String output : outputs) {
+			bh.consume(model.getOutputExpressions().getMinimalImplicants(
+					output));
+		}
+	}
+}
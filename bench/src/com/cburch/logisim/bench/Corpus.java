@@ -0,0 +1,549 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Direction;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Generates the circuits used by the benchmarks. Three families of
+ * increasing size are available:
+ * <ul>
+ * <li><code>adder-N</code>: an N-bit ripple-carry adder built from gates,
+ * with inputs <code>a0</code>..., <code>b0</code>..., <code>cin</code> and
+ * outputs <code>s0</code>..., <code>cout</code>;</li>
+ * <li><code>hierarchy-D</code>: a full adder nested D levels deep, each
+ * level chaining two instances of the level below, so that the top level
+ * holds 2<sup>D</sup> full adders;</li>
+ * <li><code>cpu-N</code>: N clocked cores, each adding the word of a RAM
+ * addressed by a counter into an accumulator and writing the sum back.</li>
+ * <li><code>loop-N</code>: a ring of N OR gates, each also fed by the input
+ * <code>set</code>, so that the ring latches once <code>set</code> has been
+ * high; the output is <code>q</code>. Unlike the other families, this one
+ * has a combinational loop.</li>
+ * </ul>
+ * The files are written with the regular {@link Loader}, so they are exactly
+ * what Logisim would save. Ports that face left or right are connected by
+ * real wires; ports on the top or bottom of a component go through tunnels.
+ */
+public final class Corpus {
+	/**
+	 * Places components side by side in a single row and routes each net on
+	 * a horizontal track below the row.
+	 */
+	private static class Sheet {
+		private final Circuit circuit;
+		private final ArrayList<Component> comps = new ArrayList<Component>();
+		private final ArrayList<Wire> wires = new ArrayList<Wire>();
+		// stub ends of the left and right ports of each net
+		private final Map<String, List<Location>> taps = new LinkedHashMap<String, List<Location>>();
+		// nets that also have tunnels, with their width
+		private final Map<String, Integer> tunneled = new HashMap<String, Integer>();
+		private int right = LEFT;
+		private int rightStubs = 0;
+		private int bottom = TOP;
+
+		Sheet(Circuit circuit) {
+			this.circuit = circuit;
+		}
+
+		Component add(ComponentFactory factory, AttributeSet attrs,
+				String... nets) {
+			Component probe = factory.createComponent(Location.create(0, 0),
+					attrs);
+			Bounds bds = probe.getBounds();
+			int leftStubs = stubLength(probe, Direction.WEST);
+			int x = right + rightStubs + leftStubs + GAP - bds.getX();
+			Location loc = Location.create((x + 9) / 10 * 10, TOP - bds.getY());
+			Component comp = factory.createComponent(loc, attrs);
+			bds = comp.getBounds();
+			comps.add(comp);
+			right = bds.getX() + bds.getWidth();
+			rightStubs = stubLength(comp, Direction.EAST);
+			bottom = Math.max(bottom, bds.getY() + bds.getHeight() + GAP);
+
+			List<EndData> ends = comp.getEnds();
+			for (int i = 0; i < ends.size() && i < nets.length; i++) {
+				if (nets[i] != null) {
+					connect(comp, ends.get(i), nets[i]);
+				}
+			}
+			return comp;
+		}
+
+		Component add(String lib, String name, String... attrsAndNets) {
+			ComponentFactory factory = factory(lib, name);
+			AttributeSet attrs = factory.createAttributeSet();
+			int i = 0;
+			for (; i < attrsAndNets.length && attrsAndNets[i] != null
+				&& attrsAndNets[i].contains("="); i++) {
+				String[] nameValue = attrsAndNets[i].split("=", 2);
+				set(attrs, nameValue[0], nameValue[1]);
+			}
+			String[] nets = new String[attrsAndNets.length - i];
+			System.arraycopy(attrsAndNets, i, nets, 0, nets.length);
+			return add(factory, attrs, nets);
+		}
+
+		/** Adds an instance of sub, connecting its pins by label. */
+		Component addSubcircuit(Circuit sub, Map<String, String> nets) {
+			ComponentFactory factory = sub.getSubcircuitFactory();
+			List<Instance> pins = new ArrayList<Instance>(sub.getAppearance()
+					.getPortOffsets(Direction.EAST).values());
+			String[] byPort = new String[pins.size()];
+			for (int i = 0; i < byPort.length; i++) {
+				byPort[i] = nets.get(pins.get(i).getAttributeValue(
+						StdAttr.LABEL));
+			}
+			return add(factory, factory.createAttributeSet(), byPort);
+		}
+
+		void input(String label, int width) {
+			add("Wiring", "Pin", "label=" + label, "width=" + width, label);
+		}
+
+		void output(String label, int width) {
+			add("Wiring", "Pin", "output=true", "facing=west", "label="
+					+ label, "width=" + width, label);
+		}
+
+		private void connect(Component comp, EndData end, String net) {
+			Location p = end.getLocation();
+			Direction side = sideOf(comp.getBounds(), p);
+			if (side == Direction.EAST || side == Direction.WEST) {
+				int len = stubRank(comp, end, side) * 10 + 10;
+				Location q = p.translate(side, len);
+				wires.add(Wire.create(p, q));
+				List<Location> list = taps.get(net);
+				if (list == null) {
+					list = new ArrayList<Location>();
+					taps.put(net, list);
+				}
+				list.add(q);
+			} else {
+				Location q = p.translate(side, 10);
+				wires.add(Wire.create(p, q));
+				tunnel(q, side.reverse(), net, end.getWidth().getWidth());
+				bottom = Math.max(bottom, q.getY() + GAP);
+			}
+		}
+
+		private void tunnel(Location loc, Direction facing, String net,
+				int width) {
+			ComponentFactory factory = factory("Wiring", "Tunnel");
+			AttributeSet attrs = factory.createAttributeSet();
+			attrs.setValue(StdAttr.FACING, facing);
+			set(attrs, "label", net);
+			set(attrs, "width", Integer.toString(width));
+			comps.add(factory.createComponent(loc, attrs));
+			tunneled.put(net, Integer.valueOf(width));
+		}
+
+		/** Routes the nets and adds everything to the circuit. */
+		void finish() {
+			ArrayList<Map.Entry<String, List<Location>>> nets = new ArrayList<Map.Entry<String, List<Location>>>();
+			for (Map.Entry<String, List<Location>> e : taps.entrySet()) {
+				Collections.sort(e.getValue(), BY_X);
+				if (e.getValue().size() > 1 || tunneled.containsKey(e.getKey())) {
+					nets.add(e);
+				}
+			}
+			Collections.sort(nets,
+					new Comparator<Map.Entry<String, List<Location>>>() {
+						public int compare(Map.Entry<String, List<Location>> a,
+								Map.Entry<String, List<Location>> b) {
+							return a.getValue().get(0).getX()
+									- b.getValue().get(0).getX();
+						}
+					});
+
+			// left-edge track assignment: a track is reused once the
+			// previous net on it has ended
+			ArrayList<Integer> trackEnds = new ArrayList<Integer>();
+			for (Map.Entry<String, List<Location>> e : nets) {
+				String net = e.getKey();
+				List<Location> qs = e.getValue();
+				Integer width = tunneled.get(net);
+				int start = qs.get(0).getX() - (width == null ? 0 : 30);
+				int end = qs.get(qs.size() - 1).getX();
+				int track = 0;
+				while (track < trackEnds.size()
+						&& trackEnds.get(track).intValue() + GAP > start) {
+					track++;
+				}
+				if (track == trackEnds.size()) {
+					trackEnds.add(Integer.valueOf(end));
+				} else {
+					trackEnds.set(track, Integer.valueOf(end));
+				}
+
+				int y = bottom + 20 * track;
+				Location prev = null;
+				for (Location q : qs) {
+					Location t = Location.create(q.getX(), y);
+					wires.add(Wire.create(q, t));
+					if (prev != null) {
+						wires.add(Wire.create(prev, t));
+					}
+					prev = t;
+				}
+				if (width != null) {
+					Location first = Location.create(start, y);
+					wires.add(Wire.create(first,
+							Location.create(qs.get(0).getX(), y)));
+					tunnel(first, Direction.EAST, net, width.intValue());
+				}
+			}
+
+			CircuitMutation xn = new CircuitMutation(circuit);
+			xn.addAll(comps);
+			xn.addAll(wires);
+			xn.execute();
+		}
+	}
+
+	private static final int LEFT = 50;
+	private static final int TOP = 100;
+	private static final int GAP = 40;
+	private static final int[] SIM_LIMITS = { 1000, 2000, 5000, 10000, 20000,
+			50000 };
+
+	private static final Comparator<Location> BY_X = new Comparator<Location>() {
+		public int compare(Location a, Location b) {
+			return a.getX() - b.getX();
+		}
+	};
+
+	private static Loader loader = null;
+
+	/**
+	 * Generates every circuit that the benchmarks use into dir.
+	 */
+	public static void main(String[] args) throws IOException {
+		File dir = args.length > 0 ? new File(args[0]) : getDirectory();
+		for (String name : new String[] { "adder-2", "adder-4", "adder-16",
+				"adder-64", "adder-256", "hierarchy-4", "hierarchy-7",
+				"hierarchy-10", "cpu-1", "cpu-8", "cpu-32" }) {
+			File dest = new File(dir, name + Loader.LOGISIM_EXTENSION);
+			generate(name, dest);
+			System.out.println(dest + ": " + dest.length() + " bytes"); // OK
+		}
+	}
+
+	/**
+	 * Returns the file holding the named circuit, generating it if needed.
+	 */
+	public static synchronized File get(String name) throws IOException {
+		File dest = new File(getDirectory(), name + Loader.LOGISIM_EXTENSION);
+		if (!dest.exists()) {
+			generate(name, dest);
+		}
+		return dest;
+	}
+
+	/**
+	 * Loads the named circuit, generating it first if needed.
+	 */
+	public static LogisimFile load(String name) throws IOException,
+			LoadFailedException {
+		return new Loader(null).openLogisimFile(get(name));
+	}
+
+	/**
+	 * The directory of the generated files, which can be chosen through the
+	 * <code>logisim.bench.corpus</code> system property.
+	 */
+	public static File getDirectory() {
+		return new File(System.getProperty("logisim.bench.corpus",
+				"bench/corpus"));
+	}
+
+	public static synchronized void generate(String name, File dest)
+			throws IOException {
+		int dash = name.lastIndexOf('-');
+		if (dash < 0) {
+			throw new IllegalArgumentException("unknown circuit " + name);
+		}
+		String family = name.substring(0, dash);
+		int size = Integer.parseInt(name.substring(dash + 1));
+
+		if (loader == null) {
+			loader = new Loader(null);
+		}
+		LogisimFile file = LogisimFile.createNew(loader);
+		for (String lib : new String[] { "Wiring", "Gates", "Memory",
+				"Arithmetic", "Base" }) {
+			file.addLibrary(loader.getBuiltin().getLibrary(lib));
+		}
+		Circuit main = file.getMainCircuit();
+		int chain = 1; // full adders on the longest combinational path
+		if (family.equals("adder")) {
+			buildAdder(main, size);
+			chain = size;
+		} else if (family.equals("hierarchy")) {
+			buildHierarchy(file, main, size);
+			chain = 1 << size;
+		} else if (family.equals("cpu")) {
+			buildCpu(file, main, size);
+		} else if (family.equals("loop")) {
+			buildLoop(main, size);
+			chain = size;
+		} else {
+			throw new IllegalArgumentException("unknown circuit " + name);
+		}
+		// the default iteration limit would report long carry chains as
+		// oscillations; pick one of the limits offered by the options dialog
+		int limit = 0;
+		while (limit < SIM_LIMITS.length - 1 && SIM_LIMITS[limit] < 10 * chain) {
+			limit++;
+		}
+		file.getOptions().getAttributeSet().setValue(Options.sim_limit_attr,
+				Integer.valueOf(SIM_LIMITS[limit]));
+
+		File dir = dest.getAbsoluteFile().getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("cannot create " + dir);
+		}
+		if (!loader.save(file, dest)) {
+			throw new IOException("cannot write " + dest);
+		}
+	}
+
+	private static void buildAdder(Circuit circuit, int bits) {
+		Sheet sheet = new Sheet(circuit);
+		for (int i = 0; i < bits; i++) {
+			sheet.input("a" + i, 1);
+		}
+		for (int i = 0; i < bits; i++) {
+			sheet.input("b" + i, 1);
+		}
+		sheet.input("cin", 1);
+		for (int i = 0; i < bits; i++) {
+			String c = i == 0 ? "cin" : "c" + i;
+			String cout = i == bits - 1 ? "cout" : "c" + (i + 1);
+			fullAdder(sheet, "a" + i, "b" + i, c, "s" + i, cout, "_" + i);
+		}
+		for (int i = 0; i < bits; i++) {
+			sheet.output("s" + i, 1);
+		}
+		sheet.output("cout", 1);
+		sheet.finish();
+	}
+
+	private static void buildCpu(LogisimFile file, Circuit main, int cores) {
+		Circuit core = new Circuit("core", file);
+		Sheet sheet = new Sheet(core);
+		sheet.add("Wiring", "Clock", "clk");
+		sheet.add("Wiring", "Constant", "one");
+		// ends: out, in, clock, clear, load, up/down, enable, carry
+		sheet.add("Memory", "Counter", "width=8", "pc", null, "clk");
+		// ends: data out, address, output enable, write enable, clock,
+		// data in
+		sheet.add("Memory", "RAM", "addrWidth=8", "dataWidth=16",
+				"databus=bibus", "word", "pc", null, null, "clk", "sum");
+		// ends: a, b, sum, carry in, carry out
+		sheet.add("Arithmetic", "Adder", "width=16", "acc", "word", "sum",
+				"one");
+		// ends: out, in, clock, clear, enable
+		sheet.add("Memory", "Register", "width=16", "acc", "sum", "clk");
+		sheet.output("acc", 16);
+		sheet.finish();
+		file.addCircuit(core);
+
+		sheet = new Sheet(main);
+		Map<String, String> nets = new HashMap<String, String>();
+		for (int i = 0; i < cores; i++) {
+			nets.put("acc", "acc" + i);
+			sheet.addSubcircuit(core, nets);
+		}
+		for (int i = 0; i < cores; i++) {
+			sheet.output("acc" + i, 16);
+		}
+		sheet.finish();
+	}
+
+	private static void buildLoop(Circuit circuit, int gates) {
+		Sheet sheet = new Sheet(circuit);
+		sheet.input("set", 1);
+		for (int i = 0; i < gates; i++) {
+			String out = i == gates - 1 ? "q" : "q" + i;
+			String in = i == 0 ? "q" : "q" + (i - 1);
+			sheet.add("Gates", "OR Gate", "inputs=2", out, in, "set");
+		}
+		sheet.output("q", 1);
+		sheet.finish();
+	}
+
+	private static void buildHierarchy(LogisimFile file, Circuit main,
+			int depth) {
+		Circuit below = new Circuit("level0", file);
+		Sheet sheet = new Sheet(below);
+		addFullAdderPins(sheet, true);
+		fullAdder(sheet, "a", "b", "cin", "s", "cout", "");
+		addFullAdderPins(sheet, false);
+		sheet.finish();
+		file.addCircuit(below);
+
+		for (int level = 1; level <= depth; level++) {
+			Circuit circuit = level == depth ? main : new Circuit("level"
+					+ level, file);
+			sheet = new Sheet(circuit);
+			addFullAdderPins(sheet, true);
+			Map<String, String> nets = new HashMap<String, String>();
+			nets.put("a", "a");
+			nets.put("b", "b");
+			nets.put("cin", "cin");
+			nets.put("s", "s1");
+			nets.put("cout", "c1");
+			sheet.addSubcircuit(below, nets);
+			nets.put("a", "s1");
+			nets.put("cin", "c1");
+			nets.put("s", "s");
+			nets.put("cout", "cout");
+			sheet.addSubcircuit(below, nets);
+			addFullAdderPins(sheet, false);
+			sheet.finish();
+			if (circuit != main) {
+				file.addCircuit(circuit);
+			}
+			below = circuit;
+		}
+	}
+
+	private static void addFullAdderPins(Sheet sheet, boolean inputs) {
+		if (inputs) {
+			sheet.input("a", 1);
+			sheet.input("b", 1);
+			sheet.input("cin", 1);
+		} else {
+			sheet.output("s", 1);
+			sheet.output("cout", 1);
+		}
+	}
+
+	private static void fullAdder(Sheet sheet, String a, String b, String c,
+			String s, String cout, String suffix) {
+		String x = "x" + suffix;
+		String g = "g" + suffix;
+		String p = "p" + suffix;
+		// gate ends: output, then the inputs
+		sheet.add("Gates", "XOR Gate", "inputs=2", x, a, b);
+		sheet.add("Gates", "XOR Gate", "inputs=2", s, x, c);
+		sheet.add("Gates", "AND Gate", "inputs=2", g, a, b);
+		sheet.add("Gates", "AND Gate", "inputs=2", p, x, c);
+		sheet.add("Gates", "OR Gate", "inputs=2", cout, g, p);
+	}
+
+	private static ComponentFactory factory(String lib, String name) {
+		Library library = loader.getBuiltin().getLibrary(lib);
+		return ((AddTool) library.getTool(name)).getFactory();
+	}
+
+	private static void set(AttributeSet attrs, String name, String value) {
+		@SuppressWarnings("unchecked")
+		Attribute<Object> attr = (Attribute<Object>) attrs.getAttribute(name);
+		if (attr == null) {
+			throw new IllegalArgumentException("no attribute " + name);
+		}
+		attrs.setValue(attr, attr.parse(value));
+	}
+
+	private static Direction sideOf(Bounds bds, Location p) {
+		int west = p.getX() - bds.getX();
+		int east = bds.getX() + bds.getWidth() - p.getX();
+		int north = p.getY() - bds.getY();
+		int south = bds.getY() + bds.getHeight() - p.getY();
+		int min = Math.min(Math.min(west, east), Math.min(north, south));
+		if (min == west) {
+			return Direction.WEST;
+		} else if (min == east) {
+			return Direction.EAST;
+		} else if (min == north) {
+			return Direction.NORTH;
+		} else {
+			return Direction.SOUTH;
+		}
+	}
+
+	/** Counts the ports of comp on side that lie above end. */
+	private static int stubRank(Component comp, EndData end, Direction side) {
+		int rank = 0;
+		for (EndData other : comp.getEnds()) {
+			Location q = other.getLocation();
+			if (q.getY() < end.getLocation().getY()
+					&& sideOf(comp.getBounds(), q) == side) {
+				rank++;
+			}
+		}
+		return rank;
+	}
+
+	/** Returns the length of the longest stub on side of comp. */
+	private static int stubLength(Component comp, Direction side) {
+		int count = 0;
+		for (EndData end : comp.getEnds()) {
+			if (sideOf(comp.getBounds(), end.getLocation()) == side) {
+				count++;
+			}
+		}
+		return count * 10;
+	}
+
+	private Corpus() {
+	}
+}
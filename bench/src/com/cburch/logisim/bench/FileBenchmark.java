@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+
+/**
+ * Time needed to open, to save and to copy each file of the corpus.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileBenchmark {
+	@Param({ "adder-16", "adder-64", "adder-256", "hierarchy-10", "cpu-32" })
+	public String circuit;
+
+	private File source;
+	private File dest;
+	private Loader loader;
+	private LogisimFile file;
+
+	@Setup
+	public void setUp() throws Exception {
+		source = Corpus.get(circuit);
+		dest = File.createTempFile(circuit, Loader.LOGISIM_EXTENSION);
+		loader = new Loader(null);
+		file = loader.openLogisimFile(source);
+	}
+
+	@TearDown
+	public void tearDown() {
+		dest.delete();
+	}
+
+	@Benchmark
+	public LogisimFile load() throws Exception {
+		return new Loader(null).openLogisimFile(source);
+	}
+
+	@Benchmark
+	public boolean save() {
+		return loader.save(file, dest);
+	}
+
+	@Benchmark
+	public LogisimFile copy() {
+		return file.cloneLogisimFile(loader);
+	}
+
+	@Benchmark
+	public LogisimFile copyThroughXml() {
+		// a different loader makes the copy go through the XML round trip
+		return file.cloneLogisimFile(new Loader(null));
+	}
+}
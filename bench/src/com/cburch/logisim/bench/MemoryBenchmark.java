@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cburch.hex.HexModel;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.gui.hex.HexFile;
+import com.cburch.logisim.std.memory.Rom;
+
+/**
+ * Time needed to format and to parse the contents attribute of a memory, in
+ * the form chosen when saving and in the plain hex tokens used before
+ * contents were compressed. The contents are a 64K x 16 ROM holding random
+ * 12-bit words or code-like words, or a 16M x 8 ROM holding a few pages.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemoryBenchmark {
+	@Param({ "random", "code", "sparse" })
+	public String contents;
+
+	private Attribute<Object> attr;
+	private Object mem;
+	private String saved;
+	private String text;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp() throws IOException {
+		attr = (Attribute<Object>) (Attribute<?>) Rom.CONTENTS_ATTR;
+		Random random = new Random(0);
+		boolean sparse = contents.equals("sparse");
+		int addrBits = sparse ? 24 : 16;
+		int width = sparse ? 8 : 16;
+		mem = attr.parse("addr/data: " + addrBits + " " + width + "\n");
+		HexModel model = (HexModel) mem;
+		int[] opcodes = new int[16];
+		for (int i = 0; i < opcodes.length; i++)
+			opcodes[i] = random.nextInt(1 << 16);
+		for (int a = 0; a < 1 << 16; a++) {
+			int val;
+			if (contents.equals("random"))
+				val = random.nextInt(1 << 12);
+			else if (contents.equals("code"))
+				val = opcodes[random.nextInt(opcodes.length)]
+						^ random.nextInt(16);
+			else
+				val = (a & 0x3000) == 0 ? random.nextInt(256) : 0;
+			model.set(sparse ? (long) a << 8 : a, val);
+		}
+		saved = attr.toStandardString(mem);
+		StringWriter out = new StringWriter();
+		out.write("addr/data: " + addrBits + " " + width + "\n");
+		HexFile.save(out, model);
+		text = out.toString();
+	}
+
+	@Benchmark
+	public String format() {
+		return attr.toStandardString(mem);
+	}
+
+	@Benchmark
+	public Object parse() {
+		return attr.parse(saved);
+	}
+
+	@Benchmark
+	public String formatText() throws IOException {
+		StringWriter out = new StringWriter();
+		HexFile.save(out, (HexModel) mem);
+		return out.toString();
+	}
+
+	@Benchmark
+	public Object parseText() {
+		return attr.parse(text);
+	}
+}
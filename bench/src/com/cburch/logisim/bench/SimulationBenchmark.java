@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+/**
+ * Clock ticks per second on the clocked CPUs, and the time needed to settle
+ * the combinational circuits after all their inputs change.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SimulationBenchmark {
+	@State(Scope.Thread)
+	public static class Clocked {
+		@Param({ "cpu-1", "cpu-8", "cpu-32" })
+		public String cpu;
+
+		Propagator prop;
+
+		@Setup
+		public void setUp() throws Exception {
+			LogisimFile file = Corpus.load(cpu);
+			CircuitState state = new CircuitState(new Project(file),
+					file.getMainCircuit());
+			prop = state.getPropagator();
+			prop.propagate();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Combinational {
+		@Param({ "adder-16", "adder-64", "adder-256", "hierarchy-4",
+				"hierarchy-7", "hierarchy-10" })
+		public String circuit;
+
+		CircuitState state;
+		ArrayList<InstanceState> inputs = new ArrayList<InstanceState>();
+		// the inputs set in odd rounds: a + 0 + 1 carries through every
+		// full adder when all bits of a are set
+		ArrayList<InstanceState> ripple = new ArrayList<InstanceState>();
+		int round = 0;
+
+		@Setup
+		public void setUp() throws Exception {
+			LogisimFile file = Corpus.load(circuit);
+			state = new CircuitState(new Project(file), file.getMainCircuit());
+			for (Map.Entry<Instance, String> e : Analyze.getPinLabels(
+					file.getMainCircuit()).entrySet()) {
+				if (Pin.FACTORY.isInputPin(e.getKey())) {
+					InstanceState pin = state.getInstanceState(e.getKey());
+					inputs.add(pin);
+					if (!e.getValue().startsWith("b")) {
+						ripple.add(pin);
+					}
+				}
+			}
+			state.getPropagator().propagate();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public boolean tick(Clocked s) {
+		s.prop.tick();
+		s.prop.propagate();
+		return s.prop.isOscillating();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public boolean propagate(Combinational s) {
+		// alternate between all zeroes and inputs that make the carry
+		// ripple through the whole chain
+		boolean odd = (++s.round & 1) != 0;
+		for (InstanceState pin : s.inputs) {
+			boolean set = odd && s.ripple.contains(pin);
+			Pin.FACTORY.setValue(pin, set ? Value.TRUE : Value.FALSE);
+			pin.fireInvalidated();
+		}
+		Propagator prop = s.state.getPropagator();
+		prop.propagate();
+		return prop.isOscillating();
+	}
+}
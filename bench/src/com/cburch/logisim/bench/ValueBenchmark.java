@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Cost of the bitwise operations on values, measured over a fixed set of
+ * values of which some bits are unknown.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ValueBenchmark.COUNT)
+public class ValueBenchmark {
+	static final int COUNT = 1024;
+
+	@Param({ "1", "8", "32" })
+	public int width;
+
+	private Value[] a = new Value[COUNT];
+	private Value[] b = new Value[COUNT];
+	private int[] ints = new int[COUNT];
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(0);
+		BitWidth bits = BitWidth.create(width);
+		for (int i = 0; i < COUNT; i++) {
+			ints[i] = random.nextInt();
+			a[i] = Value.createKnown(bits, ints[i]);
+			if (i % 4 == 0) {
+				b[i] = a[i].set(random.nextInt(width), Value.UNKNOWN);
+			} else {
+				b[i] = Value.createKnown(bits, random.nextInt());
+			}
+		}
+	}
+
+	@Benchmark
+	public void and(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(a[i].and(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void or(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(a[i].or(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void xor(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(a[i].xor(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void not(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(b[i].not());
+		}
+	}
+
+	@Benchmark
+	public void combine(Blackhole bh) {
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(a[i].combine(b[i]));
+		}
+	}
+
+	@Benchmark
+	public void createKnown(Blackhole bh) {
+		BitWidth bits = a[0].getBitWidth();
+		for (int i = 0; i < COUNT; i++) {
+			bh.consume(Value.createKnown(bits, ints[i]));
+		}
+	}
+}
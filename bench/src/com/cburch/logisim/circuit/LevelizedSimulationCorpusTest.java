@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.bench.Corpus;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.file.Options;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+/**
+ * Runs circuits of the benchmark corpus in the levelized mode and event by
+ * event, and checks that both modes agree. The small circuits are covered by
+ * {@link LevelizedSimulationTest}.
+ */
+public class LevelizedSimulationCorpusTest {
+
+	private static CircuitState start(String name, boolean levelized)
+			throws Exception {
+		LogisimFile file = Corpus.load(name);
+		file.getOptions().getAttributeSet()
+				.setValue(Options.sim_levelized_attr, Boolean.valueOf(levelized));
+		CircuitState state = new CircuitState(new Project(file),
+				file.getMainCircuit());
+		state.getPropagator().propagate();
+		return state;
+	}
+
+	private static Map<String, InstanceState> inputs(CircuitState state) {
+		Map<String, InstanceState> ret = new HashMap<String, InstanceState>();
+		for (Map.Entry<Instance, String> e : Analyze.getPinLabels(
+				state.getCircuit()).entrySet()) {
+			if (Pin.FACTORY.isInputPin(e.getKey()))
+				ret.put(e.getValue(), state.getInstanceState(e.getKey()));
+		}
+		return ret;
+	}
+
+	private static void set(Map<String, InstanceState> inputs, String label,
+			Value value) {
+		InstanceState pin = inputs.get(label);
+		Pin.FACTORY.setValue(pin, value);
+		pin.fireInvalidated();
+	}
+
+	@Test
+	public final void testAdderAgrees() throws Exception {
+		CircuitState events = start("adder-16", false);
+		CircuitState levels = start("adder-16", true);
+		assertTrue(new LevelIndex(levels).update());
+		StateAssert.assertSameValues(events, levels);
+
+		Map<String, InstanceState> eventInputs = inputs(events);
+		Map<String, InstanceState> levelInputs = inputs(levels);
+		Random random = new Random(1);
+		for (int round = 0; round < 50; round++) {
+			for (String label : eventInputs.keySet()) {
+				Value value = random.nextBoolean() ? Value.TRUE : Value.FALSE;
+				set(eventInputs, label, value);
+				set(levelInputs, label, value);
+			}
+			events.getPropagator().propagate();
+			levels.getPropagator().propagate();
+			assertFalse(levels.getPropagator().isOscillating());
+			StateAssert.assertSameValues(events, levels);
+		}
+	}
+
+	@Test
+	public final void testCpuAgrees() throws Exception {
+		CircuitState events = start("cpu-4", false);
+		CircuitState levels = start("cpu-4", true);
+		for (int tick = 1; tick <= 200; tick++) {
+			events.getPropagator().tick();
+			events.getPropagator().propagate();
+			levels.getPropagator().tick();
+			levels.getPropagator().propagate();
+			if (tick % 10 == 0)
+				StateAssert.assertSameValues(events, levels);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+import com.cburch.logisim.bench.Corpus;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.proj.Project;
+
+/**
+ * Restores checkpoints of the corpus CPU, whose memories and registers are
+ * larger than those of {@link SimulationHistoryTest}.
+ */
+public class SimulationHistoryCorpusTest {
+
+	private static CircuitState start(LogisimFile file) {
+		CircuitState state = new CircuitState(new Project(file),
+				file.getMainCircuit());
+		state.getPropagator().propagate();
+		return state;
+	}
+
+	@Test
+	public final void testRestoreMatchesFreshRun() throws Exception {
+		LogisimFile file = Corpus.load("cpu-1");
+		CircuitState live = start(file);
+		SimulationHistory history = new SimulationHistory();
+		history.setEnabled(true);
+		history.externalChange(live.getPropagator());
+		SimulationHistoryTest.run(live, history, 300);
+
+		// a restore drops the checkpoints after it, so go backwards
+		for (int tick : new int[] { 255, 77, 1, 0 }) {
+			CircuitState fresh = start(file);
+			SimulationHistoryTest.run(fresh, null, tick);
+			CircuitState restored = history.restore(tick);
+			assertNotNull("tick " + tick, restored);
+			assertEquals(tick, restored.getPropagator().getTickCount());
+			StateAssert.assertSameValues(fresh, restored);
+		}
+	}
+}
@@ -19,102 +19,128 @@
 # Version   Author Date               Description
 #	v1.1			CMR			25.06.14					- Exit if socket fails
 #	v1.2			CMR			23.07.14					- Better error handling, add reset option
+#	v1.3											- Framed binary protocol, one frame per
+#																	simulation step for all VHDL entities
 #-------------------------------------------------------------------------------
-set Version 1.2
+set Version 1.3
 
-set msgs {}
 set channel 0
 
+# Frames are a 32-bit big endian length followed by the payload. Names and
+# values are strings preceded by their 16-bit length.
+proc ReadString {frame posVar} {
+	upvar $posVar pos
+
+	binary scan $frame "@${pos}S" length
+	set length [expr {$length & 0xffff}]
+	set value [string range $frame [expr {$pos + 2}] [expr {$pos + 1 + $length}]]
+	incr pos [expr {2 + $length}]
+	return $value
+}
+
+proc WriteString {value} {
+	return [binary format S [string length $value]]$value
+}
+
+proc SendFrame {channel payload} {
+	puts -nonewline $channel [binary format I [string length $payload]]$payload
+	flush $channel
+}
+
+proc Step {channel frame} {
+
+	# Get the signals from the frame
+	binary scan $frame "@1S" count
+	set count [expr {$count & 0xffff}]
+	set pos 3
+	set signals {}
+	for {set id 0} {$id < $count} {incr id} {
+		binary scan $frame "@${pos}c" type
+		incr pos
+		set name [ReadString $frame pos]
+		set value [ReadString $frame pos]
+		lappend signals [list $type $name $value $id]
+	}
+
+	# Drive input signals in simulation
+	foreach signal $signals {
+		lassign $signal type name value id
+
+		# If signal is "in"
+		if {$type == 1} {
+			# Drive simulation signal (force signal, no internal logic changes possible)
+			if {[catch {force -freeze sim:/top_sim/$name $value} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
+			}
+
+		# If signal is "inout"
+		} elseif {$type == 3} {
+
+			# Use deposit so value can be changed by internal logic
+			if {[catch {force -deposit sim:/top_sim/$name $value} errmsg]} {
+				puts "Error forcing simulation signal: $errmsg"
+			}
+		}
+	}
+
+	# Run the simulation
+	if {[catch {run 100} errmsg]} {
+		puts "Error running simulation: $errmsg"
+	}
+
+	# Read output signals from simulation
+	set answered 0
+	set reply ""
+	foreach signal $signals {
+		lassign $signal type name value id
+
+		# If signal is "out" or "inout"
+		if {$type == 2 || $type == 3} {
+
+			# Read in sim
+			if {[catch {set value [examine sim:/top_sim/$name]} errmsg]} {
+				puts "Error examining simulation signal: $errmsg"
+			} else {
+				append reply [binary format S $id] [WriteString [concat $value]]
+				incr answered
+			}
+		}
+	}
+
+	# Send all output values to logisim in a single reply
+	SendFrame $channel [binary format S $answered]$reply
+}
+
 proc MessageReceived {channel} {
-	global msgs ;
 
-	if {[eof $channel] || [catch {gets $channel msg}]} {
+	if {[eof $channel] || [catch {
+		set header [read $channel 4]
+		binary scan $header I length
+		set frame [read $channel $length]
+	}] || [string length $header] < 4} {
 		end_binder $channel
-  } else {
+	} else {
+
+		set command [string index $frame 0]
 
 		# If end of communication is asked
-		if {$msg == "end"} {
+		if {$command == "e"} {
 
 			# Sim end procedure
 			end_binder $channel
 
 		# When restart is requested
-		} elseif {$msg == "restart"} {
+		} elseif {$command == "r"} {
 			puts "Restart simulation"
 			if {[catch {restart -f} errmsg]} {
 				puts "Error at simulation reset: $errmsg"
 			}
-			set msgs {}
-
-		# When a sync is received
-		} elseif {$msg == "sync"} {
-
-			# Drive input signals in simulation
-			foreach msg $msgs {
-
-				# Get parameters from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "in"
-				if {$type == 1} {
-					# Drive simulation signal (force signal, no internal logic changes possible)
-					if {[catch {force -freeze sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-
-				# If signal is "inout"
-				} elseif {$type == 3} {
-
-					# Use deposit so value can be changed by internal logic
-					if {[catch {force -deposit sim:/top_sim/$name $value} errmsg]} {
-						puts "Error forcing simulation signal: $errmsg"
-					}
-				}
-			}
-
-			# Run the simulation
-			if {[catch {run 100} errmsg]} {
-				puts "Error running simulation: $errmsg"
-			}
-
-			# Read output signals from simulation
-			foreach msg $msgs {
-				# Get signal and value from message
-				set signal [split $msg :]
-				set type [lindex $signal 0]
-				set name [lindex $signal 1]
-				set value [lindex $signal 2]
-				set id [lindex $signal 3]
-
-				# If signal is "out" or "inout"
-				if {$type == 2 || $type == 3} {
-
-					# Read in sim
-					if {[catch {set value [examine sim:/top_sim/$name]} errmsg]} {
-						puts "Error examining simulation signal: $errmsg"
-					} else {
-						# Send to logisim
-						puts $channel [concat $name:$value:$id]
-					}
-				}
-			}
 
-			# Send sync to alert logisim of end of step
-			puts $channel "sync"
-			#puts "sent : sync"
-			flush $channel
-
-			set msgs {}
-
-		# If it's a signal, add to list
-		} else {
-			lappend msgs $msg ;
+		# When a simulation step is received
+		} elseif {$command == "s"} {
+			Step $channel $frame
 		}
-  }
+	}
 }
 
 proc {main} {port} {
@@ -128,6 +154,8 @@ proc {main} {port} {
 		puts "Error : $errmsg"
 		exit
 	} else {
+		fconfigure $channel -translation binary -blocking 1
+
 		puts "TCL_BINDER_CONNECTED"
 		puts "TCL_BINDER_RUNNING"
 
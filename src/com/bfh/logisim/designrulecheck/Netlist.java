@@ -30,21 +30,32 @@
 
 package com.bfh.logisim.designrulecheck;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.bfh.logisim.fpgaboardeditor.FPGAClass;
 import com.bfh.logisim.fpgagui.FPGAReport;
 import com.cburch.logisim.circuit.Circuit;
@@ -87,6 +98,353 @@ public class Netlist {
 		}
 	}
 
+	/*
+	 * The connectivity of a sheet (its nets, tunnels, busses and splitter
+	 * hierarchy) only depends on the sheet itself and not on its
+	 * sub-circuits, so it can be built ahead of the design rule check on a
+	 * worker thread. The progress bar is only updated when running on the
+	 * event thread.
+	 */
+	private static class SheetNets implements Callable<SheetNets> {
+
+		private Circuit Sheet;
+		private JProgressBar Progress;
+		private ArrayList<Net> Nets = new ArrayList<Net>();
+		private Map<Location, Net> Index = new HashMap<Location, Net>();
+		private String Error;
+
+		public SheetNets(Circuit Sheet, JProgressBar Progress) {
+			this.Sheet = Sheet;
+			this.Progress = Progress;
+		}
+
+		private void AddNet(Net NewNet) {
+			Nets.add(NewNet);
+			for (Location loc : NewNet.getPoints()) {
+				Index.put(loc, NewNet);
+			}
+		}
+
+		@Override
+		public SheetNets call() {
+			Error = Build();
+			if (Error != null) {
+				Nets.clear();
+				Index.clear();
+			}
+			return this;
+		}
+
+		private String Build() {
+			/*
+			 * FIRST PASS: In this pass we take all wire segments and see if
+			 * they are connected to other segments. If they are connected we
+			 * build a net.
+			 */
+			Map<Location, ArrayList<Wire>> WireEnds = new HashMap<Location, ArrayList<Wire>>();
+			for (Wire wire : Sheet.getWires()) {
+				AddWireEnd(WireEnds, wire.getEnd0(), wire);
+				AddWireEnd(WireEnds, wire.getEnd1(), wire);
+			}
+			Set<Wire> Visited = new HashSet<Wire>();
+			ArrayList<Wire> Pending = new ArrayList<Wire>();
+			for (Wire wire : Sheet.getWires()) {
+				if (!Visited.add(wire)) {
+					continue;
+				}
+				Net NewNet = new Net();
+				Pending.add(wire);
+				while (!Pending.isEmpty()) {
+					Wire ThisWire = Pending.remove(Pending.size() - 1);
+					NewNet.add(ThisWire);
+					for (Wire Other : WireEnds.get(ThisWire.getEnd0())) {
+						if (Visited.add(Other)) {
+							Pending.add(Other);
+						}
+					}
+					for (Wire Other : WireEnds.get(ThisWire.getEnd1())) {
+						if (Visited.add(Other)) {
+							Pending.add(Other);
+						}
+					}
+				}
+				AddNet(NewNet);
+			}
+			WireEnds.clear();
+			/*
+			 * Here we start to detect direct input-output component
+			 * connections, read we detect "hidden" nets
+			 */
+			Set<Component> components = Sheet.getNonWires();
+			/* we Start with the creation of an outputs list */
+			Set<Location> OutputsList = new HashSet<Location>();
+			Set<Location> InputsList = new HashSet<Location>();
+			Set<Component> TunnelList = new HashSet<Component>();
+			Set<Component> SplitterList = new HashSet<Component>();
+			/* The splitter and tunnel ends indexed by their location */
+			Map<Location, ArrayList<Component>> JoinEnds = new HashMap<Location, ArrayList<Component>>();
+			for (Component com : components) {
+				/*
+				 * We do not process the splitter and tunnel, they are
+				 * processed later on
+				 */
+				if (!(com.getFactory() instanceof SplitterFactory)
+						&& !(com.getFactory() instanceof Tunnel)
+						&& !(com.getFactory() instanceof PortIO)
+						&& !(com.getFactory() instanceof ReptarLocalBus)) {
+					List<EndData> ends = com.getEnds();
+					for (EndData end : ends) {
+						if (end.isInput() && end.isOutput()) {
+							return "Detected INOUT pin on component \""
+									+ com.getFactory().getName()
+									+ "\" in circuit \"" + Sheet.getName()
+									+ "\"!";
+						}
+						if (end.isOutput()) {
+							OutputsList.add(end.getLocation());
+						} else {
+							InputsList.add(end.getLocation());
+						}
+					}
+				} else {
+					if (com.getFactory() instanceof SplitterFactory) {
+						SplitterList.add(com);
+					} else if (com.getFactory() instanceof Tunnel) {
+						TunnelList.add(com);
+					} else {
+						continue;
+					}
+					for (EndData end : com.getEnds()) {
+						ArrayList<Component> Joins = JoinEnds.get(end
+								.getLocation());
+						if (Joins == null) {
+							Joins = new ArrayList<Component>();
+							JoinEnds.put(end.getLocation(), Joins);
+						}
+						Joins.add(com);
+					}
+				}
+			}
+			ShowProgress(Progress, 1);
+			/*
+			 * Now we check if an input pin is connected to an output and in
+			 * case of a Splitter if it is connected to either of them
+			 */
+			Set<Location> ZeroLengthNets = new HashSet<Location>();
+			for (Component com : components) {
+				if ((com.getFactory() instanceof SplitterFactory)
+						|| (com.getFactory() instanceof Tunnel)) {
+					List<EndData> ends = com.getEnds();
+					for (EndData end : ends) {
+						Location loc = end.getLocation();
+						if (Index.containsKey(loc)) {
+							continue;
+						}
+						/*
+						 * We found a hidden Net if a "normal" component or
+						 * another Splitter/Tunnel shares this end
+						 */
+						boolean hidden = InputsList.contains(loc)
+								|| OutputsList.contains(loc);
+						for (Component other : JoinEnds.get(loc)) {
+							hidden |= !other.equals(com);
+						}
+						if (hidden) {
+							ZeroLengthNets.add(loc);
+						}
+					}
+				} else {
+					List<EndData> ends = com.getEnds();
+					for (EndData end : ends) {
+						if (end.isInput()
+								&& OutputsList.contains(end.getLocation())
+								&& !Index.containsKey(end.getLocation())) {
+							ZeroLengthNets.add(end.getLocation());
+						}
+					}
+				}
+			}
+			InputsList.clear();
+			OutputsList.clear();
+			JoinEnds.clear();
+			for (Location Loc : ZeroLengthNets) {
+				AddNet(new Net(Loc));
+			}
+			ShowProgress(Progress, 2);
+			/*
+			 * Here we are going to process the tunnels and possible merging of
+			 * the tunneled nets
+			 */
+			boolean TunnelsPresent = false;
+			for (Component com : TunnelList) {
+				List<EndData> ends = com.getEnds();
+				for (EndData end : ends) {
+					Net ThisNet = Index.get(end.getLocation());
+					if (ThisNet != null) {
+						ThisNet.addTunnel(com.getAttributeSet().getValue(
+								StdAttr.LABEL));
+						TunnelsPresent = true;
+					}
+				}
+			}
+			if (TunnelsPresent) {
+				MergeTunnels();
+			}
+			ShowProgress(Progress, 3);
+			/*
+			 * Now all nets (connections) in the circuit are visible. Lets check
+			 * for busses
+			 */
+			for (Component com : components) {
+				List<EndData> ends = com.getEnds();
+				for (EndData end : ends) {
+					if (end.getWidth().getWidth() > 1) {
+						/*
+						 * We found a bus, let's check if this pin is connected
+						 * to a net
+						 */
+						Net ThisNet = Index.get(end.getLocation());
+						if (ThisNet != null) {
+							ThisNet.setBus(end.getWidth().getWidth());
+						}
+					}
+				}
+			}
+			ShowProgress(Progress, 4);
+			/*
+			 * Finally we have to process the splitters to determine the bus
+			 * hierarchy (if any)
+			 */
+			for (Component com : SplitterList) {
+				/*
+				 * Currently by definition end(0) is the combined end of the
+				 * splitter
+				 */
+				List<EndData> ends = com.getEnds();
+				EndData CombinedEnd = ends.get(0);
+				/* We search for the root net in the list of nets */
+				Net RootNet = Index.get(CombinedEnd.getLocation());
+				if (RootNet == null) {
+					return "Could not find the rootnet of a Splitter in circuit \""
+							+ Sheet.getName() + "\"!";
+				}
+				/*
+				 * Now we process all the other ends to find the child
+				 * busses/nets of this root bus
+				 */
+				for (int i = 1; i < ends.size(); i++) {
+					Net ConnectedNet = Index.get(ends.get(i).getLocation());
+					if (ConnectedNet != null) {
+						/*
+						 * There is a net connected to this splitter's end
+						 * point
+						 */
+						if (!ConnectedNet.setParent(RootNet)) {
+							ConnectedNet.ForceRootNet();
+						}
+						/*
+						 * Here we have to process the inherited bits of the
+						 * parent
+						 */
+						byte[] BusBitConnection = ((Splitter) com)
+								.GetEndpoints();
+						for (byte b = 0; b < BusBitConnection.length; b++) {
+							if (BusBitConnection[b] == i) {
+								ConnectedNet.AddParrentBit(b);
+							}
+						}
+					}
+				}
+			}
+			ShowProgress(Progress, 5);
+			return null;
+		}
+
+		private static void AddWireEnd(Map<Location, ArrayList<Wire>> WireEnds,
+				Location loc, Wire wire) {
+			ArrayList<Wire> Wires = WireEnds.get(loc);
+			if (Wires == null) {
+				Wires = new ArrayList<Wire>();
+				WireEnds.put(loc, Wires);
+			}
+			Wires.add(wire);
+		}
+
+		/*
+		 * All nets that are connected by tunnels with the same label are merged
+		 * into the last net of their group, so the remaining nets keep their
+		 * order
+		 */
+		private void MergeTunnels() {
+			Map<String, String> Groups = new HashMap<String, String>();
+			for (Net ThisNet : Nets) {
+				String First = null;
+				for (String name : ThisNet.TunnelNames()) {
+					if (First == null) {
+						First = FindGroup(Groups, name);
+					} else {
+						Groups.put(FindGroup(Groups, name), First);
+					}
+				}
+			}
+			Map<String, Net> Survivors = new HashMap<String, Net>();
+			for (Net ThisNet : Nets) {
+				if (ThisNet.HasTunnel()) {
+					Survivors.put(FindGroup(Groups, ThisNet.TunnelNames()
+							.iterator().next()), ThisNet);
+				}
+			}
+			ArrayList<Net> Merged = new ArrayList<Net>();
+			for (Net ThisNet : Nets) {
+				if (ThisNet.HasTunnel()) {
+					Net Survivor = Survivors.get(FindGroup(Groups, ThisNet
+							.TunnelNames().iterator().next()));
+					if (Survivor != ThisNet) {
+						Survivor.merge(ThisNet);
+						continue;
+					}
+				}
+				Merged.add(ThisNet);
+			}
+			Nets.clear();
+			Index.clear();
+			for (Net ThisNet : Merged) {
+				AddNet(ThisNet);
+			}
+		}
+
+		private static String FindGroup(Map<String, String> Groups, String name) {
+			String Parent = Groups.get(name);
+			if (Parent == null) {
+				Groups.put(name, name);
+				return name;
+			}
+			if (Parent.equals(name)) {
+				return name;
+			}
+			String Root = FindGroup(Groups, Parent);
+			Groups.put(name, Root);
+			return Root;
+		}
+	}
+
+	final static Logger logger = LoggerFactory.getLogger(Netlist.class);
+
+	/*
+	 * The components are processed in a fixed order, such that the HDL
+	 * generated for an unchanged circuit is the same on every run
+	 */
+	private static final Comparator<Component> ComponentOrder = new Comparator<Component>() {
+		@Override
+		public int compare(Component a, Component b) {
+			int Result = a.getLocation().compareTo(b.getLocation());
+			if (Result != 0) {
+				return Result;
+			}
+			return a.getFactory().getName().compareTo(b.getFactory().getName());
+		}
+	};
+
 	private String CircuitName;
 	private ArrayList<Net> MyNets = new ArrayList<Net>();
 	private ArrayList<NetlistComponent> MySubCircuits = new ArrayList<NetlistComponent>();
@@ -101,7 +459,9 @@ public class Netlist {
 	private ClockTreeFactory MyClockInformation = new ClockTreeFactory();
 	private Circuit MyCircuit;
 	private int DRCStatus;
-	private Set<Wire> wires = new HashSet<Wire>();
+	private Map<Location, Net> NetIndex = new HashMap<Location, Net>();
+	private Map<Net, Integer> NetIds = new HashMap<Net, Integer>();
+	private Future<SheetNets> PendingNets;
 	private ArrayList<String> CurrentHierarchyLevel;
 	public static final int DRC_REQUIRED = -1;
 	public static final int DRC_PASSED = 0;
@@ -129,6 +489,8 @@ public class Netlist {
 	public void clear() {
 		DRCStatus = DRC_REQUIRED;
 		MyNets.clear();
+		NetIndex.clear();
+		NetIds.clear();
 		MySubCircuits.clear();
 		MyComponents.clear();
 		MyClockGenerators.clear();
@@ -145,6 +507,25 @@ public class Netlist {
 		}
 	}
 
+	/*
+	 * Collects this netlist and the netlists of all sub-circuits that have to
+	 * be (re)checked, every sheet only once
+	 */
+	private void CollectUncheckedNetlists(ArrayList<Netlist> Unchecked) {
+		if (DRCStatus != DRC_PASSED && !Unchecked.contains(this)) {
+			Unchecked.add(this);
+		}
+		for (Component comp : MyCircuit.getNonWires()) {
+			if (comp.getFactory() instanceof SubcircuitFactory) {
+				Netlist sub = ((SubcircuitFactory) comp.getFactory())
+						.getSubcircuit().getNetList();
+				if (!Unchecked.contains(sub)) {
+					sub.CollectUncheckedNetlists(Unchecked);
+				}
+			}
+		}
+	}
+
 	public void ConstructHierarchyTree(Set<String> ProcessedCircuits,
 			ArrayList<String> HierarchyName, Integer GlobalInputID,
 			Integer GlobalOutputID, Integer GlobalInOutID) {
@@ -241,6 +622,50 @@ public class Netlist {
 
 	public int DesignRuleCheckResult(FPGAReport Reporter, String HDLIdentifier,
 			boolean IsTopLevel, char Vendor, ArrayList<String> Sheetnames) {
+		return DesignRuleCheckResult(Reporter, HDLIdentifier, IsTopLevel,
+				Vendor, Sheetnames, true);
+	}
+
+	/* Parallel is only turned off to compare with the serial path */
+	int DesignRuleCheckResult(FPGAReport Reporter, String HDLIdentifier,
+			boolean IsTopLevel, char Vendor, ArrayList<String> Sheetnames,
+			boolean Parallel) {
+		if (!IsTopLevel) {
+			return DesignRuleCheckSheet(Reporter, HDLIdentifier, false, Vendor,
+					Sheetnames);
+		}
+		/*
+		 * The nets of the sheets that have to be checked are built in parallel
+		 * while the hierarchy is checked sheet by sheet, so the messages keep
+		 * their order
+		 */
+		ArrayList<Netlist> Unchecked = new ArrayList<Netlist>();
+		CollectUncheckedNetlists(Unchecked);
+		ExecutorService Workers = null;
+		if (Parallel && Unchecked.size() > 1) {
+			Workers = Executors.newFixedThreadPool(Math.min(Unchecked.size(),
+					Runtime.getRuntime().availableProcessors()));
+			for (Netlist sheet : Unchecked) {
+				sheet.PendingNets = Workers.submit(new SheetNets(
+						sheet.MyCircuit, null));
+			}
+		}
+		try {
+			return DesignRuleCheckSheet(Reporter, HDLIdentifier, true, Vendor,
+					Sheetnames);
+		} finally {
+			if (Workers != null) {
+				Workers.shutdownNow();
+				for (Netlist sheet : Unchecked) {
+					sheet.PendingNets = null;
+				}
+			}
+		}
+	}
+
+	private int DesignRuleCheckSheet(FPGAReport Reporter,
+			String HDLIdentifier, boolean IsTopLevel, char Vendor,
+			ArrayList<String> Sheetnames) {
 		ArrayList<String> CompName = new ArrayList<String>();
 		ArrayList<Set<String>> AnnotationNames = new ArrayList<Set<String>>();
 		/* Check if we are okay */
@@ -526,344 +951,78 @@ public class Netlist {
 	}
 
 	private Net FindConnectedNet(Location loc) {
-		for (Net Current : MyNets) {
-			if (Current.contains(loc)) {
-				return Current;
-			}
-		}
-		return null;
+		return NetIndex.get(loc);
 	}
 
 	private boolean GenerateNetlist(FPGAReport Reporter, String HDLIdentifier) {
-		GridBagConstraints gbc = new GridBagConstraints();
-		JFrame panel = new JFrame("Netlist: " + MyCircuit.getName());
-		panel.setResizable(false);
-		panel.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
-		GridBagLayout thisLayout = new GridBagLayout();
-		panel.setLayout(thisLayout);
-		// PointerInfo mouseloc = MouseInfo.getPointerInfo();
-		// Point mlocation = mouseloc.getLocation();
-		// panel.setLocation(mlocation.x, mlocation.y);
-		JLabel LocText = new JLabel("Generating Netlist for Circuit: "
-				+ MyCircuit.getName());
-		gbc.gridx = 0;
-		gbc.gridy = 0;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		panel.add(LocText, gbc);
-		JProgressBar progres = new JProgressBar(0, 7);
-		progres.setValue(0);
-		progres.setStringPainted(true);
-		gbc.gridx = 0;
-		gbc.gridy = 1;
-		gbc.fill = GridBagConstraints.HORIZONTAL;
-		panel.add(progres, gbc);
-		panel.pack();
-		panel.setLocation(Projects.getCenteredLoc(panel.getWidth(),
-				panel.getHeight()));
-		panel.setVisible(true);
+		/* The progress window is left out when running headless */
+		JFrame panel = null;
+		JProgressBar progres = null;
+		if (!GraphicsEnvironment.isHeadless()) {
+			GridBagConstraints gbc = new GridBagConstraints();
+			panel = new JFrame("Netlist: " + MyCircuit.getName());
+			panel.setResizable(false);
+			panel.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+			GridBagLayout thisLayout = new GridBagLayout();
+			panel.setLayout(thisLayout);
+			// PointerInfo mouseloc = MouseInfo.getPointerInfo();
+			// Point mlocation = mouseloc.getLocation();
+			// panel.setLocation(mlocation.x, mlocation.y);
+			JLabel LocText = new JLabel("Generating Netlist for Circuit: "
+					+ MyCircuit.getName());
+			gbc.gridx = 0;
+			gbc.gridy = 0;
+			gbc.fill = GridBagConstraints.HORIZONTAL;
+			panel.add(LocText, gbc);
+			progres = new JProgressBar(0, 7);
+			progres.setValue(0);
+			progres.setStringPainted(true);
+			gbc.gridx = 0;
+			gbc.gridy = 1;
+			gbc.fill = GridBagConstraints.HORIZONTAL;
+			panel.add(progres, gbc);
+			panel.pack();
+			panel.setLocation(Projects.getCenteredLoc(panel.getWidth(),
+					panel.getHeight()));
+			panel.setVisible(true);
+		}
 
 		CircuitName = MyCircuit.getName();
-		wires.clear();
-		wires.addAll(MyCircuit.getWires());
 		/*
-		 * FIRST PASS: In this pass we take all wire segments and see if they
-		 * are connected to other segments. If they are connected we build a
-		 * net.
+		 * The first five passes only depend on this sheet; they may already
+		 * have been done on a worker thread by the top-level design rule check
 		 */
-		while (wires.size() != 0) {
-			Net NewNet = new Net();
-			GetNet(null, NewNet);
-			if (!NewNet.isEmpty()) {
-				MyNets.add(NewNet);
+		SheetNets Connectivity = null;
+		if (PendingNets != null) {
+			try {
+				Connectivity = PendingNets.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				logger.error("Unable to build the nets of sheet \"{}\"",
+						MyCircuit.getName(), e.getCause());
 			}
+			PendingNets = null;
 		}
-		/*
-		 * Here we start to detect direct input-output component connections,
-		 * read we detect "hidden" nets
-		 */
-		Set<Component> components = MyCircuit.getNonWires();
-		/* we Start with the creation of an outputs list */
-		Set<Location> OutputsList = new HashSet<Location>();
-		Set<Location> InputsList = new HashSet<Location>();
-		Set<Component> TunnelList = new HashSet<Component>();
-		Set<Component> SplitterList = new HashSet<Component>();
-		for (Component com : components) {
-			/*
-			 * We do not process the splitter and tunnel, they are processed
-			 * later on
-			 */
-			if (!(com.getFactory() instanceof SplitterFactory)
-					&& !(com.getFactory() instanceof Tunnel)
-					&& !(com.getFactory() instanceof PortIO)
-					&& !(com.getFactory() instanceof ReptarLocalBus)) {
-				List<EndData> ends = com.getEnds();
-				for (EndData end : ends) {
-					if (end.isInput() && end.isOutput()) {
-						Reporter.AddFatalError("Detected INOUT pin on component \""
-								+ com.getFactory().getName()
-								+ "\" in circuit \""
-								+ MyCircuit.getName()
-								+ "\"!");
-						this.clear();
-						panel.dispose();
-						return false;
-					}
-					if (end.isOutput()) {
-						OutputsList.add(end.getLocation());
-					} else {
-						InputsList.add(end.getLocation());
-					}
-				}
-			} else {
-				if (com.getFactory() instanceof SplitterFactory) {
-					SplitterList.add(com);
-				} else if (com.getFactory() instanceof Tunnel) {
-					TunnelList.add(com);
-				}
-			}
+		if (Connectivity == null) {
+			Connectivity = new SheetNets(MyCircuit, progres);
+			Connectivity.call();
 		}
-		progres.setValue(1);
-		Rectangle ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
-		/*
-		 * Now we check if an input pin is connected to an output and in case of
-		 * a Splitter if it is connected to either of them
-		 */
-		Set<Location> ZeroLengthNets = new HashSet<Location>();
-		for (Component com : components) {
-			if ((com.getFactory() instanceof SplitterFactory)
-					|| (com.getFactory() instanceof Tunnel)) {
-				List<EndData> ends = com.getEnds();
-				for (EndData end : ends) {
-					/* first we check for "normal" components */
-					if (InputsList.contains(end.getLocation())
-							|| OutputsList.contains(end.getLocation())) {
-						/*
-						 * We found a hidden Net. Let's check that it is not
-						 * already contained in an existing net before adding it
-						 * to the ZeroLengthNets Set
-						 */
-						boolean connected = false;
-						for (Net net : MyNets) {
-							connected |= net.contains(end.getLocation());
-						}
-						if (!connected) {
-							ZeroLengthNets.add(end.getLocation());
-						}
-					}
-					/* Now we have to detect inter Splitter/Tunnel connections */
-					for (Component tun : TunnelList) {
-						if (!tun.equals(com)) {
-							List<EndData> tends = tun.getEnds();
-							for (EndData thisend : tends) {
-								if (thisend.getLocation().equals(
-										end.getLocation())) {
-									boolean connected = false;
-									for (Net net : MyNets) {
-										connected |= net.contains(end
-												.getLocation());
-									}
-									if (!connected) {
-										ZeroLengthNets.add(end.getLocation());
-									}
-								}
-							}
-						}
-					}
-					for (Component tun : SplitterList) {
-						if (!tun.equals(com)) {
-							List<EndData> tends = tun.getEnds();
-							for (EndData thisend : tends) {
-								if (thisend.getLocation().equals(
-										end.getLocation())) {
-									boolean connected = false;
-									for (Net net : MyNets) {
-										connected |= net.contains(end
-												.getLocation());
-									}
-									if (!connected) {
-										ZeroLengthNets.add(end.getLocation());
-									}
-								}
-							}
-						}
-					}
-				}
-			} else {
-				List<EndData> ends = com.getEnds();
-				for (EndData end : ends) {
-					if (end.isInput()
-							&& OutputsList.contains(end.getLocation())) {
-						/*
-						 * We found a hidden Net. Let's check that it is not
-						 * already contained in an existing net before adding it
-						 * to the ZeroLengthNets Set
-						 */
-						boolean connected = false;
-						for (Net net : MyNets) {
-							connected |= net.contains(end.getLocation());
-						}
-						if (!connected) {
-							ZeroLengthNets.add(end.getLocation());
-						}
-					}
-				}
-			}
-		}
-		InputsList.clear();
-		OutputsList.clear();
-		for (Location Loc : ZeroLengthNets) {
-			Net NewNet = new Net(Loc);
-			MyNets.add(NewNet);
-		}
-		progres.setValue(2);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
-		/*
-		 * Here we are going to process the tunnels and possible merging of the
-		 * tunneled nets
-		 */
-		boolean TunnelsPresent = false;
-		for (Component com : TunnelList) {
-			List<EndData> ends = com.getEnds();
-			for (EndData end : ends) {
-				for (Net ThisNet : MyNets) {
-					if (ThisNet.contains(end.getLocation())) {
-						ThisNet.addTunnel(com.getAttributeSet().getValue(
-								StdAttr.LABEL));
-						TunnelsPresent = true;
-					}
-				}
-			}
-		}
-		if (TunnelsPresent) {
-			Iterator<Net> NetIterator = MyNets.listIterator();
-			while (NetIterator.hasNext()) {
-				Net ThisNet = NetIterator.next();
-				if (ThisNet.HasTunnel()
-						&& (MyNets.indexOf(ThisNet) < (MyNets.size() - 1))) {
-					boolean merged = false;
-					Iterator<Net> SearchIterator = MyNets.listIterator(MyNets
-							.indexOf(ThisNet) + 1);
-					while (SearchIterator.hasNext() && !merged) {
-						Net SearchNet = SearchIterator.next();
-						for (String name : ThisNet.TunnelNames()) {
-							if (SearchNet.ContainsTunnel(name) && !merged) {
-								merged = true;
-								SearchNet.merge(ThisNet);
-							}
-						}
-					}
-					if (merged) {
-						NetIterator.remove();
-					}
-				}
-			}
+		if (Connectivity.Error != null) {
+			Reporter.AddFatalError(Connectivity.Error);
+			this.clear();
+			CloseProgress(panel);
+			return false;
 		}
-		progres.setValue(3);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
-		/*
-		 * Now all nets (connections) in the circuit are visible. Lets check for
-		 * busses
-		 */
+		MyNets.addAll(Connectivity.Nets);
+		IndexNets();
+		Set<Component> components = MyCircuit.getNonWires();
+		Set<Component> SplitterList = new HashSet<Component>();
 		for (Component com : components) {
-			List<EndData> ends = com.getEnds();
-			for (EndData end : ends) {
-				if (end.getWidth().getWidth() > 1) {
-					/*
-					 * We found a bus, let's check if this pin is connected to a
-					 * net
-					 */
-					for (Net ThisNet : MyNets) {
-						if (ThisNet.contains(end.getLocation())) {
-							ThisNet.setBus(end.getWidth().getWidth());
-						}
-					}
-				}
+			if (com.getFactory() instanceof SplitterFactory) {
+				SplitterList.add(com);
 			}
 		}
-		progres.setValue(4);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
-		/*
-		 * Finally we have to process the splitters to determine the bus
-		 * hierarchy (if any)
-		 */
-		/*
-		 * In this round we only process the evident splitters and remove them
-		 * from the list
-		 */
-		Iterator<Component> MySplitters = SplitterList.iterator();
-		while (MySplitters.hasNext()) {
-			Component com = MySplitters.next();
-			/*
-			 * Currently by definition end(0) is the combined end of the
-			 * splitter
-			 */
-			List<EndData> ends = com.getEnds();
-			EndData CombinedEnd = ends.get(0);
-			int RootNet = -1;
-			/* We search for the root net in the list of nets */
-			for (int i = 0; i < MyNets.size() && RootNet < 0; i++) {
-				if (MyNets.get(i).contains(CombinedEnd.getLocation())) {
-					RootNet = i;
-				}
-			}
-			if (RootNet < 0) {
-				Reporter.AddFatalError("Could not find the rootnet of a Splitter in circuit \""
-						+ MyCircuit.getName() + "\"!");
-				this.clear();
-				panel.dispose();
-				return false;
-			}
-			/*
-			 * Now we process all the other ends to find the child busses/nets
-			 * of this root bus
-			 */
-			ArrayList<Integer> Connections = new ArrayList<Integer>();
-			for (int i = 1; i < ends.size(); i++) {
-				EndData ThisEnd = ends.get(i);
-				/* Find the connected net */
-				int ConnectedNet = -1;
-				for (int j = 0; j < MyNets.size() && ConnectedNet < 1; j++) {
-					if (MyNets.get(j).contains(ThisEnd.getLocation())) {
-						ConnectedNet = j;
-					}
-				}
-				Connections.add(ConnectedNet);
-			}
-			for (int i = 1; i < ends.size(); i++) {
-				int ConnectedNet = Connections.get(i - 1);
-				if (ConnectedNet >= 0) {
-					/* There is a net connected to this splitter's end point */
-					if (!MyNets.get(ConnectedNet)
-							.setParent(MyNets.get(RootNet))) {
-						MyNets.get(ConnectedNet).ForceRootNet();
-					}
-					/* Here we have to process the inherited bits of the parent */
-					byte[] BusBitConnection = ((Splitter) com).GetEndpoints();
-					for (byte b = 0; b < BusBitConnection.length; b++) {
-						if (BusBitConnection[b] == i) {
-							MyNets.get(ConnectedNet).AddParrentBit(b);
-						}
-					}
-				}
-			}
-		}
-		progres.setValue(5);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
 		/*
 		 * Now the complete netlist is created, we have to check that each
 		 * net/bus entry has only 1 source and 1 or more sinks. If there exist
@@ -881,11 +1040,13 @@ public class Netlist {
 		 * present a source or sink. We omit the splitter and tunnel as we
 		 * already processed those
 		 */
-		for (Component comp : components) {
+		List<Component> OrderedComponents = new ArrayList<Component>(components);
+		Collections.sort(OrderedComponents, ComponentOrder);
+		for (Component comp : OrderedComponents) {
 			if (comp.getFactory() instanceof SubcircuitFactory) {
 				if (!ProcessSubcircuit(comp, Reporter)) {
 					this.clear();
-					panel.dispose();
+					CloseProgress(panel);
 					return false;
 				}
 			} else if ((comp.getFactory() instanceof Pin)
@@ -894,16 +1055,12 @@ public class Netlist {
 							comp.getAttributeSet(), FPGAClass.VendorUnknown) != null)) {
 				if (!ProcessNormalComponent(comp, Reporter)) {
 					this.clear();
-					panel.dispose();
+					CloseProgress(panel);
 					return false;
 				}
 			}
 		}
-		progres.setValue(6);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
+		ShowProgress(progres, 6);
 		/*
 		 * Here we are going to process the complex splitters, note that in the
 		 * previous handling of the splitters we marked all nets connected to a
@@ -921,22 +1078,17 @@ public class Netlist {
 						 */
 						List<EndData> ends = comp.getEnds();
 						EndData CombinedEnd = ends.get(0);
-						int ConnectedBus = -1;
 						/* We search for the root net in the list of nets */
-						for (int i = 0; i < MyNets.size() && ConnectedBus < 0; i++) {
-							if (MyNets.get(i).contains(
-									CombinedEnd.getLocation())) {
-								ConnectedBus = i;
-							}
-						}
-						if (ConnectedBus < 0) {
+						Net ConnectedBus = FindConnectedNet(CombinedEnd
+								.getLocation());
+						if (ConnectedBus == null) {
 							/*
 							 * This should never happen as we already checked in
 							 * the first pass
 							 */
 							Reporter.AddFatalError("Internal error!");
 							this.clear();
-							panel.dispose();
+							CloseProgress(panel);
 							return false;
 						}
 						for (int endid = 1; endid < ends.size(); endid++) {
@@ -963,7 +1115,7 @@ public class Netlist {
 								}
 								byte ConnectedBusIndex = IndexBits.get(bit);
 								/* Figure out the rootbusid and rootbusindex */
-								Net Rootbus = MyNets.get(ConnectedBus);
+								Net Rootbus = ConnectedBus;
 								while (!Rootbus.IsRootNet()) {
 									ConnectedBusIndex = Rootbus
 											.getBit(ConnectedBusIndex);
@@ -991,12 +1143,8 @@ public class Netlist {
 				}
 			}
 		}
-		progres.setValue(7);
-		ProgRect = progres.getBounds();
-		ProgRect.x = 0;
-		ProgRect.y = 0;
-		progres.paintImmediately(ProgRect);
-		panel.dispose();
+		ShowProgress(progres, 7);
+		CloseProgress(panel);
 		/* So now we have all information we need! */
 		return true;
 	}
@@ -1061,7 +1209,7 @@ public class Netlist {
 		 * to prevent deadlock situations we check if we already looked at this
 		 * net
 		 */
-		String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-"
+		String NetId = Integer.toString(GetNetId(thisNet)) + "-"
 				+ Byte.toString(bitIndex);
 		if (HandledNets.contains(NetId)) {
 			return result;
@@ -1097,13 +1245,8 @@ public class Netlist {
 							}
 						}
 						/* Find the connected Net */
-						Net SlaveNet = null;
-						for (Net thisnet : MyNets) {
-							if (thisnet.contains(ends.get(SplitterEnd)
-									.getLocation())) {
-								SlaveNet = thisnet;
-							}
-						}
+						Net SlaveNet = FindConnectedNet(ends.get(SplitterEnd)
+								.getLocation());
 						if (SlaveNet != null) {
 							if (SlaveNet.IsRootNet()) {
 								/* Trace down the slavenet */
@@ -1125,13 +1268,8 @@ public class Netlist {
 								Rootindices.add(b);
 							}
 						}
-						Net RootNet = null;
-						for (Net thisnet : MyNets) {
-							if (thisnet.contains(currentSplitter.getEnd(0)
-									.getLocation())) {
-								RootNet = thisnet;
-							}
-						}
+						Net RootNet = FindConnectedNet(currentSplitter
+								.getEnd(0).getLocation());
 						if (RootNet != null) {
 							if (RootNet.IsRootNet()) {
 								result.addAll(GetHiddenSinks(RootNet,
@@ -1237,30 +1375,9 @@ public class Netlist {
 		return Components;
 	}
 
-	private void GetNet(Wire wire, Net ThisNet) {
-		Iterator<Wire> MyIterator = wires.iterator();
-		ArrayList<Wire> MatchedWires = new ArrayList<Wire>();
-		Wire CompWire = wire;
-		while (MyIterator.hasNext()) {
-			Wire ThisWire = MyIterator.next();
-			if (CompWire == null) {
-				CompWire = ThisWire;
-				ThisNet.add(ThisWire);
-				MyIterator.remove();
-			} else if (ThisWire.sharesEnd(CompWire)) {
-				MatchedWires.add(ThisWire);
-				ThisNet.add(ThisWire);
-				MyIterator.remove();
-			}
-		}
-		for (int i = 0; i < MatchedWires.size(); i++) {
-			GetNet(MatchedWires.get(i), ThisNet);
-		}
-		MatchedWires.clear();
-	}
-
 	public Integer GetNetId(Net selectedNet) {
-		return MyNets.indexOf(selectedNet);
+		Integer Id = NetIds.get(selectedNet);
+		return Id == null ? -1 : Id;
 	}
 
 	public ConnectionPoint GetNetlistConnectionForSubCircuit(String Label,
@@ -1379,7 +1496,7 @@ public class Netlist {
 		 * to prevent deadlock situations we check if we already looked at this
 		 * net
 		 */
-		String NetId = Integer.toString(MyNets.indexOf(thisNet)) + "-"
+		String NetId = Integer.toString(GetNetId(thisNet)) + "-"
 				+ Byte.toString(bitIndex);
 		if (HandledNets.contains(NetId)) {
 			return false;
@@ -1411,13 +1528,8 @@ public class Netlist {
 							}
 						}
 						/* Find the connected Net */
-						Net SlaveNet = null;
-						for (Net thisnet : MyNets) {
-							if (thisnet.contains(ends.get(SplitterEnd)
-									.getLocation())) {
-								SlaveNet = thisnet;
-							}
-						}
+						Net SlaveNet = FindConnectedNet(ends.get(SplitterEnd)
+								.getLocation());
 						if (SlaveNet != null) {
 							if (SlaveNet.IsRootNet()) {
 								/* Trace down the slavenet */
@@ -1442,13 +1554,8 @@ public class Netlist {
 								Rootindices.add(b);
 							}
 						}
-						Net RootNet = null;
-						for (Net thisnet : MyNets) {
-							if (thisnet.contains(currentSplitter.getEnd(0)
-									.getLocation())) {
-								RootNet = thisnet;
-							}
-						}
+						Net RootNet = FindConnectedNet(currentSplitter
+								.getEnd(0).getLocation());
 						if (RootNet != null) {
 							if (RootNet.IsRootNet()) {
 								if (HasHiddenSource(RootNet,
@@ -1473,6 +1580,18 @@ public class Netlist {
 		return false;
 	}
 
+	private void IndexNets() {
+		NetIndex.clear();
+		NetIds.clear();
+		for (int i = 0; i < MyNets.size(); i++) {
+			Net ThisNet = MyNets.get(i);
+			NetIds.put(ThisNet, i);
+			for (Location loc : ThisNet.getPoints()) {
+				NetIndex.put(loc, ThisNet);
+			}
+		}
+	}
+
 	public boolean IsContinuesBus(NetlistComponent comp, int EndIndex) {
 		boolean ContinuesBus = true;
 		if ((EndIndex < 0) || (EndIndex >= comp.NrOfEnds())) {
@@ -1606,6 +1725,7 @@ public class Netlist {
 				thisnet.FinalCleanup();
 			}
 		}
+		IndexNets();
 		return true;
 	}
 
@@ -1824,6 +1944,23 @@ public class Netlist {
 				.RequiresFPGAGlobalClock();
 	}
 
+	private static void CloseProgress(JFrame panel) {
+		if (panel != null) {
+			panel.dispose();
+		}
+	}
+
+	private static void ShowProgress(JProgressBar progres, int value) {
+		if (progres == null) {
+			return;
+		}
+		progres.setValue(value);
+		Rectangle ProgRect = progres.getBounds();
+		ProgRect.x = 0;
+		ProgRect.y = 0;
+		progres.paintImmediately(ProgRect);
+	}
+
 	public void SetCurrentHierarchyLevel(ArrayList<String> Level) {
 		CurrentHierarchyLevel.clear();
 		CurrentHierarchyLevel.addAll(Level);
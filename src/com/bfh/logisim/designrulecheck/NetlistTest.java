@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.bfh.logisim.designrulecheck;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.bfh.logisim.fpgaboardeditor.FPGAClass;
+import com.bfh.logisim.fpgagui.FPGAReport;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+/**
+ * Runs the design rule check on a small hierarchy with wires, tunnels, a
+ * splitter and two kinds of sub-circuits.
+ */
+public class NetlistTest {
+	private static final Loader LOADER = new Loader(null);
+
+	/** Keeps the messages instead of sending them to the FPGA commander */
+	private static class Messages extends FPGAReport {
+		private List<String> lines = new ArrayList<String>();
+
+		Messages() {
+			super(null);
+		}
+
+		@Override
+		public void AddError(String Message) {
+			lines.add("error " + Message);
+		}
+
+		@Override
+		public void AddFatalError(String Message) {
+			lines.add("fatal " + Message);
+		}
+
+		@Override
+		public void AddInfo(String Message) {
+			lines.add("info " + Message);
+		}
+
+		@Override
+		public void AddSevereError(String Message) {
+			lines.add("severe " + Message);
+		}
+
+		@Override
+		public void AddSevereWarning(String Message) {
+			lines.add("severe warning " + Message);
+		}
+
+		@Override
+		public void AddWarning(String Message) {
+			lines.add("warning " + Message);
+		}
+
+		@Override
+		public void ClsScr() {
+		}
+
+		@Override
+		public void print(String Message) {
+			lines.add(Message);
+		}
+	}
+
+	private LogisimFile file;
+	private Circuit main;
+	private Circuit half;
+	private int pins;
+
+	/* the locations the tests look at */
+	private Location halfA;
+	private Location halfAndA;
+	private Location halfSum;
+	private Location busEnd;
+	private Location bitEnd;
+
+	private static Component add(CircuitMutation xn, ComponentFactory factory,
+			Location loc, String... attrValues) {
+		AttributeSet attrs = factory.createAttributeSet();
+		for (String attrValue : attrValues) {
+			String[] nameValue = attrValue.split("=", 2);
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrs
+					.getAttribute(nameValue[0]);
+			attrs.setValue(attr, attr.parse(nameValue[1]));
+		}
+		Component comp = factory.createComponent(loc, attrs);
+		xn.add(comp);
+		return comp;
+	}
+
+	private static Component add(CircuitMutation xn, String lib, String name,
+			Location loc, String... attrValues) {
+		return add(xn, ((AddTool) LOADER.getBuiltin().getLibrary(lib)
+				.getTool(name)).getFactory(), loc, attrValues);
+	}
+
+	private Component pin(CircuitMutation xn, Location loc, int width,
+			boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.LABEL, "P" + (++pins));
+		Component comp = Pin.FACTORY.createComponent(loc, attrs);
+		xn.add(comp);
+		return comp;
+	}
+
+	/* A pin on every end of a component */
+	private void pins(CircuitMutation xn, Component comp) {
+		for (EndData end : comp.getEnds()) {
+			pin(xn, end.getLocation(), end.getWidth().getWidth(),
+					end.isOutput());
+		}
+	}
+
+	/* An output led out to a pin through a wire */
+	private void output(CircuitMutation xn, Location loc, int width) {
+		xn.add(Wire.create(loc, loc.translate(30, 0)));
+		pin(xn, loc.translate(30, 0), width, true);
+	}
+
+	@Before
+	public void setUp() {
+		file = LogisimFile.createNew(LOADER);
+		main = file.getMainCircuit();
+
+		// a half adder whose AND gate is fed through tunnels
+		half = new Circuit("half", file);
+		file.addCircuit(half);
+		CircuitMutation xn = new CircuitMutation(half);
+		Component xor = add(xn, "Gates", "XOR Gate", Location.create(200, 100),
+				"label=X");
+		Component and = add(xn, "Gates", "AND Gate", Location.create(200, 200),
+				"label=A");
+		halfA = xor.getEnd(1).getLocation();
+		halfAndA = and.getEnd(1).getLocation();
+		halfSum = xor.getEnd(0).getLocation();
+		pin(xn, halfA, 1, false);
+		pin(xn, xor.getEnd(2).getLocation(), 1, false);
+		add(xn, "Wiring", "Tunnel", halfA, "label=a");
+		add(xn, "Wiring", "Tunnel", xor.getEnd(2).getLocation(), "label=b");
+		add(xn, "Wiring", "Tunnel", halfAndA, "label=a");
+		add(xn, "Wiring", "Tunnel", and.getEnd(2).getLocation(), "label=b");
+		output(xn, halfSum, 1);
+		output(xn, and.getEnd(0).getLocation(), 1);
+		xn.execute();
+
+		Circuit inv = new Circuit("inv", file);
+		file.addCircuit(inv);
+		xn = new CircuitMutation(inv);
+		Component not = add(xn, "Gates", "NOT Gate", Location.create(200, 100),
+				"label=N");
+		pins(xn, not);
+		xn.execute();
+
+		// the sub-circuits on pins, and a gate fed from a bus
+		xn = new CircuitMutation(main);
+		pins(xn, add(xn, half.getSubcircuitFactory(), Location.create(400, 100),
+				"label=H1"));
+		pins(xn, add(xn, inv.getSubcircuitFactory(), Location.create(400, 600),
+				"label=I1"));
+		Component split = add(xn, "Wiring", "Splitter",
+				Location.create(100, 300));
+		busEnd = split.getEnd(0).getLocation();
+		bitEnd = split.getEnd(1).getLocation();
+		xn.add(Wire.create(busEnd.translate(-20, 0), busEnd));
+		pin(xn, busEnd.translate(-20, 0), 2, false);
+		Component gate = add(xn, "Gates", "AND Gate", Location.create(400, 300),
+				"label=G");
+		for (int bit = 0; bit < 2; bit++) {
+			Location from = split.getEnd(bit + 1).getLocation();
+			Location to = gate.getEnd(bit + 1).getLocation();
+			int lane = 200 + 20 * bit;
+			xn.add(Wire.create(from, Location.create(lane, from.getY())));
+			xn.add(Wire.create(Location.create(lane, from.getY()),
+					Location.create(lane, to.getY())));
+			xn.add(Wire.create(Location.create(lane, to.getY()), to));
+		}
+		output(xn, gate.getEnd(0).getLocation(), 1);
+		xn.execute();
+	}
+
+	private int check(Messages report, boolean parallel) {
+		return main.getNetList().DesignRuleCheckResult(report, "VHDL", true,
+				FPGAClass.VendorAltera, new ArrayList<String>(), parallel);
+	}
+
+	private static String connection(Netlist netlist, ConnectionPoint point) {
+		if (point == null || point.GetParrentNet() == null) {
+			return "-";
+		}
+		return netlist.GetNetId(point.GetParrentNet()) + "."
+				+ point.GetParrentNetBitIndex();
+	}
+
+	private static void describe(List<String> lines, Netlist netlist,
+			String kind, NetlistComponent comp) {
+		StringBuilder line = new StringBuilder(kind + " "
+				+ comp.GetComponent().getFactory().getName() + " "
+				+ comp.GetComponent().getLocation());
+		for (int i = 0; i < comp.NrOfEnds(); i++) {
+			ConnectionEnd end = comp.getEnd(i);
+			line.append(end.IsOutputEnd() ? " >" : " <");
+			for (int bit = 0; bit < end.NrOfBits(); bit++) {
+				line.append(" ").append(
+						connection(netlist, end.GetConnection((byte) bit)));
+			}
+		}
+		lines.add(line.toString());
+	}
+
+	/*
+	 * Describes the nets of a checked netlist and what is connected to them.
+	 * Only the root nets remain after the check, and they have lost their
+	 * points, so they are named by their id.
+	 */
+	private static String describe(Netlist netlist) {
+		List<String> lines = new ArrayList<String>();
+		for (Net net : netlist.GetAllNets()) {
+			StringBuilder line = new StringBuilder("net "
+					+ netlist.GetNetId(net) + " " + net.BitWidth());
+			for (int bit = 0; bit < net.BitWidth(); bit++) {
+				line.append(" ").append(net.hasBitSource(bit) ? "s" : "-")
+						.append(net.hasBitSinks(bit) ? "k" : "-");
+			}
+			lines.add(line.toString());
+		}
+		for (NetlistComponent comp : netlist.GetNormalComponents()) {
+			describe(lines, netlist, "comp", comp);
+		}
+		for (NetlistComponent comp : netlist.GetSubCircuits()) {
+			describe(lines, netlist, "sub", comp);
+		}
+		for (int i = 0; i < netlist.NumberOfInputPorts(); i++) {
+			describe(lines, netlist, "in", netlist.GetInputPin(i));
+		}
+		for (int i = 0; i < netlist.NumberOfOutputPorts(); i++) {
+			describe(lines, netlist, "out", netlist.GetOutputPin(i));
+		}
+		Collections.sort(lines);
+		StringBuilder ret = new StringBuilder();
+		for (String line : lines) {
+			ret.append(line).append('\n');
+		}
+		return ret.toString();
+	}
+
+	private static Net netAt(Netlist netlist, Location loc) {
+		for (Net net : netlist.GetAllNets()) {
+			if (net.contains(loc)) {
+				return net;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testNetsFollowWiresAndTunnels() {
+		/* below the top level the nets keep their points */
+		assertEquals(Netlist.DRC_PASSED, main.getNetList()
+				.DesignRuleCheckResult(new Messages(), "VHDL", false,
+						FPGAClass.VendorAltera, new ArrayList<String>()));
+		Netlist sub = half.getNetList();
+		Net a = netAt(sub, halfA);
+		assertNotNull(a);
+		assertSame("joined through the tunnels", a, netAt(sub, halfAndA));
+		assertSame(a, sub.GetAllNets().get(sub.GetNetId(a)));
+		assertTrue(netAt(sub, halfSum).contains(halfSum.translate(30, 0)));
+
+		Netlist top = main.getNetList();
+		Net bus = netAt(top, busEnd);
+		assertTrue(bus.isBus());
+		assertEquals(2, bus.BitWidth());
+		Net bit = netAt(top, bitEnd);
+		assertFalse(bit.IsRootNet());
+		assertSame(bus, bit.getParent());
+	}
+
+	@Test
+	public void testParallelCheckMatchesSerial() {
+		Messages parallel = new Messages();
+		assertEquals(Netlist.DRC_PASSED, check(parallel, true));
+		List<String> expected = new ArrayList<String>();
+		for (Circuit circuit : file.getCircuits()) {
+			expected.add(describe(circuit.getNetList()));
+			circuit.getNetList().clear();
+		}
+
+		Messages serial = new Messages();
+		assertEquals(Netlist.DRC_PASSED, check(serial, false));
+		List<String> actual = new ArrayList<String>();
+		for (Circuit circuit : file.getCircuits()) {
+			actual.add(describe(circuit.getNetList()));
+		}
+		assertEquals(serial.lines, parallel.lines);
+		assertEquals(expected, actual);
+	}
+}
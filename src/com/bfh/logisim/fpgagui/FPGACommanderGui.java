@@ -69,6 +69,7 @@ import com.bfh.logisim.fpgaboardeditor.FPGAClass;
 import com.bfh.logisim.hdlgenerator.AbstractHDLGeneratorFactory;
 import com.bfh.logisim.hdlgenerator.FileWriter;
 import com.bfh.logisim.hdlgenerator.HDLGeneratorFactory;
+import com.bfh.logisim.hdlgenerator.HDLManifest;
 import com.bfh.logisim.hdlgenerator.TickComponentHDLGeneratorFactory;
 import com.bfh.logisim.hdlgenerator.ToplevelHDLGeneratorFactory;
 import com.bfh.logisim.settings.Settings;
@@ -1102,11 +1103,26 @@ public class FPGACommanderGui implements ActionListener {
 		Circuit RootSheet = myfile.getCircuit(CircuitName);
 		ProjectDir += CorrectLabel.getCorrectLabel(RootSheet.getName())
 				+ File.separator;
-		if (!CleanDirectory(ProjectDir)) {
-			MyReporter
-					.AddFatalError("Unable to cleanup old project files in directory: \""
-							+ ProjectDir + "\"");
-			return false;
+		/*
+		 * The HDL sources of the previous run are kept; the manifest only
+		 * rewrites the files whose contents changed, such that the vendor
+		 * tools do not recompile unchanged entities
+		 */
+		String HDLDir = MySettings.GetHDLType().toLowerCase();
+		File[] OldFiles = new File(ProjectDir).listFiles();
+		if (OldFiles != null) {
+			for (File OldFile : OldFiles) {
+				if (OldFile.getName().equals(HDLDir)) {
+					continue;
+				}
+				if (OldFile.isDirectory() ? !CleanDirectory(OldFile.getPath())
+						: !OldFile.delete()) {
+					MyReporter
+							.AddFatalError("Unable to cleanup old project files in directory: \""
+									+ ProjectDir + "\"");
+					return false;
+				}
+			}
 		}
 		if (!GenDirectory(ProjectDir)) {
 			MyReporter.AddFatalError("Unable to create directory: \""
@@ -1120,6 +1136,7 @@ public class FPGACommanderGui implements ActionListener {
 				return false;
 			}
 		}
+		HDLManifest Manifest = new HDLManifest(ProjectDir + HDLDir);
 		Set<String> GeneratedHDLComponents = new HashSet<String>();
 		HDLGeneratorFactory Worker = RootSheet.getSubcircuitFactory()
 				.getHDLGenerator(MySettings.GetHDLType(),
@@ -1131,7 +1148,8 @@ public class FPGACommanderGui implements ActionListener {
 			return false;
 		}
 		if (!Worker.GenerateAllHDLDescriptions(GeneratedHDLComponents,
-				ProjectDir, null, MyReporter, MySettings.GetHDLType())) {
+				ProjectDir, null, MyReporter, MySettings.GetHDLType(),
+				Manifest)) {
 			return false;
 		}
 		/* Here we generate the top-level shell */
@@ -1148,7 +1166,7 @@ public class FPGACommanderGui implements ActionListener {
 							Ticker.getComponentStringIdentifier(), MyReporter,
 							MySettings.GetHDLType()), Ticker
 							.getComponentStringIdentifier(), MyReporter,
-					MySettings.GetHDLType())) {
+					MySettings.GetHDLType(), Manifest)) {
 				return false;
 			}
 			if (!AbstractHDLGeneratorFactory.WriteArchitecture(ProjectDir
@@ -1157,7 +1175,7 @@ public class FPGACommanderGui implements ActionListener {
 							Ticker.getComponentStringIdentifier(), MyReporter,
 							MySettings.GetHDLType()), Ticker
 							.getComponentStringIdentifier(), MyReporter,
-					MySettings.GetHDLType())) {
+					MySettings.GetHDLType(), Manifest)) {
 				return false;
 			}
 			HDLGeneratorFactory ClockGen = RootSheet
@@ -1178,14 +1196,14 @@ public class FPGACommanderGui implements ActionListener {
 									.GetHDLType()), ClockGen.GetEntity(
 							RootSheet.getNetList(), null, CompName, MyReporter,
 							MySettings.GetHDLType()), CompName, MyReporter,
-					MySettings.GetHDLType())) {
+					MySettings.GetHDLType(), Manifest)) {
 				return false;
 			}
 			if (!AbstractHDLGeneratorFactory.WriteArchitecture(ProjectDir
 					+ ClockGen.GetRelativeDirectory(MySettings.GetHDLType()),
 					ClockGen.GetArchitecture(RootSheet.getNetList(), null,
 							CompName, MyReporter, MySettings.GetHDLType()),
-					CompName, MyReporter, MySettings.GetHDLType())) {
+					CompName, MyReporter, MySettings.GetHDLType(), Manifest)) {
 				return false;
 			}
 		}
@@ -1201,7 +1219,7 @@ public class FPGACommanderGui implements ActionListener {
 						ToplevelHDLGeneratorFactory.FPGAToplevelName,
 						MyReporter, MySettings.GetHDLType()), Worker
 						.getComponentStringIdentifier(), MyReporter, MySettings
-						.GetHDLType())) {
+						.GetHDLType(), Manifest)) {
 			return false;
 		}
 		if (!AbstractHDLGeneratorFactory.WriteArchitecture(
@@ -1211,10 +1229,12 @@ public class FPGACommanderGui implements ActionListener {
 						ToplevelHDLGeneratorFactory.FPGAToplevelName,
 						MyReporter, MySettings.GetHDLType()), Worker
 						.getComponentStringIdentifier(), MyReporter, MySettings
-						.GetHDLType())) {
+						.GetHDLType(), Manifest)) {
+			return false;
+		}
+		if (!Manifest.Save(MyReporter)) {
 			return false;
 		}
-
 		return true;
 	}
 }
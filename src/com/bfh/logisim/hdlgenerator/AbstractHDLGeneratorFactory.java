@@ -84,11 +84,23 @@ public class AbstractHDLGeneratorFactory implements HDLGeneratorFactory {
 	public static boolean WriteArchitecture(String TargetDirectory,
 			ArrayList<String> Contents, String ComponentName,
 			FPGAReport Reporter, String HDLType) {
+		return WriteArchitecture(TargetDirectory, Contents, ComponentName,
+				Reporter, HDLType, null);
+	}
+
+	public static boolean WriteArchitecture(String TargetDirectory,
+			ArrayList<String> Contents, String ComponentName,
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest) {
 		if (Contents.isEmpty()) {
 			Reporter.AddFatalError("INTERNAL ERROR: Empty behavior description for Component '"
 					+ ComponentName + "' received!");
 			return false;
 		}
+		if (Manifest != null) {
+			return Manifest.Write(new File(FileWriter.GetFileName(
+					TargetDirectory, ComponentName, false, HDLType)),
+					FileWriter.GetContents(Contents), Reporter);
+		}
 		File OutFile = FileWriter.GetFilePointer(TargetDirectory,
 				ComponentName, false, Reporter, HDLType);
 		if (OutFile == null) {
@@ -100,6 +112,13 @@ public class AbstractHDLGeneratorFactory implements HDLGeneratorFactory {
 	public static boolean WriteEntity(String TargetDirectory,
 			ArrayList<String> Contents, String ComponentName,
 			FPGAReport Reporter, String HDLType) {
+		return WriteEntity(TargetDirectory, Contents, ComponentName, Reporter,
+				HDLType, null);
+	}
+
+	public static boolean WriteEntity(String TargetDirectory,
+			ArrayList<String> Contents, String ComponentName,
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest) {
 		if (HDLType.endsWith(Settings.VERILOG)) {
 			return true;
 		}
@@ -107,6 +126,11 @@ public class AbstractHDLGeneratorFactory implements HDLGeneratorFactory {
 			Reporter.AddFatalError("INTERNAL ERROR: Empty entity description received!");
 			return false;
 		}
+		if (Manifest != null) {
+			return Manifest.Write(new File(FileWriter.GetFileName(
+					TargetDirectory, ComponentName, true, HDLType)),
+					FileWriter.GetContents(Contents), Reporter);
+		}
 		File OutFile = FileWriter.GetFilePointer(TargetDirectory,
 				ComponentName, true, Reporter, HDLType);
 		if (OutFile == null) {
@@ -120,7 +144,7 @@ public class AbstractHDLGeneratorFactory implements HDLGeneratorFactory {
 	/* Here the common predefined methods are defined */
 	public boolean GenerateAllHDLDescriptions(Set<String> HandledComponents,
 			String WorkingDir, ArrayList<String> Hierarchy,
-			FPGAReport Reporter, String HDLType) {
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest) {
 		return true;
 	}
 
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.bfh.logisim.hdlgenerator;
+
+import java.util.ArrayList;
+
+import com.bfh.logisim.fpgagui.FPGAReport;
+
+/**
+ * Collects the messages of an HDL generation job running on a worker thread,
+ * so they can be replayed in order on the thread that owns the reporter.
+ */
+class BufferedReport extends FPGAReport {
+
+	private static final int ERROR = 0;
+	private static final int FATAL_ERROR = 1;
+	private static final int INFO = 2;
+	private static final int SEVERE_ERROR = 3;
+	private static final int SEVERE_WARNING = 4;
+	private static final int WARNING = 5;
+	private static final int PRINT = 6;
+
+	private ArrayList<Integer> Kinds = new ArrayList<Integer>();
+	private ArrayList<String> Messages = new ArrayList<String>();
+
+	public BufferedReport() {
+		super(null);
+	}
+
+	private void Add(int Kind, String Message) {
+		Kinds.add(Kind);
+		Messages.add(Message);
+	}
+
+	@Override
+	public void AddError(String Message) {
+		Add(ERROR, Message);
+	}
+
+	@Override
+	public void AddFatalError(String Message) {
+		Add(FATAL_ERROR, Message);
+	}
+
+	@Override
+	public void AddInfo(String Message) {
+		Add(INFO, Message);
+	}
+
+	@Override
+	public void AddSevereError(String Message) {
+		Add(SEVERE_ERROR, Message);
+	}
+
+	@Override
+	public void AddSevereWarning(String Message) {
+		Add(SEVERE_WARNING, Message);
+	}
+
+	@Override
+	public void AddWarning(String Message) {
+		Add(WARNING, Message);
+	}
+
+	@Override
+	public void ClsScr() {
+	}
+
+	public void Flush(FPGAReport Target) {
+		for (int i = 0; i < Kinds.size(); i++) {
+			String Message = Messages.get(i);
+			switch (Kinds.get(i)) {
+			case ERROR:
+				Target.AddError(Message);
+				break;
+			case FATAL_ERROR:
+				Target.AddFatalError(Message);
+				break;
+			case INFO:
+				Target.AddInfo(Message);
+				break;
+			case SEVERE_ERROR:
+				Target.AddSevereError(Message);
+				break;
+			case SEVERE_WARNING:
+				Target.AddSevereWarning(Message);
+				break;
+			case WARNING:
+				Target.AddWarning(Message);
+				break;
+			default:
+				Target.print(Message);
+				break;
+			}
+		}
+		Kinds.clear();
+		Messages.clear();
+	}
+
+	@Override
+	public void print(String Message) {
+		Add(PRINT, Message);
+	}
+}
@@ -38,6 +38,14 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.bfh.logisim.designrulecheck.ConnectionEnd;
 import com.bfh.logisim.designrulecheck.ConnectionPoint;
@@ -60,16 +68,105 @@ import com.cburch.logisim.std.wiring.ClockHDLGeneratorFactory;
 
 public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
 
+	/*
+	 * Writes the entity and architecture of one circuit or component type;
+	 * the jobs are collected while walking the hierarchy and then run on a
+	 * worker pool
+	 */
+	private static class HDLJob implements Callable<Boolean> {
+
+		private HDLGeneratorFactory Worker;
+		private Netlist Nets;
+		private AttributeSet attrs;
+		private String ComponentName;
+		private String TargetDirectory;
+		private String HDLType;
+		private HDLManifest Manifest;
+		private String VhdlBoxPath;
+		private BufferedReport Report = new BufferedReport();
+
+		public HDLJob(HDLGeneratorFactory Worker, Netlist Nets,
+				AttributeSet attrs, String ComponentName,
+				String TargetDirectory, String HDLType, HDLManifest Manifest) {
+			this.Worker = Worker;
+			this.Nets = Nets;
+			this.attrs = attrs;
+			this.ComponentName = ComponentName;
+			this.TargetDirectory = TargetDirectory;
+			this.HDLType = HDLType;
+			this.Manifest = Manifest;
+		}
+
+		@Override
+		public Boolean call() {
+			if (!WriteEntity(TargetDirectory, Worker.GetEntity(Nets, attrs,
+					ComponentName, Report, HDLType), ComponentName, Report,
+					HDLType, Manifest)) {
+				return false;
+			}
+			if (VhdlBoxPath != null) {
+				return FileWriter.CopyArchitecture(VhdlBoxPath,
+						TargetDirectory, ComponentName, Report, HDLType,
+						Manifest);
+			}
+			return WriteArchitecture(TargetDirectory, Worker.GetArchitecture(
+					Nets, attrs, ComponentName, Report, HDLType),
+					ComponentName, Report, HDLType, Manifest);
+		}
+	}
+
+	final static Logger logger = LoggerFactory
+			.getLogger(CircuitHDLGeneratorFactory.class);
+
+	private static boolean RunHDLJobs(ArrayList<HDLJob> Jobs,
+			FPGAReport Reporter) {
+		if (Jobs.isEmpty()) {
+			return true;
+		}
+		ExecutorService Workers = Executors.newFixedThreadPool(Math.min(
+				Jobs.size(), Runtime.getRuntime().availableProcessors()));
+		try {
+			ArrayList<Future<Boolean>> Results = new ArrayList<Future<Boolean>>();
+			for (HDLJob Job : Jobs) {
+				Results.add(Workers.submit(Job));
+			}
+			/* The messages are reported in the order of the hierarchy walk */
+			for (int i = 0; i < Jobs.size(); i++) {
+				HDLJob Job = Jobs.get(i);
+				boolean Done;
+				try {
+					Done = Results.get(i).get();
+				} catch (ExecutionException e) {
+					logger.error("HDL generation of \"{}\" failed",
+							Job.ComponentName, e.getCause());
+					Job.Report.AddFatalError("INTERNAL ERROR: Unable to generate the HDL description of \""
+							+ Job.ComponentName + "\"");
+					Done = false;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+				Job.Report.Flush(Reporter);
+				if (!Done) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			Workers.shutdownNow();
+		}
+	}
+
 	private Circuit MyCircuit;
 
 	public CircuitHDLGeneratorFactory(Circuit source) {
 		MyCircuit = source;
 	}
 
-	@Override
-	public boolean GenerateAllHDLDescriptions(Set<String> HandledComponents,
+	private boolean CollectHDLJobs(Set<String> HandledComponents,
 			String WorkingDir, ArrayList<String> Hierarchy,
-			FPGAReport Reporter, String HDLType) {
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest,
+			ArrayList<HDLJob> Jobs) {
 		if (MyCircuit == null) {
 			return false;
 		}
@@ -84,12 +181,21 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
 		if (!WorkPath.endsWith(File.separator)) {
 			WorkPath += File.separator;
 		}
-		MyNetList.SetCurrentHierarchyLevel(Hierarchy);
+		String ComponentName = CorrectLabel
+				.getCorrectLabel(MyCircuit.getName());
+		/*
+		 * The architecture is generated for the first instance of this
+		 * circuit, so its clock nets are named from that hierarchy level
+		 */
+		boolean FirstInstance = !HandledComponents.contains(ComponentName);
+		if (FirstInstance) {
+			MyNetList.SetCurrentHierarchyLevel(Hierarchy);
+		}
 		/* First we handle the normal components */
 		for (NetlistComponent ThisComponent : MyNetList.GetNormalComponents()) {
-			String ComponentName = ThisComponent.GetComponent().getFactory()
+			String CompName = ThisComponent.GetComponent().getFactory()
 					.getHDLName(ThisComponent.GetComponent().getAttributeSet());
-			if (!HandledComponents.contains(ComponentName)) {
+			if (!HandledComponents.contains(CompName)) {
 				HDLGeneratorFactory Worker = ThisComponent
 						.GetComponent()
 						.getFactory()
@@ -98,28 +204,16 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
 								FPGAClass.VendorUnknown);
 				if (Worker == null) {
 					Reporter.AddFatalError("INTERNAL ERROR: Cannot find the VHDL generator factory for component "
-							+ ComponentName);
+							+ CompName);
 					return false;
 				}
 				if (!Worker.IsOnlyInlined(HDLType)) {
-					if (!WriteEntity(
-							WorkPath + Worker.GetRelativeDirectory(HDLType),
-							Worker.GetEntity(MyNetList, ThisComponent
-									.GetComponent().getAttributeSet(),
-									ComponentName, Reporter, HDLType),
-							ComponentName, Reporter, HDLType)) {
-						return false;
-					}
-					if (!WriteArchitecture(
+					Jobs.add(new HDLJob(Worker, MyNetList, ThisComponent
+							.GetComponent().getAttributeSet(), CompName,
 							WorkPath + Worker.GetRelativeDirectory(HDLType),
-							Worker.GetArchitecture(MyNetList, ThisComponent
-									.GetComponent().getAttributeSet(),
-									ComponentName, Reporter, HDLType),
-							ComponentName, Reporter, HDLType)) {
-						return false;
-					}
+							HDLType, Manifest));
 				}
-				HandledComponents.add(ComponentName);
+				HandledComponents.add(CompName);
 			}
 		}
 		/* Now we go down the hierarchy to get all other components */
@@ -138,47 +232,46 @@ public class CircuitHDLGeneratorFactory extends AbstractHDLGeneratorFactory {
 			}
 			Hierarchy.add(CorrectLabel.getCorrectLabel(ThisCircuit
 					.GetComponent().getAttributeSet().getValue(StdAttr.LABEL)));
-			if (!Worker.GenerateAllHDLDescriptions(HandledComponents,
-					WorkingDir, Hierarchy, Reporter, HDLType)) {
+			if (Worker instanceof CircuitHDLGeneratorFactory) {
+				if (!((CircuitHDLGeneratorFactory) Worker).CollectHDLJobs(
+						HandledComponents, WorkingDir, Hierarchy, Reporter,
+						HDLType, Manifest, Jobs)) {
+					return false;
+				}
+			} else if (!Worker.GenerateAllHDLDescriptions(HandledComponents,
+					WorkingDir, Hierarchy, Reporter, HDLType, Manifest)) {
 				return false;
 			}
 			Hierarchy.remove(Hierarchy.size() - 1);
 		}
 		/* I also have to generate myself */
-		String ComponentName = CorrectLabel
-				.getCorrectLabel(MyCircuit.getName());
-		if (!HandledComponents.contains(ComponentName)) {
-			if (!WriteEntity(
-					WorkPath + GetRelativeDirectory(HDLType),
-					GetEntity(MyNetList, null, ComponentName, Reporter, HDLType),
-					ComponentName, Reporter, HDLType)) {
-				return false;
-			}
-
+		if (FirstInstance) {
+			HDLJob Self = new HDLJob(this, MyNetList, null, ComponentName,
+					WorkPath + GetRelativeDirectory(HDLType), HDLType, Manifest);
 			// is the current circuit an 'empty vhdl box' ?
 			if (MyCircuit.getStaticAttributes().getValue(
 					CircuitAttributes.CIRCUIT_IS_VHDL_BOX)) {
-				if (!FileWriter.CopyArchitecture(
-						MyCircuit.getStaticAttributes().getValue(
-								CircuitAttributes.CIRCUIT_VHDL_PATH), WorkPath
-								+ GetRelativeDirectory(HDLType), ComponentName,
-						Reporter, HDLType)) {
-					return false;
-				}
-			} else {
-				if (!WriteArchitecture(
-						WorkPath + GetRelativeDirectory(HDLType),
-						GetArchitecture(MyNetList, null, ComponentName,
-								Reporter, HDLType), ComponentName, Reporter,
-						HDLType)) {
-					return false;
-				}
+				Self.VhdlBoxPath = MyCircuit.getStaticAttributes().getValue(
+						CircuitAttributes.CIRCUIT_VHDL_PATH);
 			}
+			Jobs.add(Self);
 			HandledComponents.add(ComponentName);
 		}
 		return true;
 	}
 
+	@Override
+	public boolean GenerateAllHDLDescriptions(Set<String> HandledComponents,
+			String WorkingDir, ArrayList<String> Hierarchy,
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest) {
+		ArrayList<HDLJob> Jobs = new ArrayList<HDLJob>();
+		if (!CollectHDLJobs(HandledComponents, WorkingDir, Hierarchy,
+				Reporter, HDLType, Manifest, Jobs)) {
+			return false;
+		}
+		return RunHDLJobs(Jobs, Reporter);
+	}
+
 	/* here the private handles are defined */
 	private String GetBubbleIndex(NetlistComponent comp, String HDLType,
 			boolean inputBubbles) {
@@ -30,6 +30,7 @@
 
 package com.bfh.logisim.hdlgenerator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -44,6 +45,13 @@ public class FileWriter {
 
 	public static boolean CopyArchitecture(String source, String dest,
 			String componentName, FPGAReport reporter, String HDLType) {
+		return CopyArchitecture(source, dest, componentName, reporter,
+				HDLType, null);
+	}
+
+	public static boolean CopyArchitecture(String source, String dest,
+			String componentName, FPGAReport reporter, String HDLType,
+			HDLManifest manifest) {
 		try {
 			if (HDLType.equals(Settings.VERILOG)) {
 				reporter.AddFatalError("Empty VHDL box not supported in verilog.");
@@ -60,7 +68,8 @@ public class FileWriter {
 					+ ".vhd";
 			File outFile = new File(destPath);
 			InputStream in = new FileInputStream(inFile);
-			OutputStream out = new FileOutputStream(outFile);
+			OutputStream out = manifest == null ? new FileOutputStream(
+					outFile) : new ByteArrayOutputStream();
 			byte[] buf = new byte[1024];
 			int len;
 			while ((len = in.read(buf)) > 0) {
@@ -68,6 +77,12 @@ public class FileWriter {
 			}
 			in.close();
 			out.close();
+			if (manifest != null
+					&& !manifest.Write(outFile,
+							((ByteArrayOutputStream) out).toByteArray(),
+							reporter)) {
+				return false;
+			}
 			reporter.AddInfo("\"" + source + "\" successfully copied to \""
 					+ destPath + "\"");
 			return true;
@@ -77,6 +92,18 @@ public class FileWriter {
 		}
 	}
 
+	public static byte[] GetContents(ArrayList<String> Contents) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		for (String ThisLine : Contents) {
+			if (!ThisLine.isEmpty()) {
+				byte[] bytes = ThisLine.getBytes();
+				output.write(bytes, 0, bytes.length);
+			}
+			output.write('\n');
+		}
+		return output.toByteArray();
+	}
+
 	public static ArrayList<String> getExtendedLibrary() {
 		ArrayList<String> Lines = new ArrayList<String>();
 		Lines.add("");
@@ -87,6 +114,30 @@ public class FileWriter {
 		return Lines;
 	}
 
+	public static String GetFileName(String TargetDirectory,
+			String ComponentName, boolean IsEntity, String HDLType) {
+		String FileName = TargetDirectory;
+		if (!FileName.endsWith(File.separator)) {
+			FileName += File.separator;
+		}
+		FileName += ComponentName;
+		if (IsEntity) {
+			if (HDLType.equals(Settings.VHDL)) {
+				FileName += EntityExtension;
+			}
+		} else {
+			if (HDLType.equals(Settings.VHDL)) {
+				FileName += ArchitectureExtension;
+			}
+		}
+		if (HDLType.equals(Settings.VHDL)) {
+			FileName += ".vhd";
+		} else {
+			FileName += ".v";
+		}
+		return FileName;
+	}
+
 	public static File GetFilePointer(String TargetDirectory,
 			String ComponentName, boolean IsEntity, FPGAReport MyReporter,
 			String HDLType) {
@@ -97,25 +148,8 @@ public class FileWriter {
 					return null;
 				}
 			}
-			String FileName = TargetDirectory;
-			if (!FileName.endsWith(File.separator)) {
-				FileName += File.separator;
-			}
-			FileName += ComponentName;
-			if (IsEntity) {
-				if (HDLType.equals(Settings.VHDL)) {
-					FileName += EntityExtension;
-				}
-			} else {
-				if (HDLType.equals(Settings.VHDL)) {
-					FileName += ArchitectureExtension;
-				}
-			}
-			if (HDLType.equals(Settings.VHDL)) {
-				FileName += ".vhd";
-			} else {
-				FileName += ".v";
-			}
+			String FileName = GetFileName(TargetDirectory, ComponentName,
+					IsEntity, HDLType);
 			File OutFile = new File(FileName);
 			MyReporter.AddInfo("Creating HDL file : \"" + FileName + "\"");
 			if (OutFile.exists()) {
@@ -220,12 +254,7 @@ public class FileWriter {
 			ArrayList<String> Contents, FPGAReport MyReporter) {
 		try {
 			FileOutputStream output = new FileOutputStream(outfile);
-			for (String ThisLine : Contents) {
-				if (!ThisLine.isEmpty()) {
-					output.write(ThisLine.getBytes());
-				}
-				output.write("\n".getBytes());
-			}
+			output.write(GetContents(Contents));
 			output.flush();
 			output.close();
 			return true;
@@ -61,7 +61,7 @@ public interface HDLGeneratorFactory {
 
 	public boolean GenerateAllHDLDescriptions(Set<String> HandledComponents,
 			String WorkingDir, ArrayList<String> Hierarchy,
-			FPGAReport Reporter, String HDLType);
+			FPGAReport Reporter, String HDLType, HDLManifest Manifest);
 
 	public ArrayList<String> GetArchitecture(Netlist TheNetlist,
 			AttributeSet attrs, String ComponentName, FPGAReport Reporter,
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.bfh.logisim.hdlgenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bfh.logisim.fpgagui.FPGAReport;
+
+/**
+ * Keeps the content hashes of the HDL files generated into a directory. A
+ * file whose contents did not change since the previous generation is not
+ * rewritten, so its time stamp stays untouched and the incremental compile of
+ * the vendor tools is not invalidated. Files that were not generated again
+ * are removed when the manifest is saved.
+ */
+public class HDLManifest {
+
+	final static Logger logger = LoggerFactory.getLogger(HDLManifest.class);
+
+	public static final String ManifestName = "manifest.sha256";
+
+	private File Directory;
+	private Map<String, String> Previous = new HashMap<String, String>();
+	private SortedMap<String, String> Current = new TreeMap<String, String>();
+
+	public HDLManifest(String TargetDirectory) {
+		Directory = new File(TargetDirectory).getAbsoluteFile();
+		File ManifestFile = new File(Directory, ManifestName);
+		if (!ManifestFile.isFile()) {
+			return;
+		}
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+					new FileInputStream(ManifestFile), "UTF-8"));
+			try {
+				for (String Line = in.readLine(); Line != null; Line = in
+						.readLine()) {
+					int sep = Line.indexOf(' ');
+					if (sep > 0) {
+						Previous.put(Line.substring(sep + 1),
+								Line.substring(0, sep));
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to read {}: {}", ManifestFile, e.getMessage());
+			Previous.clear();
+		}
+	}
+
+	private String GetRelativePath(File OutFile) {
+		String Path = OutFile.getAbsolutePath();
+		String Root = Directory.getPath() + File.separator;
+		if (Path.startsWith(Root)) {
+			Path = Path.substring(Root.length());
+		}
+		return Path.replace(File.separatorChar, '/');
+	}
+
+	private static String Hash(byte[] Data) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		StringBuilder ret = new StringBuilder();
+		for (byte b : digest.digest(Data)) {
+			ret.append(String.format("%02x", b & 0xff));
+		}
+		return ret.toString();
+	}
+
+	/*
+	 * Removes all files below the directory that were not generated since
+	 * this manifest was loaded, and writes the new manifest
+	 */
+	public boolean Save(FPGAReport MyReporter) {
+		RemoveStale(Directory, MyReporter);
+		File ManifestFile = new File(Directory, ManifestName);
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(
+					ManifestFile), "UTF-8");
+			try {
+				synchronized (this) {
+					for (Map.Entry<String, String> Entry : Current.entrySet()) {
+						out.write(Entry.getValue() + " " + Entry.getKey()
+								+ "\n");
+					}
+				}
+			} finally {
+				out.close();
+			}
+			return true;
+		} catch (IOException e) {
+			MyReporter.AddFatalError("Could not write to file \""
+					+ ManifestFile.getAbsolutePath() + "\"");
+			return false;
+		}
+	}
+
+	private void RemoveStale(File Dir, FPGAReport MyReporter) {
+		File[] Files = Dir.listFiles();
+		if (Files == null) {
+			return;
+		}
+		for (File ThisFile : Files) {
+			if (ThisFile.isDirectory()) {
+				RemoveStale(ThisFile, MyReporter);
+				continue;
+			}
+			String Name = GetRelativePath(ThisFile);
+			boolean Generated;
+			synchronized (this) {
+				Generated = Current.containsKey(Name);
+			}
+			if (!Generated && !Name.equals(ManifestName)) {
+				if (ThisFile.delete()) {
+					MyReporter.AddInfo("Removed old HDL file : \""
+							+ ThisFile.getPath() + "\"");
+				} else {
+					MyReporter.AddWarning("Unable to remove old HDL file \""
+							+ ThisFile.getPath() + "\"");
+				}
+			}
+		}
+	}
+
+	/*
+	 * Writes the given contents unless the file already holds them; may be
+	 * called from several threads
+	 */
+	public boolean Write(File OutFile, byte[] Contents, FPGAReport MyReporter) {
+		String Name = GetRelativePath(OutFile);
+		String Digest = Hash(Contents);
+		String OldHash;
+		synchronized (this) {
+			if (Current.containsKey(Name)) {
+				MyReporter.AddWarning("HDL file \"" + OutFile.getPath()
+						+ "\" already exists");
+				return false;
+			}
+			Current.put(Name, Digest);
+			OldHash = Previous.get(Name);
+		}
+		if (Digest.equals(OldHash) && OutFile.isFile()
+				&& OutFile.length() == Contents.length) {
+			MyReporter.AddInfo("HDL file \"" + OutFile.getPath()
+					+ "\" is up to date");
+			return true;
+		}
+		File OutDir = OutFile.getParentFile();
+		if (!OutDir.isDirectory() && !OutDir.mkdirs()) {
+			MyReporter.AddFatalError("Unable to create directory \""
+					+ OutDir.getPath() + "\"");
+			return false;
+		}
+		MyReporter.AddInfo("Creating HDL file : \"" + OutFile.getPath() + "\"");
+		try {
+			OutputStream output = new FileOutputStream(OutFile);
+			try {
+				output.write(Contents);
+			} finally {
+				output.close();
+			}
+			return true;
+		} catch (IOException e) {
+			MyReporter.AddFatalError("Could not write to file \""
+					+ OutFile.getAbsolutePath() + "\"");
+			return false;
+		}
+	}
+}
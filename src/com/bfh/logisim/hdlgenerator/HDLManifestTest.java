@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.bfh.logisim.hdlgenerator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.bfh.logisim.fpgagui.FPGAReport;
+
+public class HDLManifestTest {
+
+	/** Keeps the messages instead of sending them to the FPGA commander */
+	private static class Messages extends FPGAReport {
+		private List<String> lines = new ArrayList<String>();
+
+		Messages() {
+			super(null);
+		}
+
+		@Override
+		public void AddFatalError(String Message) {
+			lines.add("fatal " + Message);
+		}
+
+		@Override
+		public void AddInfo(String Message) {
+			lines.add("info " + Message);
+		}
+
+		@Override
+		public void AddWarning(String Message) {
+			lines.add("warning " + Message);
+		}
+	}
+
+	private static final long OLD_TIME = 1000000000000L;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File dir;
+	private File top;
+	private File sub;
+
+	private static byte[] bytes(String s) throws IOException {
+		return s.getBytes("UTF-8");
+	}
+
+	/* Generates the given contents as a first run and dates the files back */
+	private void generate(String topContents, String subContents)
+			throws IOException {
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		Messages report = new Messages();
+		assertTrue(manifest.Write(top, bytes(topContents), report));
+		assertTrue(manifest.Write(sub, bytes(subContents), report));
+		assertTrue(manifest.Save(report));
+		assertTrue(top.setLastModified(OLD_TIME));
+		assertTrue(sub.setLastModified(OLD_TIME));
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		dir = folder.newFolder("vhdl");
+		top = new File(dir, "toplevel/top.vhd");
+		sub = new File(dir, "circuit/sub.vhd");
+	}
+
+	@Test
+	public void testUnchangedFilesAreSkipped() throws IOException {
+		generate("top", "sub");
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		Messages report = new Messages();
+		assertTrue(manifest.Write(top, bytes("top"), report));
+		assertTrue(manifest.Write(sub, bytes("sub"), report));
+		assertTrue(manifest.Save(report));
+		assertEquals(OLD_TIME, top.lastModified());
+		assertEquals(OLD_TIME, sub.lastModified());
+		assertTrue(report.lines.get(0).endsWith("is up to date"));
+	}
+
+	@Test
+	public void testChangedFilesAreRewritten() throws IOException {
+		generate("top", "sub");
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		Messages report = new Messages();
+		assertTrue(manifest.Write(top, bytes("top"), report));
+		assertTrue(manifest.Write(sub, bytes("sub changed"), report));
+		assertTrue(manifest.Save(report));
+		assertEquals(OLD_TIME, top.lastModified());
+		assertNotEquals(OLD_TIME, sub.lastModified());
+		assertArrayEquals(bytes("sub changed"), Files.readAllBytes(sub.toPath()));
+
+		// the next run compares against the new contents
+		sub.setLastModified(OLD_TIME);
+		manifest = new HDLManifest(dir.getPath());
+		assertTrue(manifest.Write(sub, bytes("sub changed"), report));
+		assertEquals(OLD_TIME, sub.lastModified());
+	}
+
+	@Test
+	public void testFilesWithoutManifestAreRewritten() throws IOException {
+		generate("top", "sub");
+		assertTrue(new File(dir, HDLManifest.ManifestName).delete());
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		assertTrue(manifest.Write(top, bytes("top"), new Messages()));
+		assertNotEquals(OLD_TIME, top.lastModified());
+	}
+
+	@Test
+	public void testDamagedFilesAreRewritten() throws IOException {
+		generate("top", "sub");
+		Files.write(sub.toPath(), bytes("su"));
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		assertTrue(manifest.Write(sub, bytes("sub"), new Messages()));
+		assertArrayEquals(bytes("sub"), Files.readAllBytes(sub.toPath()));
+	}
+
+	@Test
+	public void testStaleFilesAreRemoved() throws IOException {
+		generate("top", "sub");
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		Messages report = new Messages();
+		assertTrue(manifest.Write(top, bytes("top"), report));
+		assertTrue(manifest.Save(report));
+		assertTrue(top.isFile());
+		assertFalse(sub.exists());
+		assertTrue(new File(dir, HDLManifest.ManifestName).isFile());
+	}
+
+	@Test
+	public void testDuplicateFileIsRejected() throws IOException {
+		HDLManifest manifest = new HDLManifest(dir.getPath());
+		Messages report = new Messages();
+		assertTrue(manifest.Write(top, bytes("top"), report));
+		assertFalse(manifest.Write(top, bytes("other"), report));
+		assertTrue(report.lines.get(1).startsWith("warning "));
+		assertArrayEquals(bytes("top"), Files.readAllBytes(top.toPath()));
+	}
+}
@@ -31,6 +31,11 @@
 package com.cburch.hex;
 
 public interface HexModelListener {
+	/**
+	 * Called when values in [start, start + numBytes) have changed. The
+	 * previous values may be null when the model reports several coalesced
+	 * changes at once.
+	 */
 	public void bytesChanged(HexModel source, long start, long numBytes,
 			int[] oldValues);
 
@@ -30,6 +30,7 @@
 
 package com.cburch.logisim;
 
+import java.awt.GraphicsEnvironment;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -53,6 +54,10 @@ public class Main {
 				try {
 					startup.run();
 				} catch (Throwable e) {
+					if (GraphicsEnvironment.isHeadless()) {
+						e.printStackTrace();
+						System.exit(-1);
+					}
 					Writer result = new StringWriter();
 					PrintWriter printWriter = new PrintWriter(result);
 					e.printStackTrace(printWriter);
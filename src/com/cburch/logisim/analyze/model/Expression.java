@@ -30,7 +30,9 @@
 
 package com.cburch.logisim.analyze.model;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 public abstract class Expression {
 	static interface IntVisitor {
@@ -127,23 +129,35 @@ public abstract class Expression {
 
 	public abstract int getPrecedence();
 
+	/**
+	 * Returns the number of operators and operands in this expression once
+	 * written out, where a shared subexpression counts as often as it
+	 * appears. The count stops at <code>Integer.MAX_VALUE</code>.
+	 */
+	public abstract int getSize();
+
 	public boolean isCircular() {
-		final HashSet<Expression> visited = new HashSet<Expression>();
+		// subexpressions may be shared, so remember those already known to
+		// be fine rather than visiting them again
+		final Set<Expression> visited = Collections
+				.newSetFromMap(new IdentityHashMap<Expression, Boolean>());
+		final Set<Expression> finished = Collections
+				.newSetFromMap(new IdentityHashMap<Expression, Boolean>());
 		visited.add(this);
 		return 1 == visit(new IntVisitor() {
 			private int binary(Expression a, Expression b) {
+				return unary(a) == 1 || unary(b) == 1 ? 1 : 0;
+			}
+
+			private int unary(Expression a) {
+				if (finished.contains(a))
+					return 0;
 				if (!visited.add(a))
 					return 1;
 				if (a.visit(this) == 1)
 					return 1;
 				visited.remove(a);
-
-				if (!visited.add(b))
-					return 1;
-				if (b.visit(this) == 1)
-					return 1;
-				visited.remove(b);
-
+				finished.add(a);
 				return 0;
 			}
 
@@ -156,12 +170,7 @@ public abstract class Expression {
 			}
 
 			public int visitNot(Expression a) {
-				if (!visited.add(a))
-					return 1;
-				if (a.visit(this) == 1)
-					return 1;
-				visited.remove(a);
-				return 0;
+				return unary(a);
 			}
 
 			public int visitOr(Expression a, Expression b) {
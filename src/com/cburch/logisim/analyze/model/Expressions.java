@@ -60,26 +60,38 @@ public class Expressions {
 	private static abstract class Binary extends Expression {
 		protected final Expression a;
 		protected final Expression b;
+		private final int hashCode;
+		private final int size;
 
 		Binary(Expression a, Expression b) {
 			this.a = a;
 			this.b = b;
+			this.hashCode = 31 * (31 * getClass().hashCode() + a.hashCode())
+					+ b.hashCode();
+			this.size = sum(sum(a.getSize(), b.getSize()), 1);
 		}
 
 		@Override
 		public boolean equals(Object other) {
+			if (this == other)
+				return true;
 			if (other == null)
 				return false;
 			if (this.getClass() != other.getClass())
 				return false;
 			Binary o = (Binary) other;
-			return this.a.equals(o.a) && this.b.equals(o.b);
+			return this.hashCode == o.hashCode && this.a.equals(o.a)
+					&& this.b.equals(o.b);
+		}
+
+		@Override
+		public int getSize() {
+			return size;
 		}
 
 		@Override
 		public int hashCode() {
-			return 31 * (31 * getClass().hashCode() + a.hashCode())
-					+ b.hashCode();
+			return hashCode;
 		}
 	}
 
@@ -103,6 +115,11 @@ public class Expressions {
 			return Integer.MAX_VALUE;
 		}
 
+		@Override
+		public int getSize() {
+			return 1;
+		}
+
 		@Override
 		public int hashCode() {
 			return value;
@@ -126,17 +143,23 @@ public class Expressions {
 
 	private static class Not extends Expression {
 		private Expression a;
+		private final int hashCode;
+		private final int size;
 
 		Not(Expression a) {
 			this.a = a;
+			this.hashCode = 31 * a.hashCode();
+			this.size = sum(a.getSize(), 1);
 		}
 
 		@Override
 		public boolean equals(Object other) {
+			if (this == other)
+				return true;
 			if (!(other instanceof Not))
 				return false;
 			Not o = (Not) other;
-			return this.a.equals(o.a);
+			return this.hashCode == o.hashCode && this.a.equals(o.a);
 		}
 
 		@Override
@@ -144,9 +167,14 @@ public class Expressions {
 			return Expression.NOT_LEVEL;
 		}
 
+		@Override
+		public int getSize() {
+			return size;
+		}
+
 		@Override
 		public int hashCode() {
-			return 31 * a.hashCode();
+			return hashCode;
 		}
 
 		@Override
@@ -211,6 +239,11 @@ public class Expressions {
 			return Integer.MAX_VALUE;
 		}
 
+		@Override
+		public int getSize() {
+			return 1;
+		}
+
 		@Override
 		public int hashCode() {
 			return name.hashCode();
@@ -284,6 +317,11 @@ public class Expressions {
 		return new Or(a, b);
 	}
 
+	private static int sum(int a, int b) {
+		int ret = a + b;
+		return ret < 0 ? Integer.MAX_VALUE : ret;
+	}
+
 	public static Expression variable(String name) {
 		return new Variable(name);
 	}
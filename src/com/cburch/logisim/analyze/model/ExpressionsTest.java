@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.analyze.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class ExpressionsTest {
+
+	/** Builds an expression that doubles in written size at each stage. */
+	private static Expression reconverging(int stages) {
+		Expression b = Expressions.variable("b");
+		Expression c = Expressions.variable("c");
+		Expression ret = Expressions.variable("a");
+		for (int i = 0; i < stages; i++) {
+			ret = Expressions.or(Expressions.and(ret, b),
+					Expressions.and(ret, c));
+		}
+		return ret;
+	}
+
+	@Test
+	public final void testSharedSubexpressions() {
+		Expression e = reconverging(4);
+		assertEquals(91, e.getSize());
+		assertEquals(e, reconverging(4));
+		assertEquals(e.hashCode(), reconverging(4).hashCode());
+
+		// far too large to write out, but cheap while it stays shared
+		Expression big = reconverging(200);
+		assertEquals(Integer.MAX_VALUE, big.getSize());
+		assertFalse(big.isCircular());
+	}
+}
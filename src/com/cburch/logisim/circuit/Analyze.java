@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -43,6 +44,7 @@ import java.util.TreeMap;
 import com.cburch.logisim.analyze.model.AnalyzerModel;
 import com.cburch.logisim.analyze.model.Entry;
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.analyze.model.ExpressionVisitor;
 import com.cburch.logisim.analyze.model.Expressions;
 import com.cburch.logisim.analyze.model.TruthTable;
 import com.cburch.logisim.comp.Component;
@@ -62,6 +64,10 @@ public class Analyze {
 		private Set<Location> dirtyPoints = new HashSet<Location>();
 		private Map<Location, Component> causes = new HashMap<Location, Component>();
 		private Component currentCause = null;
+		// one instance of each distinct subexpression, so that equal
+		// subexpressions built by different components are shared
+		private HashMap<Expression, Expression> shared = new HashMap<Expression, Expression>();
+		private IdentityHashMap<Expression, Expression> sharedFor = new IdentityHashMap<Expression, Expression>();
 
 		ExpressionMap(Circuit circuit) {
 			this.circuit = circuit;
@@ -69,6 +75,8 @@ public class Analyze {
 
 		@Override
 		public Expression put(Location point, Expression expression) {
+			if (expression != null)
+				expression = share(expression);
 			Expression ret = super.put(point, expression);
 			if (currentCause != null)
 				causes.put(point, currentCause);
@@ -77,6 +85,56 @@ public class Analyze {
 			}
 			return ret;
 		}
+
+		private Expression share(final Expression expression) {
+			Expression ret = sharedFor.get(expression);
+			if (ret != null)
+				return ret;
+			Expression rebuilt = expression
+					.visit(new ExpressionVisitor<Expression>() {
+						public Expression visitAnd(Expression a, Expression b) {
+							Expression sa = share(a);
+							Expression sb = share(b);
+							return sa == a && sb == b ? expression
+									: Expressions.and(sa, sb);
+						}
+
+						public Expression visitConstant(int value) {
+							return expression;
+						}
+
+						public Expression visitNot(Expression a) {
+							Expression sa = share(a);
+							return sa == a ? expression : Expressions.not(sa);
+						}
+
+						public Expression visitOr(Expression a, Expression b) {
+							Expression sa = share(a);
+							Expression sb = share(b);
+							return sa == a && sb == b ? expression
+									: Expressions.or(sa, sb);
+						}
+
+						public Expression visitVariable(String name) {
+							return expression;
+						}
+
+						public Expression visitXor(Expression a, Expression b) {
+							Expression sa = share(a);
+							Expression sb = share(b);
+							return sa == a && sb == b ? expression
+									: Expressions.xor(sa, sb);
+						}
+					});
+			ret = shared.get(rebuilt);
+			if (ret == null) {
+				ret = rebuilt;
+				shared.put(ret, ret);
+				sharedFor.put(ret, ret);
+			}
+			sharedFor.put(expression, ret);
+			return ret;
+		}
 	}
 
 	/**
@@ -93,6 +151,15 @@ public class Analyze {
 		return null;
 	}
 
+	private static void checkForLargeExpressions(
+			ExpressionMap expressionMap, int sizeLimit) throws AnalyzeException {
+		for (Location point : expressionMap.dirtyPoints) {
+			Expression expr = expressionMap.get(point);
+			if (expr != null && expr.getSize() > sizeLimit)
+				throw new AnalyzeException.TooLarge(sizeLimit);
+		}
+	}
+
 	//
 	// computeExpression
 	//
@@ -102,6 +169,17 @@ public class Analyze {
 	 */
 	public static void computeExpression(AnalyzerModel model, Circuit circuit,
 			Map<Instance, String> pinNames) throws AnalyzeException {
+		computeExpression(model, circuit, pinNames, DEFAULT_EXPRESSION_LIMIT);
+	}
+
+	/**
+	 * Computes the expression corresponding to the given circuit, giving up
+	 * with AnalyzeException.TooLarge as soon as an expression grows past
+	 * <code>sizeLimit</code> (see {@link Expression#getSize()}).
+	 */
+	public static void computeExpression(AnalyzerModel model, Circuit circuit,
+			Map<Instance, String> pinNames, int sizeLimit)
+			throws AnalyzeException {
 		ExpressionMap expressionMap = new ExpressionMap(circuit);
 
 		ArrayList<String> inputNames = new ArrayList<String>();
@@ -122,6 +200,7 @@ public class Analyze {
 		}
 
 		propagateComponents(expressionMap, circuit.getNonWires());
+		checkForLargeExpressions(expressionMap, sizeLimit);
 
 		for (int iterations = 0; !expressionMap.dirtyPoints.isEmpty(); iterations++) {
 			if (iterations > MAX_ITERATIONS) {
@@ -135,6 +214,7 @@ public class Analyze {
 					expressionMap.dirtyPoints);
 			expressionMap.dirtyPoints.clear();
 			propagateComponents(expressionMap, dirtyComponents);
+			checkForLargeExpressions(expressionMap, sizeLimit);
 
 			Expression expr = checkForCircularExpressions(expressionMap);
 			if (expr != null)
@@ -152,6 +232,58 @@ public class Analyze {
 	//
 	// ComputeTable
 	//
+	private static boolean allOneBit(ArrayList<Instance> pins) {
+		for (Instance pin : pins) {
+			if (Pin.FACTORY.getWidth(pin).getWidth() != 1)
+				return false;
+		}
+		return true;
+	}
+
+	/** Simulates a single row of the truth table. */
+	private static void computeRow(Project proj, Circuit circuit,
+			ArrayList<Instance> inputPins, ArrayList<Instance> outputPins,
+			int row, Entry[][] columns) {
+		int inputCount = inputPins.size();
+		CircuitState circuitState = new CircuitState(proj, circuit);
+		for (int j = 0; j < inputCount; j++) {
+			Instance pin = inputPins.get(j);
+			InstanceState pinState = circuitState.getInstanceState(pin);
+			boolean value = TruthTable.isInputSet(row, j, inputCount);
+			Pin.FACTORY.setValue(pinState, value ? Value.TRUE : Value.FALSE);
+		}
+
+		Propagator prop = circuitState.getPropagator();
+		prop.propagate();
+		/*
+		 * TODO for the SimulatorPrototype class do { prop.step(); } while
+		 * (prop.isPending());
+		 */
+		// TODO: Search for circuit state
+
+		if (prop.isOscillating()) {
+			for (int j = 0; j < columns.length; j++) {
+				columns[j][row] = Entry.OSCILLATE_ERROR;
+			}
+		} else {
+			for (int j = 0; j < columns.length; j++) {
+				Instance pin = outputPins.get(j);
+				InstanceState pinState = circuitState.getInstanceState(pin);
+				Entry out;
+				Value outValue = Pin.FACTORY.getValue(pinState).get(0);
+				if (outValue == Value.TRUE)
+					out = Entry.ONE;
+				else if (outValue == Value.FALSE)
+					out = Entry.ZERO;
+				else if (outValue == Value.ERROR)
+					out = Entry.BUS_ERROR;
+				else
+					out = Entry.DONT_CARE;
+				columns[j][row] = out;
+			}
+		}
+	}
+
 	/** Returns a truth table corresponding to the circuit. */
 	public static void computeTable(AnalyzerModel model, Project proj,
 			Circuit circuit, Map<Instance, String> pinLabels) {
@@ -174,43 +306,40 @@ public class Analyze {
 		int rowCount = 1 << inputCount;
 		Entry[][] columns = new Entry[outputPins.size()][rowCount];
 
-		for (int i = 0; i < rowCount; i++) {
-			CircuitState circuitState = new CircuitState(proj, circuit);
-			for (int j = 0; j < inputCount; j++) {
-				Instance pin = inputPins.get(j);
-				InstanceState pinState = circuitState.getInstanceState(pin);
-				boolean value = TruthTable.isInputSet(i, j, inputCount);
-				Pin.FACTORY
-						.setValue(pinState, value ? Value.TRUE : Value.FALSE);
+		// simulate 64 rows at once where the circuit allows it, and the rows
+		// that the bit-sliced simulation cannot represent one by one
+		BitSliceSimulator batch = null;
+		if (allOneBit(inputPins))
+			batch = BitSliceSimulator.create(proj, circuit);
+		int vectors = BitSliceSimulator.VECTORS;
+		for (int base = 0; base < rowCount; base += vectors) {
+			long undefined = -1L;
+			long[] outputs = new long[columns.length];
+			if (batch != null) {
+				for (int j = 0; j < inputCount; j++) {
+					long slice = 0;
+					for (int k = 0; k < vectors; k++) {
+						if (TruthTable.isInputSet(base + k, j, inputCount))
+							slice |= 1L << k;
+					}
+					batch.setInput(inputPins.get(j), new long[] { slice }, 0);
+				}
+				undefined = batch.simulate();
+				for (int j = 0; j < columns.length; j++) {
+					outputs[j] = batch.getOutput(outputPins.get(j))[0];
+				}
 			}
 
-			Propagator prop = circuitState.getPropagator();
-			prop.propagate();
-			/*
-			 * TODO for the SimulatorPrototype class do { prop.step(); } while
-			 * (prop.isPending());
-			 */
-			// TODO: Search for circuit state
-
-			if (prop.isOscillating()) {
-				for (int j = 0; j < columns.length; j++) {
-					columns[j][i] = Entry.OSCILLATE_ERROR;
+			int count = Math.min(vectors, rowCount - base);
+			for (int k = 0; k < count; k++) {
+				if (((undefined >>> k) & 1) != 0) {
+					computeRow(proj, circuit, inputPins, outputPins, base + k,
+							columns);
+					continue;
 				}
-			} else {
 				for (int j = 0; j < columns.length; j++) {
-					Instance pin = outputPins.get(j);
-					InstanceState pinState = circuitState.getInstanceState(pin);
-					Entry out;
-					Value outValue = Pin.FACTORY.getValue(pinState).get(0);
-					if (outValue == Value.TRUE)
-						out = Entry.ONE;
-					else if (outValue == Value.FALSE)
-						out = Entry.ZERO;
-					else if (outValue == Value.ERROR)
-						out = Entry.BUS_ERROR;
-					else
-						out = Entry.DONT_CARE;
-					columns[j][i] = out;
+					boolean set = ((outputs[j] >>> k) & 1) != 0;
+					columns[j][base + k] = set ? Entry.ONE : Entry.ZERO;
 				}
 			}
 		}
@@ -414,6 +543,12 @@ public class Analyze {
 		return ret.toString();
 	}
 
+	/**
+	 * The size past which computeExpression gives up, chosen so that the
+	 * analyzer can still display and tabulate the expression promptly.
+	 */
+	public static final int DEFAULT_EXPRESSION_LIMIT = 10000;
+
 	private static final int MAX_ITERATIONS = 100;
 
 	private Analyze() {
@@ -58,6 +58,15 @@ public class AnalyzeException extends Exception {
 		}
 	}
 
+	public static class TooLarge extends AnalyzeException {
+		private static final long serialVersionUID = 1L;
+
+		public TooLarge(int limit) {
+			super(StringUtil.format(Strings.get("analyzeTooLargeError"), ""
+					+ limit));
+		}
+	}
+
 	private static final long serialVersionUID = 1L;
 
 	public AnalyzeException() {
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+/**
+ * Implemented by the components that the bit-sliced simulator can evaluate.
+ * Instead of a single value, each port carries one <code>long</code> per bit,
+ * in which bit <i>i</i> belongs to the <i>i</i>th of up to 64 input vectors
+ * that are simulated at once.
+ */
+public interface BitSliceComputer {
+	/**
+	 * Computes the outputs of the component from its inputs, for all 64
+	 * vectors at once. Vectors for which the component produces a value other
+	 * than 0 or 1 must be marked with {@link BitSliceState#setUndefined(long)}.
+	 */
+	public void computeBitSlices(BitSliceState state);
+}
@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.util.Dag;
+
+/**
+ * Simulates a combinational circuit for 64 input vectors at once. Every
+ * wire thread holds one <code>long</code>, whose bit <i>i</i> is the value of
+ * the thread for the <i>i</i>th vector, and each component is evaluated once
+ * for all vectors, in topological order, by its {@link BitSliceComputer}.
+ * Subcircuits are flattened into their parent.
+ *
+ * Only 0 and 1 are represented. The vectors for which some output pin might
+ * end up with another value are reported by {@link #simulate()}, and should
+ * be simulated one at a time by the ordinary propagator. A circuit the
+ * simulator cannot handle at all, because it contains a loop, a component
+ * without a bit-sliced implementation, or a wire with several drivers or
+ * none, is rejected by {@link #create(Project, Circuit)}.
+ */
+public class BitSliceSimulator {
+	private class Node implements BitSliceState {
+		final BitSliceComputer computer;
+		final int[][] ends; // the thread of each bit of each end, or null
+		final boolean[] outputs;
+		long undefined;
+
+		Node(BitSliceComputer computer, int[][] ends, boolean[] outputs) {
+			this.computer = computer;
+			this.ends = ends;
+			this.outputs = outputs;
+		}
+
+		void evaluate() {
+			undefined = 0;
+			for (int i = 0; i < ends.length; i++) {
+				if (ends[i] != null && !outputs[i]) {
+					for (int t : ends[i]) {
+						undefined |= undefinedThreads[t];
+					}
+				}
+			}
+			computer.computeBitSlices(this);
+			for (int i = 0; i < ends.length; i++) {
+				if (outputs[i]) {
+					for (int t : ends[i]) {
+						undefinedThreads[t] = undefined;
+					}
+				}
+			}
+		}
+
+		public long[] getPortSlices(int portIndex) {
+			int[] threads = ends[portIndex];
+			if (threads == null)
+				return null;
+			long[] ret = new long[threads.length];
+			for (int i = 0; i < ret.length; i++) {
+				ret[i] = values[threads[i]];
+			}
+			return ret;
+		}
+
+		public Project getProject() {
+			return project;
+		}
+
+		public void setPortSlices(int portIndex, long[] slices) {
+			int[] threads = ends[portIndex];
+			for (int i = 0; i < threads.length; i++) {
+				values[threads[i]] = i < slices.length ? slices[i] : 0;
+			}
+		}
+
+		public void setUndefined(long vectors) {
+			undefined |= vectors;
+		}
+	}
+
+	private static class PinComputer implements BitSliceComputer {
+		long[] slices;
+		long undefined = -1L;
+
+		public void computeBitSlices(BitSliceState state) {
+			if (slices != null)
+				state.setPortSlices(0, slices);
+			state.setUndefined(undefined);
+		}
+	}
+
+	/**
+	 * The thread numbers of the points of one circuit in the flattened
+	 * hierarchy.
+	 */
+	private class Scope {
+		final Circuit circuit;
+		final HashMap<WireThread, Integer> threads = new HashMap<WireThread, Integer>();
+		final HashMap<Location, int[]> loose = new HashMap<Location, int[]>();
+
+		Scope(Circuit circuit) {
+			this.circuit = circuit;
+		}
+
+		int[] getThreads(Location loc, int width) throws UnsupportedException {
+			int[] ret = new int[width];
+			WireBundle b = circuit.wires.getWireBundle(loc);
+			if (b == null) {
+				// a point where components touch without any wire
+				int[] found = loose.get(loc);
+				if (found == null) {
+					for (int i = 0; i < width; i++) {
+						ret[i] = newThread();
+					}
+					loose.put(loc, ret);
+					return ret;
+				} else if (found.length != width) {
+					throw new UnsupportedException();
+				}
+				return found;
+			}
+			if (!b.isValid() || b.threads == null || b.threads.length != width)
+				throw new UnsupportedException();
+			for (int i = 0; i < width; i++) {
+				WireThread t = b.threads[i].find();
+				Integer id = threads.get(t);
+				if (id == null) {
+					id = Integer.valueOf(newThread());
+					threads.put(t, id);
+				}
+				ret[i] = id.intValue();
+			}
+			return ret;
+		}
+	}
+
+	private static class UnsupportedException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+	public static final int VECTORS = 64;
+
+	/**
+	 * Compiles the given circuit, or returns <code>null</code> if it cannot be
+	 * simulated bit-sliced.
+	 */
+	public static BitSliceSimulator create(Project proj, Circuit circuit) {
+		BitSliceSimulator ret = new BitSliceSimulator(proj);
+		try {
+			ret.build(circuit);
+		} catch (UnsupportedException e) {
+			return null;
+		}
+		return ret;
+	}
+
+	private static boolean isConnector(Component comp) {
+		return comp instanceof Wire || comp instanceof Splitter
+				|| comp.getFactory() instanceof Tunnel;
+	}
+
+	private final Project project;
+	private Node[] order;
+	private HashMap<Instance, PinComputer> inputs = new HashMap<Instance, PinComputer>();
+	private HashMap<Instance, int[]> outputs = new HashMap<Instance, int[]>();
+
+	// the threads of the flattened circuit, joined by a union-find while
+	// compiling
+	private int[] parents = new int[64];
+	private int threadCount = 0;
+	private long[] values;
+	private long[] undefinedThreads;
+
+	private BitSliceSimulator(Project project) {
+		this.project = project;
+	}
+
+	private void build(Circuit circuit) throws UnsupportedException {
+		ArrayList<Node> nodes = new ArrayList<Node>();
+		flatten(circuit, true, nodes, new HashSet<Circuit>());
+
+		// every thread needs exactly one driver
+		int[] drivers = new int[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			drivers[i] = -1;
+		}
+		for (int n = 0; n < nodes.size(); n++) {
+			Node node = nodes.get(n);
+			for (int i = 0; i < node.ends.length; i++) {
+				int[] threads = node.ends[i];
+				if (threads == null)
+					continue;
+				for (int j = 0; j < threads.length; j++) {
+					threads[j] = find(threads[j]);
+					if (node.outputs[i]) {
+						if (drivers[threads[j]] >= 0)
+							throw new UnsupportedException();
+						drivers[threads[j]] = n;
+					}
+				}
+			}
+		}
+		for (int[] threads : outputs.values()) {
+			for (int j = 0; j < threads.length; j++) {
+				threads[j] = find(threads[j]);
+				if (drivers[threads[j]] < 0)
+					throw new UnsupportedException();
+			}
+		}
+
+		Dag dag = new Dag();
+		for (Node node : nodes) {
+			for (int i = 0; i < node.ends.length; i++) {
+				if (node.ends[i] == null || node.outputs[i])
+					continue;
+				for (int t : node.ends[i]) {
+					if (drivers[t] < 0
+							|| !dag.addEdge(nodes.get(drivers[t]), node))
+						throw new UnsupportedException();
+				}
+			}
+		}
+		final Map<Object, Integer> levels = dag.getLevels();
+		Collections.sort(nodes, new Comparator<Node>() {
+			public int compare(Node a, Node b) {
+				return level(a) - level(b);
+			}
+
+			private int level(Node n) {
+				Integer ret = levels.get(n);
+				return ret == null ? 0 : ret.intValue();
+			}
+		});
+
+		order = nodes.toArray(new Node[nodes.size()]);
+		values = new long[threadCount];
+		undefinedThreads = new long[threadCount];
+	}
+
+	private int find(int thread) {
+		int ret = thread;
+		while (parents[ret] != ret) {
+			ret = parents[ret];
+		}
+		parents[thread] = ret;
+		return ret;
+	}
+
+	private Scope flatten(Circuit circuit, boolean root, List<Node> nodes,
+			HashSet<Circuit> active) throws UnsupportedException {
+		if (!active.add(circuit))
+			throw new UnsupportedException();
+		Scope scope = new Scope(circuit);
+		for (Component comp : circuit.getNonWires().toArray(new Component[0])) {
+			if (isConnector(comp))
+				continue;
+			Object factory = comp.getFactory();
+			if (factory instanceof PullResistor)
+				throw new UnsupportedException();
+			List<EndData> ends = comp.getEnds();
+
+			if (factory instanceof SubcircuitFactory) {
+				// the pins inside the subcircuit join the threads on both
+				// sides of the corresponding ports
+				Circuit sub = ((SubcircuitFactory) factory).getSubcircuit();
+				Scope inner = flatten(sub, false, nodes, active);
+				Instance[] pins = ((CircuitAttributes) comp.getAttributeSet())
+						.getPinInstances();
+				for (int i = 0; i < pins.length && i < ends.size(); i++) {
+					int width = ends.get(i).getWidth().getWidth();
+					int[] outside = scope.getThreads(ends.get(i).getLocation(),
+							width);
+					int[] inside = inner.getThreads(pins[i].getLocation(),
+							width);
+					for (int j = 0; j < width; j++) {
+						union(outside[j], inside[j]);
+					}
+				}
+				continue;
+			}
+
+			if (factory instanceof Pin) {
+				if (!root)
+					continue;
+				Instance pin = Instance.getInstanceFor(comp);
+				int[] threads = scope.getThreads(comp.getLocation(), Pin.FACTORY
+						.getWidth(pin).getWidth());
+				if (Pin.FACTORY.isInputPin(pin)) {
+					PinComputer computer = new PinComputer();
+					inputs.put(pin, computer);
+					nodes.add(new Node(computer, new int[][] { threads },
+							new boolean[] { true }));
+				} else {
+					outputs.put(pin, threads);
+				}
+				continue;
+			}
+
+			BitSliceComputer computer = (BitSliceComputer) comp
+					.getFeature(BitSliceComputer.class);
+			if (computer == null) {
+				// components that only watch their inputs do not matter
+				for (EndData end : ends) {
+					if (end.isOutput())
+						throw new UnsupportedException();
+				}
+				continue;
+			}
+			int[][] threads = new int[ends.size()][];
+			boolean[] isOutput = new boolean[ends.size()];
+			for (int i = 0; i < threads.length; i++) {
+				EndData end = ends.get(i);
+				Location loc = end.getLocation();
+				if (end.isInput() && end.isOutput())
+					throw new UnsupportedException();
+				isOutput[i] = end.isOutput();
+				if (isOutput[i] || circuit.isConnected(loc, comp))
+					threads[i] = scope.getThreads(loc, end.getWidth()
+							.getWidth());
+			}
+			nodes.add(new Node(computer, threads, isOutput));
+		}
+		active.remove(circuit);
+		return scope;
+	}
+
+	/**
+	 * Returns the slices of an output pin of the root circuit, as computed by
+	 * the last simulation.
+	 */
+	public long[] getOutput(Instance pin) {
+		int[] threads = outputs.get(pin);
+		long[] ret = new long[threads.length];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = values[threads[i]];
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the value of an output pin for one of the vectors of the last
+	 * simulation, which must not be among the undefined ones.
+	 */
+	public Value getOutput(Instance pin, int vector) {
+		long[] slices = getOutput(pin);
+		int value = 0;
+		for (int i = 0; i < slices.length; i++) {
+			value |= (int) ((slices[i] >>> vector) & 1) << i;
+		}
+		return Value.createKnown(BitWidth.create(slices.length), value);
+	}
+
+	private int newThread() {
+		if (threadCount == parents.length) {
+			int[] grown = new int[2 * parents.length];
+			System.arraycopy(parents, 0, grown, 0, threadCount);
+			parents = grown;
+		}
+		parents[threadCount] = threadCount;
+		return threadCount++;
+	}
+
+	/**
+	 * Sets the value of an input pin of the root circuit. The given vectors
+	 * are marked as undefined, and so are all vectors of an input pin that is
+	 * never set.
+	 */
+	public void setInput(Instance pin, long[] slices, long undefined) {
+		PinComputer computer = inputs.get(pin);
+		if (computer != null) {
+			computer.slices = slices;
+			computer.undefined = undefined;
+		}
+	}
+
+	/**
+	 * Simulates the circuit and returns the vectors for which some output pin
+	 * may hold a value other than 0 or 1.
+	 */
+	public long simulate() {
+		for (Node node : order) {
+			node.evaluate();
+		}
+		long ret = 0;
+		for (int[] threads : outputs.values()) {
+			for (int t : threads) {
+				ret |= undefinedThreads[t];
+			}
+		}
+		return ret;
+	}
+
+	private void union(int a, int b) {
+		int ra = find(a);
+		int rb = find(b);
+		if (ra != rb)
+			parents[ra] = rb;
+	}
+}
@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+/**
+ * Compares the bit-sliced simulation of single components against the
+ * ordinary propagator. Each test circuit holds the component and a pin on
+ * each of its ends.
+ */
+public class BitSliceSimulatorTest {
+	private static final Loader LOADER = new Loader(null);
+
+	private Project proj;
+	private Circuit circuit;
+	private List<Instance> inputs = new ArrayList<Instance>();
+	private List<Instance> outputs = new ArrayList<Instance>();
+
+	private void build(String lib, String name, String... attrValues) {
+		ComponentFactory factory = ((AddTool) LOADER.getBuiltin()
+				.getLibrary(lib).getTool(name)).getFactory();
+		AttributeSet attrs = factory.createAttributeSet();
+		for (String attrValue : attrValues) {
+			String[] nameValue = attrValue.split("=", 2);
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrs
+					.getAttribute(nameValue[0]);
+			attrs.setValue(attr, attr.parse(nameValue[1]));
+		}
+
+		inputs.clear();
+		outputs.clear();
+		LogisimFile file = LogisimFile.createNew(LOADER);
+		proj = new Project(file);
+		circuit = file.getMainCircuit();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component comp = factory.createComponent(Location.create(200, 200),
+				attrs);
+		xn.add(comp);
+		List<Component> pins = new ArrayList<Component>();
+		for (EndData end : comp.getEnds()) {
+			AttributeSet pinAttrs = Pin.FACTORY.createAttributeSet();
+			pinAttrs.setValue(StdAttr.WIDTH, end.getWidth());
+			pinAttrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(end.isOutput()));
+			Component pin = Pin.FACTORY.createComponent(end.getLocation(),
+					pinAttrs);
+			xn.add(pin);
+			pins.add(pin);
+		}
+		xn.execute();
+		for (Component pin : pins) {
+			Instance instance = Instance.getInstanceFor(pin);
+			(Pin.FACTORY.isInputPin(instance) ? inputs : outputs)
+					.add(instance);
+		}
+	}
+
+	/**
+	 * Simulates the given input values, one row per vector and one column per
+	 * input pin, and checks the outputs against the propagator. Vectors in
+	 * undefinedIn are passed to the bit-sliced simulation as undefined.
+	 * Returns the vectors it reported as undefined.
+	 */
+	private long compare(int[][] vectors, long undefinedIn) {
+		BitSliceSimulator sim = BitSliceSimulator.create(proj, circuit);
+		assertNotNull(sim);
+		for (int p = 0; p < inputs.size(); p++) {
+			Instance pin = inputs.get(p);
+			long[] slices = new long[Pin.FACTORY.getWidth(pin).getWidth()];
+			for (int k = 0; k < vectors.length; k++) {
+				for (int b = 0; b < slices.length; b++) {
+					slices[b] |= (long) ((vectors[k][p] >>> b) & 1) << k;
+				}
+			}
+			sim.setInput(pin, slices, undefinedIn);
+		}
+		long undefined = sim.simulate();
+
+		CircuitState state = new CircuitState(proj, circuit);
+		for (int k = 0; k < vectors.length; k++) {
+			for (int p = 0; p < inputs.size(); p++) {
+				Instance pin = inputs.get(p);
+				InstanceState pinState = state.getInstanceState(pin);
+				Pin.FACTORY.setValue(pinState, Value.createKnown(
+						Pin.FACTORY.getWidth(pin), vectors[k][p]));
+				pinState.fireInvalidated();
+			}
+			state.getPropagator().propagate();
+			boolean skipped = ((undefined >>> k) & 1) != 0;
+			if (((undefinedIn >>> k) & 1) != 0)
+				assertTrue("vector " + k + " is not reported", skipped);
+			for (Instance pin : outputs) {
+				Value expected = state.getValue(pin.getLocation());
+				if (!expected.isFullyDefined()) {
+					assertTrue("vector " + k + " gives " + expected
+							+ " but is not reported", skipped);
+				} else if (!skipped) {
+					assertEquals("vector " + k, expected,
+							sim.getOutput(pin, k));
+				}
+			}
+		}
+		return undefined;
+	}
+
+	private int[][] randomVectors(long seed) {
+		Random random = new Random(seed);
+		int[][] ret = new int[BitSliceSimulator.VECTORS][inputs.size()];
+		for (int k = 0; k < ret.length; k++) {
+			for (int p = 0; p < inputs.size(); p++) {
+				int width = Pin.FACTORY.getWidth(inputs.get(p)).getWidth();
+				ret[k][p] = random.nextInt() & BitWidth.create(width).getMask();
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public final void testGatesWithNegatedInputs() {
+		build("Gates", "AND Gate", "inputs=3", "width=4", "negate0=true",
+				"negate2=true");
+		assertEquals(0, compare(randomVectors(1), 0));
+		build("Gates", "OR Gate", "inputs=2", "negate1=true");
+		assertEquals(0, compare(randomVectors(2), 0));
+		build("Gates", "XOR Gate", "inputs=3", "width=8", "negate1=true");
+		assertEquals(0, compare(randomVectors(3), 0));
+		build("Gates", "NAND Gate", "inputs=2", "width=2", "negate0=true");
+		assertEquals(0, compare(randomVectors(4), 0));
+	}
+
+	@Test
+	public final void testUndefinedInputsAreReported() {
+		build("Gates", "AND Gate", "inputs=2", "width=4");
+		long undefinedIn = (1L << 5) | (1L << 63);
+		assertEquals(undefinedIn, compare(randomVectors(5), undefinedIn));
+	}
+
+	@Test
+	public final void testComparator() {
+		build("Arithmetic", "Comparator", "width=8", "mode=twosComplement");
+		assertEquals(0, compare(randomVectors(6), 0));
+		build("Arithmetic", "Comparator", "width=8", "mode=unsigned");
+		assertEquals(0, compare(randomVectors(7), 0));
+		// equal operands and the sign boundary
+		int[][] edges = { { 0x80, 0x7f }, { 0x7f, 0x80 }, { 0xff, 0x00 },
+				{ 0x00, 0xff }, { 0x55, 0x55 }, { 0x80, 0x80 } };
+		assertEquals(0, compare(edges, 0));
+		build("Arithmetic", "Comparator", "width=8", "mode=twosComplement");
+		assertEquals(0, compare(edges, 0));
+	}
+
+	@Test
+	public final void testAdderCarryOut() {
+		build("Arithmetic", "Adder", "width=8");
+		assertEquals(0, compare(randomVectors(8), 0));
+		int[][] edges = { { 0xff, 0x01, 0 }, { 0xff, 0x00, 1 },
+				{ 0x80, 0x80, 0 }, { 0x7f, 0x80, 1 }, { 0, 0, 0 } };
+		assertEquals(0, compare(edges, 0));
+	}
+
+	@Test
+	public final void testMultiplexerEnable() {
+		build("Plexers", "Multiplexer", "select=2", "width=4", "enable=true",
+				"disabled=Z");
+		int[][] vectors = randomVectors(9);
+		long undefined = compare(vectors, 0);
+		int enable = inputs.size() - 1;
+		for (int k = 0; k < vectors.length; k++) {
+			boolean disabled = (vectors[k][enable] & 1) == 0;
+			assertEquals("vector " + k, disabled, ((undefined >>> k) & 1) != 0);
+		}
+
+		build("Plexers", "Multiplexer", "select=2", "width=4", "enable=true",
+				"disabled=0");
+		assertEquals(0, compare(randomVectors(10), 0));
+	}
+}
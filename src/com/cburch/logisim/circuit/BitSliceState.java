@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.proj.Project;
+
+/**
+ * The ports of a component, as seen by a {@link BitSliceComputer}.
+ */
+public interface BitSliceState {
+	/**
+	 * Returns the slices of an input port, one per bit, or <code>null</code>
+	 * if nothing is connected to the port.
+	 */
+	public long[] getPortSlices(int portIndex);
+
+	public Project getProject();
+
+	public void setPortSlices(int portIndex, long[] slices);
+
+	/**
+	 * Marks the given vectors as having an output that is not fully defined.
+	 * The simulator leaves these vectors to the ordinary simulation.
+	 */
+	public void setUndefined(long vectors);
+}
@@ -37,6 +37,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -144,6 +145,33 @@ public class Circuit {
 		}
 	}
 
+	/**
+	 * Compares the values found on the output pins of a test vector with the
+	 * expected ones, and throws the mismatches.
+	 */
+	public static void checkTestVector(Instance pin[], Value[] val,
+			Value[] found) throws FailException {
+		FailException err = null;
+
+		for (int i = 0; i < pin.length; i++) {
+			if (Pin.FACTORY.isInputPin(pin[i]))
+				continue;
+
+			Value v = found[i];
+			if (!val[i].compatible(v)) {
+				String label = pin[i].getAttributeValue(StdAttr.LABEL);
+				if (err == null)
+					err = new FailException(i, label, val[i], v);
+				else
+					err.add(new FailException(i, label, val[i], v));
+			}
+		}
+
+		if (err != null) {
+			throw err;
+		}
+	}
+
 	//
 	// helper methods for other classes in package
 	//
@@ -163,6 +191,10 @@ public class Circuit {
 	// wires is package-protected for CircuitState and Analyze only.
 	private ArrayList<Component> clocks = new ArrayList<Component>();
 	private CircuitLocker locker;
+	// additions and removals made by the running transaction; their events
+	// are published together when it commits (see mutatorFlush)
+	private LinkedHashSet<Component> pendingAdds = new LinkedHashSet<Component>();
+	private LinkedHashSet<Component> pendingRemoves = new LinkedHashSet<Component>();
 
 	final static Logger logger = LoggerFactory.getLogger(Circuit.class);
 
@@ -173,10 +205,10 @@ public class Circuit {
 	private LogisimFile logiFile;
 
 	public Circuit(String name, LogisimFile file) {
+		locker = new CircuitLocker();
 		appearance = new CircuitAppearance(this);
 		staticAttrs = CircuitAttributes.createBaseAttrs(this, name);
 		subcircuitFactory = new SubcircuitFactory(this);
-		locker = new CircuitLocker();
 		circuitsUsingThis = new WeakHashMap<Component, Circuit>();
 		MyNetList = new Netlist(this);
 		Annotated = false;
@@ -361,28 +393,12 @@ public class Circuit {
 		if (prop.isOscillating())
 			throw new TestException("oscilation detected");
 
-		FailException err = null;
-
+		Value[] found = new Value[pin.length];
 		for (int i = 0; i < pin.length; i++) {
 			InstanceState pinState = state.getInstanceState(pin[i]);
-			if (Pin.FACTORY.isInputPin(pin[i]))
-				continue;
-
-			Value v = Pin.FACTORY.getValue(pinState);
-			if (!val[i].compatible(v)) {
-				if (err == null)
-					err = new FailException(i,
-							pinState.getAttributeValue(StdAttr.LABEL), val[i],
-							v);
-				else
-					err.add(new FailException(i, pinState
-							.getAttributeValue(StdAttr.LABEL), val[i], v));
-			}
-		}
-
-		if (err != null) {
-			throw err;
+			found[i] = Pin.FACTORY.getValue(pinState);
 		}
+		checkTestVector(pin, val, found);
 	}
 
 	//
@@ -432,6 +448,22 @@ public class Circuit {
 	}
 
 	void fireEvent(int action, Object data) {
+		// keep listeners seeing the changes in the order they were made
+		if (locker.hasWriteLock())
+			mutatorFlush();
+		fireEvent(new CircuitEvent(action, this, data));
+	}
+
+	private void firePending(int action, LinkedHashSet<Component> pending) {
+		if (pending.isEmpty())
+			return;
+		Object data;
+		if (pending.size() == 1) {
+			data = pending.iterator().next();
+		} else {
+			data = new ArrayList<Component>(pending);
+		}
+		pending.clear();
 		fireEvent(new CircuitEvent(action, this, data));
 	}
 
@@ -675,7 +707,8 @@ public class Circuit {
 			c.addComponentListener(myComponentListener);
 			// c.addComponentListener(this.);
 		}
-		fireEvent(CircuitEvent.ACTION_ADD, c);
+		if (!pendingRemoves.remove(c))
+			pendingAdds.add(c);
 	}
 
 	public void mutatorClear() {
@@ -696,6 +729,18 @@ public class Circuit {
 		fireEvent(CircuitEvent.ACTION_CLEAR, oldComps);
 	}
 
+	/**
+	 * Publishes the additions and removals made since the last flush as at
+	 * most one ACTION_REMOVE and one ACTION_ADD event, whose data is the
+	 * component itself or, when there are several, a collection of them. A
+	 * component that was added and removed again in between is not reported
+	 * at all.
+	 */
+	void mutatorFlush() {
+		firePending(CircuitEvent.ACTION_REMOVE, pendingRemoves);
+		firePending(CircuitEvent.ACTION_ADD, pendingAdds);
+	}
+
 	void mutatorRemove(Component c) {
 		//logger.debug("mutatorRemove: {}", c);
 
@@ -717,7 +762,8 @@ public class Circuit {
 			}
 			c.removeComponentListener(myComponentListener);
 		}
-		fireEvent(CircuitEvent.ACTION_REMOVE, c);
+		if (!pendingAdds.remove(c))
+			pendingRemoves.add(c);
 	}
 
 	public void removeCircuitListener(CircuitListener what) {
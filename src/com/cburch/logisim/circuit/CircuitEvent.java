@@ -30,6 +30,11 @@
 
 package com.cburch.logisim.circuit;
 
+import java.util.Collection;
+import java.util.Collections;
+
+import com.cburch.logisim.comp.Component;
+
 public class CircuitEvent {
 	public final static int ACTION_SET_NAME = 0; // name changed
 	public final static int ACTION_ADD = 1; // component added
@@ -59,6 +64,21 @@ public class CircuitEvent {
 		return circuit;
 	}
 
+	/**
+	 * Returns the components affected by an ACTION_ADD, ACTION_REMOVE,
+	 * ACTION_CHANGE or ACTION_CLEAR event. The changes made by one transaction
+	 * are reported together, so the data of these events is either a single
+	 * component or a collection of them.
+	 */
+	@SuppressWarnings("unchecked")
+	public Collection<Component> getComponents() {
+		if (data instanceof Collection) {
+			return (Collection<Component>) data;
+		} else {
+			return Collections.singleton((Component) data);
+		}
+	}
+
 	public Object getData() {
 		return data;
 	}
@@ -59,40 +59,53 @@ public class CircuitState implements InstanceData {
 	private class MyCircuitListener implements CircuitListener {
 		public void circuitChanged(CircuitEvent event) {
 			int action = event.getAction();
+			if (action == CircuitEvent.ACTION_ADD
+					|| action == CircuitEvent.ACTION_REMOVE
+					|| action == CircuitEvent.ACTION_CLEAR
+					|| action == CircuitEvent.ACTION_CHANGE
+					|| action == CircuitEvent.TRANSACTION_DONE)
+				levelsChanged();
 
 			/* Component was added */
 			if (action == CircuitEvent.ACTION_ADD) {
-				Component comp = (Component) event.getData();
-				if (comp instanceof Wire) {
-					Wire w = (Wire) comp;
-					markPointAsDirty(w.getEnd0());
-					markPointAsDirty(w.getEnd1());
-				} else {
-					markComponentAsDirty(comp);
+				for (Component comp : event.getComponents()) {
+					if (comp instanceof Wire) {
+						Wire w = (Wire) comp;
+						markPointAsDirty(w.getEnd0());
+						markPointAsDirty(w.getEnd1());
+					} else {
+						markComponentAsDirty(comp);
+						if (comp.getFactory() instanceof Clock)
+							clocksChanged();
+					}
 				}
 			}
 
 			/* Component was removed */
 			else if (action == CircuitEvent.ACTION_REMOVE) {
-				Component comp = (Component) event.getData();
-				if (comp.getFactory() instanceof SubcircuitFactory) {
-					// disconnect from tree
-					CircuitState substate = (CircuitState) getData(comp);
-					if (substate != null && substate.parentComp == comp) {
-						substates.remove(substate);
-						substate.parentState = null;
-						substate.parentComp = null;
+				for (Component comp : event.getComponents()) {
+					if (comp.getFactory() instanceof SubcircuitFactory) {
+						// disconnect from tree
+						CircuitState substate = (CircuitState) getData(comp);
+						if (substate != null && substate.parentComp == comp) {
+							substates.remove(substate);
+							substate.parentState = null;
+							substate.parentComp = null;
+							clocksChanged();
+						}
+					} else if (comp.getFactory() instanceof Clock) {
+						clocksChanged();
 					}
-				}
 
-				if (comp instanceof Wire) {
-					Wire w = (Wire) comp;
-					markPointAsDirty(w.getEnd0());
-					markPointAsDirty(w.getEnd1());
-				} else {
-					if (base != null)
-						base.checkComponentEnds(CircuitState.this, comp);
-					dirtyComponents.remove(comp);
+					if (comp instanceof Wire) {
+						Wire w = (Wire) comp;
+						markPointAsDirty(w.getEnd0());
+						markPointAsDirty(w.getEnd1());
+					} else {
+						if (base != null)
+							base.checkComponentEnds(CircuitState.this, comp);
+						dirtyComponents.remove(comp);
+					}
 				}
 			}
 
@@ -105,6 +118,7 @@ public class CircuitState implements InstanceData {
 				dirtyComponents.clear();
 				dirtyPoints.clear();
 				causes.clear();
+				clocksChanged();
 			}
 
 			/* Component changed */
@@ -150,6 +164,7 @@ public class CircuitState implements InstanceData {
 								CircuitState sub = (CircuitState) compState;
 								sub.parentState = null;
 								substates.remove(sub);
+								clocksChanged();
 							}
 						}
 					}
@@ -175,6 +190,7 @@ public class CircuitState implements InstanceData {
 	private CopyOnWriteArraySet<Location> dirtyPoints = new CopyOnWriteArraySet<Location>();
 	HashMap<Location, SetData> causes = new HashMap<Location, SetData>();
 
+	private static final Object[] NO_COMPONENTS = new Object[0];
 	private static int lastId = 0;
 	private int id = lastId++;
 
@@ -191,12 +207,21 @@ public class CircuitState implements InstanceData {
 
 	public CircuitState cloneState() {
 		CircuitState ret = new CircuitState(proj, circuit);
-		ret.copyFrom(this, new Propagator(ret));
+		Propagator prop = new Propagator(ret);
+		if (base != null)
+			prop.setTickCount(base.getTickCount());
+		ret.copyFrom(this, prop);
 		ret.parentComp = null;
 		ret.parentState = null;
 		return ret;
 	}
 
+	private void clocksChanged() {
+		// the propagator keeps an index of the clocks in the whole tree
+		if (base != null)
+			base.clocksChanged();
+	}
+
 	public boolean containsKey(Location pt) {
 		return values.containsKey(pt);
 	}
@@ -257,6 +282,18 @@ public class CircuitState implements InstanceData {
 		return circuit;
 	}
 
+	/**
+	 * Returns the number of values, causes and component data entries held
+	 * by this state and its substates, as a rough measure of its size.
+	 */
+	int getEntryCount() {
+		int ret = values.size() + causes.size() + componentData.size();
+		for (CircuitState sub : substates) {
+			ret += sub.getEntryCount();
+		}
+		return ret;
+	}
+
 	Value getComponentOutputAt(Location p) {
 		// for CircuitWires - to get values, ignoring wires' contributions
 		Propagator.SetData cause_list = causes.get(p);
@@ -336,6 +373,12 @@ public class CircuitState implements InstanceData {
 		return parentState != null;
 	}
 
+	private void levelsChanged() {
+		// so is the propagator's level index, if it keeps one
+		if (base != null)
+			base.levelsChanged();
+	}
+
 	//
 	// private methods
 	//
@@ -362,35 +405,9 @@ public class CircuitState implements InstanceData {
 	}
 
 	void processDirtyComponents() {
-		if (!dirtyComponents.isEmpty()) {
-			// This seeming wasted copy is to avoid ConcurrentModifications
-			// if we used an iterator instead.
-			Object[] toProcess;
-			RuntimeException firstException = null;
-			for (int tries = 4; true; tries--) {
-				try {
-					toProcess = dirtyComponents.toArray();
-					break;
-				} catch (RuntimeException e) {
-					if (firstException == null)
-						firstException = e;
-					if (tries == 0) {
-						toProcess = new Object[0];
-						dirtyComponents = new CopyOnWriteArraySet<Component>();
-						throw firstException;
-					}
-				}
-			}
-			dirtyComponents.clear();
-			for (Object compObj : toProcess) {
-				if (compObj instanceof Component) {
-					Component comp = (Component) compObj;
-					comp.propagate(this);
-					if (comp.getFactory() instanceof Pin && parentState != null) {
-						// should be propagated in superstate
-						parentComp.propagate(parentState);
-					}
-				}
+		for (Object compObj : takeDirtyComponents()) {
+			if (compObj instanceof Component) {
+				propagateComponent((Component) compObj);
 			}
 		}
 
@@ -401,6 +418,18 @@ public class CircuitState implements InstanceData {
 	}
 
 	void processDirtyPoints() {
+		processLocalDirtyPoints();
+
+		CircuitState[] subs = new CircuitState[substates.size()];
+		for (CircuitState substate : substates.toArray(subs)) {
+			substate.processDirtyPoints();
+		}
+	}
+
+	/**
+	 * Propagates the dirty points of this state alone, not of its substates.
+	 */
+	void processLocalDirtyPoints() {
 		HashSet<Location> dirty = new HashSet<Location>(dirtyPoints);
 		dirtyPoints.clear();
 		if (circuit.wires.isMapVoided()) {
@@ -422,10 +451,13 @@ public class CircuitState implements InstanceData {
 		if (!dirty.isEmpty()) {
 			circuit.wires.propagate(this, dirty);
 		}
+	}
 
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			substate.processDirtyPoints();
+	void propagateComponent(Component comp) {
+		comp.propagate(this);
+		if (comp.getFactory() instanceof Pin && parentState != null) {
+			// should be propagated in superstate
+			parentComp.propagate(parentState);
 		}
 	}
 
@@ -461,6 +493,7 @@ public class CircuitState implements InstanceData {
 					substates.remove(oldState);
 					oldState.parentState = null;
 					oldState.parentComp = null;
+					clocksChanged();
 				}
 				if (newState != null && newState.parentState != this) {
 					// this is the first time I've heard about this CircuitState
@@ -469,7 +502,9 @@ public class CircuitState implements InstanceData {
 					newState.parentState = this;
 					newState.parentComp = comp;
 					newState.markAllComponentsDirty();
+					clocksChanged();
 				}
+				levelsChanged();
 			}
 		}
 		componentData.put(comp, data);
@@ -510,17 +545,33 @@ public class CircuitState implements InstanceData {
 		wireData = data;
 	}
 
-	boolean tick(int ticks) {
-		boolean ret = false;
-		for (Component clock : circuit.getClocks()) {
-			ret |= Clock.tick(this, ticks, clock);
-		}
-
-		CircuitState[] subs = new CircuitState[substates.size()];
-		for (CircuitState substate : substates.toArray(subs)) {
-			ret |= substate.tick(ticks);
+	/**
+	 * Removes and returns the components marked dirty in this state alone,
+	 * not in its substates.
+	 */
+	Object[] takeDirtyComponents() {
+		if (dirtyComponents.isEmpty())
+			return NO_COMPONENTS;
+		// This seeming wasted copy is to avoid ConcurrentModifications
+		// if we used an iterator instead.
+		Object[] toProcess;
+		RuntimeException firstException = null;
+		for (int tries = 4; true; tries--) {
+			try {
+				toProcess = dirtyComponents.toArray();
+				break;
+			} catch (RuntimeException e) {
+				if (firstException == null)
+					firstException = e;
+				if (tries == 0) {
+					toProcess = new Object[0];
+					dirtyComponents = new CopyOnWriteArraySet<Component>();
+					throw firstException;
+				}
+			}
 		}
-		return ret;
+		dirtyComponents.clear();
+		return toProcess;
 	}
 
 	@Override
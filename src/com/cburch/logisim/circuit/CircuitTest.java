@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+
+/**
+ * Checks that the additions and removals of a transaction are published
+ * together when it commits.
+ */
+public class CircuitTest {
+	private static class Recorder implements CircuitListener {
+		final List<Map.Entry<Integer, Object>> events = new ArrayList<Map.Entry<Integer, Object>>();
+
+		public void circuitChanged(CircuitEvent event) {
+			switch (event.getAction()) {
+			case CircuitEvent.ACTION_ADD:
+			case CircuitEvent.ACTION_REMOVE:
+				events.add(event(event.getAction(), new HashSet<Component>(
+						event.getComponents())));
+				break;
+			case CircuitEvent.ACTION_SET_NAME:
+			case CircuitEvent.TRANSACTION_DONE:
+				events.add(event(event.getAction(), null));
+				break;
+			default:
+			}
+		}
+	}
+
+	private abstract static class Change extends CircuitTransaction {
+		final Circuit circuit;
+
+		Change(Circuit circuit) {
+			this.circuit = circuit;
+		}
+
+		@Override
+		protected Map<Circuit, Integer> getAccessedCircuits() {
+			return Collections.singletonMap(circuit, READ_WRITE);
+		}
+	}
+
+	private static Map.Entry<Integer, Object> event(int action, Object data) {
+		return new SimpleEntry<Integer, Object>(Integer.valueOf(action), data);
+	}
+
+	private static Map.Entry<Integer, Object> changed(int action,
+			Wire... wires) {
+		return event(action, new HashSet<Component>(Arrays.asList(wires)));
+	}
+
+	private static Wire wire(int row) {
+		return Wire.create(Location.create(0, 20 * row),
+				Location.create(100, 20 * row));
+	}
+
+	private static final Map.Entry<Integer, Object> DONE = event(
+			CircuitEvent.TRANSACTION_DONE, null);
+
+	private static Recorder listen(TestCircuit c) {
+		Recorder recorder = new Recorder();
+		c.circuit.addCircuitListener(recorder);
+		return recorder;
+	}
+
+	@Test
+	public void testAddThenRemoveCancelsOut() {
+		TestCircuit c = new TestCircuit();
+		c.wire(wire(0).getEnd0(), wire(0).getEnd1());
+		c.commit();
+		Recorder recorder = listen(c);
+		new Change(c.circuit) {
+			@Override
+			protected void run(CircuitMutator mutator) {
+				mutator.add(circuit, wire(1));
+				mutator.add(circuit, wire(2));
+				mutator.remove(circuit, wire(1));
+				// removing and adding back an existing wire is no change
+				mutator.remove(circuit, wire(0));
+				mutator.add(circuit, wire(0));
+			}
+		}.execute();
+		assertEquals(Arrays.asList(changed(CircuitEvent.ACTION_ADD, wire(2)),
+				DONE), recorder.events);
+	}
+
+	@Test
+	public void testOtherEventsKeepTheOrder() {
+		TestCircuit c = new TestCircuit();
+		c.wire(wire(0).getEnd0(), wire(0).getEnd1());
+		c.commit();
+		Recorder recorder = listen(c);
+		new Change(c.circuit) {
+			@Override
+			protected void run(CircuitMutator mutator) {
+				mutator.add(circuit, wire(1));
+				mutator.add(circuit, wire(2));
+				mutator.setForCircuit(circuit, CircuitAttributes.NAME_ATTR,
+						"renamed");
+				mutator.add(circuit, wire(3));
+				mutator.remove(circuit, wire(0));
+			}
+		}.execute();
+		assertEquals(Arrays.asList(
+				changed(CircuitEvent.ACTION_ADD, wire(1), wire(2)),
+				event(CircuitEvent.ACTION_SET_NAME, null),
+				changed(CircuitEvent.ACTION_REMOVE, wire(0)),
+				changed(CircuitEvent.ACTION_ADD, wire(3)), DONE),
+				recorder.events);
+	}
+
+	@Test
+	public void testNestedTransactions() {
+		TestCircuit c = new TestCircuit();
+		Recorder recorder = listen(c);
+		new Change(c.circuit) {
+			@Override
+			protected void run(CircuitMutator mutator) {
+				mutator.add(circuit, wire(1));
+				new Change(circuit) {
+					@Override
+					protected void run(CircuitMutator inner) {
+						inner.add(circuit, wire(2));
+						inner.add(circuit, wire(3));
+					}
+				}.execute();
+				// wire 3 was published by the inner commit, so its removal
+				// must be published too
+				mutator.remove(circuit, wire(3));
+				mutator.add(circuit, wire(4));
+			}
+		}.execute();
+		assertEquals(Arrays.asList(
+				changed(CircuitEvent.ACTION_ADD, wire(1), wire(2), wire(3)),
+				DONE, changed(CircuitEvent.ACTION_REMOVE, wire(3)),
+				changed(CircuitEvent.ACTION_ADD, wire(4)), DONE),
+				recorder.events);
+		assertEquals(new HashSet<Wire>(Arrays.asList(wire(1), wire(2),
+				wire(4))), c.circuit.getWires());
+	}
+}
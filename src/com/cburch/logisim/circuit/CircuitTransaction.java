@@ -78,11 +78,18 @@ public abstract class CircuitTransaction {
 				}
 			}
 
+			// fireEvent publishes the additions and removals held back
+			// during the transaction before TRANSACTION_DONE itself
 			result = new CircuitTransactionResult(mutator);
 			for (Circuit circuit : result.getModifiedCircuits()) {
 				circuit.fireEvent(CircuitEvent.TRANSACTION_DONE, result);
 			}
 		} finally {
+			for (Circuit circuit : locks.keySet()) {
+				if (circuit.getLocker().getMutator() == mutator) {
+					circuit.mutatorFlush();
+				}
+			}
 			CircuitLocker.releaseLocks(locks);
 		}
 		return result;
@@ -34,9 +34,11 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -370,6 +372,8 @@ class CircuitWires {
 			}
 		}
 
+		computeRanges(ret);
+
 		// All threads are sewn together! Compute the exception set before
 		// leaving
 		Collection<WidthIncompatibilityData> exceptions = points
@@ -386,6 +390,59 @@ class CircuitWires {
 		}
 	}
 
+	// Groups threads that run side by side through every bundle they touch
+	// into ranges, so that propagate handles a whole range as one value
+	// rather than one bit at a time.
+	private void computeRanges(BundleMap ret) {
+		// find the thread that follows each thread in all of its bundles
+		HashSet<WireThread> threads = new HashSet<WireThread>();
+		HashMap<WireThread, WireThread> next = new HashMap<WireThread, WireThread>();
+		HashSet<WireThread> followers = new HashSet<WireThread>();
+		for (WireBundle b : ret.getBundles()) {
+			if (b.isValid() && b.threads != null) {
+				for (WireThread t : b.threads) {
+					if (threads.add(t)) {
+						WireThread n = getFollower(t);
+						if (n != null) {
+							next.put(t, n);
+							followers.add(n);
+						}
+					}
+				}
+			}
+		}
+
+		// make one range for each chain of following threads
+		HashMap<WireThread, WireThread> ranges = new HashMap<WireThread, WireThread>();
+		for (WireThread t : threads) {
+			if (!followers.contains(t)) {
+				int width = 1;
+				for (WireThread n = next.get(t); n != null; n = next.get(n)) {
+					width++;
+				}
+				WireThread range = new WireThread(width);
+				for (ThreadBundle tb : t.getBundles()) {
+					range.getBundles().add(new ThreadBundle(tb.loc, tb.b));
+				}
+				ranges.put(t, range);
+			}
+		}
+
+		// a bundle is made of whole ranges, since a range's first thread
+		// is always followed by the rest of it
+		for (WireBundle b : ret.getBundles()) {
+			if (b.isValid() && b.threads != null) {
+				ArrayList<WireThread> bRanges = new ArrayList<WireThread>();
+				for (int i = 0; i < b.threads.length;) {
+					WireThread range = ranges.get(b.threads[i]);
+					bRanges.add(range);
+					i += range.getWidth();
+				}
+				b.ranges = bRanges.toArray(new WireThread[bRanges.size()]);
+			}
+		}
+	}
+
 	private void connectPullResistors(BundleMap ret) {
 		for (Component comp : pulls) {
 			Location loc = comp.getEnd(0).getLocation();
@@ -637,14 +694,56 @@ class CircuitWires {
 				wires.iterator());
 	}
 
+	/**
+	 * Returns the thread found just after the given one in every bundle it
+	 * goes through, or <code>null</code> if there is no such thread.
+	 */
+	private static WireThread getFollower(WireThread t) {
+		WireThread ret = null;
+		for (ThreadBundle tb : t.getBundles()) {
+			WireThread[] th = tb.b.threads;
+			if (tb.loc + 1 >= th.length)
+				return null;
+			if (ret == null)
+				ret = th[tb.loc + 1];
+			else if (th[tb.loc + 1] != ret)
+				return null;
+		}
+		if (ret == null || ret == t
+				|| ret.getBundles().size() != t.getBundles().size())
+			return null;
+		return ret;
+	}
+
+	/**
+	 * Returns the points that share at least one bit with the given point,
+	 * through wires, tunnels and splitters, including the point itself.
+	 */
+	Collection<Location> getNetPoints(Location p) {
+		WireBundle b = getBundleMap().getBundleAt(p);
+		if (b == null)
+			return Collections.singleton(p);
+		if (!b.isValid() || b.ranges == null)
+			return b.points;
+		HashSet<Location> ret = new HashSet<Location>();
+		for (WireThread t : b.ranges) {
+			for (ThreadBundle tb : t.getBundles()) {
+				ret.addAll(tb.b.points);
+			}
+		}
+		return ret;
+	}
+
 	private Value getThreadValue(CircuitState state, WireThread t) {
-		Value ret = Value.UNKNOWN;
+		int width = t.getWidth();
+		Value ret = width == 1 ? Value.UNKNOWN : Value.createUnknown(BitWidth
+				.create(width));
 		Value pull = Value.UNKNOWN;
 		for (ThreadBundle tb : t.getBundles()) {
 			for (Location p : tb.b.points) {
 				Value val = state.getComponentOutputAt(p);
 				if (val != null && val != Value.NIL) {
-					ret = ret.combine(val.get(tb.loc));
+					ret = ret.combine(val.extract(tb.loc, width));
 				}
 			}
 			Value pullHere = tb.b.getPullValue();
@@ -728,8 +827,8 @@ class CircuitWires {
 	//
 	void propagate(CircuitState circState, Set<Location> points) {
 		BundleMap map = getBundleMap();
-		CopyOnWriteArraySet<WireThread> dirtyThreads = new CopyOnWriteArraySet<WireThread>(); // affected
-																								// threads
+		LinkedHashSet<WireThread> dirtyThreads = new LinkedHashSet<WireThread>(); // affected
+																					// ranges
 
 		// get state, or create a new one if current state is outdated
 		State s = circState.getWireData();
@@ -737,7 +836,7 @@ class CircuitWires {
 			// if it is outdated, we need to compute for all threads
 			s = new State(map);
 			for (WireBundle b : map.getBundles()) {
-				WireThread[] th = b.threads;
+				WireThread[] th = b.ranges;
 				if (b.isValid() && th != null) {
 					for (WireThread t : th) {
 						dirtyThreads.add(t);
@@ -753,7 +852,7 @@ class CircuitWires {
 			if (pb == null) { // point is not wired
 				circState.setValueByWire(p, circState.getComponentOutputAt(p));
 			} else {
-				WireThread[] th = pb.threads;
+				WireThread[] th = pb.ranges;
 				if (!pb.isValid() || th == null) {
 					// immediately propagate NILs across invalid bundles
 					CopyOnWriteArraySet<Location> pbPoints = pb.points;
@@ -776,27 +875,28 @@ class CircuitWires {
 			return;
 
 		// determine values of affected threads
-		HashSet<ThreadBundle> bundles = new HashSet<ThreadBundle>();
+		LinkedHashSet<WireBundle> bundles = new LinkedHashSet<WireBundle>();
 		for (WireThread t : dirtyThreads) {
 			Value v = getThreadValue(circState, t);
 			s.thr_values.put(t, v);
-			bundles.addAll(t.getBundles());
+			for (ThreadBundle tb : t.getBundles()) {
+				bundles.add(tb.b);
+			}
 		}
 
-		// now propagate values through circuit
-		for (ThreadBundle tb : bundles) {
-			WireBundle b = tb.b;
-
+		// now propagate values through circuit, putting each bundle's value
+		// together from the values of its ranges
+		for (WireBundle b : bundles) {
 			Value bv = null;
-			if (!b.isValid() || b.threads == null) {
+			if (!b.isValid() || b.ranges == null) {
 				; // do nothing
-			} else if (b.threads.length == 1) {
-				bv = s.thr_values.get(b.threads[0]);
+			} else if (b.ranges.length == 1) {
+				bv = s.thr_values.get(b.ranges[0]);
 			} else {
-				Value[] tvs = new Value[b.threads.length];
+				Value[] tvs = new Value[b.ranges.length];
 				boolean tvs_valid = true;
 				for (int i = 0; i < tvs.length; i++) {
-					Value tv = s.thr_values.get(b.threads[i]);
+					Value tv = s.thr_values.get(b.ranges[i]);
 					if (tv == null) {
 						tvs_valid = false;
 						break;
@@ -804,7 +904,7 @@ class CircuitWires {
 					tvs[i] = tv;
 				}
 				if (tvs_valid)
-					bv = Value.create(tvs);
+					bv = Value.concat(tvs);
 			}
 
 			if (bv != null) {
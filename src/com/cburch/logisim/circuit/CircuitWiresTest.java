@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+
+public class CircuitWiresTest {
+
+	private static Component pin(Location loc, BitWidth width, boolean output) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, width);
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		return Pin.FACTORY.createComponent(loc, attrs);
+	}
+
+	// an 8-bit splitter whose bits go to the given ends (1 is the first
+	// split end)
+	private static Component splitter(Location loc, int... ends) {
+		AttributeSet attrs = SplitterFactory.instance.createAttributeSet();
+		attrs.setValue(SplitterAttributes.ATTR_WIDTH, BitWidth.create(8));
+		for (int i = 0; i < ends.length; i++) {
+			@SuppressWarnings("unchecked")
+			Attribute<Integer> bit = (Attribute<Integer>) attrs
+					.getAttribute("bit" + i);
+			attrs.setValue(bit, Integer.valueOf(ends[i]));
+		}
+		return SplitterFactory.instance.createComponent(loc, attrs);
+	}
+
+	private static int[] rangeWidths(Circuit circuit, Location loc) {
+		WireThread[] ranges = circuit.wires.getWireBundle(loc).ranges;
+		int[] ret = new int[ranges.length];
+		for (int i = 0; i < ret.length; i++)
+			ret[i] = ranges[i].getWidth();
+		return ret;
+	}
+
+	/**
+	 * An 8-bit bus split both as 4+4 and as 2+6 bits propagates as the
+	 * ranges 0-1, 2-3 and 4-7, and every split end reads its bits of the
+	 * bus, unknown and error bits included.
+	 */
+	@Test
+	public final void testSplitterRanges() {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.createNew(loader);
+		Project proj = new Project(file);
+		Circuit circuit = file.getMainCircuit();
+
+		Location busA = Location.create(100, 100);
+		Location busB = Location.create(100, 300);
+		Component in = pin(busA, BitWidth.create(8), false);
+		Component a = splitter(busA, 1, 1, 1, 1, 2, 2, 2, 2);
+		Component b = splitter(busB, 1, 1, 2, 2, 2, 2, 2, 2);
+		CircuitMutation xn = new CircuitMutation(circuit);
+		xn.add(in);
+		xn.add(a);
+		xn.add(b);
+		xn.add(Wire.create(busA, busB));
+		List<Component> outs = new ArrayList<Component>();
+		for (Component split : new Component[] { a, b }) {
+			for (EndData end : split.getEnds().subList(1, 3)) {
+				Component out = pin(end.getLocation(), end.getWidth(), true);
+				xn.add(out);
+				outs.add(out);
+			}
+		}
+		xn.execute();
+
+		assertArrayEquals(new int[] { 2, 2, 4 }, rangeWidths(circuit, busA));
+		assertArrayEquals(new int[] { 2, 2 },
+				rangeWidths(circuit, a.getEnd(1).getLocation()));
+		assertArrayEquals(new int[] { 4 },
+				rangeWidths(circuit, a.getEnd(2).getLocation()));
+		assertArrayEquals(new int[] { 2 },
+				rangeWidths(circuit, b.getEnd(1).getLocation()));
+		assertArrayEquals(new int[] { 2, 4 },
+				rangeWidths(circuit, b.getEnd(2).getLocation()));
+
+		CircuitState state = new CircuitState(proj, circuit);
+		Value[] inputs = {
+				Value.createKnown(BitWidth.create(8), 0xb4),
+				Value.create(new Value[] { Value.TRUE, Value.UNKNOWN,
+						Value.FALSE, Value.ERROR, Value.TRUE, Value.TRUE,
+						Value.UNKNOWN, Value.FALSE }),
+				Value.createUnknown(BitWidth.create(8)) };
+		int[][] splits = { { 0, 4 }, { 4, 4 }, { 0, 2 }, { 2, 6 } };
+		for (Value input : inputs) {
+			InstanceState pinState = state.getInstanceState(in);
+			Pin.FACTORY.setValue(pinState, input);
+			pinState.fireInvalidated();
+			state.getPropagator().propagate();
+			assertEquals(input, state.getValue(busB));
+			for (int i = 0; i < outs.size(); i++) {
+				Location loc = outs.get(i).getLocation();
+				assertEquals(input.extract(splits[i][0], splits[i][1]),
+						state.getValue(loc));
+				assertEquals(state.getValue(loc),
+						Pin.FACTORY.getValue(state.getInstanceState(outs
+								.get(i))));
+			}
+		}
+	}
+}
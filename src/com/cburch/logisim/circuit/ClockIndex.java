@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.std.wiring.Clock;
+
+/**
+ * The clocks of a tree of circuit states, as seen by its propagator. Each
+ * clock component is listed once together with every state that simulates it,
+ * so a tick visits only the clocks rather than the whole state tree, and a
+ * clock whose period does not have an edge at the current tick is skipped
+ * without looking at any of its states.
+ *
+ * The index is rebuilt lazily after {@link #invalidate()}, which circuit
+ * states call whenever a substate is attached or detached or a clock is added
+ * or removed.
+ */
+class ClockIndex {
+	private static class Source {
+		private final Component clock;
+		private final ArrayList<CircuitState> states = new ArrayList<CircuitState>();
+		private int high;
+		private int low;
+
+		Source(Component clock) {
+			this.clock = clock;
+		}
+	}
+
+	private static boolean isLow(int ticks, int high, int low) {
+		return ticks % (high + low) < low;
+	}
+
+	private static void collect(CircuitState state,
+			LinkedHashMap<Component, Source> sources) {
+		for (Component clock : state.getCircuit().getClocks()
+				.toArray(new Component[0])) {
+			Source src = sources.get(clock);
+			if (src == null) {
+				src = new Source(clock);
+				sources.put(clock, src);
+			}
+			src.states.add(state);
+		}
+		for (CircuitState sub : state.getSubstates().toArray(
+				new CircuitState[0])) {
+			collect(sub, sources);
+		}
+	}
+
+	private final CircuitState root;
+	private volatile int version = 0;
+	private int builtVersion = -1;
+	private ArrayList<Source> sources = null;
+	private int lastTicks;
+
+	ClockIndex(CircuitState root) {
+		this.root = root;
+	}
+
+	void invalidate() {
+		version++;
+	}
+
+	boolean tick(int ticks) {
+		// every clock is evaluated after a rebuild or a jump in the tick
+		// count; after that a clock's output only changes on the edges of its
+		// period, or when it is poked, which updates the output itself
+		boolean all = ticks != lastTicks + 1;
+		int current = version;
+		if (builtVersion != current) {
+			LinkedHashMap<Component, Source> found;
+			found = new LinkedHashMap<Component, Source>();
+			collect(root, found);
+			sources = new ArrayList<Source>(found.values());
+			builtVersion = current;
+			all = true;
+		}
+		lastTicks = ticks;
+
+		boolean ret = false;
+		for (Source src : sources) {
+			AttributeSet attrs = src.clock.getAttributeSet();
+			int high = attrs.getValue(Clock.ATTR_HIGH).intValue();
+			int low = attrs.getValue(Clock.ATTR_LOW).intValue();
+			if (!all && high == src.high && low == src.low
+					&& isLow(ticks, high, low) == isLow(ticks - 1, high, low)) {
+				continue;
+			}
+			src.high = high;
+			src.low = low;
+			for (CircuitState state : src.states) {
+				ret |= Clock.tick(state, ticks, src.clock);
+			}
+		}
+		return ret;
+	}
+}
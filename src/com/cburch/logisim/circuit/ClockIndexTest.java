@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Checks that the clocks ticked by a propagator follow the clocks added to
+ * and removed from its state tree.
+ */
+public class ClockIndexTest {
+	private static final Location SUB_CLOCK = Location.create(100, 100);
+
+	/** The level a clock with the default durations has after a tick. */
+	private static Value level(int ticks) {
+		return ticks % 2 == 0 ? Value.FALSE : Value.TRUE;
+	}
+
+	private static void assertTicking(CircuitState state, Location clock,
+			int ticks) {
+		Propagator prop = state.getPropagator();
+		for (int i = 0; i < ticks; i++) {
+			assertTrue(prop.tick());
+			prop.propagate();
+			assertEquals("tick " + prop.getTickCount(),
+					level(prop.getTickCount()), state.getValue(clock));
+		}
+	}
+
+	private static void assertStopped(CircuitState state, int ticks) {
+		Propagator prop = state.getPropagator();
+		for (int i = 0; i < ticks; i++) {
+			assertFalse(prop.tick());
+			prop.propagate();
+		}
+	}
+
+	@Test
+	public void testAddedAndRemovedClocks() {
+		TestCircuit c = new TestCircuit();
+		Location at0 = Location.create(100, 100);
+		Location at1 = Location.create(100, 200);
+		Component clock0 = c.add("Wiring", "Clock", at0);
+		c.commit();
+		CircuitState state = c.start();
+		assertTicking(state, at0, 3);
+
+		Component clock1 = c.add("Wiring", "Clock", at1);
+		c.commit();
+		state.getPropagator().propagate();
+		assertTicking(state, at1, 3);
+
+		CircuitMutation xn = new CircuitMutation(c.circuit);
+		xn.remove(clock1);
+		xn.execute();
+		assertTicking(state, at0, 3);
+
+		xn = new CircuitMutation(c.circuit);
+		xn.remove(clock0);
+		xn.execute();
+		assertStopped(state, 3);
+	}
+
+	@Test
+	public void testClocksInSubcircuits() {
+		TestCircuit c = new TestCircuit();
+		Circuit sub = new Circuit("sub", c.file);
+		c.file.addCircuit(sub);
+		CircuitMutation xn = new CircuitMutation(sub);
+		Component clock = TestCircuit.factory("Wiring", "Clock")
+				.createComponent(SUB_CLOCK, TestCircuit.factory("Wiring",
+						"Clock").createAttributeSet());
+		xn.add(clock);
+		xn.execute();
+		CircuitState state = c.start();
+		assertStopped(state, 2);
+
+		SubcircuitFactory factory = sub.getSubcircuitFactory();
+		Component comp = factory.createComponent(Location.create(300, 300),
+				factory.createAttributeSet());
+		xn = new CircuitMutation(c.circuit);
+		xn.add(comp);
+		xn.execute();
+		state.getPropagator().propagate();
+		CircuitState substate = factory.getSubstate(state, comp);
+		assertTicking(substate, SUB_CLOCK, 3);
+
+		xn = new CircuitMutation(c.circuit);
+		xn.remove(comp);
+		xn.execute();
+		assertStopped(state, 3);
+	}
+}
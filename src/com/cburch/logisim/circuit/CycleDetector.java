@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.Arrays;
+
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+
+/**
+ * Spots a propagation that has fallen into a repeating cycle. Every step of
+ * the propagator is reduced to a signature of the points it touched, the
+ * values they took and the time that passed; once the signatures of the last
+ * three periods of some length agree, the circuit is taken to oscillate with
+ * that period.
+ *
+ * A circuit that repeats exactly for three periods and then settles anyway
+ * would be reported too early, but only if the state deciding when it settles
+ * is never visible on a wire, such as a counter inside a component.
+ */
+class CycleDetector {
+	/** The longest period, in propagation steps, that is looked for. */
+	static final int MAX_PERIOD = 256;
+
+	private static long mix(long x) {
+		x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+		x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return x ^ (x >>> 33);
+	}
+
+	private final long[] history = new long[MAX_PERIOD];
+	// runs[p] = how many of the latest steps equal the step p before them
+	private final int[] runs = new int[MAX_PERIOD + 1];
+	private int steps = 0;
+	private long current = 0;
+
+	void add(CircuitState state, Location loc, Value val) {
+		// summed, so that the order within a step does not matter
+		current += mix(((long) System.identityHashCode(state) << 32)
+				^ ((long) loc.hashCode() << 16) ^ val.hashCode());
+	}
+
+	void clear() {
+		Arrays.fill(runs, 0);
+		steps = 0;
+		current = 0;
+	}
+
+	/**
+	 * Ends the current step and returns the period of the cycle the
+	 * propagation has entered, or 0 if there is none yet.
+	 */
+	int stepDone(int elapsed) {
+		long signature = mix(current + elapsed);
+		current = 0;
+		int found = 0;
+		int maxPeriod = Math.min(steps, MAX_PERIOD);
+		for (int p = 1; p <= maxPeriod; p++) {
+			if (history[(steps - p) % MAX_PERIOD] == signature) {
+				runs[p]++;
+				if (found == 0 && runs[p] >= 2 * p) {
+					found = p;
+				}
+			} else {
+				runs[p] = 0;
+			}
+		}
+		history[steps % MAX_PERIOD] = signature;
+		steps++;
+		return found;
+	}
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Options;
+
+/**
+ * Checks that repeating propagations are recognized after three periods and
+ * that the components of the loop are reported.
+ */
+public class CycleDetectorTest {
+	/** Feeds one step that sets the point at (x, 0) to val. */
+	private static int step(CycleDetector detector, int x, Value val) {
+		detector.add(null, Location.create(x, 0), val);
+		return detector.stepDone(1);
+	}
+
+	@Test
+	public void testFindsPeriodAfterThreeRepeats() {
+		for (int period : new int[] { 1, 3, 7, CycleDetector.MAX_PERIOD }) {
+			CycleDetector detector = new CycleDetector();
+			// a lead-in that does not repeat
+			for (int i = 0; i < 5; i++) {
+				assertEquals(0, step(detector, 10000 + i, Value.TRUE));
+			}
+			for (int i = 0; i < 3 * period - 1; i++) {
+				assertEquals("period " + period + " step " + i, 0, step(
+						detector, i % period, Value.TRUE));
+			}
+			assertEquals(period, step(detector, period - 1, Value.TRUE));
+		}
+	}
+
+	@Test
+	public void testValuesAndTimeAreCompared() {
+		CycleDetector detector = new CycleDetector();
+		for (int i = 0; i < 10; i++) {
+			// the same point flipping is a period of two, not one
+			assertEquals(i < 5 ? 0 : 2, step(detector, 0, i % 2 == 0
+					? Value.TRUE : Value.FALSE));
+		}
+		detector.clear();
+		for (int i = 0; i < 10; i++) {
+			detector.add(null, Location.create(0, 0), Value.TRUE);
+			assertEquals(0, detector.stepDone(i));
+		}
+	}
+
+	@Test
+	public void testClearForgetsHistory() {
+		CycleDetector detector = new CycleDetector();
+		for (int i = 0; i < 2; i++) {
+			step(detector, 0, Value.TRUE);
+		}
+		detector.clear();
+		assertEquals(0, step(detector, 0, Value.TRUE));
+		assertEquals(0, step(detector, 0, Value.TRUE));
+		assertEquals(1, step(detector, 0, Value.TRUE));
+	}
+
+	/**
+	 * An OR gate and three NOT gates in a ring, which oscillates while the
+	 * OR gate's other input "en" is low.
+	 */
+	private static List<Component> ring(TestCircuit c) {
+		Component or = c.add("Gates", "OR Gate", Location.create(300, 300));
+		List<Component> ring = new ArrayList<Component>();
+		ring.add(or);
+		Component gate = or;
+		for (int i = 0; i < 3; i++) {
+			gate = c.addAt("Gates", "NOT Gate", 1, gate.getEnd(0).getLocation());
+			ring.add(gate);
+		}
+		Location out = gate.getEnd(0).getLocation();
+		Location back = or.getEnd(1).getLocation();
+		c.wire(out, out.translate(20, 0));
+		c.wire(out.translate(20, 0), Location.create(out.getX() + 20, 500));
+		c.wire(Location.create(out.getX() + 20, 500),
+				Location.create(back.getX() - 20, 500));
+		c.wire(Location.create(back.getX() - 20, 500), back.translate(-20, 0));
+		c.wire(back.translate(-20, 0), back);
+		return ring;
+	}
+
+	@Test(timeout = 20000)
+	public void testReportsLoopBeforeSimulationLimit() {
+		TestCircuit c = new TestCircuit();
+		List<Component> ring = ring(c);
+		Component en = c.pin(ring.get(0).getEnd(2).getLocation(), 1, false,
+				"en");
+		c.commit();
+		// without detection this limit would take minutes to reach
+		AttributeSet opts = c.file.getOptions().getAttributeSet();
+		opts.setValue(Options.sim_limit_attr, Integer.valueOf(100000000));
+		opts.setValue(Options.sim_cycles_attr, Boolean.TRUE);
+		CircuitState state = c.start();
+		Propagator prop = state.getPropagator();
+
+		for (int round = 0; round < 2; round++) {
+			// the ring starts out stuck at an error value, which "en" clears
+			TestCircuit.set(state, en, Value.TRUE);
+			prop.propagate();
+			assertFalse(prop.isOscillating());
+			assertTrue(prop.getOscillatingComponents().isEmpty());
+
+			TestCircuit.set(state, en, Value.FALSE);
+			prop.propagate();
+			assertTrue(prop.isOscillating());
+			Map<CircuitState, Set<Component>> report = prop
+					.getOscillatingComponents();
+			assertEquals(Collections.singleton(state), report.keySet());
+			assertEquals(new HashSet<Component>(ring), report.get(state));
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.PullResistor;
+import com.cburch.logisim.std.wiring.Tunnel;
+import com.cburch.logisim.util.Dag;
+
+/**
+ * The components of a tree of circuit states, sorted into levels for the
+ * levelized simulation. A component's level is the length of the longest
+ * chain of components that feeds it, where the chain starts over at every
+ * state element and passes through subcircuits as if the hierarchy were
+ * flattened. Evaluating the dirty components lowest level first, with zero
+ * delay, evaluates each combinational component once per change of its
+ * sources.
+ *
+ * The index also holds the queue of the components waiting to be evaluated.
+ * Like the clock index it is rebuilt lazily after {@link #invalidate()},
+ * which circuit states call whenever their circuit or their substates
+ * change. A circuit whose logic feeds back into itself other than through a
+ * state element has no levels; the propagator then keeps simulating it event
+ * by event.
+ */
+class LevelIndex {
+	static class Node {
+		final CircuitState state;
+		final Component comp;
+		int level = 0;
+		boolean queued = false;
+
+		Node(CircuitState state, Component comp) {
+			this.state = state;
+			this.comp = comp;
+		}
+	}
+
+	/**
+	 * Returns, for each output end of each component of the circuit, the
+	 * components that have an input on the same net.
+	 */
+	private static HashMap<Component, List<Component>[]> computeFanOut(
+			Circuit circuit) {
+		HashMap<Component, List<Component>[]> ret = new HashMap<Component, List<Component>[]>();
+		for (Component comp : circuit.getNonWires().toArray(new Component[0])) {
+			if (isConnector(comp))
+				continue;
+			List<EndData> ends = comp.getEnds();
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			List<Component>[] fanOut = new List[ends.size()];
+			for (int i = 0; i < fanOut.length; i++) {
+				EndData end = ends.get(i);
+				if (!end.isOutput())
+					continue;
+				LinkedHashSet<Component> found = new LinkedHashSet<Component>();
+				for (Location q : circuit.wires.getNetPoints(end.getLocation())) {
+					for (Component other : circuit.getComponents(q)) {
+						if (other != comp && !isConnector(other)
+								&& hasInputAt(other, q))
+							found.add(other);
+					}
+				}
+				fanOut[i] = new ArrayList<Component>(found);
+			}
+			ret.put(comp, fanOut);
+		}
+		return ret;
+	}
+
+	private static boolean hasInputAt(Component comp, Location loc) {
+		for (EndData end : comp.getEnds()) {
+			if (end.isInput() && end.getLocation().equals(loc))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean isConnector(Component comp) {
+		// these only join wires, and are never evaluated for a value
+		Object factory = comp.getFactory();
+		return comp instanceof Wire || comp instanceof Splitter
+				|| factory instanceof Tunnel || factory instanceof PullResistor;
+	}
+
+	private static boolean link(Dag dag, Node src, Node dst) {
+		// returns false if the edge would close a loop
+		return src == null || dst == null || dag.addEdge(src, dst);
+	}
+
+	private final CircuitState root;
+	private volatile int version = 0;
+	private int builtVersion = -1;
+	private HashMap<CircuitState, HashMap<Component, Node>> nodes = new HashMap<CircuitState, HashMap<Component, Node>>();
+	private boolean acyclic = false;
+
+	// the queue, one bucket per level
+	private ArrayList<ArrayList<Node>> buckets = new ArrayList<ArrayList<Node>>();
+	private int lowest = 0;
+	private int size = 0;
+
+	LevelIndex(CircuitState root) {
+		this.root = root;
+	}
+
+	/**
+	 * Queues a component of the given state for evaluation. A component that
+	 * is not indexed yet, because it was added since the last rebuild, is
+	 * evaluated along with the lowest level.
+	 */
+	void add(CircuitState state, Component comp) {
+		HashMap<Component, Node> stateNodes = nodes.get(state);
+		Node n = stateNodes == null ? null : stateNodes.get(comp);
+		if (n == null) {
+			n = new Node(state, comp);
+		} else if (n.queued) {
+			return;
+		}
+		n.queued = true;
+		while (buckets.size() <= n.level) {
+			buckets.add(new ArrayList<Node>());
+		}
+		buckets.get(n.level).add(n);
+		if (n.level < lowest)
+			lowest = n.level;
+		size++;
+	}
+
+	private void build() {
+		// whatever is still queued is evaluated at the next propagation
+		for (ArrayList<Node> bucket : buckets) {
+			for (Node n : bucket) {
+				n.state.markComponentAsDirty(n.comp);
+			}
+		}
+		buckets.clear();
+		lowest = 0;
+		size = 0;
+
+		nodes = new HashMap<CircuitState, HashMap<Component, Node>>();
+		ArrayList<CircuitState> states = new ArrayList<CircuitState>();
+		collect(root, states);
+
+		HashMap<Circuit, HashMap<Component, List<Component>[]>> fanOuts;
+		fanOuts = new HashMap<Circuit, HashMap<Component, List<Component>[]>>();
+		for (CircuitState state : states) {
+			Circuit circuit = state.getCircuit();
+			if (!fanOuts.containsKey(circuit))
+				fanOuts.put(circuit, computeFanOut(circuit));
+		}
+
+		Dag dag = new Dag();
+		boolean ok = true;
+		for (CircuitState state : states) {
+			HashMap<Component, Node> stateNodes = nodes.get(state);
+			HashMap<Component, List<Component>[]> fanOut = fanOuts.get(state
+					.getCircuit());
+			for (Map.Entry<Component, List<Component>[]> e : fanOut.entrySet()) {
+				Component comp = e.getKey();
+				// a state element's outputs start new chains, and a
+				// subcircuit's outputs are driven by the pins inside it
+				Object factory = comp.getFactory();
+				if (factory instanceof StateElement
+						|| factory instanceof SubcircuitFactory)
+					continue;
+				Node src = stateNodes.get(comp);
+				for (List<Component> dsts : e.getValue()) {
+					if (dsts == null)
+						continue;
+					for (Component dst : dsts) {
+						ok &= link(dag, src, stateNodes.get(dst));
+					}
+				}
+			}
+
+			CircuitState parent = state.getParentState();
+			Component sub = state.getSubcircuit();
+			if (parent == null || sub == null || !nodes.containsKey(parent))
+				continue;
+			Node subNode = nodes.get(parent).get(sub);
+			List<Component>[] subFanOut = fanOuts.get(parent.getCircuit())
+					.get(sub);
+			Instance[] pins = ((CircuitAttributes) sub.getAttributeSet())
+					.getPinInstances();
+			for (int i = 0; i < pins.length; i++) {
+				Node pin = stateNodes.get(pins[i].getComponent());
+				if (Pin.FACTORY.isInputPin(pins[i])) {
+					ok &= link(dag, subNode, pin);
+				} else if (subFanOut != null && i < subFanOut.length
+						&& subFanOut[i] != null) {
+					for (Component dst : subFanOut[i]) {
+						ok &= link(dag, pin, nodes.get(parent).get(dst));
+					}
+				}
+			}
+		}
+
+		acyclic = ok;
+		if (ok) {
+			for (Map.Entry<Object, Integer> e : dag.getLevels().entrySet()) {
+				((Node) e.getKey()).level = e.getValue().intValue();
+			}
+		}
+	}
+
+	private void collect(CircuitState state, ArrayList<CircuitState> states) {
+		HashMap<Component, Node> stateNodes = new HashMap<Component, Node>();
+		for (Component comp : state.getCircuit().getNonWires()
+				.toArray(new Component[0])) {
+			stateNodes.put(comp, new Node(state, comp));
+		}
+		nodes.put(state, stateNodes);
+		states.add(state);
+		for (CircuitState sub : state.getSubstates().toArray(
+				new CircuitState[0])) {
+			collect(sub, states);
+		}
+	}
+
+	void invalidate() {
+		version++;
+	}
+
+	boolean isCurrent() {
+		return builtVersion == version;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes and returns the queued components of the lowest level, which
+	 * are evaluated together.
+	 */
+	Collection<Node> removeLowest() {
+		if (size == 0)
+			return Collections.emptyList();
+		while (buckets.get(lowest).isEmpty()) {
+			lowest++;
+		}
+		ArrayList<Node> ret = buckets.get(lowest);
+		buckets.set(lowest, new ArrayList<Node>());
+		for (Node n : ret) {
+			n.queued = false;
+		}
+		size -= ret.size();
+		return ret;
+	}
+
+	/**
+	 * Brings the index up to date, and returns whether the components could
+	 * be levelized.
+	 */
+	boolean update() {
+		int current = version;
+		if (builtVersion != current) {
+			build();
+			builtVersion = current;
+		}
+		return acyclic;
+	}
+}
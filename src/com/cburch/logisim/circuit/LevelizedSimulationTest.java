@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Options;
+
+/**
+ * Runs small circuits in the levelized mode and event by event, and checks
+ * that both modes agree.
+ */
+public class LevelizedSimulationTest {
+	private static final String[] GATES = { "AND Gate", "XOR Gate",
+			"OR Gate", "NAND Gate", "XNOR Gate", "NOR Gate" };
+
+	static CircuitState start(TestCircuit c, boolean levelized) {
+		c.file.getOptions().getAttributeSet()
+				.setValue(Options.sim_levelized_attr, Boolean.valueOf(levelized));
+		return c.start();
+	}
+
+	@Test
+	public final void testGateChainAgrees() {
+		// each gate takes the previous gate's output and an input pin
+		TestCircuit c = new TestCircuit();
+		List<Component> inputs = new ArrayList<Component>();
+		Component gate = c.add("Gates", GATES[0], Location.create(200, 100));
+		inputs.add(c.pin(gate.getEnd(1).getLocation(), 1, false, "x0"));
+		for (int i = 0; i < 12; i++) {
+			if (i > 0)
+				gate = c.addAt("Gates", GATES[i % GATES.length], 1, gate
+						.getEnd(0).getLocation());
+			inputs.add(c.pin(gate.getEnd(2).getLocation(), 1, false, "x"
+					+ (i + 1)));
+		}
+		c.pin(gate.getEnd(0).getLocation(), 1, true, "y");
+		c.commit();
+
+		CircuitState events = start(c, false);
+		CircuitState levels = start(c, true);
+		assertTrue(new LevelIndex(levels).update());
+		StateAssert.assertSameValues(events, levels);
+
+		Random random = new Random(1);
+		for (int round = 0; round < 50; round++) {
+			for (Component pin : inputs) {
+				Value value = random.nextBoolean() ? Value.TRUE : Value.FALSE;
+				TestCircuit.set(events, pin, value);
+				TestCircuit.set(levels, pin, value);
+			}
+			events.getPropagator().propagate();
+			levels.getPropagator().propagate();
+			assertFalse(levels.getPropagator().isOscillating());
+			StateAssert.assertSameValues(events, levels);
+		}
+	}
+
+	@Test
+	public final void testLoopFallsBackToEvents() {
+		// two OR gates in a ring, each with a second input
+		TestCircuit c = new TestCircuit();
+		Component first = c.add("Gates", "OR Gate", Location.create(300, 300));
+		Component second = c.addAt("Gates", "OR Gate", 1, first.getEnd(0)
+				.getLocation());
+		Location out = second.getEnd(0).getLocation();
+		Location back = first.getEnd(1).getLocation();
+		c.wire(out, out.translate(20, 0));
+		c.wire(out.translate(20, 0), Location.create(out.getX() + 20, 500));
+		c.wire(Location.create(out.getX() + 20, 500),
+				Location.create(back.getX() - 20, 500));
+		c.wire(Location.create(back.getX() - 20, 500), back.translate(-20, 0));
+		c.wire(back.translate(-20, 0), back);
+		Component set = c.pin(first.getEnd(2).getLocation(), 1, false, "set");
+		c.pin(second.getEnd(2).getLocation(), 1, false, "hold");
+		c.pin(out, 1, true, "q");
+		c.commit();
+
+		CircuitState events = start(c, false);
+		CircuitState levels = start(c, true);
+		// the ring cannot be levelized
+		assertFalse(new LevelIndex(levels).update());
+
+		for (Value value : new Value[] { Value.FALSE, Value.TRUE, Value.FALSE }) {
+			TestCircuit.set(events, set, value);
+			TestCircuit.set(levels, set, value);
+			events.getPropagator().propagate();
+			levels.getPropagator().propagate();
+			StateAssert.assertSameValues(events, levels);
+		}
+		// the ring has latched
+		assertEquals(Value.TRUE, levels.getValue(out));
+	}
+}
@@ -31,8 +31,13 @@
 package com.cburch.logisim.circuit;
 
 import java.awt.Graphics;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -65,15 +70,27 @@ class PropagationPoints {
 	}
 
 	private HashSet<Entry> data;
+	private LinkedHashMap<CircuitState, LinkedHashSet<Component>> causes;
 
 	PropagationPoints() {
 		this.data = new HashSet<Entry>();
+		this.causes = new LinkedHashMap<CircuitState, LinkedHashSet<Component>>();
 	}
 
 	void add(CircuitState state, Location loc) {
 		data.add(new Entry(state, loc));
 	}
 
+	void add(CircuitState state, Location loc, Component cause) {
+		data.add(new Entry(state, loc));
+		LinkedHashSet<Component> comps = causes.get(state);
+		if (comps == null) {
+			comps = new LinkedHashSet<Component>();
+			causes.put(state, comps);
+		}
+		comps.add(cause);
+	}
+
 	private void addSubstates(HashMap<CircuitState, CircuitState> map,
 			CircuitState source, CircuitState value) {
 		map.put(source, value);
@@ -84,6 +101,7 @@ class PropagationPoints {
 
 	void clear() {
 		data.clear();
+		causes.clear();
 	}
 
 	void draw(ComponentDrawContext context) {
@@ -112,6 +130,21 @@ class PropagationPoints {
 		GraphicsUtil.switchToWidth(g, 1);
 	}
 
+	/**
+	 * Returns a copy of the components that set the values at the points, by
+	 * the circuit state they were simulated in.
+	 */
+	Map<CircuitState, Set<Component>> getCauses() {
+		LinkedHashMap<CircuitState, Set<Component>> ret;
+		ret = new LinkedHashMap<CircuitState, Set<Component>>();
+		for (Map.Entry<CircuitState, LinkedHashSet<Component>> e : causes
+				.entrySet()) {
+			ret.put(e.getKey(), Collections
+					.unmodifiableSet(new LinkedHashSet<Component>(e.getValue())));
+		}
+		return ret;
+	}
+
 	boolean isEmpty() {
 		return data.isEmpty();
 	}
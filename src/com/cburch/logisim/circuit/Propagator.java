@@ -33,8 +33,11 @@ package com.cburch.logisim.circuit;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Random;
+import java.util.Set;
 
 import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentDrawContext;
@@ -44,6 +47,7 @@ import com.cburch.logisim.data.AttributeListener;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
 import com.cburch.logisim.file.Options;
+import com.cburch.logisim.proj.Project;
 
 public class Propagator {
 	private static class ComponentPoint {
@@ -85,6 +89,12 @@ public class Propagator {
 				e.getSource().removeAttributeListener(this);
 			} else if (e.getAttribute().equals(Options.sim_rand_attr)) {
 				p.updateRandomness();
+			} else if (e.getAttribute().equals(Options.sim_limit_attr)) {
+				p.updateSimLimit();
+			} else if (e.getAttribute().equals(Options.sim_cycles_attr)) {
+				p.updateCycleDetection();
+			} else if (e.getAttribute().equals(Options.sim_levelized_attr)) {
+				p.updateLevelization();
 			}
 		}
 	}
@@ -148,6 +158,8 @@ public class Propagator {
 	}
 
 	private CircuitState root; // root of state tree
+	private ClockIndex clocks; // clocks anywhere in the state tree
+	private Listener listener; // follows the project's simulation options
 
 	/**
 	 * The number of clock cycles to let pass before deciding that the circuit
@@ -155,6 +167,18 @@ public class Propagator {
 	 */
 	private int simLimit = 1000;
 
+	/**
+	 * Recognizes oscillations as soon as they repeat, instead of waiting for
+	 * simLimit steps; null unless enabled in the project's options.
+	 */
+	private volatile CycleDetector cycles;
+
+	/**
+	 * Sorts the components into levels for the zero-delay levelized
+	 * simulation; null unless enabled in the project's options.
+	 */
+	private volatile LevelIndex levels;
+
 	/**
 	 * On average, one out of every 2**simRandomShift propagations through a
 	 * component is delayed one step more than the component requests. This
@@ -178,10 +202,14 @@ public class Propagator {
 
 	public Propagator(CircuitState root) {
 		this.root = root;
-		Listener l = new Listener(this);
+		this.clocks = new ClockIndex(root);
+		listener = new Listener(this);
 		root.getProject().getOptions().getAttributeSet()
-				.addAttributeListener(l);
+				.addAttributeListener(listener);
 		updateRandomness();
+		updateSimLimit();
+		updateCycleDetection();
+		updateLevelization();
 	}
 
 	private SetData addCause(CircuitState state, SetData head, SetData data) {
@@ -215,6 +243,31 @@ public class Propagator {
 		return head;
 	}
 
+	/**
+	 * Applies all the pending values at once, ignoring their delays, and
+	 * returns the states where a point changed.
+	 */
+	private Set<CircuitState> applyPendingValues() {
+		Set<CircuitState> touched = new LinkedHashSet<CircuitState>();
+		while (!toProcess.isEmpty()) {
+			SetData data = toProcess.remove();
+			CircuitState state = data.state;
+			clock = data.time;
+			if (oscAdding)
+				oscPoints.add(state, data.loc, data.cause);
+
+			SetData oldHead = state.causes.get(data.loc);
+			Value oldVal = computeValue(oldHead);
+			SetData newHead = addCause(state, oldHead, data);
+			Value newVal = computeValue(newHead);
+			if (!newVal.equals(oldVal)) {
+				state.markPointAsDirty(data.loc);
+				touched.add(state);
+			}
+		}
+		return touched;
+	}
+
 	//
 	// private methods
 	//
@@ -237,12 +290,44 @@ public class Propagator {
 
 	private void clearDirtyComponents() {
 		root.processDirtyComponents();
+		/* The VHDL entities of this step are simulated in one exchange */
+		Project proj = root.getProject();
+		if (proj != null && proj.getVhdlSimulator() != null)
+			proj.getVhdlSimulator().flush();
 	}
 
 	private void clearDirtyPoints() {
 		root.processDirtyPoints();
 	}
 
+	void clocksChanged() {
+		clocks.invalidate();
+	}
+
+	private void collectDirtyComponents(CircuitState state, LevelIndex index,
+			boolean recurse) {
+		for (Object comp : state.takeDirtyComponents()) {
+			if (comp instanceof Component)
+				index.add(state, (Component) comp);
+		}
+		if (recurse) {
+			for (CircuitState sub : state.getSubstates().toArray(
+					new CircuitState[0])) {
+				collectDirtyComponents(sub, index, true);
+			}
+		}
+	}
+
+	/**
+	 * Stops following the project's simulation options. Otherwise a
+	 * propagator that is no longer used stays registered with them until
+	 * they next change.
+	 */
+	public void dispose() {
+		root.getProject().getOptions().getAttributeSet()
+				.removeAttributeListener(listener);
+	}
+
 	public void drawOscillatingPoints(ComponentDrawContext context) {
 		if (isOscillating)
 			oscPoints.draw(context);
@@ -251,6 +336,16 @@ public class Propagator {
 	//
 	// public methods
 	//
+	/**
+	 * Returns the components whose outputs kept changing when the last
+	 * propagation was found to oscillate, by the circuit state they are
+	 * simulated in. With early detection enabled these are exactly the
+	 * components of the repeating cycle. Empty unless isOscillating().
+	 */
+	public Map<CircuitState, Set<Component>> getOscillatingComponents() {
+		return oscPoints.getCauses();
+	}
+
 	CircuitState getRootState() {
 		return root;
 	}
@@ -295,12 +390,24 @@ public class Propagator {
 	 * clearDirtyPoints(); clearDirtyComponents(); }
 	 */
 
+	void levelsChanged() {
+		LevelIndex index = levels;
+		if (index != null)
+			index.invalidate();
+	}
+
 	void locationTouched(CircuitState state, Location loc) {
 		if (oscAdding)
 			oscPoints.add(state, loc);
 	}
 
 	public void propagate() {
+		LevelIndex index = levels;
+		if (index != null && index.update()) {
+			propagateLevelized(index);
+			return;
+		}
+
 		oscPoints.clear();
 		clearDirtyPoints();
 		clearDirtyComponents();
@@ -308,14 +415,38 @@ public class Propagator {
 		int oscThreshold = simLimit;
 		int logThreshold = 3 * oscThreshold / 4;
 		int iters = 0;
+		CycleDetector detector = cycles;
+		if (detector != null) {
+			detector.clear();
+		}
+		int period = 0;
 		while (!toProcess.isEmpty()) {
 			iters++;
 
-			if (iters < logThreshold) {
-				stepInternal(null);
-			} else if (iters < oscThreshold) {
+			if (period > 0) {
+				// the points of one whole period are exactly the ones that
+				// oscillate
 				oscAdding = true;
-				stepInternal(oscPoints);
+				stepInternal(oscPoints, null);
+				if (--period == 0) {
+					isOscillating = true;
+					oscAdding = false;
+					return;
+				}
+			} else if (iters < oscThreshold) {
+				PropagationPoints log = null;
+				if (iters >= logThreshold) {
+					oscAdding = true;
+					log = oscPoints;
+				}
+				int start = clock;
+				stepInternal(log, detector);
+				if (detector != null) {
+					period = detector.stepDone(clock - start);
+					if (period > 0) {
+						oscPoints.clear();
+					}
+				}
 			} else {
 				isOscillating = true;
 				oscAdding = false;
@@ -327,6 +458,56 @@ public class Propagator {
 		oscPoints.clear();
 	}
 
+	/**
+	 * Propagates with zero delay, evaluating the dirty components of the
+	 * lowest level together, applying their outputs at once and repeating
+	 * until no component is dirty. Each step is one level, so the simulation
+	 * limit still bounds a circuit that does not settle.
+	 */
+	private void propagateLevelized(LevelIndex index) {
+		oscPoints.clear();
+		oscAdding = false;
+		applyPendingValues();
+		clearDirtyPoints();
+		collectDirtyComponents(root, index, true);
+
+		int oscThreshold = simLimit;
+		int logThreshold = 3 * oscThreshold / 4;
+		int iters = 0;
+		Project proj = root.getProject();
+		while (!index.isEmpty()) {
+			iters++;
+			if (iters >= oscThreshold) {
+				isOscillating = true;
+				oscAdding = false;
+				return;
+			}
+			oscAdding = iters >= logThreshold;
+
+			for (LevelIndex.Node n : index.removeLowest()) {
+				n.state.propagateComponent(n.comp);
+			}
+			if (proj != null && proj.getVhdlSimulator() != null)
+				proj.getVhdlSimulator().flush();
+
+			// only the states where a value changed can have new work,
+			// unless a substate was attached, which waits entirely dirty
+			Set<CircuitState> touched = applyPendingValues();
+			if (index.isCurrent()) {
+				for (CircuitState state : touched) {
+					state.processLocalDirtyPoints();
+					collectDirtyComponents(state, index, false);
+				}
+			} else {
+				clearDirtyPoints();
+				collectDirtyComponents(root, index, true);
+			}
+		}
+		isOscillating = false;
+		oscAdding = false;
+		oscPoints.clear();
+	}
+
 	private SetData removeCause(CircuitState state, SetData head, Location loc,
 			Component cause) {
 		HashMap<Location, SetData> causes = state.causes;
@@ -356,6 +537,7 @@ public class Propagator {
 	void reset() {
 		toProcess.clear();
 		root.reset();
+		clocks.invalidate();
 		isOscillating = false;
 	}
 
@@ -401,12 +583,13 @@ public class Propagator {
 		PropagationPoints oldOsc = oscPoints;
 		oscAdding = changedPoints != null;
 		oscPoints = changedPoints;
-		stepInternal(changedPoints);
+		stepInternal(changedPoints, null);
 		oscAdding = false;
 		oscPoints = oldOsc;
 	}
 
-	private void stepInternal(PropagationPoints changedPoints) {
+	private void stepInternal(PropagationPoints changedPoints,
+			CycleDetector detector) {
 		if (toProcess.isEmpty())
 			return;
 
@@ -440,7 +623,7 @@ public class Propagator {
 			 */
 
 			if (changedPoints != null)
-				changedPoints.add(state, data.loc);
+				changedPoints.add(state, data.loc, data.cause);
 
 			// change the information about value
 			SetData oldHead = state.causes.get(data.loc);
@@ -448,6 +631,9 @@ public class Propagator {
 			SetData newHead = addCause(state, oldHead, data);
 			Value newVal = computeValue(newHead);
 
+			if (detector != null)
+				detector.add(state, data.loc, newVal);
+
 			// if the value at point has changed, propagate it
 			if (!newVal.equals(oldVal)) {
 				state.markPointAsDirty(data.loc);
@@ -460,7 +646,11 @@ public class Propagator {
 
 	public boolean tick() {
 		ticks++;
-		return root.tick(ticks);
+		return clocks.tick(ticks);
+	}
+
+	void setTickCount(int value) {
+		ticks = value;
 	}
 
 	@Override
@@ -478,4 +668,24 @@ public class Propagator {
 		simRandomShift = logVal;
 	}
 
+	private void updateCycleDetection() {
+		Options opts = root.getProject().getOptions();
+		Object detect = opts.getAttributeSet().getValue(
+				Options.sim_cycles_attr);
+		cycles = Boolean.TRUE.equals(detect) ? new CycleDetector() : null;
+	}
+
+	private void updateLevelization() {
+		Options opts = root.getProject().getOptions();
+		Object levelize = opts.getAttributeSet().getValue(
+				Options.sim_levelized_attr);
+		levels = Boolean.TRUE.equals(levelize) ? new LevelIndex(root) : null;
+	}
+
+	private void updateSimLimit() {
+		Options opts = root.getProject().getOptions();
+		Object limit = opts.getAttributeSet().getValue(Options.sim_limit_attr);
+		simLimit = ((Integer) limit).intValue();
+	}
+
 }
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Keeps a bounded ring of checkpoints of the simulated root state so that the
+ * simulation can be stepped backwards.
+ * 
+ * Nothing is recorded until the history is enabled. A checkpoint is then
+ * taken every few ticks, and at the first tick after the state changed
+ * outside of a tick (a poke, an edit). Between two checkpoints only clock
+ * ticks happen, so any tick in between is restored by cloning the checkpoint
+ * before it and re-running the remaining ticks. Memory pages of RAM and ROM
+ * contents are shared copy-on-write between the live state and the
+ * checkpoints, so each checkpoint mostly costs the wire values and component
+ * data of the circuit hierarchy.
+ * 
+ * The interval between checkpoints adapts so that taking them uses about a
+ * tenth of the simulation time, and the oldest checkpoints are dropped once
+ * the estimated size of all checkpoints exceeds the memory budget.
+ */
+public class SimulationHistory {
+	private static class Checkpoint {
+		int tick;
+		CircuitState state;
+		long size;
+
+		Checkpoint(int tick, CircuitState state, long size) {
+			this.tick = tick;
+			this.state = state;
+			this.size = size;
+		}
+	}
+
+	private static final int MIN_INTERVAL = 4;
+	private static final int MAX_INTERVAL = 4096;
+	private static final int MAX_CHECKPOINTS = 512;
+	private static final long DEFAULT_BUDGET = 64L << 20;
+	// rough number of bytes held by one value, cause or component data entry
+	private static final int BYTES_PER_ENTRY = 96;
+
+	private ArrayDeque<Checkpoint> checkpoints = new ArrayDeque<Checkpoint>();
+	private boolean enabled = false;
+	private int latestTick = -1;
+	private boolean changedOutsideTick = false;
+	private long budget = DEFAULT_BUDGET;
+	private long used = 0;
+	private int interval = MIN_INTERVAL;
+	private long lastCheckpointTime = System.nanoTime();
+	private CircuitState restored = null;
+
+	public synchronized void clear() {
+		checkpoints.clear();
+		used = 0;
+		restored = null;
+		latestTick = -1;
+		changedOutsideTick = false;
+	}
+
+	/**
+	 * Called by the simulator once the state has settled after a change that
+	 * was not caused by a tick. Only the first such change after a reset is
+	 * recorded right away; later ones force a checkpoint at the next tick.
+	 */
+	void externalChange(Propagator prop) {
+		boolean first;
+		synchronized (this) {
+			if (!enabled)
+				return;
+			latestTick = prop.getTickCount();
+			first = checkpoints.isEmpty();
+			changedOutsideTick = !first;
+		}
+		if (first)
+			record(prop);
+	}
+
+	public synchronized long getMemoryBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the oldest tick that can be restored, or -1 if there is none.
+	 */
+	public synchronized int getOldestTick() {
+		Checkpoint first = checkpoints.peekFirst();
+		return first == null ? -1 : first.tick;
+	}
+
+	synchronized boolean isRestoredState(CircuitState state) {
+		return state != null && state == restored;
+	}
+
+	private void record(Propagator prop) {
+		long start = System.nanoTime();
+		CircuitState root = prop.getRootState();
+		CircuitState copy = root.cloneState();
+		long size = (long) copy.getEntryCount() * BYTES_PER_ENTRY;
+		int tick = prop.getTickCount();
+		long end = System.nanoTime();
+
+		synchronized (this) {
+			Checkpoint last = checkpoints.peekLast();
+			while (last != null && last.tick >= tick) {
+				checkpoints.removeLast();
+				used -= last.size;
+				last = checkpoints.peekLast();
+			}
+			checkpoints.addLast(new Checkpoint(tick, copy, size));
+			used += size;
+			while (checkpoints.size() > 1
+					&& (used > budget || checkpoints.size() > MAX_CHECKPOINTS)) {
+				used -= checkpoints.removeFirst().size;
+			}
+
+			long cost = end - start;
+			long elapsed = start - lastCheckpointTime;
+			if (cost * 10 > elapsed && interval < MAX_INTERVAL) {
+				interval *= 2;
+			} else if (cost * 40 < elapsed && interval > MIN_INTERVAL) {
+				interval /= 2;
+			}
+			lastCheckpointTime = end;
+		}
+	}
+
+	/**
+	 * Builds a new root state as it was right after the given tick, or returns
+	 * null if the history is disabled, if the tick is past the last one
+	 * simulated, or if the checkpoints before it have been dropped. At most
+	 * the checkpoint interval's worth of ticks is re-run, which can still take
+	 * a while on large circuits, so this should not be called on the event
+	 * dispatch thread. Checkpoints after the tick are discarded, as the
+	 * simulation continues from the restored state.
+	 * 
+	 * Pokes made after the tick are not part of the restored state. Re-running
+	 * the ticks is exact unless the circuit uses random propagation delays or
+	 * components whose state lives outside of Logisim, such as external VHDL
+	 * or Tcl simulators.
+	 */
+	public CircuitState restore(int tick) {
+		Checkpoint base = null;
+		synchronized (this) {
+			if (!enabled || tick < 0 || tick > latestTick)
+				return null;
+			for (Iterator<Checkpoint> it = checkpoints.descendingIterator(); it
+					.hasNext();) {
+				Checkpoint cp = it.next();
+				if (cp.tick <= tick) {
+					base = cp;
+					break;
+				}
+			}
+		}
+		if (base == null || tick - base.tick > MAX_INTERVAL)
+			return null;
+
+		CircuitState ret = base.state.cloneState();
+		Propagator prop = ret.getPropagator();
+		prop.propagate();
+		while (prop.getTickCount() < tick) {
+			prop.tick();
+			prop.propagate();
+		}
+
+		synchronized (this) {
+			Checkpoint last = checkpoints.peekLast();
+			while (last != null && last.tick > base.tick) {
+				checkpoints.removeLast();
+				used -= last.size;
+				last = checkpoints.peekLast();
+			}
+			restored = ret;
+			latestTick = tick;
+			changedOutsideTick = false;
+		}
+		return ret;
+	}
+
+	/**
+	 * Starts or stops recording. Stopping drops all checkpoints.
+	 */
+	public synchronized void setEnabled(boolean value) {
+		if (enabled != value) {
+			enabled = value;
+			clear();
+		}
+	}
+
+	public synchronized void setMemoryBudget(long value) {
+		budget = value;
+		while (checkpoints.size() > 1 && used > budget) {
+			used -= checkpoints.removeFirst().size;
+		}
+	}
+
+	/**
+	 * Called by the simulator once the state has settled after a tick.
+	 */
+	void tickCompleted(Propagator prop) {
+		int tick = prop.getTickCount();
+		boolean due;
+		synchronized (this) {
+			if (!enabled)
+				return;
+			Checkpoint last = checkpoints.peekLast();
+			due = last == null || changedOutsideTick
+					|| tick - last.tick >= interval;
+			latestTick = tick;
+			changedOutsideTick = false;
+		}
+		if (due) {
+			record(prop);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+
+public class SimulationHistoryTest {
+
+	/**
+	 * An 8-bit counter feeding a register, each driven by its own clock, so
+	 * that the state of a tick is told apart from its neighbours.
+	 */
+	static TestCircuit build() {
+		TestCircuit c = new TestCircuit();
+		Component counter = c.add("Memory", "Counter",
+				Location.create(200, 200), "width=8");
+		c.addAt("Wiring", "Clock", 0, counter.getEnd(2).getLocation());
+		Component reg = c.addAt("Memory", "Register", 1, counter.getEnd(0)
+				.getLocation(), "width=8");
+		c.addAt("Wiring", "Clock", 0, reg.getEnd(2).getLocation());
+		c.pin(reg.getEnd(0).getLocation(), 8, true, "q");
+		c.pin(counter.getEnd(7).getLocation(), 1, true, "carry");
+		c.commit();
+		return c;
+	}
+
+	static void run(CircuitState state, SimulationHistory history, int ticks) {
+		Propagator prop = state.getPropagator();
+		for (int i = 0; i < ticks; i++) {
+			prop.tick();
+			prop.propagate();
+			if (history != null)
+				history.tickCompleted(prop);
+		}
+	}
+
+	@Test
+	public final void testRestoreMatchesFreshRun() {
+		TestCircuit c = build();
+		CircuitState live = c.start();
+		SimulationHistory history = new SimulationHistory();
+		history.setEnabled(true);
+		history.externalChange(live.getPropagator());
+		run(live, history, 300);
+
+		// a restore drops the checkpoints after it, so go backwards
+		for (int tick : new int[] { 255, 77, 1, 0 }) {
+			CircuitState fresh = c.start();
+			run(fresh, null, tick);
+			CircuitState restored = history.restore(tick);
+			assertNotNull("tick " + tick, restored);
+			assertEquals(tick, restored.getPropagator().getTickCount());
+			StateAssert.assertSameValues(fresh, restored);
+		}
+	}
+
+	@Test
+	public final void testRejectsUnavailableTicks() {
+		CircuitState live = build().start();
+		SimulationHistory history = new SimulationHistory();
+		history.externalChange(live.getPropagator());
+		run(live, history, 10);
+		assertNull("history is disabled", history.restore(5));
+
+		history.setEnabled(true);
+		history.externalChange(live.getPropagator());
+		run(live, history, 10);
+		assertNull("before the first checkpoint", history.restore(5));
+		assertNull("past the current tick", history.restore(21));
+		assertNotNull(history.restore(20));
+	}
+}
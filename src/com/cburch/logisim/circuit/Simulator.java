@@ -98,6 +98,7 @@ public class Simulator {
 
 				if (resetRequested) {
 					resetRequested = false;
+					history.clear();
 					if (propagator != null) {
 						propagator.reset();
 					}
@@ -137,6 +138,14 @@ public class Simulator {
 								setIsRunning(false);
 								ticksRequested = 0;
 								propagateRequested = false;
+							} else if (!exceptionEncountered) {
+								history.setEnabled(AppPreferences.SIM_HISTORY
+										.getBoolean());
+								if (ticked) {
+									history.tickCompleted(propagator);
+								} else {
+									history.externalChange(propagator);
+								}
 							}
 						}
 					} else {
@@ -168,6 +177,11 @@ public class Simulator {
 		}
 
 		public void setPropagator(Propagator value) {
+			if (propagator != value
+					&& (value == null || !history.isRestoredState(value
+							.getRootState()))) {
+				history.clear();
+			}
 			propagator = value;
 		}
 
@@ -184,6 +198,7 @@ public class Simulator {
 	private PropagationManager manager;
 	private SimulatorTicker ticker;
 	private ArrayList<SimulatorListener> listeners = new ArrayList<SimulatorListener>();
+	private SimulationHistory history = new SimulationHistory();
 
 	public Simulator() {
 		manager = new PropagationManager();
@@ -237,6 +252,10 @@ public class Simulator {
 		return prop == null ? null : prop.getRootState();
 	}
 
+	public SimulationHistory getHistory() {
+		return history;
+	}
+
 	public double getTickFrequency() {
 		return tickFrequency;
 	}
@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.EndData;
+
+/**
+ * Compares two simulations of the same circuit.
+ */
+class StateAssert {
+	/**
+	 * Checks that the value at every component end is the same in both
+	 * states, descending into the states of subcircuits. The states may
+	 * belong to two copies of the circuit loaded from the same file.
+	 */
+	static void assertSameValues(CircuitState expected, CircuitState actual) {
+		assertSameValues(expected, actual, expected.getCircuit().getName());
+	}
+
+	private static void assertSameValues(CircuitState expected,
+			CircuitState actual, String path) {
+		for (Component comp : expected.getCircuit().getNonWires()) {
+			for (EndData end : comp.getEnds()) {
+				assertEquals(path + " " + end.getLocation(),
+						expected.getValue(end.getLocation()),
+						actual.getValue(end.getLocation()));
+			}
+			Object data = expected.getData(comp);
+			if (data instanceof CircuitState) {
+				Component other = find(actual.getCircuit(), comp);
+				assertNotNull(path + " " + comp, other);
+				assertSameValues((CircuitState) data,
+						(CircuitState) actual.getData(other), path + "/"
+								+ comp.getLocation());
+			}
+		}
+	}
+
+	private static Component find(Circuit circuit, Component comp) {
+		for (Component other : circuit.getNonWires(comp.getLocation())) {
+			if (other == comp || other.getFactory().getName()
+					.equals(comp.getFactory().getName()))
+				return other;
+		}
+		return null;
+	}
+
+	private StateAssert() {
+	}
+}
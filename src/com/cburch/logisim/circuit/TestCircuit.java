@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.InstanceState;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+/**
+ * Builds small test circuits out of the built-in libraries. Components are
+ * connected by placing them so that their ends coincide, or by wires.
+ */
+class TestCircuit {
+	private static final Loader LOADER = new Loader(null);
+
+	static ComponentFactory factory(String lib, String name) {
+		return ((AddTool) LOADER.getBuiltin().getLibrary(lib).getTool(name))
+				.getFactory();
+	}
+
+	final LogisimFile file;
+	final Project proj;
+	final Circuit circuit;
+	private CircuitMutation xn;
+
+	TestCircuit() {
+		file = LogisimFile.createNew(LOADER);
+		proj = new Project(file);
+		circuit = file.getMainCircuit();
+		xn = new CircuitMutation(circuit);
+	}
+
+	/** Adds a component at loc; attributes are given as "name=value". */
+	Component add(String lib, String name, Location loc, String... attrValues) {
+		ComponentFactory factory = factory(lib, name);
+		AttributeSet attrs = factory.createAttributeSet();
+		for (String attrValue : attrValues) {
+			String[] nameValue = attrValue.split("=", 2);
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrs
+					.getAttribute(nameValue[0]);
+			attrs.setValue(attr, attr.parse(nameValue[1]));
+		}
+		Component comp = factory.createComponent(loc, attrs);
+		xn.add(comp);
+		return comp;
+	}
+
+	/** Adds a component placed so that its given end lies on endLoc. */
+	Component addAt(String lib, String name, int end, Location endLoc,
+			String... attrValues) {
+		AttributeSet attrs = factory(lib, name).createAttributeSet();
+		Location origin = Location.create(0, 0);
+		Location probe = factory(lib, name).createComponent(origin, attrs)
+				.getEnd(end).getLocation();
+		return add(lib, name, endLoc.translate(-probe.getX(), -probe.getY()),
+				attrValues);
+	}
+
+	Component pin(Location loc, int width, boolean output, String label) {
+		AttributeSet attrs = Pin.FACTORY.createAttributeSet();
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(width));
+		attrs.setValue(Pin.ATTR_TYPE, Boolean.valueOf(output));
+		attrs.setValue(StdAttr.LABEL, label);
+		Component comp = Pin.FACTORY.createComponent(loc, attrs);
+		xn.add(comp);
+		return comp;
+	}
+
+	void wire(Location a, Location b) {
+		xn.add(Wire.create(a, b));
+	}
+
+	/** Applies the components added since the last call. */
+	void commit() {
+		xn.execute();
+		xn = new CircuitMutation(circuit);
+	}
+
+	CircuitState start() {
+		CircuitState state = new CircuitState(proj, circuit);
+		state.getPropagator().propagate();
+		return state;
+	}
+
+	static void set(CircuitState state, Component pin, Value value) {
+		InstanceState pinState = state.getInstanceState(Instance
+				.getInstanceFor(pin));
+		Pin.FACTORY.setValue(pinState, value);
+		pinState.fireInvalidated();
+	}
+}
@@ -42,7 +42,8 @@ class WireBundle {
 	private WireBundle parent;
 	private Location widthDeterminant = null;
 	private boolean isBuss = false;
-	WireThread[] threads = null;
+	WireThread[] threads = null; // one per bit
+	WireThread[] ranges = null; // threads grouped into bit ranges, in order
 	CopyOnWriteArraySet<Location> points = new CopyOnWriteArraySet<Location>(); // points
 																				// bundle
 																				// hits
@@ -31,8 +31,10 @@
 package com.cburch.logisim.circuit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -91,6 +93,21 @@ class WireRepair extends CircuitTransaction {
 		}
 	}
 
+	private static final Comparator<Location> ROW_ORDER = new Comparator<Location>() {
+		public int compare(Location a, Location b) {
+			if (a.getY() != b.getY())
+				return a.getY() - b.getY();
+			else
+				return a.getX() - b.getX();
+		}
+	};
+
+	private static final Comparator<Wire> START_ORDER = new Comparator<Wire>() {
+		public int compare(Wire a, Wire b) {
+			return a.getEnd0().compareTo(b.getEnd0());
+		}
+	};
+
 	private Circuit circuit;
 
 	public WireRepair(Circuit circuit) {
@@ -193,71 +210,135 @@ class WireRepair extends CircuitTransaction {
 	 */
 
 	private void doOverlaps(CircuitMutator mutator) {
-		HashMap<Location, ArrayList<Wire>> wirePoints;
-		wirePoints = new HashMap<Location, ArrayList<Wire>>();
-		for (Wire w : circuit.getWires()) {
-			for (Location loc : w) {
-				ArrayList<Wire> locWires = wirePoints.get(loc);
-				if (locWires == null) {
-					locWires = new ArrayList<Wire>(3);
-					wirePoints.put(loc, locWires);
-				}
-				locWires.add(w);
+		ReplacementMap replacements = new ReplacementMap();
+		Set<Location> splitLocs = circuit.wires.points.getSplitLocations();
+		for (ArrayList<Wire> mergeSet : findOverlaps(circuit.getWires())) {
+			if (mergeSet.size() > 1) {
+				doMergeSet(mergeSet, replacements, splitLocs);
 			}
 		}
+		mutator.replace(circuit, replacements);
+	}
+
+	/**
+	 * Groups the given wires into sets of collinear wires that overlap one
+	 * another, ends excluded.
+	 */
+	static Collection<ArrayList<Wire>> findOverlaps(Collection<Wire> wires) {
+		// only collinear wires can overlap, so group them by the line they
+		// lie on and sweep each group in order of starting point: a wire
+		// overlaps the group seen so far exactly when it starts before the
+		// farthest end reached
+		HashMap<Long, ArrayList<Wire>> lines;
+		lines = new HashMap<Long, ArrayList<Wire>>();
+		for (Wire w : wires) {
+			Long line;
+			if (w.isVertical()) {
+				line = Long.valueOf(2L * w.getEnd0().getX());
+			} else {
+				line = Long.valueOf(2L * w.getEnd0().getY() + 1);
+			}
+			ArrayList<Wire> lineWires = lines.get(line);
+			if (lineWires == null) {
+				lineWires = new ArrayList<Wire>(3);
+				lines.put(line, lineWires);
+			}
+			lineWires.add(w);
+		}
 
 		MergeSets mergeSets = new MergeSets();
-		for (ArrayList<Wire> locWires : wirePoints.values()) {
-			if (locWires.size() > 1) {
-				for (int i = 0, n = locWires.size(); i < n; i++) {
-					Wire w0 = locWires.get(i);
-					for (int j = i + 1; j < n; j++) {
-						Wire w1 = locWires.get(j);
-						if (w0.overlaps(w1, false)) {
-							mergeSets.merge(w0, w1);
-						}
+		for (ArrayList<Wire> lineWires : lines.values()) {
+			if (lineWires.size() > 1) {
+				Collections.sort(lineWires, START_ORDER);
+				Wire reach = lineWires.get(0);
+				for (int i = 1, n = lineWires.size(); i < n; i++) {
+					Wire w = lineWires.get(i);
+					if (w.overlaps(reach, false)) {
+						mergeSets.merge(reach, w);
+					}
+					if (w.getEnd1().compareTo(reach.getEnd1()) > 0) {
+						reach = w;
 					}
 				}
 			}
 		}
+		return mergeSets.getMergeSets();
+	}
 
-		ReplacementMap replacements = new ReplacementMap();
+	private void doSplits(CircuitMutator mutator) {
+		ReplacementMap repl = new ReplacementMap();
 		Set<Location> splitLocs = circuit.wires.points.getSplitLocations();
-		for (ArrayList<Wire> mergeSet : mergeSets.getMergeSets()) {
-			if (mergeSet.size() > 1) {
-				doMergeSet(mergeSet, replacements, splitLocs);
+		Map<Wire, ArrayList<Location>> found = findSplits(circuit.getWires(),
+				splitLocs);
+		for (Map.Entry<Wire, ArrayList<Location>> entry : found.entrySet()) {
+			Wire w = entry.getKey();
+			ArrayList<Location> splits = entry.getValue();
+			splits.add(w.getEnd1());
+			Collections.sort(splits);
+			Location e0 = w.getEnd0();
+			ArrayList<Wire> subs = new ArrayList<Wire>(splits.size());
+			for (Location e1 : splits) {
+				subs.add(Wire.create(e0, e1));
+				e0 = e1;
 			}
+			repl.put(w, subs);
 		}
-		mutator.replace(circuit, replacements);
+		mutator.replace(circuit, repl);
 	}
 
-	private void doSplits(CircuitMutator mutator) {
-		Set<Location> splitLocs = circuit.wires.points.getSplitLocations();
-		ReplacementMap repl = new ReplacementMap();
-		for (Wire w : circuit.getWires()) {
+	/**
+	 * Maps each of the given wires that passes over split locations other
+	 * than its own ends to those locations.
+	 */
+	static Map<Wire, ArrayList<Location>> findSplits(Collection<Wire> wires,
+			Set<Location> splitLocs) {
+		// the split locations sorted by column and by row, so that the ones
+		// a wire passes over can be found by binary search
+		Location[] byX = splitLocs.toArray(new Location[splitLocs.size()]);
+		Location[] byY = byX.clone();
+		Arrays.sort(byX);
+		Arrays.sort(byY, ROW_ORDER);
+		HashMap<Wire, ArrayList<Location>> found;
+		found = new HashMap<Wire, ArrayList<Location>>();
+		for (Wire w : wires) {
 			Location w0 = w.getEnd0();
 			Location w1 = w.getEnd1();
 			ArrayList<Location> splits = null;
-			for (Location loc : splitLocs) {
-				if (w.contains(loc) && !loc.equals(w0) && !loc.equals(w1)) {
-					if (splits == null)
-						splits = new ArrayList<Location>();
-					splits.add(loc);
+			// Wire.contains accepts points up to 2 units off the line
+			for (int d = -2; d <= 2; d++) {
+				Location[] sorted;
+				Location from;
+				Location to;
+				Comparator<Location> order;
+				if (w.isVertical()) {
+					sorted = byX;
+					from = Location.create(w0.getX() + d, w0.getY());
+					to = Location.create(w0.getX() + d, w1.getY());
+					order = null;
+				} else {
+					sorted = byY;
+					from = Location.create(w0.getX(), w0.getY() + d);
+					to = Location.create(w1.getX(), w0.getY() + d);
+					order = ROW_ORDER;
+				}
+				int i = Arrays.binarySearch(sorted, from, order);
+				for (i = i < 0 ? -i - 1 : i; i < sorted.length; i++) {
+					Location loc = sorted[i];
+					if (order == null ? loc.compareTo(to) > 0 : order.compare(
+							loc, to) > 0)
+						break;
+					if (!loc.equals(w0) && !loc.equals(w1)) {
+						if (splits == null)
+							splits = new ArrayList<Location>();
+						splits.add(loc);
+					}
 				}
 			}
 			if (splits != null) {
-				splits.add(w1);
-				Collections.sort(splits);
-				Location e0 = w0;
-				ArrayList<Wire> subs = new ArrayList<Wire>(splits.size());
-				for (Location e1 : splits) {
-					subs.add(Wire.create(e0, e1));
-					e0 = e1;
-				}
-				repl.put(w, subs);
+				found.put(w, splits);
 			}
 		}
-		mutator.replace(circuit, repl);
+		return found;
 	}
 
 	@Override
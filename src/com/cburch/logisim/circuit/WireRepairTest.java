@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.Location;
+
+/**
+ * Checks how wires are merged and split when a transaction commits, and
+ * compares the searches in WireRepair with the quadratic ones they replaced.
+ */
+public class WireRepairTest {
+	private static Location loc(int x, int y) {
+		return Location.create(x, y);
+	}
+
+	private static Set<Wire> wires(Wire... wires) {
+		return new HashSet<Wire>(Arrays.asList(wires));
+	}
+
+	private static Wire randomWire(Random rand, int cells) {
+		int x = 10 * rand.nextInt(cells);
+		int y = 10 * rand.nextInt(cells);
+		int len = 10 * (1 + rand.nextInt(cells / 2));
+		if (rand.nextBoolean()) {
+			return Wire.create(loc(x, y), loc(x + len, y));
+		} else {
+			return Wire.create(loc(x, y), loc(x, y + len));
+		}
+	}
+
+	/** Groups the wires as the old doOverlaps did, by comparing all pairs. */
+	private static Set<Set<Wire>> oldOverlaps(Collection<Wire> wires) {
+		Map<Wire, Set<Wire>> groups = new HashMap<Wire, Set<Wire>>();
+		for (Wire w : wires) {
+			groups.put(w, new HashSet<Wire>(Collections.singleton(w)));
+		}
+		for (Wire w0 : wires) {
+			for (Wire w1 : wires) {
+				if (w0.overlaps(w1, false) && groups.get(w0) != groups.get(w1)) {
+					Set<Wire> merged = groups.get(w0);
+					for (Wire w : groups.get(w1)) {
+						merged.add(w);
+						groups.put(w, merged);
+					}
+				}
+			}
+		}
+		Set<Set<Wire>> ret = new HashSet<Set<Wire>>();
+		for (Set<Wire> group : groups.values()) {
+			if (group.size() > 1) {
+				ret.add(group);
+			}
+		}
+		return ret;
+	}
+
+	/** Finds the splits as the old doSplits did, by trying every location. */
+	private static Map<Wire, ArrayList<Location>> oldSplits(
+			Collection<Wire> wires, Set<Location> splitLocs) {
+		Map<Wire, ArrayList<Location>> ret = new HashMap<Wire, ArrayList<Location>>();
+		for (Wire w : wires) {
+			ArrayList<Location> splits = new ArrayList<Location>();
+			for (Location loc : splitLocs) {
+				if (w.contains(loc) && !loc.equals(w.getEnd0())
+						&& !loc.equals(w.getEnd1())) {
+					splits.add(loc);
+				}
+			}
+			if (!splits.isEmpty()) {
+				Collections.sort(splits);
+				ret.put(w, splits);
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testOverlappingWiresMerge() {
+		TestCircuit c = new TestCircuit();
+		c.wire(loc(0, 0), loc(100, 0));
+		c.wire(loc(50, 0), loc(150, 0));
+		c.wire(loc(200, 0), loc(200, 100));
+		c.wire(loc(200, 20), loc(200, 60));
+		c.commit();
+		assertEquals(wires(Wire.create(loc(0, 0), loc(150, 0)),
+				Wire.create(loc(200, 0), loc(200, 100))), c.circuit.getWires());
+	}
+
+	@Test
+	public void testTouchingWiresMergeUnlessSomethingElseIsThere() {
+		TestCircuit c = new TestCircuit();
+		c.wire(loc(0, 0), loc(50, 0));
+		c.wire(loc(50, 0), loc(100, 0));
+		c.wire(loc(0, 100), loc(50, 100));
+		c.wire(loc(50, 100), loc(100, 100));
+		c.wire(loc(50, 100), loc(50, 150));
+		c.commit();
+		assertEquals(wires(Wire.create(loc(0, 0), loc(100, 0)),
+				Wire.create(loc(0, 100), loc(50, 100)),
+				Wire.create(loc(50, 100), loc(100, 100)),
+				Wire.create(loc(50, 100), loc(50, 150))), c.circuit.getWires());
+	}
+
+	@Test
+	public void testWiresSplitWhereOthersEnd() {
+		TestCircuit c = new TestCircuit();
+		c.wire(loc(0, 0), loc(100, 0));
+		c.wire(loc(40, -50), loc(40, 0));
+		c.pin(loc(70, 0), 1, false, "a");
+		// the overlap is merged and then split at the crossing wire's end
+		c.wire(loc(0, 100), loc(60, 100));
+		c.wire(loc(30, 100), loc(100, 100));
+		c.wire(loc(50, 100), loc(50, 150));
+		c.commit();
+		assertEquals(wires(Wire.create(loc(0, 0), loc(40, 0)),
+				Wire.create(loc(40, 0), loc(70, 0)),
+				Wire.create(loc(70, 0), loc(100, 0)),
+				Wire.create(loc(40, -50), loc(40, 0)),
+				Wire.create(loc(0, 100), loc(50, 100)),
+				Wire.create(loc(50, 100), loc(100, 100)),
+				Wire.create(loc(50, 100), loc(50, 150))), c.circuit.getWires());
+	}
+
+	@Test
+	public void testOverlapsMatchPairwiseCheck() {
+		Random rand = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			Set<Wire> soup = new HashSet<Wire>();
+			for (int i = rand.nextInt(40); i >= 0; i--) {
+				soup.add(randomWire(rand, 12));
+			}
+			Set<Set<Wire>> found = new HashSet<Set<Wire>>();
+			for (ArrayList<Wire> group : WireRepair.findOverlaps(soup)) {
+				found.add(new HashSet<Wire>(group));
+			}
+			assertEquals("round " + round, oldOverlaps(soup), found);
+		}
+	}
+
+	@Test
+	public void testSplitsMatchExhaustiveSearch() {
+		Random rand = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			Set<Wire> soup = new HashSet<Wire>();
+			Set<Location> splitLocs = new HashSet<Location>();
+			for (int i = rand.nextInt(40); i >= 0; i--) {
+				Wire w = randomWire(rand, 12);
+				soup.add(w);
+				splitLocs.add(rand.nextBoolean() ? w.getEnd0() : w.getEnd1());
+			}
+			// include points just off the grid, which Wire.contains tolerates
+			// within 2 units
+			for (int i = rand.nextInt(20); i >= 0; i--) {
+				splitLocs.add(loc(10 * rand.nextInt(12) + rand.nextInt(7) - 3,
+						10 * rand.nextInt(12) + rand.nextInt(7) - 3));
+			}
+			Map<Wire, ArrayList<Location>> found = WireRepair.findSplits(
+					soup, splitLocs);
+			for (ArrayList<Location> splits : found.values()) {
+				Collections.sort(splits);
+			}
+			assertEquals("round " + round, oldSplits(soup, splitLocs), found);
+		}
+	}
+
+	@Test
+	public void testRepairedWiresNeitherOverlapNorCrossEnds() {
+		Random rand = new Random(7);
+		for (int round = 0; round < 20; round++) {
+			TestCircuit c = new TestCircuit();
+			for (int i = 0; i < 40; i++) {
+				Wire w = randomWire(rand, 12);
+				c.wire(w.getEnd0(), w.getEnd1());
+			}
+			c.commit();
+			Set<Wire> repaired = c.circuit.getWires();
+			assertTrue("round " + round, WireRepair.findOverlaps(repaired)
+					.isEmpty());
+			assertTrue("round " + round, WireRepair.findSplits(repaired,
+					c.circuit.wires.points.getSplitLocations()).isEmpty());
+		}
+	}
+}
@@ -35,9 +35,15 @@ import java.util.concurrent.CopyOnWriteArraySet;
 class WireThread {
 	private WireThread parent;
 	private CopyOnWriteArraySet<CircuitWires.ThreadBundle> bundles = new CopyOnWriteArraySet<CircuitWires.ThreadBundle>();
+	private int width; // number of adjacent bits carried
 
 	WireThread() {
+		this(1);
+	}
+
+	WireThread(int width) {
 		parent = this;
+		this.width = width;
 	}
 
 	WireThread find() {
@@ -55,6 +61,10 @@ class WireThread {
 		return bundles;
 	}
 
+	int getWidth() {
+		return width;
+	}
+
 	void unite(WireThread other) {
 		WireThread group = this.find();
 		WireThread group2 = other.find();
@@ -42,6 +42,7 @@ import com.cburch.logisim.util.SyntaxChecker;
 public class AttributeSets {
 	private static class FixedSet extends AbstractAttributeSet {
 		private List<Attribute<?>> attrs;
+		private Attribute<?>[] slots;
 		private Object[] values;
 		private int readOnly = 0;
 
@@ -55,6 +56,7 @@ public class AttributeSets {
 						"cannot handle more than 32 attributes");
 			}
 			this.attrs = Arrays.asList(attrs);
+			this.slots = attrs;
 			this.values = initValues.clone();
 		}
 
@@ -62,6 +64,7 @@ public class AttributeSets {
 		protected void copyInto(AbstractAttributeSet destSet) {
 			FixedSet dest = (FixedSet) destSet;
 			dest.attrs = this.attrs;
+			dest.slots = this.slots;
 			dest.values = this.values.clone();
 			dest.readOnly = this.readOnly;
 		}
@@ -73,7 +76,7 @@ public class AttributeSets {
 
 		@Override
 		public <V> V getValue(Attribute<V> attr) {
-			int index = attrs.indexOf(attr);
+			int index = indexOf(attr);
 			if (index < 0) {
 				return null;
 			} else {
@@ -83,9 +86,20 @@ public class AttributeSets {
 			}
 		}
 
+		private int indexOf(Attribute<?> attr) {
+			// components ask for the very attribute objects they declared,
+			// so try identity first and save the equals calls
+			Attribute<?>[] as = slots;
+			for (int i = 0; i < as.length; i++) {
+				if (as[i] == attr)
+					return i;
+			}
+			return attrs.indexOf(attr);
+		}
+
 		@Override
 		public boolean isReadOnly(Attribute<?> attr) {
-			int index = attrs.indexOf(attr);
+			int index = indexOf(attr);
 			if (index < 0)
 				return true;
 			return isReadOnly(index);
@@ -97,7 +111,7 @@ public class AttributeSets {
 
 		@Override
 		public void setReadOnly(Attribute<?> attr, boolean value) {
-			int index = attrs.indexOf(attr);
+			int index = indexOf(attr);
 			if (index < 0)
 				throw new IllegalArgumentException("attribute "
 						+ attr.getName() + " absent");
@@ -110,7 +124,7 @@ public class AttributeSets {
 
 		@Override
 		public <V> void setValue(Attribute<V> attr, V value) {
-			int index = attrs.indexOf(attr);
+			int index = indexOf(attr);
 			if (index < 0)
 				throw new IllegalArgumentException("attribute "
 						+ attr.getName() + " absent");
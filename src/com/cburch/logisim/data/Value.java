@@ -37,6 +37,31 @@ import com.cburch.logisim.util.Cache;
 
 public class Value {
 
+	/**
+	 * Returns the value made of the given values side by side, the first one
+	 * supplying the least significant bits.
+	 */
+	public static Value concat(Value[] values) {
+		if (values.length == 1)
+			return values[0];
+		int width = 0;
+		int error = 0;
+		int unknown = 0;
+		int value = 0;
+		for (Value v : values) {
+			if (width + v.width > MAX_WIDTH)
+				throw new RuntimeException("Cannot have more than "
+						+ MAX_WIDTH + " bits in a value");
+			if (v.width > 0) {
+				error |= v.error << width;
+				unknown |= v.unknown << width;
+				value |= v.value << width;
+				width += v.width;
+			}
+		}
+		return Value.create(width, error, unknown, value);
+	}
+
 	private static Value create(int width, int error, int unknown, int value) {
 		if (width == 0) {
 			return Value.NIL;
@@ -337,6 +362,24 @@ public class Value {
 		}
 	}
 
+	/**
+	 * Returns the given number of bits of this value starting at bit
+	 * <code>start</code>. As with {@link #get(int)}, bits past the width of
+	 * this value are errors.
+	 */
+	public Value extract(int start, int width) {
+		if (width == 1)
+			return get(start);
+		if (start == 0 && width == this.width)
+			return this;
+		int inside = this.width - start;
+		int mask = inside <= 0 ? 0 : (inside >= 32 ? -1 : ~(-1 << inside));
+		int e = start >= 32 ? 0 : this.error >>> start;
+		int u = start >= 32 ? 0 : this.unknown >>> start;
+		int v = start >= 32 ? 0 : this.value >>> start;
+		return Value.create(width, (e & mask) | ~mask, u & mask, v & mask);
+	}
+
 	public Value get(int which) {
 		if (which < 0 || which >= width)
 			return ERROR;
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ValueTest {
+
+	// a value of the given width whose bits are 0, 1, unknown or error at
+	// random
+	private static Value random(Random rand, int width) {
+		Value[] bits = new Value[width];
+		Value[] choices = { Value.FALSE, Value.TRUE, Value.UNKNOWN,
+				Value.ERROR };
+		for (int i = 0; i < width; i++)
+			bits[i] = choices[rand.nextInt(choices.length)];
+		return Value.create(bits);
+	}
+
+	/**
+	 * Test method for {@link com.cburch.logisim.data.Value#extract(int, int)}
+	 * : bits past the width of the value are errors.
+	 */
+	@Test
+	public final void testExtract() {
+		Value v = Value.createKnown(BitWidth.create(8), 0xa5);
+		assertEquals(Value.createKnown(BitWidth.create(4), 0x5), v.extract(0, 4));
+		assertEquals(Value.createKnown(BitWidth.create(3), 0x5), v.extract(5, 3));
+		assertSame(v, v.extract(0, 8));
+		assertSame(Value.TRUE, v.extract(7, 1));
+		assertSame(Value.ERROR, v.extract(8, 1));
+		assertEquals(Value.createError(BitWidth.create(4)), v.extract(8, 4));
+		assertEquals(Value.createError(BitWidth.create(4)), v.extract(40, 4));
+
+		Value past = v.extract(6, 4);
+		assertSame(Value.FALSE, past.get(0));
+		assertSame(Value.TRUE, past.get(1));
+		assertSame(Value.ERROR, past.get(2));
+		assertSame(Value.ERROR, past.get(3));
+
+		Random rand = new Random(1);
+		for (int n = 0; n < 1000; n++) {
+			Value x = random(rand, 1 + rand.nextInt(32));
+			int start = rand.nextInt(40);
+			int width = 1 + rand.nextInt(32);
+			Value[] expected = new Value[width];
+			for (int i = 0; i < width; i++)
+				expected[i] = x.get(start + i);
+			assertEquals(x + " from " + start, Value.create(expected),
+					x.extract(start, width));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link com.cburch.logisim.data.Value#concat(com.cburch.logisim.data.Value[])}
+	 * : unknown and error bits keep their place.
+	 */
+	@Test
+	public final void testConcat() {
+		Value low = Value.create(new Value[] { Value.TRUE, Value.UNKNOWN });
+		Value high = Value.create(new Value[] { Value.ERROR, Value.FALSE,
+				Value.TRUE });
+		Value v = Value.concat(new Value[] { low, Value.NIL, high });
+		assertEquals(5, v.getWidth());
+		assertEquals(Value.create(new Value[] { Value.TRUE, Value.UNKNOWN,
+				Value.ERROR, Value.FALSE, Value.TRUE }), v);
+		assertSame(Value.UNKNOWN, Value.concat(new Value[] { Value.UNKNOWN }));
+		assertEquals(Value.createUnknown(BitWidth.create(32)),
+				Value.concat(new Value[] {
+						Value.createUnknown(BitWidth.create(31)),
+						Value.UNKNOWN }));
+
+		Random rand = new Random(2);
+		for (int n = 0; n < 1000; n++) {
+			Value[] parts = new Value[1 + rand.nextInt(6)];
+			int width = 0;
+			for (int i = 0; i < parts.length; i++) {
+				parts[i] = random(rand, 1 + rand.nextInt(32 - width
+						- (parts.length - 1 - i)));
+				width += parts[i].getWidth();
+			}
+			Value v2 = Value.concat(parts);
+			int start = 0;
+			for (Value part : parts) {
+				assertEquals(part, v2.extract(start, part.getWidth()));
+				start += part.getWidth();
+			}
+			assertEquals(width, v2.getWidth());
+		}
+	}
+}
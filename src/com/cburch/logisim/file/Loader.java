@@ -32,10 +32,16 @@ package com.cburch.logisim.file;
 
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -45,7 +51,13 @@ import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.filechooser.FileFilter;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.cburch.logisim.std.Builtin;
 import com.cburch.logisim.tools.Library;
@@ -91,30 +103,68 @@ public class Loader implements LibraryLoader {
 		}
 	}
 
-	private static File determineBackupName(File base) {
-		File dir = base.getParentFile();
-		String name = base.getName();
-		if (name.endsWith(LOGISIM_EXTENSION)) {
-			name = name
-					.substring(0, name.length() - LOGISIM_EXTENSION.length());
-		}
-		for (int i = 1; i <= 20; i++) {
-			String ext = i == 1 ? ".bak" : (".bak" + i);
-			File candidate = new File(dir, name + ext);
-			if (!candidate.exists())
-				return candidate;
-		}
-		return null;
+	/**
+	 * Blocks until all saves started by {@link #saveInBackground} have been
+	 * written. The callbacks of these saves may still be waiting to run on
+	 * the event dispatch thread when this method returns.
+	 */
+	public static void waitForPendingSaves() {
+		SaveThread.waitForIdle();
+	}
+
+	/**
+	 * Tells whether some save started by {@link #saveInBackground} has not
+	 * been written yet.
+	 */
+	public static boolean hasPendingSaves() {
+		return !SaveThread.isIdle();
 	}
 
-	private static void recoverBackup(File backup, File dest) {
-		if (backup != null && backup.exists()) {
-			if (dest.exists())
-				dest.delete();
-			backup.renameTo(dest);
+	/**
+	 * Writes a snapshot to a temporary file next to dest, then renames it over
+	 * dest, so that dest is never left partially written.
+	 */
+	private static void writeAtomically(XmlWriter.Snapshot snapshot,
+			File dest) throws IOException {
+		File dir = dest.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(dest.getName() + ".", ".tmp", dir);
+		boolean moved = false;
+		try {
+			FileOutputStream fwrite = new FileOutputStream(temp);
+			try {
+				OutputStream out = new BufferedOutputStream(fwrite);
+				snapshot.write(out);
+				out.flush();
+				fwrite.getFD().sync();
+			} catch (XMLStreamException e) {
+				throw new IOException(e.getMessage(), e);
+			} finally {
+				fwrite.close();
+			}
+			if (temp.length() == 0) {
+				throw new IOException("empty file written");
+			}
+			try {
+				MacCompatibility.setFileCreatorAndType(temp, "LGSM", "circ");
+			} catch (IOException e) {
+			}
+			try {
+				Files.move(temp.toPath(), dest.toPath(),
+						StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), dest.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved)
+				temp.delete();
 		}
 	}
 
+	final static Logger logger = LoggerFactory.getLogger(Loader.class);
+
 	public static final String LOGISIM_EXTENSION = ".circ";
 
 	public static final FileFilter LOGISIM_FILTER = new LogisimFileFilter();
@@ -132,6 +182,10 @@ public class Loader implements LibraryLoader {
 
 	private Map<File, File> substitutions = new HashMap<File, File>();
 
+	// saves started so far; a background save only records its result if no
+	// save was started after it
+	private volatile int saveCount = 0;
+
 	public Loader(Component parent) {
 		this.parent = parent;
 		clear();
@@ -180,6 +234,11 @@ public class Loader implements LibraryLoader {
 				file = new File(currentDirectory, name);
 		}
 		while (!file.canRead()) {
+			if (GraphicsEnvironment.isHeadless()) {
+				// nobody to ask for the library's new location
+				throw new LoaderException(StringUtil.format(
+						Strings.get("fileLibraryNotFoundError"), file.getName()));
+			}
 			// It doesn't exist. Figure it out from the user.
 			JOptionPane.showMessageDialog(parent, StringUtil.format(
 					Strings.get("fileLibraryMissingError"), file.getName()));
@@ -295,6 +354,12 @@ public class Loader implements LibraryLoader {
 		} finally {
 			filesOpening.pop();
 		}
+		if (ret == null) {
+			// the reason has already been reported through showError
+			throw new LoadFailedException(StringUtil.format(
+					Strings.get("logisimLoadFailedError"),
+					toProjectName(actual)), true);
+		}
 		ret.setName(toProjectName(actual));
 		return ret;
 	}
@@ -348,77 +413,109 @@ public class Loader implements LibraryLoader {
 		LibraryManager.instance.reload(this, lib);
 	}
 
-	public boolean save(LogisimFile file, File dest) {
+	/**
+	 * Records that file has been written to dest.
+	 */
+	private void fileSaved(LogisimFile file, File dest) {
+		file.setName(toProjectName(dest));
+
+		File oldFile = getMainFile();
+		setMainFile(dest);
+		LibraryManager.instance.fileSaved(this, dest, oldFile, file);
+	}
+
+	/**
+	 * Captures the contents of file for a save to dest, or returns null after
+	 * telling the user if the file cannot be saved there.
+	 */
+	private XmlWriter.Snapshot prepareSave(LogisimFile file, File dest) {
 		Library reference = LibraryManager.instance.findReference(file, dest);
 		if (reference != null) {
-			JOptionPane.showMessageDialog(parent, StringUtil.format(
+			String message = StringUtil.format(
 					Strings.get("fileCircularError"),
-					reference.getDisplayName()), Strings
-					.get("fileSaveErrorTitle"), JOptionPane.ERROR_MESSAGE);
-			return false;
+					reference.getDisplayName());
+			if (GraphicsEnvironment.isHeadless()) {
+				logger.error("{}", message);
+			} else {
+				JOptionPane.showMessageDialog(parent, message,
+						Strings.get("fileSaveErrorTitle"),
+						JOptionPane.ERROR_MESSAGE);
+			}
+			return null;
 		}
 
-		File backup = determineBackupName(dest);
-		boolean backupCreated = backup != null && dest.renameTo(backup);
-
-		FileOutputStream fwrite = null;
 		try {
-			try {
-				MacCompatibility.setFileCreatorAndType(dest, "LGSM", "circ");
-			} catch (IOException e) {
-			}
-			fwrite = new FileOutputStream(dest);
-			file.write(fwrite, this, dest);
-			file.setName(toProjectName(dest));
+			return XmlWriter.snapshot(file, this, dest);
+		} catch (ParserConfigurationException e) {
+			showError("internal error configuring parser");
+			return null;
+		}
+	}
 
-			File oldFile = getMainFile();
-			setMainFile(dest);
-			LibraryManager.instance.fileSaved(this, dest, oldFile, file);
+	/**
+	 * Saves file to dest, and returns once it is written. Background saves
+	 * still queued are written first, so that none of them can overwrite
+	 * this newer save.
+	 */
+	public boolean save(LogisimFile file, File dest) {
+		saveCount++;
+		SaveThread.waitForIdle();
+		XmlWriter.Snapshot snapshot = prepareSave(file, dest);
+		if (snapshot == null)
+			return false;
+		try {
+			writeAtomically(snapshot, dest);
 		} catch (IOException e) {
-			if (backupCreated)
-				recoverBackup(backup, dest);
-			if (dest.exists() && dest.length() == 0)
-				dest.delete();
-			JOptionPane.showMessageDialog(
-					parent,
-					StringUtil.format(Strings.get("fileSaveError"),
-							e.toString()), Strings.get("fileSaveErrorTitle"),
-					JOptionPane.ERROR_MESSAGE);
+			showSaveError(e);
 			return false;
-		} finally {
-			if (fwrite != null) {
+		}
+		fileSaved(file, dest);
+		return true;
+	}
+
+	/**
+	 * Saves file to dest without blocking the caller. The contents of the file
+	 * are captured before this method returns, so the project may be edited
+	 * while it is written; saves are written one at a time, in the order they
+	 * were requested.
+	 * 
+	 * @param onSaved
+	 *            run on the event dispatch thread once the file is written
+	 *            successfully, unless another save was started since; may be
+	 *            null
+	 * @return false if the save could not be started
+	 */
+	public boolean saveInBackground(final LogisimFile file, final File dest,
+			final Runnable onSaved) {
+		final XmlWriter.Snapshot snapshot = prepareSave(file, dest);
+		if (snapshot == null)
+			return false;
+		final int save = ++saveCount;
+		SaveThread.enqueue(new Runnable() {
+			public void run() {
+				IOException error = null;
 				try {
-					fwrite.close();
+					writeAtomically(snapshot, dest);
 				} catch (IOException e) {
-					if (backupCreated)
-						recoverBackup(backup, dest);
-					if (dest.exists() && dest.length() == 0)
-						dest.delete();
-					JOptionPane.showMessageDialog(parent, StringUtil.format(
-							Strings.get("fileSaveCloseError"), e.toString()),
-							Strings.get("fileSaveErrorTitle"),
-							JOptionPane.ERROR_MESSAGE);
-					return false;
+					error = e;
+				} catch (RuntimeException e) {
+					error = new IOException(e.toString(), e);
 				}
+				final IOException result = error;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (result != null) {
+							showSaveError(result);
+						} else if (save == saveCount) {
+							// a later save has the newer state to record
+							fileSaved(file, dest);
+							if (onSaved != null)
+								onSaved.run();
+						}
+					}
+				});
 			}
-		}
-
-		if (!dest.exists() || dest.length() == 0) {
-			if (backupCreated && backup != null && backup.exists()) {
-				recoverBackup(backup, dest);
-			} else {
-				dest.delete();
-			}
-			JOptionPane.showMessageDialog(parent,
-					Strings.get("fileSaveZeroError"),
-					Strings.get("fileSaveErrorTitle"),
-					JOptionPane.ERROR_MESSAGE);
-			return false;
-		}
-
-		if (backupCreated && backup.exists()) {
-			backup.delete();
-		}
+		});
 		return true;
 	}
 
@@ -430,6 +527,17 @@ public class Loader implements LibraryLoader {
 		parent = value;
 	}
 
+	private void showSaveError(IOException e) {
+		String message = StringUtil.format(Strings.get("fileSaveError"),
+				e.toString());
+		if (GraphicsEnvironment.isHeadless()) {
+			logger.error("{}", message);
+			return;
+		}
+		JOptionPane.showMessageDialog(parent, message,
+				Strings.get("fileSaveErrorTitle"), JOptionPane.ERROR_MESSAGE);
+	}
+
 	public void showError(String description) {
 		if (!filesOpening.empty()) {
 			File top = filesOpening.peek();
@@ -441,6 +549,12 @@ public class Loader implements LibraryLoader {
 			}
 		}
 
+		if (GraphicsEnvironment.isHeadless()) {
+			// running from the command line: there is no window to show
+			logger.error("{}", description);
+			return;
+		}
+
 		if (description.contains("\n") || description.length() > 60) {
 			int lines = 1;
 			for (int pos = description.indexOf('\n'); pos >= 0; pos = description
@@ -469,6 +583,11 @@ public class Loader implements LibraryLoader {
 			return;
 		String message = source.getMessage();
 		while (message != null) {
+			if (GraphicsEnvironment.isHeadless()) {
+				logger.info("{}", message);
+				message = source.getMessage();
+				continue;
+			}
 			JOptionPane.showMessageDialog(parent, message,
 					Strings.get("fileMessageTitle"),
 					JOptionPane.INFORMATION_MESSAGE);
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.CountDownLatch;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.cburch.logisim.circuit.Circuit;
+
+public class LoaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String read(File file) throws IOException {
+		StringBuilder ret = new StringBuilder();
+		Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		char[] buf = new char[4096];
+		for (int n = in.read(buf); n >= 0; n = in.read(buf))
+			ret.append(buf, 0, n);
+		in.close();
+		return ret.toString();
+	}
+
+	// keeps the save thread busy until the returned latch is released
+	private static CountDownLatch blockSaveThread() {
+		final CountDownLatch ret = new CountDownLatch(1);
+		SaveThread.enqueue(new Runnable() {
+			public void run() {
+				try {
+					ret.await();
+				} catch (InterruptedException e) {
+				}
+			}
+		});
+		return ret;
+	}
+
+	// saves synchronously on another thread while a background save waits
+	// behind a blocked save thread, then lets the background save go
+	private static void saveWhileQueued(final Loader loader,
+			final LogisimFile file, final File dest, CountDownLatch blocker)
+			throws Exception {
+		final boolean[] saved = new boolean[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				saved[0] = loader.save(file, dest);
+			}
+		};
+		thread.start();
+		// without waiting for the queue, the save would be written by now
+		Thread.sleep(200);
+		blocker.countDown();
+		thread.join();
+		assertTrue(saved[0]);
+		Loader.waitForPendingSaves();
+		// let the completion of the background save run
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+			}
+		});
+	}
+
+	/**
+	 * A background save still queued when a synchronous save starts must not
+	 * overwrite the newer contents.
+	 */
+	@Test
+	public final void testQueuedSaveDoesNotOverwriteLaterSave()
+			throws Exception {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.createNew(loader);
+		File dest = folder.newFile("ordered.circ");
+
+		CountDownLatch blocker = blockSaveThread();
+		assertTrue(loader.saveInBackground(file, dest, null));
+		file.addCircuit(new Circuit("newer", file));
+		saveWhileQueued(loader, file, dest, blocker);
+
+		assertTrue(read(dest).contains("\"newer\""));
+		assertEquals(dest, loader.getMainFile());
+	}
+
+	/**
+	 * A background save finishing after a save to another file must not make
+	 * its own file the main file again.
+	 */
+	@Test
+	public final void testQueuedSaveDoesNotUndoSaveAs() throws Exception {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.createNew(loader);
+		File first = folder.newFile("first.circ");
+		File second = folder.newFile("second.circ");
+
+		CountDownLatch blocker = blockSaveThread();
+		final boolean[] called = new boolean[1];
+		assertTrue(loader.saveInBackground(file, first, new Runnable() {
+			public void run() {
+				called[0] = true;
+			}
+		}));
+		saveWhileQueued(loader, file, second, blocker);
+
+		assertTrue(read(first).length() > 0);
+		assertEquals(second, loader.getMainFile());
+		assertTrue(!called[0]);
+	}
+}
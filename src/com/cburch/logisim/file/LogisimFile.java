@@ -45,8 +45,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
+import javax.xml.stream.XMLStreamException;
 
 import org.xml.sax.SAXException;
 
@@ -247,8 +246,20 @@ public class LogisimFile extends Library implements LibraryEventSource {
 		messages.addLast(msg);
 	}
 
+	/**
+	 * Returns a copy of this file, as if it were written out and read back by
+	 * newloader. When newloader is the loader of this file, the libraries can
+	 * be shared and the copy is made in memory; otherwise the file goes
+	 * through XML.
+	 */
 	@SuppressWarnings("resource")
 	public LogisimFile cloneLogisimFile(Loader newloader) {
+		if (newloader == loader) {
+			LogisimFile ret = LogisimFileCopier.copy(this, newloader);
+			ret.loader = newloader;
+			return ret;
+		}
+
 		PipedInputStream reader = new PipedInputStream();
 		PipedOutputStream writer = new PipedOutputStream();
 		try {
@@ -487,14 +498,12 @@ public class LogisimFile extends Library implements LibraryEventSource {
 			throws IOException {
 		try {
 			XmlWriter.write(this, out, loader, dest);
-		} catch (TransformerConfigurationException e) {
-			loader.showError("internal error configuring transformer");
 		} catch (ParserConfigurationException e) {
 			loader.showError("internal error configuring parser");
-		} catch (TransformerException e) {
+		} catch (XMLStreamException e) {
 			String msg = e.getMessage();
 			String err = Strings.get("xmlConversionError");
-			if (msg == null)
+			if (msg != null)
 				err += ": " + msg;
 			loader.showError(err);
 		}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cburch.draw.model.CanvasObject;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutator;
+import com.cburch.logisim.circuit.CircuitTransaction;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.circuit.appear.AppearancePort;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+import com.cburch.logisim.tools.Library;
+import com.cburch.logisim.tools.Tool;
+
+/**
+ * Copies a project in memory, giving the same result as writing it out and
+ * reading it back. Circuits, their components and their appearances are
+ * duplicated; libraries are shared with the original, so the copy must be
+ * made for the loader that loaded them.
+ */
+class LogisimFileCopier extends CircuitTransaction {
+
+	/**
+	 * Sets on dest the values of src for the attributes they have in common.
+	 * The attribute list is fetched again after each attribute, as it may
+	 * change with the values (as it does for a splitter).
+	 */
+	private static void copyAttributes(AttributeSet src, AttributeSet dest) {
+		if (src == null || dest == null)
+			return;
+		for (int i = 0; true; i++) {
+			List<Attribute<?>> attrList = dest.getAttributes();
+			if (i >= attrList.size())
+				break;
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrList.get(i);
+			if (src.containsAttribute(attr)) {
+				Object val = src.getValue(attr);
+				if (val != null && !val.equals(dest.getValue(attr))) {
+					dest.setValue(attr, val);
+				}
+			}
+		}
+	}
+
+	static LogisimFile copy(LogisimFile src, Loader newloader) {
+		LogisimFileCopier copier = new LogisimFileCopier(src, newloader);
+		copier.copyStructure();
+		copier.execute();
+		return copier.dest;
+	}
+
+	private LogisimFile src;
+	private LogisimFile dest;
+	private HashMap<Circuit, Circuit> circuits = new HashMap<Circuit, Circuit>();
+
+	private LogisimFileCopier(LogisimFile src, Loader newloader) {
+		this.src = src;
+		this.dest = new LogisimFile(newloader);
+	}
+
+	private Component copyComponent(Component comp) {
+		ComponentFactory factory = comp.getFactory();
+		if (factory instanceof SubcircuitFactory) {
+			Circuit sub = circuits.get(((SubcircuitFactory) factory)
+					.getSubcircuit());
+			if (sub != null) {
+				// instance of a circuit of this file: bind it to the copy
+				factory = sub.getSubcircuitFactory();
+				AttributeSet attrs = factory.createAttributeSet();
+				copyAttributes(comp.getAttributeSet(), attrs);
+				return factory.createComponent(comp.getLocation(), attrs);
+			}
+		}
+		AttributeSet attrs = (AttributeSet) comp.getAttributeSet().clone();
+		return factory.createComponent(comp.getLocation(), attrs);
+	}
+
+	private void copyAppearance(Circuit circ, Circuit copy,
+			Map<Component, Component> pins) {
+		if (circ.getAppearance().isDefaultAppearance())
+			return;
+		List<CanvasObject> shapes = new ArrayList<CanvasObject>();
+		for (CanvasObject o : circ.getAppearance().getObjectsFromBottom()) {
+			if (o instanceof AppearancePort) {
+				AppearancePort port = (AppearancePort) o;
+				Component pin = pins.get(port.getPin().getComponent());
+				if (pin != null) {
+					shapes.add(new AppearancePort(port.getLocation(), Instance
+							.getInstanceFor(pin)));
+				}
+			} else {
+				shapes.add(o.clone());
+			}
+		}
+		if (!shapes.isEmpty()) {
+			copy.getAppearance().setObjectsForce(shapes);
+			copy.getAppearance().setDefaultAppearance(false);
+		}
+	}
+
+	/**
+	 * Creates the libraries, the options and the (empty) circuits of the copy.
+	 */
+	private void copyStructure() {
+		for (Library lib : src.getLibraries()) {
+			dest.addLibrary(lib);
+		}
+
+		for (Circuit circ : src.getCircuits()) {
+			Circuit copy = new Circuit(circ.getName(), dest);
+			dest.addCircuit(copy);
+			circuits.put(circ, copy);
+		}
+		if (src.getMainCircuit() != null) {
+			dest.setMainCircuit(circuits.get(src.getMainCircuit()));
+		}
+
+		Options options = dest.getOptions();
+		copyAttributes(src.getOptions().getAttributeSet(),
+				options.getAttributeSet());
+		MouseMappings mappings = src.getOptions().getMouseMappings();
+		for (Map.Entry<Integer, Tool> entry : mappings.getMappings()
+				.entrySet()) {
+			Tool tool = copyTool(entry.getValue());
+			if (tool != null)
+				options.getMouseMappings().setToolFor(
+						entry.getKey().intValue(), tool);
+		}
+		ToolbarData toolbar = options.getToolbarData();
+		for (Tool tool : src.getOptions().getToolbarData().getContents()) {
+			if (tool == null) {
+				toolbar.addSeparator();
+			} else {
+				Tool copy = copyTool(tool);
+				if (copy != null)
+					toolbar.addTool(copy);
+			}
+		}
+	}
+
+	/**
+	 * Copies a tool of the toolbar or of the mouse mappings. Tools placing
+	 * circuits of this file are bound to the copied circuits.
+	 */
+	private Tool copyTool(Tool tool) {
+		if (tool instanceof AddTool) {
+			ComponentFactory factory = ((AddTool) tool).getFactory();
+			if (factory instanceof SubcircuitFactory) {
+				Circuit sub = circuits.get(((SubcircuitFactory) factory)
+						.getSubcircuit());
+				if (sub != null) {
+					Tool base = dest.getTool(sub.getName());
+					if (base == null)
+						return null;
+					Tool ret = base.cloneTool();
+					copyAttributes(tool.getAttributeSet(),
+							ret.getAttributeSet());
+					return ret;
+				}
+			}
+		}
+		return tool.cloneTool();
+	}
+
+	@Override
+	protected Map<Circuit, Integer> getAccessedCircuits() {
+		HashMap<Circuit, Integer> access = new HashMap<Circuit, Integer>();
+		for (Circuit copy : circuits.values()) {
+			access.put(copy, READ_WRITE);
+		}
+		return access;
+	}
+
+	@Override
+	protected void run(CircuitMutator mutator) {
+		for (Circuit circ : src.getCircuits()) {
+			Circuit copy = circuits.get(circ);
+			copyAttributes(circ.getStaticAttributes(),
+					copy.getStaticAttributes());
+
+			HashMap<Component, Component> pins = new HashMap<Component, Component>();
+			for (Wire w : circ.getWires()) {
+				mutator.add(copy, Wire.create(w.getEnd0(), w.getEnd1()));
+			}
+			for (Component comp : circ.getNonWires()) {
+				Component compCopy = copyComponent(comp);
+				if (comp.getFactory() == Pin.FACTORY)
+					pins.put(comp, compCopy);
+				mutator.add(copy, compCopy);
+			}
+			copyAppearance(circ, copy, pins);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.SubcircuitFactory;
+import com.cburch.logisim.comp.Component;
+
+public class LogisimFileCopierTest {
+
+	private static final String PROJECT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<project source=\"2.13.8\" version=\"1.0\">\n"
+			+ "<lib desc=\"#Wiring\" name=\"0\"/>\n"
+			+ "<lib desc=\"#Gates\" name=\"1\"/>\n"
+			+ "<main name=\"main\"/>\n"
+			+ "<options><a name=\"simlimit\" val=\"500\"/></options>\n"
+			+ "<toolbar><tool lib=\"0\" name=\"Pin\"/><sep/>"
+			+ "<tool name=\"half\"/></toolbar>\n"
+			+ "<circuit name=\"main\">\n"
+			+ "<comp loc=\"(300,200)\" name=\"half\"/>\n"
+			+ "<comp lib=\"0\" loc=\"(100,200)\" name=\"Pin\">\n"
+			+ "<a name=\"width\" val=\"2\"/>\n"
+			+ "<a name=\"label\" val=\"ab\"/>\n"
+			+ "</comp>\n"
+			+ "<wire from=\"(100,200)\" to=\"(300,200)\"/>\n"
+			+ "</circuit>\n"
+			+ "<circuit name=\"half\">\n"
+			+ "<a name=\"circuit\" val=\"half\"/>\n"
+			+ "<comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\">\n"
+			+ "<a name=\"width\" val=\"2\"/>\n"
+			+ "<a name=\"label\" val=\"in\"/>\n"
+			+ "</comp>\n"
+			+ "<comp lib=\"0\" loc=\"(120,100)\" name=\"Splitter\">\n"
+			+ "<a name=\"incoming\" val=\"2\"/>\n"
+			+ "</comp>\n"
+			+ "<comp lib=\"1\" loc=\"(250,90)\" name=\"XOR Gate\">\n"
+			+ "<a name=\"size\" val=\"30\"/>\n"
+			+ "</comp>\n"
+			+ "<comp lib=\"0\" loc=\"(250,90)\" name=\"Pin\">\n"
+			+ "<a name=\"facing\" val=\"west\"/>\n"
+			+ "<a name=\"output\" val=\"true\"/>\n"
+			+ "<a name=\"label\" val=\"sum\"/>\n"
+			+ "</comp>\n"
+			+ "<wire from=\"(140,80)\" to=\"(220,80)\"/>\n"
+			+ "<wire from=\"(140,90)\" to=\"(200,90)\"/>\n"
+			+ "<wire from=\"(200,90)\" to=\"(200,100)\"/>\n"
+			+ "<wire from=\"(200,100)\" to=\"(220,100)\"/>\n"
+			+ "</circuit>\n" + "</project>\n";
+
+	static String toXml(LogisimFile file) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		file.write(out, file.getLoader());
+		return out.toString("UTF-8");
+	}
+
+	/**
+	 * Sorts the components and wires of each circuit, which are written in
+	 * the order of a hash set and so differ even between two loads of the
+	 * same file.
+	 */
+	private static String normalize(String xml) {
+		StringBuilder ret = new StringBuilder();
+		List<String> blocks = new ArrayList<String>();
+		String[] lines = xml.split("\n");
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i];
+			if (line.startsWith("    <comp") || line.startsWith("    <wire")) {
+				StringBuilder block = new StringBuilder(line);
+				if (!line.endsWith("/>")) {
+					do {
+						block.append('\n').append(lines[++i]);
+					} while (!lines[i].startsWith("    </"));
+				}
+				blocks.add(block.toString());
+				continue;
+			}
+			Collections.sort(blocks);
+			for (String block : blocks)
+				ret.append(block).append('\n');
+			blocks.clear();
+			ret.append(line).append('\n');
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Checks that the in-memory copy of file serializes like the copy made by
+	 * writing the file out and reading it back.
+	 */
+	static void assertCopyMatchesRoundTrip(LogisimFile file) throws Exception {
+		LogisimFile copy = file.cloneLogisimFile(file.getLoader());
+		LogisimFile roundTrip = file.cloneLogisimFile(new Loader(null));
+		assertEquals(normalize(toXml(roundTrip)), normalize(toXml(copy)));
+	}
+
+	@Test
+	public final void testCopyMatchesRoundTrip() throws Exception {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.load(new ByteArrayInputStream(PROJECT
+				.getBytes("UTF-8")), loader);
+		assertEquals(2, file.getCircuits().size());
+		assertCopyMatchesRoundTrip(file);
+	}
+
+	/**
+	 * The copy instantiates its own circuits, not those of the original.
+	 */
+	@Test
+	public final void testSubcircuitsAreRebound() throws Exception {
+		Loader loader = new Loader(null);
+		LogisimFile file = LogisimFile.load(new ByteArrayInputStream(PROJECT
+				.getBytes("UTF-8")), loader);
+		LogisimFile copy = file.cloneLogisimFile(loader);
+		Circuit half = copy.getCircuit("half");
+		assertNotSame(file.getCircuit("half"), half);
+		for (Component comp : copy.getMainCircuit().getNonWires()) {
+			if (comp.getFactory() instanceof SubcircuitFactory)
+				assertSame(half, ((SubcircuitFactory) comp.getFactory())
+						.getSubcircuit());
+		}
+		assertEquals(file.getCircuit("half").getNonWires().size(), half
+				.getNonWires().size());
+		assertEquals(file.getCircuit("half").getWires().size(), half
+				.getWires().size());
+	}
+}
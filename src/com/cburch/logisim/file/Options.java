@@ -51,6 +51,10 @@ public class Options {
 			.forInteger("simlimit", Strings.getter("simLimitOption"));
 	public static final Attribute<Integer> sim_rand_attr = Attributes
 			.forInteger("simrand", Strings.getter("simRandomOption"));
+	public static final Attribute<Boolean> sim_cycles_attr = Attributes
+			.forBoolean("simcycles", Strings.getter("simCyclesOption"));
+	public static final Attribute<Boolean> sim_levelized_attr = Attributes
+			.forBoolean("simlevelized", Strings.getter("simLevelizedOption"));
 	public static final Attribute<AttributeOption> ATTR_GATE_UNDEFINED = Attributes
 			.forOption("gateUndefined", Strings.getter("gateUndefinedOption"),
 					new AttributeOption[] { GATE_UNDEFINED_IGNORE,
@@ -63,9 +67,11 @@ public class Options {
 	public static final Integer sim_rand_dflt = Integer.valueOf(32);
 
 	private static final Attribute<?>[] ATTRIBUTES = { ATTR_GATE_UNDEFINED,
-			sim_limit_attr, sim_rand_attr, ATTR_TICK_MAIN, };
+			sim_limit_attr, sim_rand_attr, sim_cycles_attr, sim_levelized_attr,
+			ATTR_TICK_MAIN, };
 	private static final Object[] DEFAULTS = { GATE_UNDEFINED_IGNORE,
-			Integer.valueOf(1000), Integer.valueOf(0), TICK_MAIN_HALF_PERIOD, };
+			Integer.valueOf(1000), Integer.valueOf(0), Boolean.FALSE,
+			Boolean.FALSE, TICK_MAIN_HALF_PERIOD, };
 
 	private AttributeSet attrs;
 	private MouseMappings mmappings;
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import java.util.LinkedList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the writes of {@link Loader#saveInBackground}, one at a time and in
+ * the order they were requested.
+ */
+class SaveThread extends Thread {
+	private static SaveThread instance = null;
+
+	static synchronized void enqueue(Runnable task) {
+		if (instance == null) {
+			instance = new SaveThread();
+			instance.start();
+		}
+		instance.add(task);
+	}
+
+	private static synchronized SaveThread getInstance() {
+		return instance;
+	}
+
+	static boolean isIdle() {
+		SaveThread thread = getInstance();
+		return thread == null || thread.isQueueEmpty();
+	}
+
+	static void waitForIdle() {
+		SaveThread thread = getInstance();
+		if (thread != null)
+			thread.waitForEmptyQueue();
+	}
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(SaveThread.class);
+
+	private LinkedList<Runnable> queue;
+	private boolean busy;
+
+	private SaveThread() {
+		super("SaveThread");
+		setDaemon(true);
+		queue = new LinkedList<Runnable>();
+		busy = false;
+	}
+
+	private synchronized void add(Runnable task) {
+		queue.add(task);
+		notifyAll();
+	}
+
+	private synchronized boolean isQueueEmpty() {
+		return queue.isEmpty() && !busy;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			Runnable task;
+			synchronized (this) {
+				busy = false;
+				notifyAll();
+				while (queue.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+					}
+				}
+				task = queue.removeFirst();
+				busy = true;
+			}
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				logger.error("Save task failed: {}", e.toString());
+			}
+		}
+	}
+
+	private synchronized void waitForEmptyQueue() {
+		while (!queue.isEmpty() || busy) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+}
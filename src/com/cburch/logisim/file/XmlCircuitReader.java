@@ -72,12 +72,35 @@ public class XmlCircuitReader extends CircuitTransaction {
 		}
 
 		// Determine the factory that creates this element
-		String name = elt.getAttribute("name");
+		ComponentFactory source = getFactory(elt.getAttribute("name"),
+				elt.getAttribute("lib"), reader);
+
+		// Determine attributes
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(elt, attrs, source);
+
+		return createComponent(source, attrs, elt.getAttribute("loc"));
+	}
+
+	/**
+	 * Get a circuit's component from the parts of its XML description, as
+	 * collected by XmlStreamingReader.
+	 */
+	static Component getComponent(String name, String libName, String loc,
+			XmlReader.AttributeValues attrValues, XmlReader.ReadContext reader)
+			throws XmlReaderException {
+		ComponentFactory source = getFactory(name, libName, reader);
+		AttributeSet attrs = source.createAttributeSet();
+		reader.initAttributeSet(attrValues, attrs, source);
+		return createComponent(source, attrs, loc);
+	}
+
+	private static ComponentFactory getFactory(String name, String libName,
+			XmlReader.ReadContext reader) throws XmlReaderException {
 		if (name == null || name.equals("")) {
 			throw new XmlReaderException(Strings.get("compNameMissingError"));
 		}
 
-		String libName = elt.getAttribute("lib");
 		Library lib = reader.findLibrary(libName);
 		if (lib == null) {
 			throw new XmlReaderException(Strings.get("compUnknownError",
@@ -94,13 +117,11 @@ public class XmlCircuitReader extends CircuitTransaction {
 						name, libName));
 			}
 		}
-		ComponentFactory source = ((AddTool) tool).getFactory();
-
-		// Determine attributes
-		String loc_str = elt.getAttribute("loc");
-		AttributeSet attrs = source.createAttributeSet();
-		reader.initAttributeSet(elt, attrs, source);
+		return ((AddTool) tool).getFactory();
+	}
 
+	private static Component createComponent(ComponentFactory source,
+			AttributeSet attrs, String loc_str) throws XmlReaderException {
 		// Create component if location known
 		if (loc_str == null || loc_str.equals("")) {
 			throw new XmlReaderException(Strings.get("compLocMissingError",
@@ -126,11 +147,10 @@ public class XmlCircuitReader extends CircuitTransaction {
 		this.circuitsData = circDatas;
 	}
 
-	void addWire(Circuit dest, CircuitMutator mutator, Element elt)
-			throws XmlReaderException {
+	static Wire createWire(String from, String to) throws XmlReaderException {
 		Location pt0;
 		try {
-			String str = elt.getAttribute("from");
+			String str = from;
 			if (str == null || str.equals("")) {
 				throw new XmlReaderException(
 						Strings.get("wireStartMissingError"));
@@ -142,7 +162,7 @@ public class XmlCircuitReader extends CircuitTransaction {
 
 		Location pt1;
 		try {
-			String str = elt.getAttribute("to");
+			String str = to;
 			if (str == null || str.equals("")) {
 				throw new XmlReaderException(Strings.get("wireEndMissingError"));
 			}
@@ -151,13 +171,34 @@ public class XmlCircuitReader extends CircuitTransaction {
 			throw new XmlReaderException(Strings.get("wireEndInvalidError"));
 		}
 
-		mutator.add(dest, Wire.create(pt0, pt1));
+		return Wire.create(pt0, pt1);
+	}
+
+	void addWire(Circuit dest, CircuitMutator mutator, Element elt)
+			throws XmlReaderException {
+		mutator.add(dest, createWire(elt.getAttribute("from"),
+				elt.getAttribute("to")));
 	}
 
 	private void buildCircuit(XmlReader.CircuitData circData,
 			CircuitMutator mutator) {
 		Element elt = circData.circuitElement;
 		Circuit dest = circData.circuit;
+		if (elt == null) {
+			// read by XmlStreamingReader, which has already built everything
+			try {
+				reader.initAttributeSet(circData.staticAttributes,
+						dest.getStaticAttributes(), null);
+			} catch (XmlReaderException e) {
+				reader.addErrors(e, circData.circuit.getName() + ".static");
+			}
+			for (Component comp : circData.components) {
+				mutator.add(dest, comp);
+			}
+			setAppearance(circData);
+			return;
+		}
+
 		Map<Element, Component> knownComponents = circData.knownComponents;
 		if (knownComponents == null)
 			knownComponents = Collections.emptyMap();
@@ -193,8 +234,13 @@ public class XmlCircuitReader extends CircuitTransaction {
 			}
 		}
 
+		setAppearance(circData);
+	}
+
+	private void setAppearance(XmlReader.CircuitData circData) {
 		List<AbstractCanvasObject> appearance = circData.appearance;
 		if (appearance != null && !appearance.isEmpty()) {
+			Circuit dest = circData.circuit;
 			dest.getAppearance().setObjectsForce(appearance);
 			dest.getAppearance().setDefaultAppearance(false);
 		}
@@ -30,12 +30,14 @@
 
 package com.cburch.logisim.file;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -46,6 +48,8 @@ import javax.swing.JOptionPane;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,12 +76,34 @@ import com.cburch.logisim.util.StringUtil;
 
 class XmlReader {
 
+	/**
+	 * Values of the <code>a</code> children of an element, keyed by attribute
+	 * name, together with the errors found while collecting them.
+	 */
+	static class AttributeValues {
+		HashMap<String, String> values = new HashMap<String, String>();
+		ArrayList<String> messages;
+
+		void addError(String message) {
+			if (messages == null)
+				messages = new ArrayList<String>();
+			messages.add(message);
+		}
+	}
+
 	static class CircuitData {
 		Element circuitElement;
 		Circuit circuit;
 		Map<Element, Component> knownComponents;
 		List<AbstractCanvasObject> appearance;
 
+		/*
+		 * Contents of a circuit read by XmlStreamingReader, which has no
+		 * circuitElement to walk.
+		 */
+		AttributeValues staticAttributes;
+		List<Component> components;
+
 		public CircuitData(Element circuitElement, Circuit circuit) {
 			this.circuitElement = circuitElement;
 			this.circuit = circuit;
@@ -119,37 +145,37 @@ class XmlReader {
 			}
 		}
 
-		void initAttributeSet(Element parentElt, AttributeSet attrs,
-				AttributeDefaultProvider defaults) throws XmlReaderException {
-			ArrayList<String> messages = null;
-
-			HashMap<String, String> attrsDefined = new HashMap<String, String>();
+		AttributeValues getAttributeValues(Element parentElt) {
+			AttributeValues ret = new AttributeValues();
 			for (Element attrElt : XmlIterator.forChildElements(parentElt, "a")) {
 				if (!attrElt.hasAttribute("name")) {
-					if (messages == null)
-						messages = new ArrayList<String>();
-					messages.add(Strings.get("attrNameMissingError"));
+					ret.addError(Strings.get("attrNameMissingError"));
 				} else {
 					String attrName = attrElt.getAttribute("name");
 					String attrVal;
 					if (attrElt.hasAttribute("val")) {
-						attrVal = attrElt.getAttribute("val");
-						if (attrName.equals("filePath")) {
-							/* De-relativize the path */
-							String dirPath = "";
-							if (srcFilePath != null)
-								dirPath = srcFilePath
-										.substring(0, srcFilePath
-												.lastIndexOf(File.separator));
-							Path tmp = Paths.get(dirPath, attrVal);
-							attrVal = tmp.toString();
-						}
+						attrVal = toAttributeValue(attrName,
+								attrElt.getAttribute("val"));
 					} else {
 						attrVal = attrElt.getTextContent();
 					}
-					attrsDefined.put(attrName, attrVal);
+					ret.values.put(attrName, attrVal);
 				}
 			}
+			return ret;
+		}
+
+		void initAttributeSet(Element parentElt, AttributeSet attrs,
+				AttributeDefaultProvider defaults) throws XmlReaderException {
+			initAttributeSet(getAttributeValues(parentElt), attrs, defaults);
+		}
+
+		void initAttributeSet(AttributeValues defined, AttributeSet attrs,
+				AttributeDefaultProvider defaults) throws XmlReaderException {
+			ArrayList<String> messages = null;
+			if (defined.messages != null)
+				messages = new ArrayList<String>(defined.messages);
+			HashMap<String, String> attrsDefined = defined.values;
 
 			if (attrs == null)
 				return;
@@ -194,6 +220,24 @@ class XmlReader {
 			}
 		}
 
+		/**
+		 * Returns the value to use for an attribute given through its
+		 * <code>val</code> field. Paths to files are stored relative to the
+		 * project file, and are made absolute here.
+		 */
+		String toAttributeValue(String attrName, String attrVal) {
+			if (attrName.equals("filePath")) {
+				/* De-relativize the path */
+				String dirPath = "";
+				if (srcFilePath != null)
+					dirPath = srcFilePath.substring(0,
+							srcFilePath.lastIndexOf(File.separator));
+				Path tmp = Paths.get(dirPath, attrVal);
+				return tmp.toString();
+			}
+			return attrVal;
+		}
+
 		private void initMouseMappings(Element elt) {
 			MouseMappings map = file.getOptions().getMouseMappings();
 			for (Element sub_elt : XmlIterator.forChildElements(elt, "tool")) {
@@ -257,10 +301,10 @@ class XmlReader {
 			}
 		}
 
-		private void loadAppearance(Element appearElt, CircuitData circData,
-				String context) {
+		void loadAppearance(Element appearElt, CircuitData circData,
+				Collection<Component> components, String context) {
 			Map<Location, Instance> pins = new HashMap<Location, Instance>();
-			for (Component comp : circData.knownComponents.values()) {
+			for (Component comp : components) {
 				if (comp.getFactory() == Pin.FACTORY) {
 					Instance instance = Instance.getInstanceFor(comp);
 					pins.put(comp.getLocation(), instance);
@@ -307,7 +351,7 @@ class XmlReader {
 			return known;
 		}
 
-		private Library toLibrary(Element elt) {
+		Library toLibrary(Element elt) {
 			if (!elt.hasAttribute("name")) {
 				loader.showError(Strings.get("libNameMissingError"));
 				return null;
@@ -341,9 +385,12 @@ class XmlReader {
 			return ret;
 		}
 
-		private void toLogisimFile(Element elt) {
-			// determine the version producing this file
-			String versionString = elt.getAttribute("source");
+		/**
+		 * Determines the version that produced the file from the
+		 * <code>source</code> field of its root, and warns the user when
+		 * that version is known to cause trouble.
+		 */
+		void setSourceVersion(String versionString) {
 			if (versionString.equals("")) {
 				sourceVersion = Main.VERSION;
 			} else {
@@ -376,6 +423,11 @@ class XmlReader {
 								"No tracking system available",
 								JOptionPane.WARNING_MESSAGE);
 			}
+		}
+
+		private void toLogisimFile(Element elt) {
+			// determine the version producing this file
+			setSourceVersion(elt.getAttribute("source"));
 
 			// first, load the sublibraries
 			for (Element o : XmlIterator.forChildElements(elt, "lib")) {
@@ -398,7 +450,8 @@ class XmlReader {
 				circData.knownComponents = loadKnownComponents(circElt);
 				for (Element appearElt : XmlIterator.forChildElements(circElt,
 						"appear")) {
-					loadAppearance(appearElt, circData, name + ".appear");
+					loadAppearance(appearElt, circData,
+							circData.knownComponents.values(), name + ".appear");
 				}
 				circuitsData.add(circData);
 			}
@@ -406,39 +459,9 @@ class XmlReader {
 			// third, process the other child elements
 			for (Element sub_elt : XmlIterator.forChildElements(elt)) {
 				String name = sub_elt.getTagName();
-
-				switch (name) {
-				case "circuit":
-				case "lib":
-					// Nothing to do: Done earlier.
-					break;
-				case "options":
-					try {
-						initAttributeSet(sub_elt, file.getOptions()
-								.getAttributeSet(), null);
-					} catch (XmlReaderException e) {
-						addErrors(e, "options");
-					}
-					break;
-				case "mappings":
-					initMouseMappings(sub_elt);
-					break;
-				case "toolbar":
-					initToolbarData(sub_elt);
-					break;
-				case "main":
-					String main = sub_elt.getAttribute("name");
-					Circuit circ = file.getCircuit(main);
-					if (circ != null) {
-						file.setMainCircuit(circ);
-					}
-					break;
-				case "message":
-					file.addMessage(sub_elt.getAttribute("value"));
-					break;
-				default:
-					throw new IllegalArgumentException(
-							"Invalid node in logisim file: " + name);
+				if (!name.equals("circuit") && !name.equals("lib")) {
+					// circuits and libraries have been done earlier
+					loadProjectElement(sub_elt);
 				}
 			}
 
@@ -448,6 +471,44 @@ class XmlReader {
 			builder.execute();
 		}
 
+		/**
+		 * Processes a child of the project root other than a circuit or a
+		 * library. All circuits must have been created already.
+		 */
+		void loadProjectElement(Element sub_elt) {
+			String name = sub_elt.getTagName();
+
+			switch (name) {
+			case "options":
+				try {
+					initAttributeSet(sub_elt, file.getOptions()
+							.getAttributeSet(), null);
+				} catch (XmlReaderException e) {
+					addErrors(e, "options");
+				}
+				break;
+			case "mappings":
+				initMouseMappings(sub_elt);
+				break;
+			case "toolbar":
+				initToolbarData(sub_elt);
+				break;
+			case "main":
+				String main = sub_elt.getAttribute("name");
+				Circuit circ = file.getCircuit(main);
+				if (circ != null) {
+					file.setMainCircuit(circ);
+				}
+				break;
+			case "message":
+				file.addMessage(sub_elt.getAttribute("value"));
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Invalid node in logisim file: " + name);
+			}
+		}
+
 		Tool toTool(Element elt) throws XmlReaderException {
 			Library lib = findLibrary(elt.getAttribute("lib"));
 			String name = elt.getAttribute("name");
@@ -504,7 +565,7 @@ class XmlReader {
 	 * @param root
 	 *            root node
 	 */
-	private static void cleanupToolsLabel(Element root) {
+	static void cleanupToolsLabel(Element root) {
 		assert (root != null);
 
 		// Iterate on tools
@@ -964,6 +1025,11 @@ class XmlReader {
 	public static final Logger logger = LoggerFactory
 			.getLogger(XmlReader.class);
 
+	/**
+	 * Number of bytes that canStream may read before resetting the stream.
+	 */
+	private static final int STREAM_PROBE_LIMIT = 1 << 20;
+
 	private LibraryLoader loader;
 
 	/**
@@ -1049,16 +1115,50 @@ class XmlReader {
 		return builder.parse(is);
 	}
 
-	LogisimFile readLibrary(InputStream is) throws IOException, SAXException {
-		Document doc = loadXmlFrom(is);
-		Element elt = doc.getDocumentElement();
-		elt = ensureLogisimCompatibility(elt);
+	/**
+	 * Tells whether the file in the stream can be read in a single pass by
+	 * XmlStreamingReader, that is, whether it was saved by a version that
+	 * does not need the repairs of considerRepairs. Only the beginning of the
+	 * stream is looked at, and the stream is reset afterwards.
+	 */
+	private boolean canStream(InputStream is) throws IOException {
+		String source = null;
+		is.mark(STREAM_PROBE_LIMIT);
+		try {
+			XMLStreamReader in = XmlStreamingReader.createReader(is);
+			in.nextTag();
+			source = in.getAttributeValue(null, "source");
+			in.close();
+		} catch (XMLStreamException e) {
+			// let the DOM parser report the error
+		} finally {
+			is.reset();
+		}
+		return source != null
+				&& LogisimVersion.parse(source).compareTo(
+						LogisimVersion.get(2, 6, 3)) >= 0;
+	}
 
-		considerRepairs(doc, elt);
+	LogisimFile readLibrary(InputStream is) throws IOException, SAXException {
+		if (!is.markSupported())
+			is = new BufferedInputStream(is);
 		LogisimFile file = new LogisimFile((Loader) loader);
 		ReadContext context = new ReadContext(file);
 
-		context.toLogisimFile(elt);
+		if (canStream(is)) {
+			try {
+				new XmlStreamingReader(context).read(is);
+			} catch (XMLStreamException e) {
+				throw new SAXException(e);
+			}
+		} else {
+			Document doc = loadXmlFrom(is);
+			Element elt = doc.getDocumentElement();
+			elt = ensureLogisimCompatibility(elt);
+
+			considerRepairs(doc, elt);
+			context.toLogisimFile(elt);
+		}
 
 		if (file.getCircuitCount() == 0) {
 			file.addCircuit(new Circuit("main", file));
@@ -34,8 +34,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+
 import org.junit.Test;
 
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitAttributes;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.instance.StdAttr;
+
 public class XmlReaderTest {
 
 	/**
@@ -120,4 +127,49 @@ public class XmlReaderTest {
 		assertFalse(XmlReader.labelVHDLInvalid("a_B_c"));
 	}
 
+
+	/**
+	 * Test method for
+	 * {@link com.cburch.logisim.file.XmlReader#readLibrary(java.io.InputStream)}
+	 * on a file recent enough to be read by the streaming reader: labels are
+	 * rewritten as ensureLogisimCompatibility would, and subcircuits may be
+	 * used before they are defined.
+	 */
+	@Test
+	public final void testReadLibraryStreaming() throws Exception {
+		String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<project source=\"2.13.8\" version=\"1.0\">\n"
+				+ "<lib desc=\"#Wiring\" name=\"0\"/>\n"
+				+ "<main name=\"main\"/>\n"
+				+ "<circuit name=\"main\">\n"
+				+ "<comp loc=\"(200,100)\" name=\"my sub\"/>\n"
+				+ "<wire from=\"(100,100)\" to=\"(200,100)\"/>\n"
+				+ "</circuit>\n"
+				+ "<circuit name=\"my sub\">\n"
+				+ "<a name=\"circuit\" val=\"my sub\"/>\n"
+				+ "<comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\">\n"
+				+ "<a name=\"label\" val=\"in 1\"/>\n"
+				+ "</comp>\n" + "</circuit>\n" + "</project>\n";
+		XmlReader reader = new XmlReader(new Loader(null), null);
+		LogisimFile file = reader.readLibrary(new ByteArrayInputStream(xml
+				.getBytes("UTF-8")));
+
+		assertEquals(2, file.getCircuits().size());
+		assertEquals("main", file.getMainCircuit().getName());
+		Circuit sub = file.getCircuits().get(1);
+		assertTrue(sub.getName().startsWith("my_sub_"));
+		assertFalse(XmlReader.labelVHDLInvalid(sub.getName()));
+		assertEquals(sub.getName(),
+				sub.getStaticAttributes().getValue(CircuitAttributes.NAME_ATTR));
+
+		Circuit main = file.getMainCircuit();
+		assertEquals(1, main.getWires().size());
+		assertEquals(1, main.getNonWires().size());
+		Component inst = main.getNonWires().iterator().next();
+		assertEquals(sub.getSubcircuitFactory(), inst.getFactory());
+
+		Component pin = sub.getNonWires().iterator().next();
+		String label = pin.getAttributeSet().getValue(StdAttr.LABEL);
+		assertTrue(label.startsWith("in_1_"));
+	}
 }
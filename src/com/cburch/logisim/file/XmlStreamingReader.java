@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.file;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.cburch.logisim.Main;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.tools.Library;
+
+/**
+ * Reads a project file in a single pass. Circuits make up nearly all of a
+ * large file, so their components and wires are built as they are parsed,
+ * without going through a DOM tree, and the label rewrites of
+ * {@link XmlReader#ensureLogisimCompatibility(Element)} are applied on the
+ * fly. The small sections of the file (libraries, options, toolbar,
+ * appearances...) are still turned into DOM fragments and handed to the
+ * usual code of {@link XmlReader.ReadContext}.
+ * 
+ * Files that need the repairs for versions older than 2.6.3 are not handled
+ * here; XmlReader reads them through the DOM.
+ */
+class XmlStreamingReader {
+
+	/**
+	 * A component that could not be built when it was read, because its
+	 * library or subcircuit appears later in the file.
+	 */
+	private static class PendingComponent {
+		int index;
+		String name;
+		String lib;
+		String loc;
+		XmlReader.AttributeValues attrs;
+	}
+
+	private static class StreamedCircuit {
+		XmlReader.CircuitData data;
+		ArrayList<Component> contents = new ArrayList<Component>();
+		ArrayList<PendingComponent> pending = new ArrayList<PendingComponent>();
+		ArrayList<Element> appearances = new ArrayList<Element>();
+	}
+
+	static XMLStreamReader createReader(InputStream is)
+			throws XMLStreamException {
+		return factory.createXMLStreamReader(is);
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory ret = XMLInputFactory.newInstance();
+		ret.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		ret.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		return ret;
+	}
+
+	/**
+	 * Advances to the next child element of the current element. Returns false
+	 * if the end of the current element is reached instead.
+	 */
+	private static boolean nextElement(XMLStreamReader in)
+			throws XMLStreamException {
+		while (true) {
+			int event = in.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				return true;
+			if (event == XMLStreamConstants.END_ELEMENT
+					|| event == XMLStreamConstants.END_DOCUMENT)
+				return false;
+		}
+	}
+
+	/**
+	 * Returns the text content of the current element, and leaves the reader
+	 * at its end.
+	 */
+	private static String readText(XMLStreamReader in)
+			throws XMLStreamException {
+		StringBuilder ret = new StringBuilder();
+		int depth = 1;
+		while (depth > 0) {
+			switch (in.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				ret.append(in.getText());
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				depth = 0;
+				break;
+			}
+		}
+		return ret.toString();
+	}
+
+	private static void skipElement(XMLStreamReader in)
+			throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (in.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.END_DOCUMENT:
+				depth--;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the valid VHDL label to use in place of the given one, creating
+	 * it the first time the label is met so that all occurrences of a label
+	 * are replaced by the same name.
+	 */
+	private static String toValidLabel(Map<String, String> labels,
+			String label) {
+		String ret = labels.get(label);
+		if (ret == null) {
+			if (XmlReader.labelVHDLInvalid(label)) {
+				ret = XmlReader.generateValidVHDLLabel(label);
+			} else {
+				ret = label;
+			}
+			labels.put(label, ret);
+		}
+		return ret;
+	}
+
+	private static final XMLInputFactory factory = createFactory();
+
+	private XmlReader.ReadContext context;
+	private LogisimFile file;
+	private Document fragments = null;
+
+	private HashMap<String, String> circuitNames = new HashMap<String, String>();
+	private HashMap<String, String> circuitLabels = new HashMap<String, String>();
+	private HashMap<String, String> compLabels = new HashMap<String, String>();
+
+	private ArrayList<StreamedCircuit> circuits = new ArrayList<StreamedCircuit>();
+	private ArrayList<Element> projectElements = new ArrayList<Element>();
+
+	XmlStreamingReader(XmlReader.ReadContext context) {
+		this.context = context;
+		this.file = context.file;
+	}
+
+	private void buildCircuits() {
+		List<XmlReader.CircuitData> circuitsData = new ArrayList<XmlReader.CircuitData>();
+		for (StreamedCircuit circ : circuits) {
+			String circName = circ.data.circuit.getName();
+			for (PendingComponent p : circ.pending) {
+				String name = p.name;
+				if (p.lib == null && circuitNames.containsKey(name)) {
+					name = circuitNames.get(name);
+				}
+				try {
+					Component comp = XmlCircuitReader.getComponent(name,
+							p.lib, p.loc, p.attrs, context);
+					circ.contents.set(p.index, comp);
+				} catch (XmlReaderException e) {
+					context.addErrors(e, circName + "." + name + "(" + p.loc
+							+ ")");
+				}
+			}
+
+			ArrayList<Component> components = new ArrayList<Component>(
+					circ.contents.size());
+			for (Component comp : circ.contents) {
+				if (comp != null)
+					components.add(comp);
+			}
+			circ.data.components = components;
+			for (Element appearElt : circ.appearances) {
+				context.loadAppearance(appearElt, circ.data, components,
+						circName + ".appear");
+			}
+			circuitsData.add(circ.data);
+		}
+
+		for (Element elt : projectElements) {
+			context.loadProjectElement(elt);
+		}
+
+		XmlCircuitReader builder;
+		builder = new XmlCircuitReader(context, circuitsData);
+		builder.execute();
+	}
+
+	private String getAttribute(XMLStreamReader in, String name) {
+		String ret = in.getAttributeValue(null, name);
+		return ret == null ? "" : ret;
+	}
+
+	/**
+	 * Reads the whole project from the stream into the file of the context.
+	 */
+	void read(InputStream is) throws XMLStreamException {
+		XMLStreamReader in = createReader(is);
+		try {
+			in.nextTag();
+			context.setSourceVersion(getAttribute(in, "source"));
+			while (nextElement(in)) {
+				String name = in.getLocalName();
+				switch (name) {
+				case "lib":
+					Element libElt = readFragment(in);
+					XmlReader.cleanupToolsLabel(libElt);
+					Library lib = context.toLibrary(libElt);
+					if (lib != null)
+						file.addLibrary(lib);
+					break;
+				case "circuit":
+					readCircuit(in);
+					break;
+				case "toolbar":
+					Element toolbarElt = readFragment(in);
+					XmlReader.cleanupToolsLabel(toolbarElt);
+					projectElements.add(toolbarElt);
+					break;
+				case "options":
+				case "mappings":
+				case "main":
+				case "message":
+					projectElements.add(readFragment(in));
+					break;
+				default:
+					throw new IllegalArgumentException(
+							"Invalid node in logisim file: " + name);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		buildCircuits();
+	}
+
+	/**
+	 * Reads an <code>a</code> element into attrs.
+	 * 
+	 * @param labels
+	 *            map used to make the value of a label attribute valid, or
+	 *            null if labels are kept as they are
+	 * @param circuitName
+	 *            new name of the circuit, which replaces the value of a
+	 *            circuit attribute, or null if the circuit was not renamed
+	 */
+	private void readAttribute(XMLStreamReader in,
+			XmlReader.AttributeValues attrs, Map<String, String> labels,
+			String circuitName) throws XMLStreamException {
+		String attrName = in.getAttributeValue(null, "name");
+		if (attrName == null) {
+			attrs.addError(Strings.get("attrNameMissingError"));
+			skipElement(in);
+			return;
+		}
+		String attrVal = in.getAttributeValue(null, "val");
+		if (circuitName != null && attrName.equals("circuit")) {
+			attrVal = circuitName;
+			skipElement(in);
+		} else if (attrVal != null) {
+			if (labels != null && attrName.equals("label")
+					&& attrVal.length() > 0) {
+				attrVal = toValidLabel(labels, attrVal);
+			}
+			attrVal = context.toAttributeValue(attrName, attrVal);
+			skipElement(in);
+		} else {
+			attrVal = readText(in);
+		}
+		attrs.values.put(attrName, attrVal);
+	}
+
+	private void readCircuit(XMLStreamReader in) throws XMLStreamException {
+		String origName = getAttribute(in, "name");
+		String name = toValidLabel(circuitNames, origName);
+		if (name.equals("")) {
+			context.addError(Strings.get("circNameMissingError"), "C??");
+		}
+		StreamedCircuit circ = new StreamedCircuit();
+		circ.data = new XmlReader.CircuitData(null, new Circuit(name, file));
+		circ.data.staticAttributes = new XmlReader.AttributeValues();
+		file.addCircuit(circ.data.circuit);
+		circuits.add(circ);
+
+		String renamed = name.equals(origName) ? null : name;
+		while (nextElement(in)) {
+			switch (in.getLocalName()) {
+			case "a":
+				readAttribute(in, circ.data.staticAttributes, circuitLabels,
+						renamed);
+				break;
+			case "comp":
+				readComponent(in, circ);
+				break;
+			case "wire":
+				readWire(in, circ);
+				break;
+			case "appear":
+				circ.appearances.add(readFragment(in));
+				break;
+			default:
+				skipElement(in);
+			}
+		}
+	}
+
+	private void readComponent(XMLStreamReader in, StreamedCircuit circ)
+			throws XMLStreamException {
+		String name = getAttribute(in, "name");
+		String libName = in.getAttributeValue(null, "lib");
+		String loc = getAttribute(in, "loc");
+		String tracker = getAttribute(in, "trackercomp");
+		XmlReader.AttributeValues attrs = new XmlReader.AttributeValues();
+		while (nextElement(in)) {
+			if (in.getLocalName().equals("a")) {
+				readAttribute(in, attrs, libName != null ? compLabels : null,
+						null);
+			} else {
+				skipElement(in);
+			}
+		}
+
+		if (!tracker.equals("") && !Main.VERSION.hasTracker()) {
+			return;
+		}
+
+		// Subcircuits and libraries not seen yet are built at the end, so
+		// that forward references work as they do for the DOM reader.
+		boolean known;
+		if (libName == null || libName.equals("")) {
+			if (libName == null && circuitNames.containsKey(name)) {
+				name = circuitNames.get(name);
+			}
+			known = file.getTool(name) != null;
+		} else {
+			known = context.libs.containsKey(libName);
+		}
+		if (!known) {
+			PendingComponent p = new PendingComponent();
+			p.index = circ.contents.size();
+			p.name = name;
+			p.lib = libName;
+			p.loc = loc;
+			p.attrs = attrs;
+			circ.pending.add(p);
+			circ.contents.add(null);
+			return;
+		}
+
+		try {
+			circ.contents.add(XmlCircuitReader.getComponent(name, libName,
+					loc, attrs, context));
+		} catch (XmlReaderException e) {
+			context.addErrors(e, circ.data.circuit.getName() + "." + name
+					+ "(" + loc + ")");
+		}
+	}
+
+	/**
+	 * Copies the current element and its contents into a DOM element, and
+	 * leaves the reader at its end.
+	 */
+	private Element readFragment(XMLStreamReader in)
+			throws XMLStreamException {
+		if (fragments == null) {
+			try {
+				fragments = DocumentBuilderFactory.newInstance()
+						.newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+		Element root = toElement(in);
+		Element current = root;
+		while (current != null) {
+			switch (in.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				Element child = toElement(in);
+				current.appendChild(child);
+				current = child;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				current = current == root ? null : (Element) current
+						.getParentNode();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				current.appendChild(fragments.createTextNode(in.getText()));
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				current = null;
+				break;
+			}
+		}
+		return root;
+	}
+
+	private void readWire(XMLStreamReader in, StreamedCircuit circ)
+			throws XMLStreamException {
+		String from = getAttribute(in, "from");
+		String to = getAttribute(in, "to");
+		skipElement(in);
+		try {
+			circ.contents.add(XmlCircuitReader.createWire(from, to));
+		} catch (XmlReaderException e) {
+			context.addErrors(e, circ.data.circuit.getName() + ".w" + from
+					+ "-" + to);
+		}
+	}
+
+	private Element toElement(XMLStreamReader in) {
+		Element ret = fragments.createElement(qualifiedName(in.getPrefix(),
+				in.getLocalName()));
+		for (int i = 0, n = in.getAttributeCount(); i < n; i++) {
+			ret.setAttribute(
+					qualifiedName(in.getAttributePrefix(i),
+							in.getAttributeLocalName(i)),
+					in.getAttributeValue(i));
+		}
+		return ret;
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		if (prefix == null || prefix.equals(""))
+			return localName;
+		return prefix + ":" + localName;
+	}
+}
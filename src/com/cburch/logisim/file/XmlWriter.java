@@ -30,28 +30,27 @@
 
 package com.cburch.logisim.file;
 
+import java.awt.Color;
+import java.awt.Font;
 import java.io.File;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 
 import com.cburch.draw.model.AbstractCanvasObject;
 import com.cburch.logisim.LogisimVersion;
@@ -62,22 +61,336 @@ import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.comp.ComponentFactory;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeDefaultProvider;
+import com.cburch.logisim.data.AttributeOptionInterface;
 import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.util.InputEventUtil;
 import com.cburch.logisim.util.StringUtil;
 
+/**
+ * Writes project files. Writing happens in two steps: {@link #snapshot}
+ * captures everything that goes into the file, and must be called on the
+ * thread that edits the project; {@link Snapshot#write} then streams the
+ * captured contents out and may run on any thread, while the project keeps
+ * being edited.
+ */
 class XmlWriter {
+
+	/**
+	 * The attributes of an element, as <code>a</code> children. Values that
+	 * are known to be immutable are kept as they are and turned into text
+	 * only when written; the others are turned into text when captured.
+	 */
+	private static class AttributeValues {
+		static final AttributeValues EMPTY = new AttributeValues(new Object[0]);
+
+		/**
+		 * Pairs of entries: either an attribute and its value, or the name of
+		 * an attribute and its value already turned into text.
+		 */
+		private Object[] entries;
+
+		AttributeValues(Object[] entries) {
+			this.entries = entries;
+		}
+
+		boolean isEmpty() {
+			return entries.length == 0;
+		}
+
+		void write(XMLStreamWriter out, int depth) throws XMLStreamException {
+			for (int i = 0; i < entries.length; i += 2) {
+				String name;
+				String value;
+				if (entries[i] instanceof Attribute) {
+					@SuppressWarnings("unchecked")
+					Attribute<Object> attr = (Attribute<Object>) entries[i];
+					name = attr.getName();
+					value = attr.toStandardString(entries[i + 1]);
+				} else {
+					name = (String) entries[i];
+					value = (String) entries[i + 1];
+				}
+				indent(out, depth);
+				if (value.indexOf("\n") >= 0) {
+					out.writeStartElement("a");
+					out.writeAttribute("name", name);
+					out.writeCharacters(value);
+					out.writeEndElement();
+				} else {
+					out.writeEmptyElement("a");
+					out.writeAttribute("name", name);
+					out.writeAttribute("val", value);
+				}
+			}
+		}
+	}
+
+	private static class CircuitData {
+		String name;
+		AttributeValues attrs;
+		List<Element> appearance;
+		Wire[] wires;
+		List<ComponentData> components = new ArrayList<ComponentData>();
+	}
+
+	private static class ComponentData {
+		String lib;
+		String name;
+		Location loc;
+		AttributeValues attrs;
+	}
+
+	private static class LibraryData {
+		String name;
+		String desc;
+		List<ToolData> tools = new ArrayList<ToolData>();
+	}
+
+	/**
+	 * Also used for toolbar separators, which have a null name.
+	 */
+	private static class ToolData {
+		String lib;
+		String name;
+		String map;
+		AttributeValues attrs;
+	}
+
+	/**
+	 * Contents of a project file captured by {@link XmlWriter#snapshot}. It
+	 * does not refer to anything that editing the project may change.
+	 */
+	static class Snapshot {
+		private List<LibraryData> libraries = new ArrayList<LibraryData>();
+		private String main;
+		private AttributeValues options;
+		private List<ToolData> mappings = new ArrayList<ToolData>();
+		private List<ToolData> toolbar = new ArrayList<ToolData>();
+		private List<CircuitData> circuits = new ArrayList<CircuitData>();
+
+		void write(OutputStream os) throws XMLStreamException {
+			XMLStreamWriter out = outputFactory.createXMLStreamWriter(os,
+					"UTF-8");
+			out.writeStartDocument("UTF-8", "1.0");
+			out.writeCharacters("\n");
+			out.writeStartElement("project");
+			out.writeAttribute("source", Main.VERSION_NAME);
+			out.writeAttribute("version", "1.0");
+			indent(out, 1);
+			out.writeCharacters("This file is intended to be "
+					+ "loaded by Logisim-evolution (https://github.com/reds-heig/logisim-evolution).\n");
+
+			for (LibraryData lib : libraries) {
+				indent(out, 1);
+				if (lib.tools.isEmpty()) {
+					out.writeEmptyElement("lib");
+				} else {
+					out.writeStartElement("lib");
+				}
+				out.writeAttribute("desc", lib.desc);
+				out.writeAttribute("name", lib.name);
+				if (!lib.tools.isEmpty()) {
+					for (ToolData tool : lib.tools) {
+						writeTool(out, tool, 2);
+					}
+					writeEndElement(out, 1);
+				}
+			}
+
+			if (main != null) {
+				indent(out, 1);
+				out.writeEmptyElement("main");
+				out.writeAttribute("name", main);
+			}
+
+			indent(out, 1);
+			if (options.isEmpty()) {
+				out.writeEmptyElement("options");
+			} else {
+				out.writeStartElement("options");
+				options.write(out, 2);
+				writeEndElement(out, 1);
+			}
+
+			indent(out, 1);
+			if (mappings.isEmpty()) {
+				out.writeEmptyElement("mappings");
+			} else {
+				out.writeStartElement("mappings");
+				for (ToolData tool : mappings) {
+					writeTool(out, tool, 2);
+				}
+				writeEndElement(out, 1);
+			}
+
+			indent(out, 1);
+			if (toolbar.isEmpty()) {
+				out.writeEmptyElement("toolbar");
+			} else {
+				out.writeStartElement("toolbar");
+				for (ToolData tool : toolbar) {
+					if (tool.name == null) {
+						indent(out, 2);
+						out.writeEmptyElement("sep");
+					} else {
+						writeTool(out, tool, 2);
+					}
+				}
+				writeEndElement(out, 1);
+			}
+
+			for (CircuitData circ : circuits) {
+				writeCircuit(out, circ);
+			}
+
+			writeEndElement(out, 0);
+			out.writeCharacters("\n");
+			out.writeEndDocument();
+			out.flush();
+			out.close();
+		}
+
+		private void writeCircuit(XMLStreamWriter out, CircuitData circ)
+				throws XMLStreamException {
+			indent(out, 1);
+			out.writeStartElement("circuit");
+			out.writeAttribute("name", circ.name);
+			circ.attrs.write(out, 2);
+			if (circ.appearance != null) {
+				indent(out, 2);
+				if (circ.appearance.isEmpty()) {
+					out.writeEmptyElement("appear");
+				} else {
+					out.writeStartElement("appear");
+					for (Element elt : circ.appearance) {
+						writeElement(out, elt, 3);
+					}
+					writeEndElement(out, 2);
+				}
+			}
+			for (Wire w : circ.wires) {
+				indent(out, 2);
+				out.writeEmptyElement("wire");
+				out.writeAttribute("from", w.getEnd0().toString());
+				out.writeAttribute("to", w.getEnd1().toString());
+			}
+			for (ComponentData comp : circ.components) {
+				indent(out, 2);
+				if (comp.attrs.isEmpty()) {
+					out.writeEmptyElement("comp");
+				} else {
+					out.writeStartElement("comp");
+				}
+				if (comp.lib != null)
+					out.writeAttribute("lib", comp.lib);
+				out.writeAttribute("loc", comp.loc.toString());
+				out.writeAttribute("name", comp.name);
+				if (!comp.attrs.isEmpty()) {
+					comp.attrs.write(out, 3);
+					writeEndElement(out, 2);
+				}
+			}
+			writeEndElement(out, 1);
+		}
+	}
+
+	private static void indent(XMLStreamWriter out, int depth)
+			throws XMLStreamException {
+		StringBuilder ret = new StringBuilder(1 + 2 * depth);
+		ret.append('\n');
+		for (int i = 0; i < depth; i++)
+			ret.append("  ");
+		out.writeCharacters(ret.toString());
+	}
+
+	/**
+	 * Tells whether an attribute value can be kept as it is in a snapshot,
+	 * because no edit to the project can change it.
+	 */
+	private static boolean isImmutable(Object val) {
+		return val instanceof String || val instanceof Number
+				|| val instanceof Boolean || val instanceof Enum
+				|| val instanceof BitWidth
+				|| val instanceof AttributeOptionInterface
+				|| val instanceof Location || val instanceof Font
+				|| val instanceof Color;
+	}
+
 	static void write(LogisimFile file, OutputStream out, LibraryLoader loader,
 			File destFile) throws ParserConfigurationException,
-			TransformerConfigurationException, TransformerException {
+			XMLStreamException {
+		snapshot(file, loader, destFile).write(out);
+	}
 
-		DocumentBuilderFactory docFactory = DocumentBuilderFactory
-				.newInstance();
-		DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
+	private static void writeElement(XMLStreamWriter out, Element elt,
+			int depth) throws XMLStreamException {
+		boolean hasChildren = false;
+		for (Node n = elt.getFirstChild(); n != null; n = n.getNextSibling()) {
+			if (n.getNodeType() == Node.ELEMENT_NODE)
+				hasChildren = true;
+		}
+		indent(out, depth);
+		if (hasChildren) {
+			out.writeStartElement(elt.getTagName());
+		} else {
+			out.writeEmptyElement(elt.getTagName());
+		}
+		NamedNodeMap attrs = elt.getAttributes();
+		for (int i = 0, n = attrs.getLength(); i < n; i++) {
+			Node attr = attrs.item(i);
+			out.writeAttribute(attr.getNodeName(), attr.getNodeValue());
+		}
+		if (hasChildren) {
+			for (Node n = elt.getFirstChild(); n != null; n = n
+					.getNextSibling()) {
+				if (n.getNodeType() == Node.ELEMENT_NODE)
+					writeElement(out, (Element) n, depth + 1);
+			}
+			writeEndElement(out, depth);
+		}
+	}
 
-		Document doc = docBuilder.newDocument();
+	private static void writeEndElement(XMLStreamWriter out, int depth)
+			throws XMLStreamException {
+		indent(out, depth);
+		out.writeEndElement();
+	}
+
+	private static void writeTool(XMLStreamWriter out, ToolData tool,
+			int depth) throws XMLStreamException {
+		indent(out, depth);
+		if (tool.attrs.isEmpty()) {
+			out.writeEmptyElement("tool");
+		} else {
+			out.writeStartElement("tool");
+		}
+		if (tool.lib != null)
+			out.writeAttribute("lib", tool.lib);
+		if (tool.map != null)
+			out.writeAttribute("map", tool.map);
+		out.writeAttribute("name", tool.name);
+		if (!tool.attrs.isEmpty()) {
+			tool.attrs.write(out, depth + 1);
+			writeEndElement(out, depth);
+		}
+	}
+
+	/**
+	 * Captures the contents of the file, to be written later by
+	 * {@link Snapshot#write}.
+	 * 
+	 * @param destFile
+	 *            file that will be written, against which paths are made
+	 *            relative; may be null
+	 */
+	static Snapshot snapshot(LogisimFile file, LibraryLoader loader,
+			File destFile) throws ParserConfigurationException {
+		Document doc = DocumentBuilderFactory.newInstance()
+				.newDocumentBuilder().newDocument();
 		XmlWriter context;
 		if (destFile != null) {
 			String dstFilePath = destFile.getAbsolutePath();
@@ -87,28 +400,16 @@ class XmlWriter {
 		} else
 			context = new XmlWriter(file, doc, loader);
 
-		context.fromLogisimFile();
-
-		TransformerFactory tfFactory = TransformerFactory.newInstance();
-		try {
-			tfFactory.setAttribute("indent-number", Integer.valueOf(2));
-		} catch (IllegalArgumentException e) {
-		}
-		Transformer tf = tfFactory.newTransformer();
-		tf.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-		tf.setOutputProperty(OutputKeys.INDENT, "yes");
-		try {
-			tf.setOutputProperty("{http://xml.apache.org/xslt}indent-amount",
-					"2");
-		} catch (IllegalArgumentException e) {
-		}
-
-		Source src = new DOMSource(doc);
-		Result dest = new StreamResult(out);
-		tf.transform(src, dest);
+		return context.fromLogisimFile();
 	}
 
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory
+			.newInstance();
+
 	private LogisimFile file;
+	/**
+	 * Document used to create the appearance elements of circuits
+	 */
 	private Document doc;
 	/**
 	 * Path of the file which is being written on disk -- used to relativize
@@ -117,6 +418,8 @@ class XmlWriter {
 	private String outFilepath;
 	private LibraryLoader loader;
 	private HashMap<Library, String> libs = new HashMap<Library, String>();
+	private HashMap<ComponentFactory, Library> factoryLibs = new HashMap<ComponentFactory, Library>();
+	private ArrayList<Object> attrEntries = new ArrayList<Object>();
 
 	private XmlWriter(LogisimFile file, Document doc, LibraryLoader loader) {
 		this(file, doc, loader, null);
@@ -130,13 +433,15 @@ class XmlWriter {
 		this.outFilepath = outFilepath;
 	}
 
-	void addAttributeSetContent(Element elt, AttributeSet attrs,
+	AttributeValues fromAttributeSet(AttributeSet attrs,
 			AttributeDefaultProvider source) {
 		if (attrs == null)
-			return;
+			return AttributeValues.EMPTY;
 		LogisimVersion ver = Main.VERSION;
 		if (source != null && source.isAllDefaultValues(attrs, ver))
-			return;
+			return AttributeValues.EMPTY;
+		ArrayList<Object> entries = attrEntries;
+		entries.clear();
 		for (Attribute<?> attrBase : attrs.getAttributes()) {
 			@SuppressWarnings("unchecked")
 			Attribute<Object> attr = (Attribute<Object>) attrBase;
@@ -145,29 +450,38 @@ class XmlWriter {
 				Object dflt = source == null ? null : source
 						.getDefaultAttributeValue(attr, ver);
 				if (dflt == null || !dflt.equals(val)) {
-					Element a = doc.createElement("a");
-					a.setAttribute("name", attr.getName());
-					String value = attr.toStandardString(val);
 					if (attr.getName().equals("filePath")
 							&& outFilepath != null) {
 						Path outFP = Paths.get(outFilepath);
-						Path attrValP = Paths.get(value);
-						value = (outFP.relativize(attrValP)).toString();
-						a.setAttribute("val", value);
+						Path attrValP = Paths.get(attr.toStandardString(val));
+						entries.add(attr.getName());
+						entries.add(outFP.relativize(attrValP).toString());
+					} else if (isImmutable(val)) {
+						entries.add(attr);
+						entries.add(val);
 					} else {
-						if (value.indexOf("\n") >= 0) {
-							a.appendChild(doc.createTextNode(value));
-						} else {
-							a.setAttribute("val", attr.toStandardString(val));
-						}
+						entries.add(attr.getName());
+						entries.add(attr.toStandardString(val));
 					}
-					elt.appendChild(a);
 				}
 			}
 		}
+		if (entries.isEmpty())
+			return AttributeValues.EMPTY;
+		return new AttributeValues(entries.toArray());
 	}
 
 	Library findLibrary(ComponentFactory source) {
+		Library ret = factoryLibs.get(source);
+		if (ret == null) {
+			ret = findLibraryUncached(source);
+			if (ret != null)
+				factoryLibs.put(source, ret);
+		}
+		return ret;
+	}
+
+	private Library findLibraryUncached(ComponentFactory source) {
 		if (file.contains(source)) {
 			return file;
 		}
@@ -189,34 +503,31 @@ class XmlWriter {
 		return null;
 	}
 
-	Element fromCircuit(Circuit circuit) {
-		Element ret = doc.createElement("circuit");
-		ret.setAttribute("name", circuit.getName());
-		addAttributeSetContent(ret, circuit.getStaticAttributes(), null);
+	CircuitData fromCircuit(Circuit circuit) {
+		CircuitData ret = new CircuitData();
+		ret.name = circuit.getName();
+		ret.attrs = fromAttributeSet(circuit.getStaticAttributes(), null);
 		if (!circuit.getAppearance().isDefaultAppearance()) {
-			Element appear = doc.createElement("appear");
+			ret.appearance = new ArrayList<Element>();
 			for (Object o : circuit.getAppearance().getObjectsFromBottom()) {
 				if (o instanceof AbstractCanvasObject) {
 					Element elt = ((AbstractCanvasObject) o).toSvgElement(doc);
 					if (elt != null) {
-						appear.appendChild(elt);
+						ret.appearance.add(elt);
 					}
 				}
 			}
-			ret.appendChild(appear);
-		}
-		for (Wire w : circuit.getWires()) {
-			ret.appendChild(fromWire(w));
 		}
+		ret.wires = circuit.getWires().toArray(new Wire[0]);
 		for (Component comp : circuit.getNonWires()) {
-			Element elt = fromComponent(comp);
-			if (elt != null)
-				ret.appendChild(elt);
+			ComponentData data = fromComponent(comp);
+			if (data != null)
+				ret.components.add(data);
 		}
 		return ret;
 	}
 
-	Element fromComponent(Component comp) {
+	ComponentData fromComponent(Component comp) {
 		ComponentFactory source = comp.getFactory();
 		Library lib = findLibrary(source);
 		String lib_name;
@@ -233,17 +544,16 @@ class XmlWriter {
 			}
 		}
 
-		Element ret = doc.createElement("comp");
-		if (lib_name != null)
-			ret.setAttribute("lib", lib_name);
-		ret.setAttribute("name", source.getName());
-		ret.setAttribute("loc", comp.getLocation().toString());
-		addAttributeSetContent(ret, comp.getAttributeSet(), comp.getFactory());
+		ComponentData ret = new ComponentData();
+		ret.lib = lib_name;
+		ret.name = source.getName();
+		ret.loc = comp.getLocation();
+		ret.attrs = fromAttributeSet(comp.getAttributeSet(), comp.getFactory());
 		return ret;
 	}
 
-	Element fromLibrary(Library lib) {
-		Element ret = doc.createElement("lib");
+	LibraryData fromLibrary(Library lib) {
+		LibraryData ret = new LibraryData();
 		if (libs.containsKey(lib))
 			return null;
 		String name = "" + libs.size();
@@ -253,74 +563,60 @@ class XmlWriter {
 			return null;
 		}
 		libs.put(lib, name);
-		ret.setAttribute("name", name);
-		ret.setAttribute("desc", desc);
+		ret.name = name;
+		ret.desc = desc;
 		for (Tool t : lib.getTools()) {
 			AttributeSet attrs = t.getAttributeSet();
 			if (attrs != null) {
-				Element toAdd = doc.createElement("tool");
-				toAdd.setAttribute("name", t.getName());
-				addAttributeSetContent(toAdd, attrs, t);
-				if (toAdd.getChildNodes().getLength() > 0) {
-					ret.appendChild(toAdd);
+				ToolData toAdd = new ToolData();
+				toAdd.name = t.getName();
+				toAdd.attrs = fromAttributeSet(attrs, t);
+				if (!toAdd.attrs.isEmpty()) {
+					ret.tools.add(toAdd);
 				}
 			}
 		}
 		return ret;
 	}
 
-	Element fromLogisimFile() {
-		Element ret = doc.createElement("project");
-		doc.appendChild(ret);
-		ret.appendChild(doc
-				.createTextNode("\nThis file is intended to be "
-						+ "loaded by Logisim-evolution (https://github.com/reds-heig/logisim-evolution).\n"));
-		ret.setAttribute("version", "1.0");
-		ret.setAttribute("source", Main.VERSION_NAME);
+	Snapshot fromLogisimFile() {
+		Snapshot ret = new Snapshot();
 
 		for (Library lib : file.getLibraries()) {
-			Element elt = fromLibrary(lib);
-			if (elt != null)
-				ret.appendChild(elt);
+			LibraryData data = fromLibrary(lib);
+			if (data != null)
+				ret.libraries.add(data);
 		}
 
 		if (file.getMainCircuit() != null) {
-			Element mainElt = doc.createElement("main");
-			mainElt.setAttribute("name", file.getMainCircuit().getName());
-			ret.appendChild(mainElt);
+			ret.main = file.getMainCircuit().getName();
 		}
 
-		ret.appendChild(fromOptions());
-		ret.appendChild(fromMouseMappings());
-		ret.appendChild(fromToolbarData());
+		ret.options = fromAttributeSet(file.getOptions().getAttributeSet(),
+				null);
+		fromMouseMappings(ret.mappings);
+		fromToolbarData(ret.toolbar);
 
 		for (Circuit circ : file.getCircuits()) {
-			ret.appendChild(fromCircuit(circ));
+			ret.circuits.add(fromCircuit(circ));
 		}
 		return ret;
 	}
 
-	Element fromMouseMappings() {
-		Element elt = doc.createElement("mappings");
+	void fromMouseMappings(List<ToolData> dest) {
 		MouseMappings map = file.getOptions().getMouseMappings();
 		for (Map.Entry<Integer, Tool> entry : map.getMappings().entrySet()) {
 			Integer mods = entry.getKey();
 			Tool tool = entry.getValue();
-			Element toolElt = fromTool(tool);
-			String mapValue = InputEventUtil.toString(mods.intValue());
-			toolElt.setAttribute("map", mapValue);
-			elt.appendChild(toolElt);
+			ToolData toolData = fromTool(tool);
+			if (toolData != null) {
+				toolData.map = InputEventUtil.toString(mods.intValue());
+				dest.add(toolData);
+			}
 		}
-		return elt;
 	}
 
-	Element fromOptions() {
-		Element elt = doc.createElement("options");
-		addAttributeSetContent(elt, file.getOptions().getAttributeSet(), null);
-		return elt;
-	}
-
-	Element fromTool(Tool tool) {
+	ToolData fromTool(Tool tool) {
 		Library lib = findLibrary(tool);
 		String lib_name;
 		if (lib == null) {
@@ -337,32 +633,24 @@ class XmlWriter {
 			}
 		}
 
-		Element elt = doc.createElement("tool");
-		if (lib_name != null)
-			elt.setAttribute("lib", lib_name);
-		elt.setAttribute("name", tool.getName());
-		addAttributeSetContent(elt, tool.getAttributeSet(), tool);
-		return elt;
+		ToolData ret = new ToolData();
+		ret.lib = lib_name;
+		ret.name = tool.getName();
+		ret.attrs = fromAttributeSet(tool.getAttributeSet(), tool);
+		return ret;
 	}
 
-	Element fromToolbarData() {
-		Element elt = doc.createElement("toolbar");
+	void fromToolbarData(List<ToolData> dest) {
 		ToolbarData toolbar = file.getOptions().getToolbarData();
 		for (Tool tool : toolbar.getContents()) {
 			if (tool == null) {
-				elt.appendChild(doc.createElement("sep"));
+				dest.add(new ToolData());
 			} else {
-				elt.appendChild(fromTool(tool));
+				ToolData toolData = fromTool(tool);
+				if (toolData != null)
+					dest.add(toolData);
 			}
 		}
-		return elt;
-	}
-
-	Element fromWire(Wire w) {
-		Element ret = doc.createElement("wire");
-		ret.setAttribute("from", w.getEnd0().toString());
-		ret.setAttribute("to", w.getEnd1().toString());
-		return ret;
 	}
 
 	boolean libraryContains(Library lib, Tool query) {
@@ -31,14 +31,25 @@
 package com.cburch.logisim.gui.hex;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 
 import com.cburch.hex.HexModel;
 
@@ -147,7 +158,310 @@ public class HexFile {
 		}
 	}
 
+	/**
+	 * Loads an image file, guessing its format: files starting with the
+	 * Logisim header are read as text images, files starting with ':' as
+	 * Intel HEX and files with a ".bin" extension as little-endian binary.
+	 */
 	public static void open(HexModel dst, File src) throws IOException {
+		open(dst, src, detectFormat(src));
+	}
+
+	public static void open(HexModel dst, File src, int format)
+			throws IOException {
+		switch (format) {
+		case FORMAT_INTEL_HEX:
+			openIntelHex(dst, src);
+			break;
+		case FORMAT_BINARY_LE:
+			openBinary(dst, src, false);
+			break;
+		case FORMAT_BINARY_BE:
+			openBinary(dst, src, true);
+			break;
+		default:
+			openLogisim(dst, src);
+			break;
+		}
+	}
+
+	public static int detectFormat(File src) throws IOException {
+		byte[] head = new byte[RAW_IMAGE_HEADER.length()];
+		int n = 0;
+		FileInputStream in;
+		try {
+			in = new FileInputStream(src);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		try {
+			while (n < head.length) {
+				int read = in.read(head, n, head.length - n);
+				if (read < 0)
+					break;
+				n += read;
+			}
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileReadError"));
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+		if (n == head.length
+				&& new String(head, "US-ASCII").equals(RAW_IMAGE_HEADER)) {
+			return FORMAT_LOGISIM;
+		} else if (n > 0 && head[0] == ':') {
+			return FORMAT_INTEL_HEX;
+		} else if (src.getName().toLowerCase().endsWith(".bin")) {
+			return FORMAT_BINARY_LE;
+		} else {
+			throw new IOException(Strings.get("hexHeaderFormatError"));
+		}
+	}
+
+	/**
+	 * Loads a raw binary image. Each memory word takes the smallest number of
+	 * bytes holding its width. The file is mapped in windows and read a page
+	 * at a time; all-zero pages are skipped so that sparse models do not
+	 * allocate storage for them. The model is only cleared and filled once
+	 * the whole file has been read, so that a bad file leaves it untouched.
+	 */
+	public static void openBinary(HexModel dst, File src, boolean bigEndian)
+			throws IOException {
+		int bytesPerWord = (dst.getValueWidth() + 7) / 8;
+		long first = dst.getFirstOffset();
+		long last = dst.getLastOffset();
+		FileInputStream in;
+		try {
+			in = new FileInputStream(src);
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		try {
+			FileChannel channel = in.getChannel();
+			long size;
+			try {
+				size = channel.size();
+			} catch (IOException e) {
+				throw new IOException(Strings.get("hexFileReadError"));
+			}
+			if (size / bytesPerWord > last - first + 1) {
+				throw new IOException(Strings.get("hexFileSizeError"));
+			}
+			if (size % bytesPerWord != 0) {
+				throw new IOException(Strings.get("hexFileTruncatedError"));
+			}
+			Map<Long, int[]> pages;
+			try {
+				pages = readBinary(channel, size, first, bytesPerWord,
+						bigEndian);
+			} catch (IOException e) {
+				throw new IOException(Strings.get("hexFileReadError"));
+			}
+			dst.fill(first, last - first + 1, 0);
+			for (Map.Entry<Long, int[]> page : pages.entrySet()) {
+				dst.set(page.getKey().longValue(), page.getValue());
+			}
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	// returns the pages that are not all zero, by their first address
+	private static Map<Long, int[]> readBinary(FileChannel channel, long size,
+			long first, int bytesPerWord, boolean bigEndian)
+			throws IOException {
+		Map<Long, int[]> ret = new LinkedHashMap<Long, int[]>();
+		long window = (MAP_WINDOW / bytesPerWord) * bytesPerWord;
+		int[] page = new int[PAGE_WORDS];
+		long offs = first;
+		for (long pos = 0; pos < size; pos += window) {
+			long len = Math.min(window, size - pos);
+			MappedByteBuffer buf = channel.map(
+					FileChannel.MapMode.READ_ONLY, pos, len);
+			buf.order(bigEndian ? ByteOrder.BIG_ENDIAN
+					: ByteOrder.LITTLE_ENDIAN);
+			while (buf.hasRemaining()) {
+				int n = 0;
+				boolean allZero = true;
+				while (n < page.length && buf.hasRemaining()) {
+					int val = readWord(buf, bytesPerWord, bigEndian);
+					page[n++] = val;
+					allZero &= val == 0;
+				}
+				if (!allZero) {
+					ret.put(Long.valueOf(offs), Arrays.copyOf(page, n));
+				}
+				offs += n;
+			}
+		}
+		return ret;
+	}
+
+	private static int readWord(MappedByteBuffer buf, int bytesPerWord,
+			boolean bigEndian) {
+		if (bytesPerWord == 4)
+			return buf.getInt();
+		if (bytesPerWord == 2)
+			return buf.getShort() & 0xffff;
+		if (bytesPerWord == 1)
+			return buf.get() & 0xff;
+		int val = 0;
+		for (int i = 0; i < bytesPerWord; i++) {
+			int b = buf.get() & 0xff;
+			if (bigEndian)
+				val = (val << 8) | b;
+			else
+				val |= b << (8 * i);
+		}
+		return val;
+	}
+
+	/**
+	 * Loads an Intel HEX image. Record addresses are byte addresses, and each
+	 * memory word occupies as many bytes as needed for the data width, most
+	 * significant byte first; byte address a thus falls in word a / n, where
+	 * n is the number of bytes per word. Records need not start or end on a
+	 * word boundary. Extended segment and linear address records are honored,
+	 * start address records are ignored.
+	 */
+	public static void openIntelHex(HexModel dst, File src) throws IOException {
+		BufferedReader in;
+		try {
+			in = new BufferedReader(new FileReader(src));
+		} catch (IOException e) {
+			throw new IOException(Strings.get("hexFileOpenError"));
+		}
+		try {
+			openIntelHex(dst, in);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	public static void openIntelHex(HexModel dst, BufferedReader in)
+			throws IOException {
+		int bytesPerWord = (dst.getValueWidth() + 7) / 8;
+		long first = dst.getFirstOffset();
+		long last = dst.getLastOffset();
+		dst.fill(first, last - first + 1, 0);
+
+		WordRun run = new WordRun(dst);
+		long base = 0;
+		long word = -1;
+		int value = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0)
+				continue;
+			byte[] rec = parseIntelHexRecord(line);
+			int count = rec[0] & 0xff;
+			int addr = ((rec[1] & 0xff) << 8) | (rec[2] & 0xff);
+			int type = rec[3] & 0xff;
+			if (type == 0x01) {
+				break;
+			} else if (type == 0x02 || type == 0x04) {
+				if (count != 2)
+					throw new IOException(Strings.get("hexNumberFormatError"));
+				long val = ((rec[4] & 0xff) << 8) | (rec[5] & 0xff);
+				base = type == 0x02 ? val << 4 : val << 16;
+			} else if (type == 0x00) {
+				for (int i = 0; i < count; i++) {
+					long byteAddr = base + addr + i;
+					long w = first + byteAddr / bytesPerWord;
+					if (w != word) {
+						if (word >= 0)
+							run.put(word, value);
+						if (w > last)
+							throw new IOException(
+									Strings.get("hexFileSizeError"));
+						word = w;
+						value = run.get(w);
+					}
+					int shift = 8 * (bytesPerWord - 1
+							- (int) (byteAddr % bytesPerWord));
+					value = (value & ~(0xff << shift))
+							| ((rec[4 + i] & 0xff) << shift);
+				}
+			}
+		}
+		if (word >= 0)
+			run.put(word, value);
+		run.flush();
+	}
+
+	/**
+	 * Collects consecutive words so that they reach the model a page at a
+	 * time. Words already handed over can be read back, which lets a record
+	 * complete a word started by an earlier one.
+	 */
+	private static class WordRun {
+		private HexModel dst;
+		private int[] values = new int[PAGE_WORDS];
+		private long start = 0;
+		private int len = 0;
+
+		WordRun(HexModel dst) {
+			this.dst = dst;
+		}
+
+		int get(long addr) {
+			if (addr >= start && addr < start + len)
+				return values[(int) (addr - start)];
+			return dst.get(addr);
+		}
+
+		void put(long addr, int value) {
+			if (addr >= start && addr < start + len) {
+				values[(int) (addr - start)] = value;
+			} else if (addr == start + len && len < values.length) {
+				values[len++] = value;
+			} else {
+				flush();
+				start = addr;
+				values[0] = value;
+				len = 1;
+			}
+		}
+
+		void flush() {
+			if (len > 0)
+				dst.set(start, Arrays.copyOf(values, len));
+			len = 0;
+		}
+	}
+
+	private static byte[] parseIntelHexRecord(String line) throws IOException {
+		if (line.charAt(0) != ':' || (line.length() & 1) == 0
+				|| line.length() < 11) {
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		}
+		byte[] rec = new byte[(line.length() - 1) / 2];
+		int sum = 0;
+		for (int i = 0; i < rec.length; i++) {
+			int hi = Character.digit(line.charAt(1 + 2 * i), 16);
+			int lo = Character.digit(line.charAt(2 + 2 * i), 16);
+			if (hi < 0 || lo < 0)
+				throw new IOException(Strings.get("hexNumberFormatError"));
+			rec[i] = (byte) ((hi << 4) | lo);
+			sum += rec[i];
+		}
+		if ((sum & 0xff) != 0 || (rec[0] & 0xff) + 5 != rec.length) {
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		}
+		return rec;
+	}
+
+	private static void openLogisim(HexModel dst, File src) throws IOException {
 		BufferedReader in;
 		try {
 			in = new BufferedReader(new FileReader(src));
@@ -269,10 +583,174 @@ public class HexFile {
 			out.write('\n');
 	}
 
+	public static final int FORMAT_LOGISIM = 0;
+	public static final int FORMAT_INTEL_HEX = 1;
+	public static final int FORMAT_BINARY_LE = 2;
+	public static final int FORMAT_BINARY_BE = 3;
+
 	private static final String RAW_IMAGE_HEADER = "v2.0 raw";
 
+	private static final char[] BASE64 = ("ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz0123456789+/").toCharArray();
+
+	private static final int BASE64_LINE = 76;
+
+	private static final int PAGE_WORDS = 4096;
+
+	private static final long MAP_WINDOW = 1L << 26;
+
 	private static final String COMMENT_MARKER = "#";
 
 	private HexFile() {
 	}
+
+	/**
+	 * Returns the number of words up to and including the last non-zero one.
+	 */
+	public static long getUsedLength(HexModel src) {
+		long first = src.getFirstOffset();
+		long last = src.getLastOffset();
+		while (last >= first && src.get(last) == 0)
+			last--;
+		return last - first + 1;
+	}
+
+	/**
+	 * Writes the contents in compressed form: the used words are packed
+	 * big-endian into as few bytes as the width allows, deflated and written
+	 * as base64 text in lines of 76 characters.
+	 */
+	public static void saveCompressed(Writer out, HexModel src)
+			throws IOException {
+		saveCompressed(out, src, getUsedLength(src));
+	}
+
+	/**
+	 * Writes the first count words of the contents in compressed form, for
+	 * callers that know the used length without scanning for it.
+	 */
+	public static void saveCompressed(Writer out, HexModel src, long count)
+			throws IOException {
+		int bytesPerWord = (src.getValueWidth() + 7) / 8;
+		long first = src.getFirstOffset();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DeflaterOutputStream zip = new DeflaterOutputStream(bytes,
+				new Deflater(Deflater.BEST_SPEED));
+		byte[] buf = new byte[PAGE_WORDS * bytesPerWord];
+		for (long offs = 0; offs < count; offs += PAGE_WORDS) {
+			int n = (int) Math.min(PAGE_WORDS, count - offs);
+			int pos = 0;
+			for (int i = 0; i < n; i++) {
+				int val = src.get(first + offs + i);
+				for (int b = bytesPerWord - 1; b >= 0; b--)
+					buf[pos++] = (byte) (val >>> (8 * b));
+			}
+			zip.write(buf, 0, pos);
+		}
+		zip.close();
+		writeBase64(out, bytes.toByteArray());
+	}
+
+	/**
+	 * Reads contents written by {@link #saveCompressed}. Words beyond the end
+	 * of the data are cleared.
+	 */
+	public static void openCompressed(HexModel dst, Reader in)
+			throws IOException {
+		int bytesPerWord = (dst.getValueWidth() + 7) / 8;
+		long first = dst.getFirstOffset();
+		long last = dst.getLastOffset();
+		Inflater inflater = new Inflater();
+		inflater.setInput(readBase64(in));
+		byte[] buf = new byte[PAGE_WORDS * bytesPerWord];
+		int[] values = new int[PAGE_WORDS];
+		long offs = first;
+		try {
+			while (!inflater.finished()) {
+				int len = 0;
+				while (len < buf.length && !inflater.finished()) {
+					int n = inflater.inflate(buf, len, buf.length - len);
+					if (n == 0 && (inflater.needsInput()
+							|| inflater.needsDictionary()))
+						throw new IOException(
+								Strings.get("hexNumberFormatError"));
+					len += n;
+				}
+				int words = len / bytesPerWord;
+				if (words * bytesPerWord != len || offs + words - 1 > last)
+					throw new IOException(Strings.get("hexFileSizeError"));
+				int pos = 0;
+				for (int i = 0; i < words; i++) {
+					int val = 0;
+					for (int b = 0; b < bytesPerWord; b++)
+						val = (val << 8) | (buf[pos++] & 0xff);
+					values[i] = val;
+				}
+				dst.set(offs, words == values.length ? values : Arrays
+						.copyOf(values, words));
+				offs += words;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(Strings.get("hexNumberFormatError"));
+		} finally {
+			inflater.end();
+		}
+		if (offs <= last)
+			dst.fill(offs, last - offs + 1, 0);
+	}
+
+	private static void writeBase64(Writer out, byte[] data) throws IOException {
+		char[] line = new char[BASE64_LINE];
+		int col = 0;
+		for (int i = 0; i < data.length; i += 3) {
+			int b0 = data[i] & 0xff;
+			int b1 = i + 1 < data.length ? data[i + 1] & 0xff : 0;
+			int b2 = i + 2 < data.length ? data[i + 2] & 0xff : 0;
+			line[col++] = BASE64[b0 >> 2];
+			line[col++] = BASE64[((b0 & 0x3) << 4) | (b1 >> 4)];
+			line[col++] = i + 1 < data.length ? BASE64[((b1 & 0xf) << 2)
+					| (b2 >> 6)] : '=';
+			line[col++] = i + 2 < data.length ? BASE64[b2 & 0x3f] : '=';
+			if (col == line.length) {
+				out.write(line, 0, col);
+				out.write('\n');
+				col = 0;
+			}
+		}
+		if (col > 0) {
+			out.write(line, 0, col);
+			out.write('\n');
+		}
+	}
+
+	private static byte[] readBase64(Reader in) throws IOException {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		int acc = 0;
+		int bits = 0;
+		for (int c = in.read(); c >= 0 && c != '='; c = in.read()) {
+			int val;
+			if (c >= 'A' && c <= 'Z')
+				val = c - 'A';
+			else if (c >= 'a' && c <= 'z')
+				val = c - 'a' + 26;
+			else if (c >= '0' && c <= '9')
+				val = c - '0' + 52;
+			else if (c == '+')
+				val = 62;
+			else if (c == '/')
+				val = 63;
+			else if (Character.isWhitespace(c))
+				continue;
+			else
+				throw new IOException(Strings.get("hexNumberFormatError"));
+			acc = (acc << 6) | val;
+			bits += 6;
+			if (bits >= 8) {
+				bits -= 8;
+				ret.write(acc >> bits);
+				acc &= (1 << bits) - 1;
+			}
+		}
+		return ret.toByteArray();
+	}
 }
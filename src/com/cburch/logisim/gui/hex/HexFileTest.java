@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.hex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.cburch.hex.HexModel;
+import com.cburch.hex.HexModelListener;
+
+public class HexFileTest {
+
+	private static class ArrayModel implements HexModel {
+		private int width;
+		private int[] data;
+
+		ArrayModel(int length, int width) {
+			this.width = width;
+			this.data = new int[length];
+		}
+
+		public void addHexModelListener(HexModelListener l) {
+		}
+
+		public void fill(long start, long length, int value) {
+			for (long i = 0; i < length; i++)
+				data[(int) (start + i)] = value;
+		}
+
+		public int get(long address) {
+			return data[(int) address];
+		}
+
+		public long getFirstOffset() {
+			return 0;
+		}
+
+		public long getLastOffset() {
+			return data.length - 1;
+		}
+
+		public int getValueWidth() {
+			return width;
+		}
+
+		public void removeHexModelListener(HexModelListener l) {
+		}
+
+		public void set(long address, int value) {
+			data[(int) address] = value;
+		}
+
+		public void set(long start, int[] values) {
+			System.arraycopy(values, 0, data, (int) start, values.length);
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File binary(int... bytes) throws IOException {
+		File ret = folder.newFile();
+		FileOutputStream out = new FileOutputStream(ret);
+		for (int b : bytes)
+			out.write(b);
+		out.close();
+		return ret;
+	}
+
+	// fills the memory with a pattern that a failed load must leave alone
+	private static void scribble(HexModel mem) {
+		for (long a = mem.getFirstOffset(); a <= mem.getLastOffset(); a++)
+			mem.set(a, (int) a + 1);
+	}
+
+	private static void assertScribbled(HexModel mem) {
+		for (long a = mem.getFirstOffset(); a <= mem.getLastOffset(); a++)
+			assertEquals((int) a + 1, mem.get(a));
+	}
+
+	private static String record(int addr, int type, int... data) {
+		StringBuilder ret = new StringBuilder(":");
+		int sum = data.length + (addr >> 8) + (addr & 0xff) + type;
+		ret.append(String.format("%02X%04X%02X", data.length, addr, type));
+		for (int b : data) {
+			ret.append(String.format("%02X", b));
+			sum += b;
+		}
+		ret.append(String.format("%02X", -sum & 0xff));
+		return ret.toString();
+	}
+
+	private static void load(HexModel dst, String... records)
+			throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (String r : records)
+			text.append(r).append('\n');
+		text.append(":00000001FF\n");
+		HexFile.openIntelHex(dst,
+				new BufferedReader(new StringReader(text.toString())));
+	}
+
+	@Test
+	public final void testByteAddressesOnWideMemory() throws IOException {
+		HexModel mem = new ArrayModel(256, 16);
+		load(mem, record(0x0000, 0x00, 0x12, 0x34, 0x56, 0x78),
+				record(0x0010, 0x00, 0x9a, 0xbc));
+		assertEquals(0x1234, mem.get(0));
+		assertEquals(0x5678, mem.get(1));
+		assertEquals(0, mem.get(2));
+		assertEquals(0x9abc, mem.get(8));
+	}
+
+	@Test
+	public final void testRecordsOffWordBoundary() throws IOException {
+		HexModel mem = new ArrayModel(256, 32);
+		// the first word is split across two records, out of order
+		load(mem, record(0x0002, 0x00, 0x33, 0x44, 0x55),
+				record(0x0000, 0x00, 0x11, 0x22),
+				record(0x0007, 0x00, 0x88));
+		assertEquals(0x11223344, mem.get(0));
+		assertEquals(0x55000088, mem.get(1));
+	}
+
+	@Test
+	public final void testExtendedLinearAddress() throws IOException {
+		HexModel mem = new ArrayModel(1 << 16, 16);
+		load(mem, record(0x0000, 0x04, 0x00, 0x01),
+				record(0x0004, 0x00, 0xca, 0xfe));
+		assertEquals(0xcafe, mem.get(0x8002));
+	}
+
+	@Test
+	public final void testPastEndIsRejected() {
+		HexModel mem = new ArrayModel(16, 16);
+		try {
+			load(mem, record(0x0020, 0x00, 0x01, 0x02));
+			fail("data past the last word was accepted");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public final void testBinary() throws IOException {
+		HexModel mem = new ArrayModel(8, 16);
+		scribble(mem);
+		File file = binary(0x34, 0x12, 0x78, 0x56, 0xbc, 0x9a);
+		HexFile.openBinary(mem, file, false);
+		assertEquals(0x1234, mem.get(0));
+		assertEquals(0x5678, mem.get(1));
+		assertEquals(0x9abc, mem.get(2));
+		// the rest of the memory is cleared
+		assertEquals(0, mem.get(3));
+		assertEquals(0, mem.get(7));
+
+		HexFile.openBinary(mem, file, true);
+		assertEquals(0x3412, mem.get(0));
+		assertEquals(0xbc9a, mem.get(2));
+
+		mem = new ArrayModel(4, 24);
+		HexFile.openBinary(mem, binary(0x01, 0x02, 0x03, 0x04, 0x05, 0x06),
+				true);
+		assertEquals(0x010203, mem.get(0));
+		assertEquals(0x040506, mem.get(1));
+	}
+
+	@Test
+	public final void testTruncatedBinaryIsRejected() throws IOException {
+		HexModel mem = new ArrayModel(8, 16);
+		scribble(mem);
+		try {
+			HexFile.openBinary(mem, binary(0x34, 0x12, 0x78), false);
+			fail("a file ending in the middle of a word was accepted");
+		} catch (IOException e) {
+		}
+		assertScribbled(mem);
+	}
+
+	@Test
+	public final void testOversizedBinaryIsRejected() throws IOException {
+		HexModel mem = new ArrayModel(2, 16);
+		scribble(mem);
+		try {
+			HexFile.openBinary(mem, binary(1, 2, 3, 4, 5, 6), false);
+			fail("a file larger than the memory was accepted");
+		} catch (IOException e) {
+		}
+		assertScribbled(mem);
+	}
+}
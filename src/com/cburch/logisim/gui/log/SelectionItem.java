@@ -100,7 +100,7 @@ public class SelectionItem implements AttributeListener, CircuitListener {
 				return;
 
 			if (action == CircuitEvent.ACTION_REMOVE
-					&& event.getData() != circComp) {
+					&& !event.getComponents().contains(circComp)) {
 				return;
 			}
 
@@ -320,8 +320,8 @@ public class Canvas extends JPanel implements LocaleListener,
 		public void circuitChanged(CircuitEvent event) {
 			int act = event.getAction();
 			if (act == CircuitEvent.ACTION_REMOVE) {
-				Component c = (Component) event.getData();
-				if (c == painter.getHaloedComponent()) {
+				if (event.getComponents().contains(
+						painter.getHaloedComponent())) {
 					proj.getFrame().viewComponentAttributes(null, null);
 				}
 			} else if (act == CircuitEvent.ACTION_CLEAR) {
@@ -162,7 +162,7 @@ class MenuFile extends Menu implements ActionListener {
 					f.dispose();
 			}
 		} else if (src == save) {
-			ProjectActions.doSave(proj);
+			ProjectActions.doSaveInBackground(proj);
 		} else if (src == saveAs) {
 			ProjectActions.doSaveAs(proj);
 		} else if (src == prefs) {
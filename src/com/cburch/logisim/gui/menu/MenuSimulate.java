@@ -32,13 +32,17 @@ package com.cburch.logisim.gui.menu;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JRadioButtonMenuItem;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -46,6 +50,7 @@ import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.SimulationHistory;
 import com.cburch.logisim.circuit.Simulator;
 import com.cburch.logisim.circuit.SimulatorEvent;
 import com.cburch.logisim.circuit.SimulatorListener;
@@ -53,6 +58,7 @@ import com.cburch.logisim.file.Options;
 import com.cburch.logisim.gui.log.LogFrame;
 import com.cburch.logisim.gui.test.TestFrame;
 import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.prefs.AppPreferences;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.std.wiring.Clock;
 import com.cburch.logisim.util.StringUtil;
@@ -93,7 +99,7 @@ public class MenuSimulate extends Menu {
 	}
 
 	private class MyListener implements ActionListener, SimulatorListener,
-			ChangeListener {
+			ChangeListener, PropertyChangeListener {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
@@ -178,6 +184,10 @@ public class MenuSimulate extends Menu {
 					}
 				}
 				sim.tickMain(ticks);
+			} else if (src == stepBack || src == jumpToTick) {
+				if (sim != null) {
+					doHistoryJump(proj, sim, src == stepBack);
+				}
 			} else if (src == ticksEnabled || src == LogisimMenuBar.TICK_ENABLE) {
 				if (sim != null) {
 					sim.setIsTicking(!sim.isTicking());
@@ -202,6 +212,13 @@ public class MenuSimulate extends Menu {
 		public void propagationCompleted(SimulatorEvent e) {
 		}
 
+		@Override
+		public void propertyChange(PropertyChangeEvent event) {
+			if (AppPreferences.SIM_HISTORY.isSource(event)) {
+				computeEnabled();
+			}
+		}
+
 		@Override
 		public void simulatorStateChanged(SimulatorEvent e) {
 			Simulator sim = e.getSource();
@@ -315,6 +332,8 @@ public class MenuSimulate extends Menu {
 	private MenuItemCheckImpl ticksEnabled;
 	private MenuItemImpl tickOnce;
 	private MenuItemImpl tickOnceMain;
+	private JMenuItem stepBack = new JMenuItem();
+	private JMenuItem jumpToTick = new JMenuItem();
 	private JMenu tickFreq = new JMenu();
 	private TickFrequencyChoice[] tickFreqs = new TickFrequencyChoice[SupportedTickFrequencies.length];
 	private JMenu downStateMenu = new JMenu();
@@ -377,6 +396,8 @@ public class MenuSimulate extends Menu {
 		addSeparator();
 		add(tickOnce);
 		add(tickOnceMain);
+		add(stepBack);
+		add(jumpToTick);
 		add(ticksEnabled);
 		add(tickFreq);
 		addSeparator();
@@ -395,6 +416,8 @@ public class MenuSimulate extends Menu {
 		downStateMenu.setEnabled(false);
 		tickOnce.setEnabled(false);
 		tickOnceMain.setEnabled(false);
+		stepBack.setEnabled(false);
+		jumpToTick.setEnabled(false);
 		ticksEnabled.setEnabled(false);
 		tickFreq.setEnabled(false);
 
@@ -410,16 +433,73 @@ public class MenuSimulate extends Menu {
 		menubar.addActionListener(LogisimMenuBar.TICK_STEP_MAIN, myListener);
 		// run.addActionListener(myListener);
 		reset.addActionListener(myListener);
+		stepBack.addActionListener(myListener);
+		jumpToTick.addActionListener(myListener);
 		// step.addActionListener(myListener);
 		// tickOnce.addActionListener(myListener);
 		// ticksEnabled.addActionListener(myListener);
 		log.addActionListener(myListener);
 		test.addActionListener(myListener);
 		assemblyWindow.addActionListener(myListener);
+		AppPreferences.SIM_HISTORY.addPropertyChangeListener(myListener);
 
 		computeEnabled();
 	}
 
+	private void doHistoryJump(final Project proj, Simulator sim,
+			boolean relative) {
+		CircuitState root = sim.getCircuitState();
+		if (root == null)
+			return;
+		SimulationHistory history = sim.getHistory();
+		sim.setIsTicking(false);
+		int current = root.getPropagator().getTickCount();
+		String cur = Integer.toString(current);
+		String oldest = Integer.toString(Math.max(history.getOldestTick(), 0));
+		String input = JOptionPane.showInputDialog(proj.getFrame(), StringUtil
+				.format(Strings.get(relative ? "simulateStepBackPrompt"
+						: "simulateJumpToTickPrompt"), cur, oldest),
+				relative ? "1" : cur);
+		if (input == null)
+			return;
+		final int target;
+		try {
+			int value = Integer.parseInt(input.trim());
+			target = relative ? current - value : value;
+		} catch (NumberFormatException e) {
+			return;
+		}
+		if (target < 0 || target > current) {
+			showHistoryUnavailable(proj, target);
+			return;
+		}
+		// re-running the ticks from the checkpoint may take a while
+		final SimulationHistory hist = history;
+		Thread restorer = new Thread(new Runnable() {
+			public void run() {
+				final CircuitState restored = hist.restore(target);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (restored == null) {
+							showHistoryUnavailable(proj, target);
+						} else {
+							proj.setCircuitState(restored);
+						}
+					}
+				});
+			}
+		}, "SimulationHistory restore");
+		restorer.setDaemon(true);
+		restorer.start();
+	}
+
+	private void showHistoryUnavailable(Project proj, int target) {
+		JOptionPane.showMessageDialog(proj.getFrame(), StringUtil.format(
+				Strings.get("simulateHistoryUnavailable"),
+				Integer.toString(target)),
+				Strings.get("simulateHistoryTitle"), JOptionPane.ERROR_MESSAGE);
+	}
+
 	private void clearItems(ArrayList<CircuitStateMenuItem> items) {
 		for (CircuitStateMenuItem item : items) {
 			item.unregister();
@@ -442,6 +522,9 @@ public class MenuSimulate extends Menu {
 		downStateMenu.setEnabled(present);
 		tickOnce.setEnabled(present);
 		tickOnceMain.setEnabled(present);
+		boolean history = present && AppPreferences.SIM_HISTORY.getBoolean();
+		stepBack.setEnabled(history);
+		jumpToTick.setEnabled(history);
 		ticksEnabled.setEnabled(present && simRunning);
 		tickFreq.setEnabled(present);
 		menubar.fireEnableChanged();
@@ -456,6 +539,8 @@ public class MenuSimulate extends Menu {
 		vhdl_sim_files.setText(Strings.get("simulateGenVhdlFilesItem"));
 		tickOnce.setText(Strings.get("simulateTickOnceItem"));
 		tickOnceMain.setText(Strings.get("simulateTickOnceMainItem"));
+		stepBack.setText(Strings.get("simulateStepBackItem"));
+		jumpToTick.setText(Strings.get("simulateJumpToTickItem"));
 		ticksEnabled.setText(Strings.get("simulateTickItem"));
 		tickFreq.setText(Strings.get("simulateTickFreqMenu"));
 		for (int i = 0; i < tickFreqs.length; i++) {
@@ -65,6 +65,18 @@ class SimulateOptions extends OptionsPanel {
 				getProject().doAction(
 						OptionsActions.setAttribute(attrs,
 								Options.sim_rand_attr, val));
+			} else if (source == simCycles) {
+				AttributeSet attrs = getOptions().getAttributeSet();
+				getProject().doAction(
+						OptionsActions.setAttribute(attrs,
+								Options.sim_cycles_attr,
+								Boolean.valueOf(simCycles.isSelected())));
+			} else if (source == simLevelized) {
+				AttributeSet attrs = getOptions().getAttributeSet();
+				getProject().doAction(
+						OptionsActions.setAttribute(attrs,
+								Options.sim_levelized_attr,
+								Boolean.valueOf(simLevelized.isSelected())));
 			} else if (source == gateUndefined) {
 				ComboOption opt = (ComboOption) gateUndefined.getSelectedItem();
 				if (opt != null) {
@@ -96,6 +108,10 @@ class SimulateOptions extends OptionsPanel {
 				loadSimLimit((Integer) val);
 			} else if (attr == Options.sim_rand_attr) {
 				loadSimRandomness((Integer) val);
+			} else if (attr == Options.sim_cycles_attr) {
+				loadSimCycles((Boolean) val);
+			} else if (attr == Options.sim_levelized_attr) {
+				loadSimLevelized((Boolean) val);
 			}
 		}
 
@@ -103,6 +119,14 @@ class SimulateOptions extends OptionsPanel {
 			ComboOption.setSelected(gateUndefined, val);
 		}
 
+		private void loadSimCycles(Boolean val) {
+			simCycles.setSelected(val.booleanValue());
+		}
+
+		private void loadSimLevelized(Boolean val) {
+			simLevelized.setSelected(val.booleanValue());
+		}
+
 		@SuppressWarnings("rawtypes")
 		private void loadSimLimit(Integer val) {
 			int value = val.intValue();
@@ -136,6 +160,8 @@ class SimulateOptions extends OptionsPanel {
 			Integer.valueOf(10000), Integer.valueOf(20000),
 			Integer.valueOf(50000), });
 	private JCheckBox simRandomness = new JCheckBox();
+	private JCheckBox simCycles = new JCheckBox();
+	private JCheckBox simLevelized = new JCheckBox();
 	private JLabel gateUndefinedLabel = new JLabel();
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	private JComboBox gateUndefined = new JComboBox(new Object[] {
@@ -161,6 +187,8 @@ class SimulateOptions extends OptionsPanel {
 		gateUndefined.addActionListener(myListener);
 
 		simRandomness.addActionListener(myListener);
+		simCycles.addActionListener(myListener);
+		simLevelized.addActionListener(myListener);
 
 		JPanel tickMainPanel = new JPanel();
 		tickMainPanel.add(tickMainLabel);
@@ -171,6 +199,8 @@ class SimulateOptions extends OptionsPanel {
 		add(simLimitPanel);
 		add(gateUndefinedPanel);
 		add(simRandomness);
+		add(simCycles);
+		add(simLevelized);
 		add(tickMainPanel);
 
 		window.getOptions().getAttributeSet().addAttributeListener(myListener);
@@ -179,6 +209,9 @@ class SimulateOptions extends OptionsPanel {
 		myListener.loadGateUndefined(attrs
 				.getValue(Options.ATTR_GATE_UNDEFINED));
 		myListener.loadSimRandomness(attrs.getValue(Options.sim_rand_attr));
+		myListener.loadSimCycles(attrs.getValue(Options.sim_cycles_attr));
+		myListener.loadSimLevelized(attrs
+				.getValue(Options.sim_levelized_attr));
 		myListener.loadTickMain(attrs.getValue(Options.ATTR_TICK_MAIN));
 	}
 
@@ -197,6 +230,8 @@ class SimulateOptions extends OptionsPanel {
 		simLimitLabel.setText(Strings.get("simulateLimit"));
 		gateUndefinedLabel.setText(Strings.get("gateUndefined"));
 		simRandomness.setText(Strings.get("simulateRandomness"));
+		simCycles.setText(Strings.get("simulateCycles"));
+		simLevelized.setText(Strings.get("simulateLevelized"));
 		tickMainLabel.setText(Strings.get("mainTick"));
 	}
 }
@@ -44,6 +44,7 @@ class ExperimentalOptions extends OptionsPanel {
 	private static final long serialVersionUID = 1L;
 	private JLabel accelRestart = new JLabel();
 	private PrefOptionList accel;
+	private PrefBoolean simHistory;
 
 	public ExperimentalOptions(PreferencesFrame window) {
 		super(window);
@@ -67,9 +68,15 @@ class ExperimentalOptions extends OptionsPanel {
 		JPanel accelPanel2 = new JPanel();
 		accelPanel2.add(accelPanel);
 
+		simHistory = new PrefBoolean(AppPreferences.SIM_HISTORY,
+				Strings.getter("simHistoryLabel"));
+		JPanel simPanel = new JPanel();
+		simPanel.add(simHistory);
+
 		setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
 		add(Box.createGlue());
 		add(accelPanel2);
+		add(simPanel);
 		add(Box.createGlue());
 	}
 
@@ -87,5 +94,6 @@ class ExperimentalOptions extends OptionsPanel {
 	public void localeChanged() {
 		accel.localeChanged();
 		accelRestart.setText(Strings.get("accelRestartLabel"));
+		simHistory.localeChanged();
 	}
 }
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the simulation server: objects become
+ * <code>Map&lt;String, Object&gt;</code>, arrays become <code>List</code>,
+ * numbers become <code>Long</code> or <code>Double</code>.
+ */
+class Json {
+	private static class Parser {
+		// deeper nesting is refused rather than overflowing the stack
+		private static final int MAX_DEPTH = 64;
+		private static final String HEX_DIGITS = "0123456789abcdef";
+
+		private String text;
+		private int pos = 0;
+		private int depth = 0;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		private IllegalArgumentException error(String expected) {
+			return new IllegalArgumentException(expected + " expected at "
+					+ pos);
+		}
+
+		private void expect(String word) {
+			if (!text.startsWith(word, pos))
+				throw error("\"" + word + "\"");
+			pos += word.length();
+		}
+
+		private void enter() {
+			if (++depth > MAX_DEPTH)
+				throw error("shallower nesting");
+		}
+
+		private List<Object> parseArray() {
+			List<Object> ret = new ArrayList<Object>();
+			enter();
+			pos++;
+			skipSpace();
+			if (peek() == ']') {
+				pos++;
+				depth--;
+				return ret;
+			}
+			while (true) {
+				ret.add(parseValue());
+				skipSpace();
+				char c = peek();
+				pos++;
+				if (c == ']') {
+					depth--;
+					return ret;
+				}
+				if (c != ',')
+					throw error("',' or ']'");
+			}
+		}
+
+		private Object parseNumber() {
+			int start = pos;
+			boolean real = false;
+			while (pos < text.length()) {
+				char c = text.charAt(pos);
+				if (c == '.' || c == 'e' || c == 'E') {
+					real = true;
+				} else if (!(c >= '0' && c <= '9' || c == '-' || c == '+')) {
+					break;
+				}
+				pos++;
+			}
+			String num = text.substring(start, pos);
+			try {
+				if (real)
+					return Double.valueOf(num);
+				return Long.valueOf(num);
+			} catch (NumberFormatException e) {
+				pos = start;
+				throw error("number");
+			}
+		}
+
+		private Map<String, Object> parseObject() {
+			Map<String, Object> ret = new LinkedHashMap<String, Object>();
+			enter();
+			pos++;
+			skipSpace();
+			if (peek() == '}') {
+				pos++;
+				depth--;
+				return ret;
+			}
+			while (true) {
+				skipSpace();
+				if (peek() != '"')
+					throw error("string");
+				String key = parseString();
+				skipSpace();
+				expect(":");
+				ret.put(key, parseValue());
+				skipSpace();
+				char c = peek();
+				pos++;
+				if (c == '}') {
+					depth--;
+					return ret;
+				}
+				if (c != ',')
+					throw error("',' or '}'");
+			}
+		}
+
+		private String parseString() {
+			StringBuilder ret = new StringBuilder();
+			pos++;
+			while (true) {
+				if (pos >= text.length())
+					throw error("'\"'");
+				char c = text.charAt(pos++);
+				if (c == '"')
+					return ret.toString();
+				if (c != '\\') {
+					ret.append(c);
+					continue;
+				}
+				if (pos >= text.length())
+					throw error("escape");
+				c = text.charAt(pos++);
+				switch (c) {
+				case '"':
+				case '\\':
+				case '/':
+					ret.append(c);
+					break;
+				case 'b':
+					ret.append('\b');
+					break;
+				case 'f':
+					ret.append('\f');
+					break;
+				case 'n':
+					ret.append('\n');
+					break;
+				case 'r':
+					ret.append('\r');
+					break;
+				case 't':
+					ret.append('\t');
+					break;
+				case 'u':
+					if (pos + 4 > text.length())
+						throw error("escape");
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = HEX_DIGITS.indexOf(Character
+								.toLowerCase(text.charAt(pos + i)));
+						if (digit < 0)
+							throw error("escape");
+						code = code * 16 + digit;
+					}
+					ret.append((char) code);
+					pos += 4;
+					break;
+				default:
+					pos--;
+					throw error("escape");
+				}
+			}
+		}
+
+		private Object parseValue() {
+			skipSpace();
+			char c = peek();
+			if (c == '{') {
+				return parseObject();
+			} else if (c == '[') {
+				return parseArray();
+			} else if (c == '"') {
+				return parseString();
+			} else if (c == 't') {
+				expect("true");
+				return Boolean.TRUE;
+			} else if (c == 'f') {
+				expect("false");
+				return Boolean.FALSE;
+			} else if (c == 'n') {
+				expect("null");
+				return null;
+			} else {
+				return parseNumber();
+			}
+		}
+
+		private char peek() {
+			if (pos >= text.length())
+				throw error("value");
+			return text.charAt(pos);
+		}
+
+		private void skipSpace() {
+			while (pos < text.length()
+					&& Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+	}
+
+	/**
+	 * Parses one complete JSON value, throwing IllegalArgumentException if
+	 * the text is malformed or has anything left after the value.
+	 */
+	static Object parse(String text) {
+		Parser parser = new Parser(text);
+		Object ret = parser.parseValue();
+		parser.skipSpace();
+		if (parser.pos != text.length())
+			throw parser.error("end of input");
+		return ret;
+	}
+
+	static void write(StringBuilder out, Object value) {
+		if (value == null) {
+			out.append("null");
+		} else if (value instanceof String) {
+			writeString(out, (String) value);
+		} else if (value instanceof Map) {
+			out.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				if (!first)
+					out.append(',');
+				first = false;
+				writeString(out, e.getKey().toString());
+				out.append(':');
+				write(out, e.getValue());
+			}
+			out.append('}');
+		} else if (value instanceof Collection) {
+			out.append('[');
+			boolean first = true;
+			for (Object o : (Collection<?>) value) {
+				if (!first)
+					out.append(',');
+				first = false;
+				write(out, o);
+			}
+			out.append(']');
+		} else if (value instanceof Number || value instanceof Boolean) {
+			out.append(value);
+		} else {
+			writeString(out, value.toString());
+		}
+	}
+
+	private static void writeString(StringBuilder out, String s) {
+		out.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.append('\\').append(c);
+			} else if (c == '\n') {
+				out.append("\\n");
+			} else if (c < 0x20) {
+				out.append(String.format("\\u%04x", Integer.valueOf(c)));
+			} else {
+				out.append(c);
+			}
+		}
+		out.append('"');
+	}
+
+	private Json() {
+	}
+}
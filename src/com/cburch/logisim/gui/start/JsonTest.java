@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class JsonTest {
+
+	private static String write(Object value) {
+		StringBuilder ret = new StringBuilder();
+		Json.write(ret, value);
+		return ret.toString();
+	}
+
+	@Test
+	public final void testStringEscapes() {
+		assertEquals("a\"b\\c/d\b\f\n\r\t",
+				Json.parse("\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\""));
+		assertEquals("é€", Json.parse("\"\\u00e9\\u20AC\""));
+		assertEquals("é", Json.parse("\"é\""));
+
+		String s = "q\"b\\s\n\u0001\u001fé";
+		assertEquals("\"q\\\"b\\\\s\\n\\u0001\\u001fé\"", write(s));
+		assertEquals(s, Json.parse(write(s)));
+	}
+
+	@Test
+	public final void testNumbers() {
+		assertEquals(Long.valueOf(0), Json.parse("0"));
+		assertEquals(Long.valueOf(-42), Json.parse("-42"));
+		assertEquals(Long.valueOf(Long.MAX_VALUE),
+				Json.parse("9223372036854775807"));
+		assertEquals(Double.valueOf(1.5), Json.parse("1.5"));
+		assertEquals(Double.valueOf(-2e3), Json.parse("-2E3"));
+		assertEquals(Double.valueOf(2.5e-1), Json.parse(" 2.5e-1 "));
+		assertEquals("[7,-1.25]", write(Arrays.asList(Long.valueOf(7),
+				Double.valueOf(-1.25))));
+	}
+
+	@Test
+	public final void testStructures() {
+		Object parsed = Json.parse(
+				"{\"cmd\" : \"get\", \"names\":[\"a\", null, true, false, {}],"
+						+ "\"n\":{\"x\":[]}}");
+		Map<String, Object> expected = new LinkedHashMap<String, Object>();
+		expected.put("cmd", "get");
+		expected.put("names", Arrays.asList("a", null, Boolean.TRUE,
+				Boolean.FALSE, new LinkedHashMap<String, Object>()));
+		Map<String, Object> inner = new LinkedHashMap<String, Object>();
+		inner.put("x", Arrays.asList());
+		expected.put("n", inner);
+		assertEquals(expected, parsed);
+		// members keep their order
+		assertEquals("{\"cmd\":\"get\",\"names\":[\"a\",null,true,false,{}],"
+				+ "\"n\":{\"x\":[]}}", write(parsed));
+		assertNull(Json.parse("null"));
+		assertEquals(1, ((List<?>) Json.parse("[[[[1]]]]")).size());
+	}
+
+	@Test
+	public final void testMalformed() {
+		StringBuilder deep = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			deep.append('[');
+		String[] inputs = { "", "   ", "{", "[", "[1,]", "[1 2]", "{\"a\" 1}",
+				"{\"a\":1,}", "{a:1}", "{\"a\":1]", "tru", "nul", "\"abc",
+				"\"a\\", "1 2", "{} x", "-", "1.2.3", "99999999999999999999",
+				"\"\\x\"", "\"\\u12\"", "\"\\u+123\"", "\"\\u12g4\"",
+				deep.toString() };
+		for (String input : inputs) {
+			try {
+				Json.parse(input);
+				fail("accepted " + input);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.util.StringUtil;
+
+/**
+ * Headless server that simulates circuits on request, so that scripts do not
+ * pay for a JVM and a file load on every interaction. Requests and replies
+ * are JSON objects, one per line (see ServerSession). The server either
+ * talks to a single client over stdin/stdout, or accepts any number of
+ * concurrent clients on a local TCP port, each with its own session.
+ *
+ * Files are loaded once and shared by every session; each session simulates
+ * them with its own CircuitState.
+ */
+public class ServerInterface {
+	private static class Connection extends Thread {
+		private ServerInterface server;
+		private Socket socket;
+
+		Connection(ServerInterface server, Socket socket) {
+			this.server = server;
+			this.socket = socket;
+		}
+
+		@Override
+		public void run() {
+			try {
+				socket.setTcpNoDelay(true);
+				serve(server, new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), "UTF-8")),
+						new BufferedWriter(new OutputStreamWriter(socket
+								.getOutputStream(), "UTF-8")));
+			} catch (IOException e) {
+				logger.warn("{}: {}", Strings.get("serverIoError"),
+						e.toString());
+			} finally {
+				try {
+					socket.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	public static void run(Startup args) {
+		ServerInterface server = new ServerInterface(args.getSubstitutions());
+		List<File> files = args.getFilesToOpen();
+		for (File file : files) {
+			try {
+				server.getProject(file);
+			} catch (LoadFailedException e) {
+				logger.error("{}", Strings.get("ttyLoadError", file.getName()));
+				System.exit(-1);
+			}
+		}
+		if (!files.isEmpty())
+			server.defaultFile = files.get(0);
+		StartupTimer.phaseDone("load");
+
+		int port = args.getServerPort();
+		try {
+			if (port < 0) {
+				// log messages and TTY output must not mix with replies
+				PrintStream stdout = System.out;
+				System.setOut(System.err);
+				serve(server, new BufferedReader(new InputStreamReader(
+						System.in, "UTF-8")), new BufferedWriter(
+						new OutputStreamWriter(stdout, "UTF-8")));
+				System.exit(0);
+			}
+			ServerSocket socket = new ServerSocket(port, 50,
+					InetAddress.getLoopbackAddress());
+			// printed rather than logged, so that scripts asking for port 0
+			// can always learn the port
+			System.out.println(StringUtil.format( // OK
+					Strings.get("serverListening"),
+					Integer.toString(socket.getLocalPort())));
+			while (true) {
+				new Connection(server, socket.accept()).start();
+			}
+		} catch (IOException e) {
+			logger.error("{}: {}", Strings.get("serverIoError"), e.toString());
+			System.exit(-1);
+		}
+	}
+
+	private static void serve(ServerInterface server, BufferedReader in,
+			Writer out) throws IOException {
+		ServerSession session = new ServerSession(server);
+		String line;
+		try {
+			while (!session.isClosed() && (line = in.readLine()) != null) {
+				if (line.trim().equals(""))
+					continue;
+				out.write(session.handle(line));
+				out.write('\n');
+				// pipelined requests are answered with a single flush
+				if (!in.ready())
+					out.flush();
+			}
+		} finally {
+			session.dispose();
+			// replies already written must reach the client whatever happens
+			out.flush();
+		}
+	}
+
+	final static Logger logger = LoggerFactory.getLogger(ServerInterface.class);
+
+	private Loader loader = new Loader(null);
+	private Map<File, File> substitutions;
+	private Map<File, Project> projects = new HashMap<File, Project>();
+	private File defaultFile = null;
+
+	ServerInterface(Map<File, File> substitutions) {
+		this.substitutions = substitutions;
+	}
+
+	File getDefaultFile() {
+		return defaultFile;
+	}
+
+	synchronized Project getProject(File file) throws LoadFailedException {
+		File key = file.getAbsoluteFile();
+		Project ret = projects.get(key);
+		if (ret == null) {
+			ret = new Project(loader.openLogisimFile(key, substitutions));
+			projects.put(key, ret);
+		}
+		return ret;
+	}
+}
@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.cburch.logisim.circuit.Analyze;
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.Propagator;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.file.LoadFailedException;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+import com.cburch.logisim.proj.Project;
+import com.cburch.logisim.std.memory.Ram;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.std.wiring.Probe;
+import com.cburch.logisim.util.StringUtil;
+
+/**
+ * One client of the simulation server. A session simulates at most one
+ * circuit at a time, and keeps its state between requests. Each request is
+ * a JSON object with a <code>cmd</code> and an optional <code>id</code>,
+ * which is echoed in the reply:
+ * <ul>
+ * <li><code>open</code> [<code>file</code>] [<code>circuit</code>]: start
+ * simulating a circuit, by default the main circuit of the first file given
+ * on the command line.</li>
+ * <li><code>set</code> <code>pins</code>: assign input pins by label.</li>
+ * <li><code>propagate</code>: propagate the assigned values.</li>
+ * <li><code>tick</code> [<code>count</code>] [<code>until</code>]: tick the
+ * clocks, propagating after each tick, optionally stopping once the output
+ * pin named by <code>until</code> is 1.</li>
+ * <li><code>get</code> [<code>names</code>]: read pins and labeled probes.</li>
+ * <li><code>load</code> <code>file</code> [<code>memory</code>]: load an
+ * image into the RAMs, or only into those with the given label.</li>
+ * <li><code>reset</code>: start over from a fresh state.</li>
+ * <li><code>close</code>: end the session.</li>
+ * </ul>
+ * Values are read back as binary strings, and may be given either as
+ * numbers or as strings in the format of test vector files.
+ */
+class ServerSession {
+	private static class RequestException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		RequestException(String message) {
+			super(message);
+		}
+	}
+
+	private static Object get(Map<String, Object> request, String key,
+			Class<?> type, boolean required) throws RequestException {
+		Object ret = request.get(key);
+		if (ret == null) {
+			if (required)
+				throw new RequestException(StringUtil.format(
+						Strings.get("serverMissingError"), key));
+			return null;
+		}
+		if (!type.isInstance(ret))
+			throw new RequestException(StringUtil.format(
+					Strings.get("serverTypeError"), key));
+		return ret;
+	}
+
+	private ServerInterface server;
+	private Circuit circuit = null;
+	private CircuitState state = null;
+	private Map<String, Instance> pins = new LinkedHashMap<String, Instance>();
+	private Map<String, Component> probes = new LinkedHashMap<String, Component>();
+	private boolean closed = false;
+
+	ServerSession(ServerInterface server) {
+		this.server = server;
+	}
+
+	private void doGet(Map<String, Object> request, Map<String, Object> reply)
+			throws RequestException {
+		checkOpen();
+		List<?> names = (List<?>) get(request, "names", List.class, false);
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		if (names == null) {
+			for (String name : pins.keySet())
+				values.put(name, getValue(name));
+			for (String name : probes.keySet())
+				values.put(name, getValue(name));
+		} else {
+			for (Object name : names) {
+				if (!(name instanceof String))
+					throw new RequestException(StringUtil.format(
+							Strings.get("serverTypeError"), "names"));
+				values.put((String) name, getValue((String) name));
+			}
+		}
+		reply.put("values", values);
+	}
+
+	private void doLoad(Map<String, Object> request, Map<String, Object> reply)
+			throws RequestException {
+		checkOpen();
+		File file = new File((String) get(request, "file", String.class, true));
+		String label = (String) get(request, "memory", String.class, false);
+		int loaded;
+		try {
+			loaded = loadRam(state, file, label);
+		} catch (IOException e) {
+			throw new RequestException(Strings.get("loadIoError") + ": "
+					+ e.getMessage());
+		}
+		if (loaded == 0)
+			throw new RequestException(Strings.get("serverNoRamError"));
+		reply.put("loaded", Integer.valueOf(loaded));
+	}
+
+	private void doOpen(Map<String, Object> request, Map<String, Object> reply)
+			throws RequestException {
+		String fileName = (String) get(request, "file", String.class, false);
+		File file = fileName == null ? server.getDefaultFile() : new File(
+				fileName);
+		if (file == null)
+			throw new RequestException(StringUtil.format(
+					Strings.get("serverMissingError"), "file"));
+		Project proj;
+		try {
+			proj = server.getProject(file);
+		} catch (LoadFailedException e) {
+			throw new RequestException(Strings.get("ttyLoadError",
+					file.getName()));
+		}
+		String name = (String) get(request, "circuit", String.class, false);
+		Circuit circ = name == null ? proj.getLogisimFile().getMainCircuit()
+				: proj.getLogisimFile().getCircuit(name);
+		if (circ == null)
+			throw new RequestException(StringUtil.format(
+					Strings.get("serverCircuitError"), name));
+
+		circuit = circ;
+		pins.clear();
+		probes.clear();
+		Map<String, Object> inputs = new LinkedHashMap<String, Object>();
+		Map<String, Object> outputs = new LinkedHashMap<String, Object>();
+		for (Map.Entry<Instance, String> entry : Analyze.getPinLabels(circ)
+				.entrySet()) {
+			Instance pin = entry.getKey();
+			pins.put(entry.getValue(), pin);
+			Integer width = Integer.valueOf(Pin.FACTORY.getWidth(pin)
+					.getWidth());
+			if (Pin.FACTORY.isInputPin(pin))
+				inputs.put(entry.getValue(), width);
+			else
+				outputs.put(entry.getValue(), width);
+		}
+		List<String> probeNames = new ArrayList<String>();
+		for (Component comp : circ.getNonWires()) {
+			if (comp.getFactory() instanceof Probe) {
+				String label = comp.getAttributeSet().getValue(StdAttr.LABEL);
+				if (label != null && !label.equals("")
+						&& !pins.containsKey(label)
+						&& !probes.containsKey(label)) {
+					probes.put(label, comp);
+					probeNames.add(label);
+				}
+			}
+		}
+		reset(proj);
+		reply.put("inputs", inputs);
+		reply.put("outputs", outputs);
+		reply.put("probes", probeNames);
+	}
+
+	private void doSet(Map<String, Object> request, Map<String, Object> reply)
+			throws RequestException {
+		checkOpen();
+		@SuppressWarnings("unchecked")
+		Map<String, Object> values = (Map<String, Object>) get(request,
+				"pins", Map.class, true);
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+			Instance pin = pins.get(entry.getKey());
+			if (pin == null || !Pin.FACTORY.isInputPin(pin))
+				throw new RequestException(StringUtil.format(
+						Strings.get("serverInputError"), entry.getKey()));
+			BitWidth width = Pin.FACTORY.getWidth(pin);
+			Object given = entry.getValue();
+			Value value;
+			if (given instanceof Long) {
+				// accept both unsigned and two's complement values
+				long v = ((Long) given).longValue();
+				int w = width.getWidth();
+				if (v < -(1L << (w - 1)) || v >= (1L << w))
+					throw new RequestException(StringUtil.format(
+							Strings.get("serverRangeError"), entry.getKey(),
+							Integer.toString(w)));
+				value = Value.createKnown(width, (int) v);
+			} else if (given instanceof String) {
+				try {
+					value = Value.fromLogString(width, (String) given);
+				} catch (Exception e) {
+					throw new RequestException(e.getMessage());
+				}
+			} else {
+				throw new RequestException(StringUtil.format(
+						Strings.get("serverTypeError"), entry.getKey()));
+			}
+			Pin.FACTORY.setValue(state.getInstanceState(pin), value);
+			state.markComponentAsDirty(Instance.getComponentFor(pin));
+		}
+	}
+
+	private void doTick(Map<String, Object> request, Map<String, Object> reply)
+			throws RequestException {
+		checkOpen();
+		Long count = (Long) get(request, "count", Long.class, false);
+		String until = (String) get(request, "until", String.class, false);
+		Instance haltPin = null;
+		if (until != null) {
+			haltPin = pins.get(until);
+			if (haltPin == null)
+				throw new RequestException(StringUtil.format(
+						Strings.get("serverNameError"), until));
+		}
+		long n = count == null ? 1 : count.longValue();
+		Propagator prop = state.getPropagator();
+		long ticks = 0;
+		while (ticks < n && !prop.isOscillating()) {
+			if (haltPin != null
+					&& Pin.FACTORY.getValue(state.getInstanceState(haltPin))
+							.equals(Value.TRUE))
+				break;
+			prop.tick();
+			prop.propagate();
+			ticks++;
+		}
+		reply.put("ticks", Long.valueOf(ticks));
+		reply.put("oscillating", Boolean.valueOf(prop.isOscillating()));
+	}
+
+	private void checkOpen() throws RequestException {
+		if (state == null)
+			throw new RequestException(Strings.get("serverNotOpenError"));
+	}
+
+	private String getValue(String name) throws RequestException {
+		Instance pin = pins.get(name);
+		if (pin != null)
+			return Pin.FACTORY.getValue(state.getInstanceState(pin))
+					.toBinaryString();
+		Component probe = probes.get(name);
+		if (probe != null)
+			return state.getValue(probe.getLocation()).toBinaryString();
+		throw new RequestException(StringUtil.format(
+				Strings.get("serverNameError"), name));
+	}
+
+	/**
+	 * Handles one request line and returns the reply line.
+	 */
+	String handle(String line) {
+		Map<String, Object> reply = new LinkedHashMap<String, Object>();
+		Object id = null;
+		try {
+			Object parsed;
+			try {
+				parsed = Json.parse(line);
+			} catch (IllegalArgumentException e) {
+				throw new RequestException(e.getMessage());
+			}
+			if (!(parsed instanceof Map))
+				throw new RequestException(Strings.get("serverRequestError"));
+			@SuppressWarnings("unchecked")
+			Map<String, Object> request = (Map<String, Object>) parsed;
+			id = request.get("id");
+			if (id != null)
+				reply.put("id", id);
+			reply.put("ok", Boolean.TRUE);
+			String cmd = (String) get(request, "cmd", String.class, true);
+			if (cmd.equals("open")) {
+				doOpen(request, reply);
+			} else if (cmd.equals("set")) {
+				doSet(request, reply);
+			} else if (cmd.equals("propagate")) {
+				checkOpen();
+				state.getPropagator().propagate();
+				reply.put("oscillating",
+						Boolean.valueOf(state.getPropagator().isOscillating()));
+			} else if (cmd.equals("tick")) {
+				doTick(request, reply);
+			} else if (cmd.equals("get")) {
+				doGet(request, reply);
+			} else if (cmd.equals("load")) {
+				doLoad(request, reply);
+			} else if (cmd.equals("reset")) {
+				checkOpen();
+				reset(state.getProject());
+			} else if (cmd.equals("close")) {
+				closed = true;
+			} else {
+				throw new RequestException(StringUtil.format(
+						Strings.get("serverCommandError"), cmd));
+			}
+		} catch (RequestException e) {
+			error(reply, id, e.getMessage());
+		} catch (RuntimeException e) {
+			// a bad request must not end the session, nor the whole process
+			// when serving stdio
+			ServerInterface.logger.warn("{}", e.toString());
+			error(reply, id, StringUtil.format(
+					Strings.get("serverInternalError"), e.toString()));
+		}
+		StringBuilder ret = new StringBuilder();
+		Json.write(ret, reply);
+		return ret.toString();
+	}
+
+	private static void error(Map<String, Object> reply, Object id,
+			String message) {
+		reply.clear();
+		if (id != null)
+			reply.put("id", id);
+		reply.put("ok", Boolean.FALSE);
+		reply.put("error", message);
+	}
+
+	/**
+	 * Releases the current state, so that it stops following the options of
+	 * its project.
+	 */
+	void dispose() {
+		if (state != null) {
+			Project proj = state.getProject();
+			synchronized (proj.getOptions()) {
+				state.getPropagator().dispose();
+			}
+			state = null;
+		}
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	private int loadRam(CircuitState circState, File file, String label)
+			throws IOException {
+		int loaded = 0;
+		for (Component comp : circState.getCircuit().getNonWires()) {
+			if (comp.getFactory() instanceof Ram
+					&& (label == null || label.equals(comp.getAttributeSet()
+							.getValue(StdAttr.LABEL)))) {
+				Ram ramFactory = (Ram) comp.getFactory();
+				ramFactory.loadImage(circState.getInstanceState(comp), file);
+				loaded++;
+			}
+		}
+		for (CircuitState sub : circState.getSubstates()) {
+			loaded += loadRam(sub, file, label);
+		}
+		return loaded;
+	}
+
+	private void reset(Project proj) {
+		dispose();
+		CircuitState fresh = new CircuitState(proj, circuit);
+		// sessions simulating the same file share its options, whose
+		// listener list is not thread-safe
+		synchronized (proj.getOptions()) {
+			fresh.getPropagator();
+		}
+		state = fresh;
+		// the initial propagation populates the substates
+		state.getPropagator().propagate();
+	}
+}
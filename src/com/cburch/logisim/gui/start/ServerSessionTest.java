@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.cburch.logisim.data.AbstractAttributeSet;
+import com.cburch.logisim.proj.Project;
+
+public class ServerSessionTest {
+
+	private static final String CIRCUIT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<project source=\"2.13.8\" version=\"1.0\">\n"
+			+ "<lib desc=\"#Wiring\" name=\"0\"/>\n"
+			+ "<main name=\"main\"/>\n"
+			+ "<circuit name=\"main\">\n"
+			+ "<comp lib=\"0\" loc=\"(100,100)\" name=\"Pin\">\n"
+			+ "<a name=\"label\" val=\"a\"/>\n"
+			+ "</comp>\n"
+			+ "<comp lib=\"0\" loc=\"(200,100)\" name=\"Pin\">\n"
+			+ "<a name=\"facing\" val=\"west\"/>\n"
+			+ "<a name=\"output\" val=\"true\"/>\n"
+			+ "<a name=\"label\" val=\"y\"/>\n"
+			+ "</comp>\n"
+			+ "<wire from=\"(100,100)\" to=\"(200,100)\"/>\n"
+			+ "</circuit>\n" + "</project>\n";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> handle(ServerSession session,
+			String request) {
+		return (Map<String, Object>) Json.parse(session.handle(request));
+	}
+
+	private static void assertError(Map<String, Object> reply) {
+		assertEquals(Boolean.FALSE, reply.get("ok"));
+		assertTrue(reply.get("error") instanceof String);
+	}
+
+	private String openRequest() throws Exception {
+		File file = new File(folder.getRoot(), "pass.circ");
+		if (!file.exists()) {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file),
+					"UTF-8");
+			out.write(CIRCUIT);
+			out.close();
+		}
+		StringBuilder open = new StringBuilder("{\"cmd\":\"open\",\"file\":");
+		Json.write(open, file.getPath());
+		open.append('}');
+		return open.toString();
+	}
+
+	/**
+	 * Bad requests are answered with an error, and leave the session usable.
+	 */
+	@Test
+	public final void testBadRequests() throws Exception {
+		ServerSession session = new ServerSession(new ServerInterface(
+				Collections.<File, File> emptyMap()));
+
+		assertError(handle(session, "{\"cmd\":"));
+		assertError(handle(session, "[1]"));
+		assertError(handle(session, "{\"cmd\":\"get\",\"names\":[null]}"));
+		assertError(handle(session, "{\"cmd\":\"nope\"}"));
+
+		assertEquals(Boolean.TRUE, handle(session, openRequest()).get("ok"));
+
+		Map<String, Object> reply = handle(session,
+				"{\"id\":7,\"cmd\":\"get\",\"names\":[\"y\",null]}");
+		assertError(reply);
+		assertEquals(Long.valueOf(7), reply.get("id"));
+		assertError(handle(session, "{\"cmd\":\"get\",\"names\":[1]}"));
+		assertError(handle(session, "{\"cmd\":\"set\",\"pins\":{\"a\":\"2\"}}"));
+
+		handle(session, "{\"cmd\":\"set\",\"pins\":{\"a\":1}}");
+		handle(session, "{\"cmd\":\"propagate\"}");
+		reply = handle(session, "{\"cmd\":\"get\",\"names\":[\"y\"]}");
+		assertEquals(Boolean.TRUE, reply.get("ok"));
+		assertEquals(Collections.singletonMap("y", "1"), reply.get("values"));
+	}
+
+	/**
+	 * Numbers that do not fit the pin are rejected rather than truncated.
+	 */
+	@Test
+	public final void testValuesOutOfRange() throws Exception {
+		ServerSession session = new ServerSession(new ServerInterface(
+				Collections.<File, File> emptyMap()));
+		handle(session, openRequest());
+		for (String bad : new String[] { "2", "-2", "4294967297",
+				"-4294967295" }) {
+			assertError(handle(session, "{\"cmd\":\"set\",\"pins\":{\"a\":"
+					+ bad + "}}"));
+		}
+
+		// -1 is the two's complement of 1
+		handle(session, "{\"cmd\":\"set\",\"pins\":{\"a\":-1}}");
+		handle(session, "{\"cmd\":\"propagate\"}");
+		Map<String, Object> reply = handle(session,
+				"{\"cmd\":\"get\",\"names\":[\"y\"]}");
+		assertEquals(Collections.singletonMap("y", "1"), reply.get("values"));
+	}
+
+	private static int countOptionListeners(Project proj) throws Exception {
+		// the listener list is private, and only its size is checked here
+		Field field = AbstractAttributeSet.class.getDeclaredField("listeners");
+		field.setAccessible(true);
+		List<?> listeners = (List<?>) field.get(proj.getOptions()
+				.getAttributeSet());
+		return listeners == null ? 0 : listeners.size();
+	}
+
+	/**
+	 * Resetting or closing a session unregisters its old state from the
+	 * options of the shared project.
+	 */
+	@Test
+	public final void testResetsDoNotLeakListeners() throws Exception {
+		ServerInterface server = new ServerInterface(
+				Collections.<File, File> emptyMap());
+		String open = openRequest();
+		ServerSession session = new ServerSession(server);
+		handle(session, open);
+		Project proj = server.getProject(new File(folder.getRoot(),
+				"pass.circ"));
+		int count = countOptionListeners(proj);
+		for (int i = 0; i < 20; i++) {
+			handle(session, "{\"cmd\":\"reset\"}");
+			handle(session, open);
+		}
+		assertEquals(count, countOptionListeners(proj));
+		session.dispose();
+		assertEquals(count - 1, countOptionListeners(proj));
+	}
+
+	/**
+	 * Sessions on the same file can open and reset their states concurrently.
+	 */
+	@Test
+	public final void testConcurrentResets() throws Exception {
+		final ServerInterface server = new ServerInterface(
+				Collections.<File, File> emptyMap());
+		final String open = openRequest();
+		final List<Object> failures = Collections
+				.synchronizedList(new ArrayList<Object>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					ServerSession session = new ServerSession(server);
+					for (int j = 0; j < 200; j++) {
+						Map<String, Object> reply = handle(session, j % 2 == 0
+								? open : "{\"cmd\":\"reset\"}");
+						if (!Boolean.TRUE.equals(reply.get("ok")))
+							failures.add(reply);
+					}
+					session.dispose();
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(Collections.emptyList(), failures);
+	}
+}
@@ -87,7 +87,8 @@ public class Startup {
 		boolean isTty = false;
 		boolean isClearPreferences = false;
 		for (int i = 0; i < args.length; i++) {
-			if (args[i].equals("-tty")) {
+			if (args[i].equals("-tty") || args[i].equals("-test")
+					|| args[i].equals("-server")) {
 				isTty = true;
 			} else if (args[i].equals("-clearprefs")
 					|| args[i].equals("-clearprops")) {
@@ -95,7 +96,12 @@ public class Startup {
 			}
 		}
 
-		if (!isTty) {
+		if (isTty) {
+			// no window will be shown, so make sure AWT never needs a display
+			if (System.getProperty("java.awt.headless") == null) {
+				System.setProperty("java.awt.headless", "true");
+			}
+		} else {
 			// we're using the GUI: Set up the Look&Feel to match the platform
 			System.setProperty(
 					"com.apple.mrj.application.apple.menu.about.name",
@@ -148,6 +154,27 @@ public class Startup {
 					logger.error("{}", Strings.get("ttyFormatError"));
 					return null;
 				}
+			} else if (arg.equals("-server")) {
+				if (i + 1 < args.length) {
+					i++;
+					ret.isServer = true;
+					if (args[i].equals("stdio")) {
+						ret.serverPort = -1;
+					} else {
+						try {
+							ret.serverPort = Integer.parseInt(args[i]);
+						} catch (NumberFormatException e) {
+							ret.serverPort = -2;
+						}
+						if (ret.serverPort < 0 || ret.serverPort > 65535) {
+							logger.error("{}", Strings.get("serverPortError"));
+							return null;
+						}
+					}
+				} else {
+					logger.error("{}", Strings.get("serverPortError"));
+					return null;
+				}
 			} else if (arg.equals("-sub")) {
 				if (i + 2 < args.length) {
 					File a = new File(args[i + 1]);
@@ -243,6 +270,8 @@ public class Startup {
 					logger.error("{}", StringUtil.format(
 							Strings.get("templateCannotReadError"), args[i]));
 				}
+			} else if (arg.equals("-timing")) {
+				StartupTimer.enable();
 			} else if (arg.equals("-nosplash")) {
 				ret.showSplash = false;
 			} else if (arg.equals("-test")) {
@@ -254,8 +283,6 @@ public class Startup {
 				if (i >= args.length)
 					printUsage();
 				ret.testVector = args[i];
-				ret.showSplash = false;
-				ret.exitAfterStartup = true;
 			} else if (arg.equals("-clearprefs")) {
 				// already handled above
 			} else if (arg.equals("-analyze")) {
@@ -284,18 +311,19 @@ public class Startup {
 			}
 		}
 
-		if (ret.exitAfterStartup && ret.filesToOpen.isEmpty()) {
+		if (ret.testVector != null && ret.filesToOpen.isEmpty()) {
 			printUsage();
 		}
-		if (ret.isTty && ret.filesToOpen.isEmpty()) {
+		if (ret.isTty && !ret.isServer && ret.filesToOpen.isEmpty()) {
 			logger.error("{}", Strings.get("ttyNeedsFileError"));
 			return null;
 		}
-		if (ret.loadFile != null && !ret.isTty) {
+		if (ret.loadFile != null && (!ret.isTty || ret.isServer)) {
 			logger.error("{}", Strings.get("loadNeedsTtyError"));
 			return null;
 		}
 
+		StartupTimer.phaseDone("arguments");
 		return ret;
 	}
 
@@ -314,8 +342,10 @@ public class Startup {
 		System.err.println("   " + Strings.get("argLocaleOption")); // OK
 		System.err.println("   " + Strings.get("argNoSplashOption")); // OK
 		System.err.println("   " + Strings.get("argPlainOption")); // OK
+		System.err.println("   " + Strings.get("argServerOption")); // OK
 		System.err.println("   " + Strings.get("argSubOption")); // OK
 		System.err.println("   " + Strings.get("argTemplateOption")); // OK
+		System.err.println("   " + Strings.get("argTimingOption")); // OK
 		System.err.println("   " + Strings.get("argTtyOption")); // OK
 		System.err.println("   " + Strings.get("argQuestaOption")); // OK
 		System.err.println("   " + Strings.get("argVersionOption")); // OK
@@ -373,11 +403,12 @@ public class Startup {
 	private ArrayList<File> filesToOpen = new ArrayList<File>();
 	private String testVector = null;
 	private String circuitToTest = null;
-	private boolean exitAfterStartup = false;
 	private boolean showSplash;
 	private File loadFile;
 	private HashMap<File, File> substitutions = new HashMap<File, File>();
 	private int ttyFormat = 0;
+	private boolean isServer = false;
+	private int serverPort = -1;
 	// from other sources
 	private boolean initialized = false;
 	private SplashScreen monitor = null;
@@ -400,9 +431,9 @@ public class Startup {
 	 *         has to be stopped, false otherwise
 	 */
 	public boolean autoUpdate() {
-		if (!Main.UPDATE || !networkConnectionAvailable()) {
-			// Auto-update disabled from command line, or network connection not
-			// available
+		if (!Main.UPDATE || isTty || !networkConnectionAvailable()) {
+			// Auto-update disabled from command line, running without
+			// graphical interface, or network connection not available
 			return (false);
 		}
 
@@ -630,14 +661,26 @@ public class Startup {
 		return filesToOpen;
 	}
 
+	String getCircuitToTest() {
+		return circuitToTest;
+	}
+
 	File getLoadFile() {
 		return loadFile;
 	}
 
+	int getServerPort() {
+		return serverPort;
+	}
+
 	Map<File, File> getSubstitutions() {
 		return Collections.unmodifiableMap(substitutions);
 	}
 
+	String getTestVector() {
+		return testVector;
+	}
+
 	int getTtyFormat() {
 		return ttyFormat;
 	}
@@ -684,6 +727,16 @@ public class Startup {
 	}
 
 	public void run() {
+		if (isServer) {
+			try {
+				ServerInterface.run(this);
+				return;
+			} catch (Exception t) {
+				t.printStackTrace();
+				System.exit(-1);
+				return;
+			}
+		}
 		if (isTty) {
 			try {
 				TtyInterface.run(this);
@@ -707,25 +760,18 @@ public class Startup {
 				showSplash = false;
 			}
 		}
+		StartupTimer.phaseDone("splash");
 
-		// pre-load the two basic component libraries, just so that the time
-		// taken is shown separately in the progress bar.
+		// The libraries create their tools and factories when they are first
+		// used, which is when the first project is loaded or shown.
 		if (showSplash) {
 			monitor.setProgress(SplashScreen.LIBRARIES);
 		}
 		Loader templLoader = new Loader(monitor);
-		int count = templLoader.getBuiltin().getLibrary("Base").getTools()
-				.size()
-				+ templLoader.getBuiltin().getLibrary("Gates").getTools()
-						.size();
-		if (count < 0) {
-			// this will never happen, but the optimizer doesn't know that...
-			logger.error("FATAL ERROR - no components"); // OK
-			System.exit(-1);
-		}
 
 		// load in template
 		loadTemplate(templLoader, templFile, templEmpty);
+		StartupTimer.phaseDone("template");
 
 		// now that the splash screen is almost gone, we do some last-minute
 		// interface initialization
@@ -736,12 +782,8 @@ public class Startup {
 		if (MacCompatibility.isSwingUsingScreenMenuBar()) {
 			MacCompatibility
 					.setFramelessJMenuBar(new LogisimMenuBar(null, null));
-		} else {
-			new LogisimMenuBar(null, null);
-			// most of the time occupied here will be in loading menus, which
-			// will occur eventually anyway; we might as well do it when the
-			// monitor says we are
 		}
+		StartupTimer.phaseDone("interface");
 
 		// if user has double-clicked a file to open, we'll
 		// use that as the file to open now.
@@ -759,14 +801,7 @@ public class Startup {
 			boolean first = true;
 			for (File fileToOpen : filesToOpen) {
 				try {
-					if (testVector != null) {
-						Project proj = ProjectActions.doOpenNoWindow(monitor,
-								fileToOpen);
-						proj.doTestVector(testVector, circuitToTest);
-					} else {
-						ProjectActions.doOpen(monitor, fileToOpen,
-								substitutions);
-					}
+					ProjectActions.doOpen(monitor, fileToOpen, substitutions);
 					numOpened++;
 				} catch (LoadFailedException ex) {
 					logger.error("{} : {}", fileToOpen.getName(),
@@ -784,12 +819,10 @@ public class Startup {
 				System.exit(-1);
 		}
 
+		StartupTimer.phaseDone("projects");
+
 		for (File fileToPrint : filesToPrint) {
 			doPrintFile(fileToPrint);
 		}
-
-		if (exitAfterStartup) {
-			System.exit(0);
-		}
 	}
 }
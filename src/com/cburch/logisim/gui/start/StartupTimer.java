@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.gui.start;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the phases of the startup. When enabled with the -timing option,
+ * the time taken by each phase is printed on the error stream, so that it
+ * does not mix with the output of -tty.
+ */
+class StartupTimer {
+	private static boolean enabled = false;
+	private static long phaseStart;
+
+	static void enable() {
+		if (!enabled) {
+			enabled = true;
+			// the first phase runs from the start of the JVM, which includes
+			// loading the classes and configuring the logger
+			long sinceStart = System.currentTimeMillis()
+					- ManagementFactory.getRuntimeMXBean().getStartTime();
+			phaseStart = System.nanoTime() - sinceStart * 1000000L;
+		}
+	}
+
+	static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Prints the time elapsed since the end of the previous phase.
+	 */
+	static void phaseDone(String phase) {
+		if (!enabled)
+			return;
+		long now = System.nanoTime();
+		System.err.println(String.format("%-16s %7.1f ms", phase, // OK
+				(now - phaseStart) / 1e6));
+		phaseStart = System.nanoTime();
+	}
+
+	private StartupTimer() {
+	}
+}
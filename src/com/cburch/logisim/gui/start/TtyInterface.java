@@ -36,6 +36,7 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -113,6 +114,23 @@ public class TtyInterface {
 		return digits;
 	}
 
+	private static void displayOscillation(Propagator prop) {
+		for (Map.Entry<CircuitState, Set<Component>> e : prop
+				.getOscillatingComponents().entrySet()) {
+			String path = e.getKey().getCircuit().getName();
+			for (CircuitState s = e.getKey().getParentState(); s != null; s = s
+					.getParentState()) {
+				path = s.getCircuit().getName() + "/" + path;
+			}
+			for (Component comp : e.getValue()) {
+				logger.error("{}", StringUtil.format(
+						Strings.get("ttyOscillationComponent"), path, comp
+								.getFactory().getDisplayName(), comp
+								.getLocation().toString()));
+			}
+		}
+	}
+
 	private static void displaySpeed(long tickCount, long elapse) {
 		double hertz = (double) tickCount / elapse * 1000.0;
 		double precision;
@@ -255,12 +273,18 @@ public class TtyInterface {
 			System.exit(-1);
 			return;
 		}
+		StartupTimer.phaseDone("load");
 
 		int format = args.getTtyFormat();
 		if ((format & FORMAT_STATISTICS) != 0) {
 			format &= ~FORMAT_STATISTICS;
 			displayStatistics(file);
 		}
+		if (args.getTestVector() != null) {
+			Project proj = new Project(file);
+			System.exit(proj.doTestVector(args.getTestVector(),
+					args.getCircuitToTest()));
+		}
 		if (format == 0) { // no simulation remaining to perform, so just exit
 			System.exit(0);
 		}
@@ -297,8 +321,10 @@ public class TtyInterface {
 				System.exit(-1);
 			}
 		}
+		StartupTimer.phaseDone("initialize");
 		int ttyFormat = args.getTtyFormat();
 		int simCode = runSimulation(circState, outputPins, haltPin, ttyFormat);
+		StartupTimer.phaseDone("simulate");
 		System.exit(simCode);
 	}
 
@@ -376,6 +402,7 @@ public class TtyInterface {
 				logger.error("{}", Strings.get("ttyHaltReasonPin"));
 			} else if (retCode == 1) {
 				logger.error("{}", Strings.get("ttyHaltReasonOscillation"));
+				displayOscillation(prop);
 			}
 		}
 		if (showSpeed) {
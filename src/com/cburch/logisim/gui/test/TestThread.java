@@ -35,6 +35,7 @@
 
 package com.cburch.logisim.gui.test;
 
+import com.cburch.logisim.circuit.BitSliceSimulator;
 import com.cburch.logisim.circuit.Circuit;
 import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
@@ -43,6 +44,7 @@ import com.cburch.logisim.comp.Component;
 import com.cburch.logisim.data.FailException;
 import com.cburch.logisim.data.TestException;
 import com.cburch.logisim.data.TestVector;
+import com.cburch.logisim.data.Value;
 import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.instance.StdAttr;
@@ -52,7 +54,9 @@ import com.cburch.logisim.util.StringUtil;
 
 public class TestThread extends Thread implements CircuitListener {
 
-	// used only for automated testing via command line arguments
+	// used only for automated testing via command line arguments; returns the
+	// process exit status: 0 if every vector passed, 1 if some failed and -1
+	// if the test could not be run at all
 	public static int doTestVector(Project proj, Circuit circuit,
 			String vectorname) {
 		System.out.println(StringUtil.format(Strings.get("testLoadingVector"),
@@ -103,7 +107,7 @@ public class TestThread extends Thread implements CircuitListener {
 		System.out.println();
 		System.out.println(StringUtil.format(Strings.get("testResults"),
 				Integer.toString(numPass), Integer.toString(numFail)));
-		return 0;
+		return numFail == 0 ? 0 : 1;
 	}
 	private Instance[] pin;
 	private Project project;
@@ -114,6 +118,12 @@ public class TestThread extends Thread implements CircuitListener {
 
 	private boolean canceled = false, paused = false;
 
+	// the vectors are simulated 64 at a time where the circuit allows it;
+	// cleared from the event thread when the circuit changes
+	private volatile BitSliceSimulator batch;
+	private int batchStart = -1;
+	private long batchUndefined;
+
 	public TestThread(Model model) throws TestException {
 		this.model = model;
 
@@ -122,6 +132,7 @@ public class TestThread extends Thread implements CircuitListener {
 		this.vector = model.getVector();
 
 		matchPins();
+		batch = BitSliceSimulator.create(project, circuit);
 
 		model.getCircuit().addCircuitListener(this);
 	}
@@ -134,6 +145,7 @@ public class TestThread extends Thread implements CircuitListener {
 		this.vector = vec;
 
 		matchPins();
+		batch = BitSliceSimulator.create(project, circuit);
 	}
 
 	public void cancel() {
@@ -144,8 +156,10 @@ public class TestThread extends Thread implements CircuitListener {
 		int action = event.getAction();
 		if (action == CircuitEvent.ACTION_SET_NAME)
 			return;
-		else
+		else {
+			batch = null; // compiled from the old circuit
 			model.clearResults();
+		}
 	}
 
 	void matchPins() throws TestException {
@@ -206,8 +220,51 @@ public class TestThread extends Thread implements CircuitListener {
 		this.paused = paused;
 	}
 
+	private void simulateBatch(BitSliceSimulator sim, int start) {
+		int count = Math.min(BitSliceSimulator.VECTORS, vector.data.size()
+				- start);
+		for (int i = 0; i < pin.length; i++) {
+			if (!Pin.FACTORY.isInputPin(pin[i]))
+				continue;
+			long[] slices = new long[vector.columnWidth[i].getWidth()];
+			long undefined = 0;
+			for (int k = 0; k < count; k++) {
+				Value val = vector.data.get(start + k)[i];
+				if (!val.isFullyDefined()) {
+					undefined |= 1L << k;
+					continue;
+				}
+				int bits = val.toIntValue();
+				for (int b = 0; b < slices.length; b++) {
+					if (((bits >> b) & 1) != 0)
+						slices[b] |= 1L << k;
+				}
+			}
+			sim.setInput(pin[i], slices, undefined);
+		}
+		batchUndefined = sim.simulate();
+		batchStart = start;
+	}
+
 	private void test(int idx) throws TestException {
-		circuit.doTestVector(project, pin, vector.data.get(idx));
+		Value[] val = vector.data.get(idx);
+		BitSliceSimulator sim = batch;
+		if (sim != null) {
+			int start = idx - idx % BitSliceSimulator.VECTORS;
+			if (start != batchStart)
+				simulateBatch(sim, start);
+			int k = idx - start;
+			if (((batchUndefined >>> k) & 1) == 0) {
+				Value[] found = new Value[pin.length];
+				for (int i = 0; i < pin.length; i++) {
+					if (!Pin.FACTORY.isInputPin(pin[i]))
+						found[i] = sim.getOutput(pin[i], k);
+				}
+				Circuit.checkTestVector(pin, val, found);
+				return;
+			}
+		}
+		circuit.doTestVector(project, pin, val);
 	}
 
 }
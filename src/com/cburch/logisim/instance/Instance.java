@@ -83,6 +83,14 @@ public class Instance {
 		return comp;
 	}
 
+	/**
+	 * Returns the factory's configuration object for this instance's current
+	 * attribute values (see <code>InstanceFactory.createConfiguration</code>).
+	 */
+	public Object getConfiguration() {
+		return comp.getConfiguration();
+	}
+
 	public InstanceData getData(CircuitState state) {
 		return (InstanceData) state.getData(comp);
 	}
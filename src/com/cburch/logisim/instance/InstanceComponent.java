@@ -72,6 +72,9 @@ public class InstanceComponent implements Component, AttributeListener,
 	private HashSet<Attribute<BitWidth>> widthAttrs;
 	private AttributeSet attrs;
 	private boolean attrListenRequested;
+	private boolean configListenRequested;
+	private volatile Object configuration;
+	private volatile int configurationStamp;
 	private InstanceTextField textField;
 	private InstanceStateImpl instanceState;
 
@@ -88,7 +91,14 @@ public class InstanceComponent implements Component, AttributeListener,
 		this.hasToolTips = false;
 		this.attrs = attrs;
 		this.attrListenRequested = false;
+		this.configurationStamp = 0;
 		this.textField = null;
+		// listen here, on the thread building the circuit, rather than
+		// from the simulator once propagate first asks for the configuration
+		this.configuration = factory.createConfiguration(attrs);
+		this.configListenRequested = configuration != null;
+		if (configListenRequested)
+			attrs.addAttributeListener(this);
 
 		computeEnds();
 	}
@@ -96,7 +106,7 @@ public class InstanceComponent implements Component, AttributeListener,
 	void addAttributeListener(Instance instance) {
 		if (!attrListenRequested) {
 			attrListenRequested = true;
-			if (widthAttrs == null)
+			if (widthAttrs == null && !configListenRequested)
 				getAttributeSet().addAttributeListener(this);
 		}
 	}
@@ -119,9 +129,11 @@ public class InstanceComponent implements Component, AttributeListener,
 	// AttributeListener methods
 	//
 	public void attributeListChanged(AttributeEvent e) {
+		invalidateConfiguration();
 	}
 
 	public void attributeValueChanged(AttributeEvent e) {
+		invalidateConfiguration();
 		Attribute<?> attr = e.getAttribute();
 		if (widthAttrs != null && widthAttrs.contains(attr))
 			computeEnds();
@@ -175,7 +187,7 @@ public class InstanceComponent implements Component, AttributeListener,
 					toolTipFound = true;
 			}
 		}
-		if (!attrListenRequested) {
+		if (!attrListenRequested && !configListenRequested) {
 			HashSet<Attribute<BitWidth>> oldWattrs = widthAttrs;
 			if (wattrs == null && oldWattrs != null) {
 				getAttributeSet().removeAttributeListener(this);
@@ -296,6 +308,19 @@ public class InstanceComponent implements Component, AttributeListener,
 	//
 	// basic information methods
 	//
+	Object getConfiguration() {
+		Object ret = configuration;
+		if (ret == null && configListenRequested) {
+			// an attribute may change while the simulator thread computes
+			// this; keep the result only if none did
+			int stamp = configurationStamp;
+			ret = factory.createConfiguration(attrs);
+			if (stamp == configurationStamp)
+				configuration = ret;
+		}
+		return ret;
+	}
+
 	public ComponentFactory getFactory() {
 		return factory;
 	}
@@ -353,6 +378,11 @@ public class InstanceComponent implements Component, AttributeListener,
 		return defaultTip == null ? null : defaultTip.toString();
 	}
 
+	private void invalidateConfiguration() {
+		configurationStamp++;
+		configuration = null;
+	}
+
 	public void propagate(CircuitState state) {
 		factory.propagate(state.getInstanceState(this));
 	}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.instance;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.AbstractAttributeSet;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeListener;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Bounds;
+import com.cburch.logisim.data.Location;
+
+public class InstanceComponentTest {
+	/**
+	 * A factory with a configuration, whose ports have fixed widths so that
+	 * nothing else makes its instances listen to their attributes.
+	 */
+	private static class Labelled extends InstanceFactory {
+		Labelled() {
+			super("Labelled");
+			setAttributes(new Attribute<?>[] { StdAttr.LABEL },
+					new Object[] { "" });
+			setOffsetBounds(Bounds.create(-30, -10, 30, 20));
+			setPorts(new Port[] { new Port(0, 0, Port.OUTPUT, 1) });
+		}
+
+		@Override
+		protected Object createConfiguration(AttributeSet attrs) {
+			return attrs.getValue(StdAttr.LABEL);
+		}
+
+		@Override
+		public void paintInstance(InstancePainter painter) {
+		}
+
+		@Override
+		public void propagate(InstanceState state) {
+		}
+	}
+
+	/** Attributes that record the threads registering listeners on them. */
+	private static class WatchedAttributes extends AbstractAttributeSet {
+		private final AttributeSet base;
+		final List<Thread> listening = new ArrayList<Thread>();
+
+		WatchedAttributes(AttributeSet base) {
+			this.base = base;
+		}
+
+		@Override
+		public void addAttributeListener(AttributeListener l) {
+			listening.add(Thread.currentThread());
+			super.addAttributeListener(l);
+		}
+
+		@Override
+		protected void copyInto(AbstractAttributeSet dest) {
+		}
+
+		@Override
+		public List<Attribute<?>> getAttributes() {
+			return base.getAttributes();
+		}
+
+		@Override
+		public <V> V getValue(Attribute<V> attr) {
+			return base.getValue(attr);
+		}
+
+		@Override
+		public <V> void setValue(Attribute<V> attr, V value) {
+			base.setValue(attr, value);
+			fireAttributeValueChanged(attr, value);
+		}
+	}
+
+	/**
+	 * The listener that keeps the configuration current is registered by the
+	 * thread creating the component, never by the simulator thread.
+	 */
+	@Test
+	public final void testConfigurationListenerRegisteredOnCreation()
+			throws Exception {
+		Labelled factory = new Labelled();
+		WatchedAttributes attrs = new WatchedAttributes(
+				factory.createAttributeSet());
+		attrs.setValue(StdAttr.LABEL, "a");
+		final Instance instance = Instance.getInstanceFor(factory
+				.createComponent(Location.create(100, 100), attrs));
+		List<Thread> creator = Collections.singletonList(Thread
+				.currentThread());
+		assertEquals(creator, attrs.listening);
+
+		Thread simulator = new Thread() {
+			@Override
+			public void run() {
+				instance.getConfiguration();
+			}
+		};
+		simulator.start();
+		simulator.join();
+		assertEquals(creator, attrs.listening);
+
+		assertEquals("a", instance.getConfiguration());
+		attrs.setValue(StdAttr.LABEL, "b");
+		assertEquals("b", instance.getConfiguration());
+	}
+}
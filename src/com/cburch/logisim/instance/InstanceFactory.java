@@ -130,6 +130,18 @@ public abstract class InstanceFactory extends AbstractComponentFactory {
 		return ret;
 	}
 
+	/**
+	 * Returns an object holding the attribute values that propagate needs,
+	 * so that it does not have to look them up on every call. It is called
+	 * when an instance is created, and again by
+	 * <code>Instance.getConfiguration()</code> after any of the instance's
+	 * attributes changes. Factories that use it must override this, since
+	 * the default returns null.
+	 */
+	protected Object createConfiguration(AttributeSet attrs) {
+		return null;
+	}
+
 	public final InstanceState createInstanceState(CircuitState state,
 			Component comp) {
 		return createInstanceState(state,
@@ -405,6 +405,9 @@ public class AppPreferences {
 	public static final PrefMonitor<String> LOCALE = create(new LocalePreference());
 	public static final PrefMonitor<Boolean> ACCENTS_REPLACE = create(new PrefMonitorBoolean(
 			"accentsReplace", false));
+	// Simulation preferences
+	public static final PrefMonitor<Boolean> SIM_HISTORY = create(new PrefMonitorBoolean(
+			"simHistory", false));
 	// Window preferences
 	public static final String TOOLBAR_HIDDEN = "hidden";
 	public static final String TOOLBAR_DOWN_MIDDLE = "downMiddle";
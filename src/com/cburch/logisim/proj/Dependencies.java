@@ -45,31 +45,32 @@ import com.cburch.logisim.util.Dag;
 public class Dependencies {
 	private class MyListener implements LibraryListener, CircuitListener {
 		public void circuitChanged(CircuitEvent e) {
-			Component comp;
 			switch (e.getAction()) {
 			case CircuitEvent.ACTION_ADD:
-				comp = (Component) e.getData();
-				if (comp.getFactory() instanceof SubcircuitFactory) {
-					SubcircuitFactory factory = (SubcircuitFactory) comp
-							.getFactory();
-					depends.addEdge(e.getCircuit(), factory.getSubcircuit());
+				for (Component comp : e.getComponents()) {
+					if (comp.getFactory() instanceof SubcircuitFactory) {
+						SubcircuitFactory factory = (SubcircuitFactory) comp
+								.getFactory();
+						depends.addEdge(e.getCircuit(), factory.getSubcircuit());
+					}
 				}
 				break;
 			case CircuitEvent.ACTION_REMOVE:
-				comp = (Component) e.getData();
-				if (comp.getFactory() instanceof SubcircuitFactory) {
-					SubcircuitFactory factory = (SubcircuitFactory) comp
-							.getFactory();
-					boolean found = false;
-					for (Component o : e.getCircuit().getNonWires()) {
-						if (o.getFactory() == factory) {
-							found = true;
-							break;
+				for (Component comp : e.getComponents()) {
+					if (comp.getFactory() instanceof SubcircuitFactory) {
+						SubcircuitFactory factory = (SubcircuitFactory) comp
+								.getFactory();
+						boolean found = false;
+						for (Component o : e.getCircuit().getNonWires()) {
+							if (o.getFactory() == factory) {
+								found = true;
+								break;
+							}
 						}
+						if (!found)
+							depends.removeEdge(e.getCircuit(),
+									factory.getSubcircuit());
 					}
-					if (!found)
-						depends.removeEdge(e.getCircuit(),
-								factory.getSubcircuit());
 				}
 				break;
 			case CircuitEvent.ACTION_CLEAR:
@@ -361,6 +361,15 @@ public class Project {
 		return vhdlSimulator;
 	}
 
+	/**
+	 * Returns the number of modifications since the file was last saved. A
+	 * background save gives it back to {@link #setFileAsSaved(int)} once the
+	 * file is written.
+	 */
+	public int getModificationCount() {
+		return undoMods;
+	}
+
 	public boolean isFileDirty() {
 		return (undoMods > 0);
 	}
@@ -483,6 +492,16 @@ public class Project {
 		file.setDirty(isFileDirty());
 	}
 
+	/**
+	 * Marks the file as saved by a save that started when
+	 * {@link #getModificationCount()} returned modificationCount; changes made
+	 * while the file was being written keep it dirty.
+	 */
+	public void setFileAsSaved(int modificationCount) {
+		undoMods -= modificationCount;
+		file.setDirty(isFileDirty());
+	}
+
 	public void setFrame(Frame value) {
 		if (frame == value)
 			return;
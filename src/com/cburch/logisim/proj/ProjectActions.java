@@ -323,6 +323,18 @@ public class ProjectActions {
 	}
 
 	public static void doQuit() {
+		if (Loader.hasPendingSaves()) {
+			// Let the saves being written mark their projects as clean
+			// before asking about unsaved changes.
+			Loader.waitForPendingSaves();
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					doQuit();
+				}
+			});
+			return;
+		}
+
 		Frame top = Projects.getTopFrame();
 		top.savePreferences();
 
@@ -355,6 +367,36 @@ public class ProjectActions {
 		return ret;
 	}
 
+	/**
+	 * Saves a project without waiting for the file to be written, so that the
+	 * user can go on editing while a large project is saved. Projects that
+	 * were never saved go through {@link #doSaveAs(Project)}.
+	 * 
+	 * It is the action listener for the File->Save menu option.
+	 * 
+	 * @param proj
+	 *            project to be saved
+	 */
+	public static void doSaveInBackground(final Project proj) {
+		Loader loader = proj.getLogisimFile().getLoader();
+		final File f = loader.getMainFile();
+		if (f == null) {
+			doSaveAs(proj);
+			return;
+		}
+
+		Tool oldTool = proj.getTool();
+		proj.setTool(null);
+		final int mods = proj.getModificationCount();
+		loader.saveInBackground(proj.getLogisimFile(), f, new Runnable() {
+			public void run() {
+				AppPreferences.updateRecentFile(f);
+				proj.setFileAsSaved(mods);
+			}
+		});
+		proj.setTool(oldTool);
+	}
+
 	/**
 	 * Saves a Logisim project in a .circ file.
 	 * 
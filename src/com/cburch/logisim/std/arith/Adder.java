@@ -34,6 +34,8 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -41,6 +43,7 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -98,6 +101,20 @@ public class Adder extends InstanceFactory {
 		}
 	}
 
+	/**
+	 * Adds two numbers given as bit slices and a carry, and returns the slices
+	 * of the sum followed by the carry out.
+	 */
+	static long[] computeSumSlices(long[] a, long[] b, long carry) {
+		long[] ret = new long[a.length + 1];
+		for (int i = 0; i < a.length; i++) {
+			ret[i] = a[i] ^ b[i] ^ carry;
+			carry = (a[i] & b[i]) | (carry & (a[i] ^ b[i]));
+		}
+		ret[a.length] = carry;
+		return ret;
+	}
+
 	static final int PER_DELAY = 1;
 	private static final int IN0 = 0;
 	private static final int IN1 = 1;
@@ -138,6 +155,31 @@ public class Adder extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					int width = instance.getAttributeValue(StdAttr.WIDTH)
+							.getWidth();
+					long[] a = state.getPortSlices(IN0);
+					long[] b = state.getPortSlices(IN1);
+					if (a == null || b == null) {
+						state.setUndefined(-1L);
+						a = a == null ? new long[width] : a;
+						b = b == null ? new long[width] : b;
+					}
+					long[] c_in = state.getPortSlices(C_IN);
+					long[] sum = computeSumSlices(a, b, c_in == null ? 0
+							: c_in[0]);
+					state.setPortSlices(OUT, sum);
+					state.setPortSlices(C_OUT, new long[] { sum[width] });
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public boolean HDLSupportedComponent(String HDLIdentifier,
 			AttributeSet attrs, char Vendor) {
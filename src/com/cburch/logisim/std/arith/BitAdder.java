@@ -51,6 +51,17 @@ import com.cburch.logisim.tools.key.JoinedConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class BitAdder extends InstanceFactory {
+	/** The attribute values that propagate needs. */
+	private static class Config {
+		private int inputs;
+		private int outputBits;
+
+		Config(int inputs, int outputBits) {
+			this.inputs = inputs;
+			this.outputBits = outputBits;
+		}
+	}
+
 	static final Attribute<Integer> NUM_INPUTS = Attributes.forIntegerRange(
 			"inputs", Strings.getter("gateInputsAttr"), 1, 32);
 
@@ -109,6 +120,13 @@ public class BitAdder extends InstanceFactory {
 		instance.setPorts(ps);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		int width = attrs.getValue(StdAttr.WIDTH).getWidth();
+		int inputs = attrs.getValue(NUM_INPUTS).intValue();
+		return new Config(inputs, computeOutputBits(width, inputs));
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		int inputs = attrs.getValue(NUM_INPUTS).intValue();
@@ -145,8 +163,8 @@ public class BitAdder extends InstanceFactory {
 
 	@Override
 	public void propagate(InstanceState state) {
-		int width = state.getAttributeValue(StdAttr.WIDTH).getWidth();
-		int inputs = state.getAttributeValue(NUM_INPUTS).intValue();
+		Config cfg = (Config) state.getInstance().getConfiguration();
+		int inputs = cfg.inputs;
 
 		// compute the number of 1 bits
 		int minCount = 0; // number that are definitely 1
@@ -169,7 +187,7 @@ public class BitAdder extends InstanceFactory {
 			unknownMask |= (minCount ^ i);
 		}
 
-		Value[] out = new Value[computeOutputBits(width, inputs)];
+		Value[] out = new Value[cfg.outputBits];
 		for (int i = 0; i < out.length; i++) {
 			if (((unknownMask >> i) & 1) != 0) {
 				out[i] = Value.ERROR;
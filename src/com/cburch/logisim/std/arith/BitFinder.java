@@ -49,6 +49,17 @@ import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class BitFinder extends InstanceFactory {
+	/** The attribute values that propagate needs. */
+	private static class Config {
+		private Object type;
+		private BitWidth outWidth;
+
+		Config(Object type, BitWidth outWidth) {
+			this.type = type;
+			this.outWidth = outWidth;
+		}
+	}
+
 	static final AttributeOption LOW_ONE = new AttributeOption("low1",
 			Strings.getter("bitFinderLowOption", "1"));
 	static final AttributeOption HIGH_ONE = new AttributeOption("high1",
@@ -109,6 +120,13 @@ public class BitFinder extends InstanceFactory {
 		instance.setPorts(ps);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		int width = attrs.getValue(StdAttr.WIDTH).getWidth();
+		return new Config(attrs.getValue(TYPE),
+				BitWidth.create(computeOutputBits(width - 1)));
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		return Bounds.create(-40, -20, 40, 40);
@@ -157,9 +175,9 @@ public class BitFinder extends InstanceFactory {
 
 	@Override
 	public void propagate(InstanceState state) {
-		int width = state.getAttributeValue(StdAttr.WIDTH).getWidth();
-		int outWidth = computeOutputBits(width - 1);
-		Object type = state.getAttributeValue(TYPE);
+		Config cfg = (Config) state.getInstance().getConfiguration();
+		BitWidth outWidth = cfg.outWidth;
+		Object type = cfg.type;
 
 		Value[] bits = state.getPortValue(2).getAll();
 		Value want;
@@ -186,16 +204,16 @@ public class BitFinder extends InstanceFactory {
 		Value index;
 		if (i < 0 || i >= bits.length) {
 			present = Value.FALSE;
-			index = Value.createKnown(BitWidth.create(outWidth), 0);
+			index = Value.createKnown(outWidth, 0);
 		} else if (bits[i] == want) {
 			present = Value.TRUE;
-			index = Value.createKnown(BitWidth.create(outWidth), i);
+			index = Value.createKnown(outWidth, i);
 		} else {
 			present = Value.ERROR;
-			index = Value.createError(BitWidth.create(outWidth));
+			index = Value.createError(outWidth);
 		}
 
-		int delay = outWidth * Adder.PER_DELAY;
+		int delay = outWidth.getWidth() * Adder.PER_DELAY;
 		state.setPort(0, present, delay);
 		state.setPort(1, index, delay);
 	}
@@ -31,6 +31,8 @@
 package com.cburch.logisim.std.arith;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
@@ -103,6 +105,47 @@ public class Comparator extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					int width = instance.getAttributeValue(StdAttr.WIDTH)
+							.getWidth();
+					long[] a = state.getPortSlices(IN0);
+					long[] b = state.getPortSlices(IN1);
+					if (a == null || b == null) {
+						state.setUndefined(-1L);
+						a = a == null ? new long[width] : a;
+						b = b == null ? new long[width] : b;
+					}
+					boolean signed = instance
+							.getAttributeValue(MODE_ATTRIBUTE) != UNSIGNED_OPTION;
+					long decided = 0;
+					long gt = 0;
+					long lt = 0;
+					for (int pos = width - 1; pos >= 0; pos--) {
+						long ab = a[pos];
+						long bb = b[pos];
+						if (pos == width - 1 && signed) {
+							long t = ab;
+							ab = bb;
+							bb = t;
+						}
+						long differ = (ab ^ bb) & ~decided;
+						gt |= differ & ab;
+						lt |= differ & bb;
+						decided |= differ;
+					}
+					state.setPortSlices(GT, new long[] { gt });
+					state.setPortSlices(EQ, new long[] { ~decided });
+					state.setPortSlices(LT, new long[] { lt });
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public boolean HDLSupportedComponent(String HDLIdentifier,
 			AttributeSet attrs, char Vendor) {
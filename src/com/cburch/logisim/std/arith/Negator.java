@@ -31,12 +31,15 @@
 package com.cburch.logisim.std.arith;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -74,6 +77,30 @@ public class Negator extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					int width = instance.getAttributeValue(StdAttr.WIDTH)
+							.getWidth();
+					long[] in = state.getPortSlices(IN);
+					if (in == null) {
+						state.setUndefined(-1L);
+						in = new long[width];
+					}
+					long[] notIn = new long[width];
+					for (int i = 0; i < width; i++) {
+						notIn[i] = ~in[i];
+					}
+					state.setPortSlices(OUT, Adder.computeSumSlices(notIn,
+							new long[width], -1L));
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public boolean HDLSupportedComponent(String HDLIdentifier,
 			AttributeSet attrs, char Vendor) {
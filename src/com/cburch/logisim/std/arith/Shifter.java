@@ -51,6 +51,17 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.tools.key.BitWidthConfigurator;
 
 public class Shifter extends InstanceFactory {
+	/** The attribute values that propagate needs. */
+	private static class Config {
+		private BitWidth dataWidth;
+		private Object shift;
+
+		Config(AttributeSet attrs) {
+			dataWidth = attrs.getValue(StdAttr.WIDTH);
+			shift = attrs.getValue(ATTR_SHIFT);
+		}
+	}
+
 	static final AttributeOption SHIFT_LOGICAL_LEFT = new AttributeOption("ll",
 			Strings.getter("shiftLogicalLeft"));
 	static final AttributeOption SHIFT_LOGICAL_RIGHT = new AttributeOption(
@@ -103,6 +114,11 @@ public class Shifter extends InstanceFactory {
 		instance.setPorts(ps);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Config(attrs);
+	}
+
 	private void drawArrow(Graphics g, int x, int y, int d) {
 		int[] px = { x + d, x, x + d };
 		int[] py = { y + d, y, y - d };
@@ -172,14 +188,15 @@ public class Shifter extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		// compute output
-		BitWidth dataWidth = state.getAttributeValue(StdAttr.WIDTH);
+		Config cfg = (Config) state.getInstance().getConfiguration();
+		BitWidth dataWidth = cfg.dataWidth;
 		int bits = dataWidth == null ? 32 : dataWidth.getWidth();
 		Value vx = state.getPortValue(IN0);
 		Value vd = state.getPortValue(IN1);
 		Value vy; // y will by x shifted by d
 		if (vd.isFullyDefined() && vx.getWidth() == bits) {
 			int d = vd.toIntValue();
-			Object shift = state.getAttributeValue(ATTR_SHIFT);
+			Object shift = cfg.shift;
 			if (d == 0) {
 				vy = vx;
 			} else if (vx.isFullyDefined()) {
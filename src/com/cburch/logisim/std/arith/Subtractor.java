@@ -34,6 +34,8 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -41,6 +43,7 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.instance.InstanceFactory;
 import com.cburch.logisim.instance.InstancePainter;
 import com.cburch.logisim.instance.InstanceState;
@@ -88,6 +91,35 @@ public class Subtractor extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					int width = instance.getAttributeValue(StdAttr.WIDTH)
+							.getWidth();
+					long[] a = state.getPortSlices(IN0);
+					long[] b = state.getPortSlices(IN1);
+					if (a == null || b == null) {
+						state.setUndefined(-1L);
+						a = a == null ? new long[width] : a;
+						b = b == null ? new long[width] : b;
+					}
+					long[] b_in = state.getPortSlices(B_IN);
+					long[] notB = new long[width];
+					for (int i = 0; i < width; i++) {
+						notB[i] = ~b[i];
+					}
+					long[] sum = Adder.computeSumSlices(a, notB,
+							b_in == null ? -1L : ~b_in[0]);
+					state.setPortSlices(OUT, sum);
+					state.setPortSlices(B_OUT, new long[] { ~sum[width] });
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public boolean HDLSupportedComponent(String HDLIdentifier,
 			AttributeSet attrs, char Vendor) {
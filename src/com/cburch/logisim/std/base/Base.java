@@ -47,12 +47,6 @@ public class Base extends Library {
 	private List<Tool> tools = null;
 
 	public Base() {
-		SelectTool select = new SelectTool();
-		WiringTool wiring = new WiringTool();
-
-		tools = Arrays.asList(new Tool[] { new PokeTool(),
-				new EditTool(select, wiring), select, wiring, new TextTool(),
-				new MenuTool(), new AddTool(Text.FACTORY), });
 	}
 
 	@Override
@@ -67,6 +61,14 @@ public class Base extends Library {
 
 	@Override
 	public List<Tool> getTools() {
+		if (tools == null) {
+			SelectTool select = new SelectTool();
+			WiringTool wiring = new WiringTool();
+
+			tools = Arrays.asList(new Tool[] { new PokeTool(),
+					new EditTool(select, wiring), select, wiring,
+					new TextTool(), new MenuTool(), new AddTool(Text.FACTORY), });
+		}
 		return tools;
 	}
 }
@@ -41,6 +41,8 @@ import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.LogisimVersion;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
@@ -110,6 +112,14 @@ abstract class AbstractGate extends InstanceFactory {
 				new BitWidthConfigurator(StdAttr.WIDTH)));
 	}
 
+	/**
+	 * Computes one bit of the output for 64 input vectors at once. Each
+	 * element of <code>inputs</code> holds the same bit of one input, already
+	 * negated if the input is, with one bit per vector.
+	 */
+	protected abstract long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs);
+
 	protected abstract Expression computeExpression(Expression[] inputs,
 			int numInputs);
 
@@ -349,6 +359,52 @@ abstract class AbstractGate extends InstanceFactory {
 				}
 			};
 		}
+		if (key == BitSliceComputer.class) {
+			Object out = instance.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+			if (out != GateAttributes.OUTPUT_01)
+				return null; // a floating output cannot be represented
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					GateAttributes attrs = (GateAttributes) instance
+							.getAttributeSet();
+					AttributeSet opts = state.getProject().getOptions()
+							.getAttributeSet();
+					boolean errorIfUndefined = opts.getValue(
+							Options.ATTR_GATE_UNDEFINED).equals(
+							Options.GATE_UNDEFINED_ERROR);
+
+					long[][] inputs = new long[attrs.inputs][];
+					long[] negated = new long[attrs.inputs];
+					int numInputs = 0;
+					for (int i = 1; i <= attrs.inputs; i++) {
+						long[] in = state.getPortSlices(i);
+						if (in != null) {
+							int negatedBit = (attrs.negated >> (i - 1)) & 1;
+							inputs[numInputs] = in;
+							negated[numInputs] = negatedBit == 1 ? -1L : 0;
+							numInputs++;
+						} else if (errorIfUndefined) {
+							numInputs = 0;
+							break;
+						}
+					}
+					int width = attrs.width.getWidth();
+					long[] out = new long[width];
+					if (numInputs == 0) {
+						state.setUndefined(-1L);
+					} else {
+						long[] bits = new long[numInputs];
+						for (int b = 0; b < width; b++) {
+							for (int i = 0; i < numInputs; i++) {
+								bits[i] = inputs[i][b] ^ negated[i];
+							}
+							out[b] = computeBitSlice(bits, numInputs, attrs);
+						}
+					}
+					state.setPortSlices(0, out);
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				public void computeExpression(
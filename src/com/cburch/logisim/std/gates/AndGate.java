@@ -91,6 +91,12 @@ class AndGate extends AbstractGate {
 		setIconNames("andGate.gif", "andGateRect.gif", "dinAndGate.gif");
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return GateFunctions.computeAndSlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
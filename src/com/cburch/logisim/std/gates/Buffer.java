@@ -39,6 +39,8 @@ import java.util.Map;
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.bfh.logisim.settings.Settings;
 import com.cburch.logisim.analyze.model.Expression;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
@@ -156,6 +158,22 @@ class Buffer extends InstanceFactory {
 
 	@Override
 	public Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			Object outType = instance
+					.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+			if (outType != GateAttributes.OUTPUT_01)
+				return null;
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					long[] in = state.getPortSlices(1);
+					if (in == null) {
+						state.setUndefined(-1L);
+						in = new long[0];
+					}
+					state.setPortSlices(0, in);
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				public void computeExpression(
@@ -59,6 +59,12 @@ class EvenParityGate extends AbstractGate {
 		setIconNames("parityEvenGate.gif");
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return ~GateFunctions.computeOddParitySlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
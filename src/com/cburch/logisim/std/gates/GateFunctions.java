@@ -41,6 +41,14 @@ class GateFunctions {
 		return ret;
 	}
 
+	static long computeAndSlice(long[] inputs, int numInputs) {
+		long ret = inputs[0];
+		for (int i = 1; i < numInputs; i++) {
+			ret &= inputs[i];
+		}
+		return ret;
+	}
+
 	static Value computeExactlyOne(Value[] inputs, int numInputs) {
 		int width = inputs[0].getWidth();
 		Value[] ret = new Value[width];
@@ -68,6 +76,16 @@ class GateFunctions {
 		return Value.create(ret);
 	}
 
+	static long computeExactlyOneSlice(long[] inputs, int numInputs) {
+		long seen = 0;
+		long many = 0;
+		for (int i = 0; i < numInputs; i++) {
+			many |= seen & inputs[i];
+			seen |= inputs[i];
+		}
+		return seen & ~many;
+	}
+
 	static Value computeOddParity(Value[] inputs, int numInputs) {
 		Value ret = inputs[0];
 		for (int i = 1; i < numInputs; i++) {
@@ -76,6 +94,14 @@ class GateFunctions {
 		return ret;
 	}
 
+	static long computeOddParitySlice(long[] inputs, int numInputs) {
+		long ret = inputs[0];
+		for (int i = 1; i < numInputs; i++) {
+			ret ^= inputs[i];
+		}
+		return ret;
+	}
+
 	static Value computeOr(Value[] inputs, int numInputs) {
 		Value ret = inputs[0];
 		for (int i = 1; i < numInputs; i++) {
@@ -84,6 +110,14 @@ class GateFunctions {
 		return ret;
 	}
 
+	static long computeOrSlice(long[] inputs, int numInputs) {
+		long ret = inputs[0];
+		for (int i = 1; i < numInputs; i++) {
+			ret |= inputs[i];
+		}
+		return ret;
+	}
+
 	private GateFunctions() {
 	}
 }
@@ -95,6 +95,12 @@ class NandGate extends AbstractGate {
 		setIconNames("nandGate.gif", "nandGateRect.gif", "dinNandGate.gif");
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return ~GateFunctions.computeAndSlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
@@ -90,6 +90,12 @@ class NorGate extends AbstractGate {
 		setPaintInputLines(true);
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return ~GateFunctions.computeOrSlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
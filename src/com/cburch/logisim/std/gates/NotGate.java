@@ -42,6 +42,8 @@ import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.bfh.logisim.settings.Settings;
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.comp.TextField;
 import com.cburch.logisim.data.Attribute;
@@ -171,6 +173,26 @@ class NotGate extends InstanceFactory {
 
 	@Override
 	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			Object outType = instance
+					.getAttributeValue(GateAttributes.ATTR_OUTPUT);
+			if (outType != GateAttributes.OUTPUT_01)
+				return null;
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					long[] in = state.getPortSlices(1);
+					if (in == null) {
+						state.setUndefined(-1L);
+						in = new long[0];
+					}
+					long[] out = new long[in.length];
+					for (int i = 0; i < in.length; i++) {
+						out[i] = ~in[i];
+					}
+					state.setPortSlices(0, out);
+				}
+			};
+		}
 		if (key == ExpressionComputer.class) {
 			return new ExpressionComputer() {
 				public void computeExpression(
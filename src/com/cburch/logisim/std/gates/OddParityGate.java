@@ -64,6 +64,12 @@ class OddParityGate extends AbstractGate {
 		setIconNames("parityOddGate.gif");
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return GateFunctions.computeOddParitySlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
@@ -87,6 +87,12 @@ class OrGate extends AbstractGate {
 		setPaintInputLines(true);
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		return GateFunctions.computeOrSlice(inputs, numInputs);
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		Expression ret = inputs[0];
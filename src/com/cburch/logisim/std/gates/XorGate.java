@@ -81,6 +81,17 @@ class XorGate extends AbstractGate {
 		setPaintInputLines(true);
 	}
 
+	@Override
+	protected long computeBitSlice(long[] inputs, int numInputs,
+			AttributeSet attrs) {
+		Object behavior = attrs.getValue(GateAttributes.ATTR_XOR);
+		if (behavior == GateAttributes.XOR_ODD) {
+			return GateFunctions.computeOddParitySlice(inputs, numInputs);
+		} else {
+			return GateFunctions.computeExactlyOneSlice(inputs, numInputs);
+		}
+	}
+
 	@Override
 	protected Expression computeExpression(Expression[] inputs, int numInputs) {
 		return xorExpression(inputs, numInputs);
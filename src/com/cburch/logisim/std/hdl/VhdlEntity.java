@@ -240,7 +240,8 @@ public class VhdlEntity extends InstanceFactory {
 	 * Logisim doesn't have a VHDL simulation tool. So we need to use an external tool.
 	 * We send signals to Questasim/Modelsim through a socket and a tcl binder. Then,
 	 * a simulation step is done and the tcl server sends the output signals back to
-	 * Logisim. Then we can set the VHDL component output properly.
+	 * Logisim. Then we can set the VHDL component output properly. The signals of
+	 * all VHDL components propagated in the same step are sent together.
 	 *
 	 * This can be done only if Logisim could connect to the tcl server (socket). This is
 	 * done in Simulation.java.
@@ -251,57 +252,18 @@ public class VhdlEntity extends InstanceFactory {
 				&& state.getProject().getVhdlSimulator().isRunning()) {
 
 			VhdlSimulator vhdlSimulator = state.getProject().getVhdlSimulator();
+			String vhdlEntityName = getHDLTopName(state.getAttributeSet());
 
+			/*
+			 * The ports are sent with those of the other VHDL entities at the
+			 * end of the simulation step, the outputs are driven when the tcl
+			 * server answers
+			 */
 			for (Port p : state.getInstance().getPorts()) {
 				int index = state.getPortIndex(p);
-				Value val = state.getPortValue(index);
 
-				String vhdlEntityName = getHDLTopName(state.getAttributeSet());
-
-				String message = p.getType() + ":" + vhdlEntityName + "_"
-						+ p.getToolTip() + ":" + val.toBinaryString() + ":"
-						+ index;
-
-				vhdlSimulator.send(message);
-			}
-
-			vhdlSimulator.send("sync");
-
-			/* Get response from tcl server */
-			String server_response;
-			while ((server_response = vhdlSimulator.receive()) != null
-					&& server_response.length() > 0
-					&& !server_response.equals("sync")) {
-
-				String[] parameters = server_response.split("\\:");
-
-				String busValue = parameters[1];
-
-				Value vector_values[] = new Value[busValue.length()];
-
-				int k = busValue.length() - 1;
-				for (char bit : busValue.toCharArray()) {
-
-					try {
-						switch (Character.getNumericValue(bit)) {
-						case 0:
-							vector_values[k] = Value.FALSE;
-							break;
-						case 1:
-							vector_values[k] = Value.TRUE;
-							break;
-						default:
-							vector_values[k] = Value.UNKNOWN;
-							break;
-						}
-					} catch (NumberFormatException e) {
-						vector_values[k] = Value.UNKNOWN;
-					}
-					k--;
-				}
-
-				state.setPort(Integer.parseInt(parameters[2]),
-						Value.create(vector_values), 1);
+				vhdlSimulator.add(state, index, p.getType(), vhdlEntityName
+						+ "_" + p.getToolTip(), state.getPortValue(index));
 			}
 
 			/* VhdlSimulation stopped/disabled */
@@ -49,6 +49,8 @@ import com.cburch.logisim.circuit.CircuitEvent;
 import com.cburch.logisim.circuit.CircuitListener;
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.SocketClient;
 
@@ -103,6 +105,7 @@ public class VhdlSimulator implements CircuitListener {
 	private VhdlSimulatorTclComp tclRun = new VhdlSimulatorTclComp(this);
 	private VhdlSimulatorTclBinder tclBinder;
 	private SocketClient socketClient = new SocketClient();
+	private VhdlSimulatorBatch batch = new VhdlSimulatorBatch();
 
 	private Project project;
 
@@ -114,6 +117,18 @@ public class VhdlSimulator implements CircuitListener {
 		this.project = circuitState;
 	}
 
+	/**
+	 * Queue a port of a VHDL entity for the current simulation step
+	 *
+	 * @see VhdlSimulatorBatch#add
+	 */
+	void add(InstanceState state, int port, int type, String name, Value value) {
+		if (!isRunning())
+			throw new UnsupportedOperationException();
+
+		batch.add(state, port, type, name, value);
+	}
+
 	public void addVhdlSimStateListener(VhdlSimulatorListener l) {
 		listeners.add(l);
 	}
@@ -211,6 +226,33 @@ public class VhdlSimulator implements CircuitListener {
 		}
 	}
 
+	/**
+	 * Send the signals queued during the current simulation step to the VHDL
+	 * simulator in a single frame, and drive the entities' outputs with its
+	 * reply
+	 */
+	public void flush() {
+		if (batch.isEmpty())
+			return;
+
+		VhdlSimulatorBatch step = batch;
+		batch = new VhdlSimulatorBatch();
+		if (!isRunning())
+			return;
+
+		socketClient.sendFrame(step.toFrame());
+		byte[] reply = socketClient.receiveFrame();
+		if (reply == null)
+			return;
+
+		try {
+			step.apply(reply);
+		} catch (IOException e) {
+			logger.error("Invalid reply from the VHDL simulator : {}",
+					e.getMessage());
+		}
+	}
+
 	public void generateFiles() {
 
 		vhdlTop.fireInvalidated();
@@ -298,25 +340,15 @@ public class VhdlSimulator implements CircuitListener {
 		return state == State.RUNNING;
 	}
 
-	/**
-	 * Receive a message from the VHDL simulator
-	 *
-	 * @return
-	 */
-	public String receive() {
-		if (!isRunning())
-			throw new UnsupportedOperationException();
-
-		return socketClient.receive();
-	}
-
 	public void removeVhdlSimStateListener(VhdlSimulatorListener l) {
 		listeners.remove(l);
 	}
 
 	public void reset() {
-		if (isEnabled())
-			socketClient.send("restart");
+		batch = new VhdlSimulatorBatch();
+		if (isRunning())
+			socketClient.sendFrame(VhdlSimulatorBatch
+					.command(VhdlSimulatorBatch.RESTART));
 	}
 
 	/**
@@ -341,18 +373,6 @@ public class VhdlSimulator implements CircuitListener {
 		}
 	}
 
-	/**
-	 * Send a message to the VHDL simulator
-	 *
-	 * @param message
-	 */
-	public void send(String message) {
-		if (!isRunning())
-			throw new UnsupportedOperationException();
-
-		socketClient.send(message);
-	}
-
 	public void setEnabled(Boolean enable) {
 		if (enable)
 			enable();
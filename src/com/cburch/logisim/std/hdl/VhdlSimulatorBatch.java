@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+package com.cburch.logisim.std.hdl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.InstanceState;
+
+/**
+ * Collects the signals of all VHDL entities propagated during one simulation
+ * step, such that the binder receives them in a single frame and answers with
+ * a single reply.
+ * <p/>
+ * Numbers are big endian, names and values are ASCII strings preceded by their
+ * 16-bit length. A step frame is the command byte 's', the number of signals
+ * (16 bits) and for each signal its port type (8 bits), name and current
+ * value. The reply is the number of answered signals (16 bits) followed, for
+ * each output or inout signal, by its position in the step frame (16 bits)
+ * and its new value. The restart and end frames only hold their command byte.
+ */
+class VhdlSimulatorBatch {
+
+	static final byte STEP = 's';
+	static final byte RESTART = 'r';
+	static final byte END = 'e';
+
+	static byte[] command(byte command) {
+		return new byte[] { command };
+	}
+
+	/**
+	 * Convert a binary string as returned by the simulator, most significant
+	 * bit first, to a value
+	 */
+	static Value parseValue(String bits) {
+		Value vector_values[] = new Value[bits.length()];
+
+		int k = bits.length() - 1;
+		for (char bit : bits.toCharArray()) {
+			switch (bit) {
+			case '0':
+				vector_values[k] = Value.FALSE;
+				break;
+			case '1':
+				vector_values[k] = Value.TRUE;
+				break;
+			default:
+				vector_values[k] = Value.UNKNOWN;
+				break;
+			}
+			k--;
+		}
+
+		return Value.create(vector_values);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		byte[] chars = new byte[in.readUnsignedShort()];
+		in.readFully(chars);
+		return new String(chars, "US-ASCII");
+	}
+
+	static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		out.writeShort(value.length());
+		out.writeBytes(value);
+	}
+
+	private ByteArrayOutputStream signals = new ByteArrayOutputStream();
+	private DataOutputStream out = new DataOutputStream(signals);
+	private ArrayList<InstanceState> states = new ArrayList<InstanceState>();
+	private ArrayList<Integer> ports = new ArrayList<Integer>();
+
+	/**
+	 * Queue a port of a VHDL entity
+	 *
+	 * @param state
+	 *            the entity's state, whose port is driven with the reply
+	 * @param port
+	 *            the index of the port
+	 * @param type
+	 *            the port type, as defined in Port
+	 * @param name
+	 *            the name of the signal in the simulation top level
+	 * @param value
+	 *            the current value of the port
+	 */
+	void add(InstanceState state, int port, int type, String name, Value value) {
+		try {
+			out.writeByte(type);
+			writeString(out, name);
+			writeString(out, value.toBinaryString());
+		} catch (IOException e) {
+			/* Cannot happen when writing to a byte array */
+			throw new IllegalStateException(e);
+		}
+		states.add(state);
+		ports.add(port);
+	}
+
+	/**
+	 * Drive the output ports of the queued entities with the binder's reply
+	 */
+	void apply(byte[] reply) throws IOException {
+		Value[] values = decode(reply);
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				states.get(i).setPort(ports.get(i), values[i], 1);
+			}
+		}
+	}
+
+	/**
+	 * Decode the binder's reply
+	 *
+	 * @return the new value of each queued signal, or null if the reply has
+	 *         none
+	 */
+	Value[] decode(byte[] reply) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				reply));
+		Value[] values = new Value[size()];
+		for (int count = in.readUnsignedShort(); count > 0; count--) {
+			int signal = in.readUnsignedShort();
+			if (signal >= values.length) {
+				throw new IOException("Reply for unknown signal " + signal);
+			}
+			values[signal] = parseValue(readString(in));
+		}
+		return values;
+	}
+
+	boolean isEmpty() {
+		return states.isEmpty();
+	}
+
+	int size() {
+		return states.size();
+	}
+
+	byte[] toFrame() {
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(
+				signals.size() + 3);
+		frame.write(STEP);
+		frame.write(size() >> 8);
+		frame.write(size());
+		frame.write(signals.toByteArray(), 0, signals.size());
+		return frame.toByteArray();
+	}
+}
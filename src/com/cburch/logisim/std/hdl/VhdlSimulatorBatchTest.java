@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.hdl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.util.SocketClient;
+
+public class VhdlSimulatorBatchTest {
+
+	private static Value bits(String bits) {
+		return VhdlSimulatorBatch.parseValue(bits);
+	}
+
+	@Test
+	public final void testParseValueIsMostSignificantFirst() {
+		Value value = bits("10x");
+		assertEquals(3, value.getWidth());
+		assertEquals(Value.UNKNOWN, value.get(0));
+		assertEquals(Value.FALSE, value.get(1));
+		assertEquals(Value.TRUE, value.get(2));
+		assertEquals("10x", value.toBinaryString());
+	}
+
+	@Test
+	public final void testStepIsOneExchange() throws Exception {
+		SocketClient client = new SocketClient();
+		VhdlSimulatorMockBinder binder = new VhdlSimulatorMockBinder(
+				client.getServerPort());
+		binder.connect("a_q", "a_d");
+		binder.connect("b_q", "b_d");
+		binder.start();
+		client.start();
+		try {
+			/* Two entities propagated in the same step */
+			VhdlSimulatorBatch batch = new VhdlSimulatorBatch();
+			batch.add(null, 0, EndData.INPUT_ONLY, "a_d", bits("0101"));
+			batch.add(null, 1, EndData.OUTPUT_ONLY, "a_q", bits("xxxx"));
+			batch.add(null, 0, EndData.INPUT_ONLY, "b_d", bits("1"));
+			batch.add(null, 1, EndData.OUTPUT_ONLY, "b_q", bits("0"));
+			batch.add(null, 2, EndData.OUTPUT_ONLY, "b_r", bits("00"));
+			batch.add(null, 3, EndData.INPUT_OUTPUT, "b_io", bits("10"));
+			client.sendFrame(batch.toFrame());
+			Value[] values = batch.decode(client.receiveFrame());
+
+			assertEquals(1, binder.getSteps());
+			assertNull(values[0]);
+			assertEquals("0101", values[1].toBinaryString());
+			assertNull(values[2]);
+			assertEquals("1", values[3].toBinaryString());
+			assertEquals("xx", values[4].toBinaryString());
+			assertEquals("10", values[5].toBinaryString());
+
+			/* After a restart the connected inputs are undefined again */
+			client.sendFrame(VhdlSimulatorBatch
+					.command(VhdlSimulatorBatch.RESTART));
+			batch = new VhdlSimulatorBatch();
+			batch.add(null, 1, EndData.OUTPUT_ONLY, "a_q", bits("0101"));
+			client.sendFrame(batch.toFrame());
+			values = batch.decode(client.receiveFrame());
+
+			assertEquals(2, binder.getSteps());
+			assertEquals("xxxx", values[0].toBinaryString());
+		} finally {
+			client.sendFrame(VhdlSimulatorBatch.command(VhdlSimulatorBatch.END));
+			client.stop();
+			binder.stop();
+		}
+	}
+}
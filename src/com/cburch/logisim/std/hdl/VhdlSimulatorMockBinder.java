@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+package com.cburch.logisim.std.hdl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.cburch.logisim.comp.EndData;
+
+/**
+ * Stand-in for the TCL binder that speaks the same protocol without Questasim,
+ * such that the co-simulation can be tested locally. It connects to Logisim's
+ * socket server and answers each step frame: an output signal takes the value
+ * last driven on the input it is connected to, an inout signal keeps the value
+ * deposited on it and any other output stays undefined.
+ */
+class VhdlSimulatorMockBinder {
+
+	final static Logger logger = LoggerFactory
+			.getLogger(VhdlSimulatorMockBinder.class);
+
+	private int port;
+	private Socket socket;
+	private Thread thread;
+	private Boolean running = false;
+
+	private Map<String, String> connections = new HashMap<String, String>();
+	private Map<String, String> signals = new HashMap<String, String>();
+	private int steps = 0;
+
+	public VhdlSimulatorMockBinder(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * Drive an output signal with the value of an input signal, as a VHDL
+	 * architecture made of a single wire would
+	 */
+	public synchronized void connect(String output, String input) {
+		connections.put(output, input);
+	}
+
+	/**
+	 * @return the number of step frames answered so far
+	 */
+	public synchronized int getSteps() {
+		return steps;
+	}
+
+	public Boolean isRunning() {
+		return running;
+	}
+
+	private void serve(DataInputStream in, DataOutputStream out)
+			throws IOException {
+		while (true) {
+			byte[] frame = new byte[in.readInt()];
+			in.readFully(frame);
+			if (frame.length == 0 || frame[0] == VhdlSimulatorBatch.END)
+				return;
+			if (frame[0] == VhdlSimulatorBatch.RESTART) {
+				synchronized (this) {
+					signals.clear();
+				}
+			} else if (frame[0] == VhdlSimulatorBatch.STEP) {
+				byte[] reply = step(frame);
+				out.writeInt(reply.length);
+				out.write(reply);
+				out.flush();
+			} else {
+				logger.error("Unknown command {}", frame[0]);
+			}
+		}
+	}
+
+	public void start() {
+		try {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		} catch (IOException e) {
+			logger.error("Cannot connect mock binder : {}", e.getMessage());
+			running = false;
+			return;
+		}
+		running = true;
+
+		thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					serve(new DataInputStream(new BufferedInputStream(socket
+							.getInputStream())), new DataOutputStream(
+							new BufferedOutputStream(socket.getOutputStream())));
+				} catch (EOFException e) {
+					/* Logisim closed the connection */
+				} catch (IOException e) {
+					if (running)
+						logger.error("Mock binder failed : {}", e.getMessage());
+				} finally {
+					running = false;
+					try {
+						socket.close();
+					} catch (IOException e) {
+						/* Nothing left to do */
+					}
+				}
+			}
+		}, "VHDL mock binder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private synchronized byte[] step(byte[] frame) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				frame, 1, frame.length - 1));
+		int count = in.readUnsignedShort();
+		int[] types = new int[count];
+		String[] names = new String[count];
+		String[] values = new String[count];
+
+		/* Drive input signals */
+		for (int i = 0; i < count; i++) {
+			types[i] = in.readUnsignedByte();
+			names[i] = VhdlSimulatorBatch.readString(in);
+			values[i] = VhdlSimulatorBatch.readString(in);
+			if (types[i] == EndData.INPUT_ONLY
+					|| types[i] == EndData.INPUT_OUTPUT)
+				signals.put(names[i], values[i]);
+		}
+
+		/* Read output signals */
+		ByteArrayOutputStream reply = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(reply);
+		int answered = 0;
+		for (int i = 0; i < count; i++) {
+			if (types[i] == EndData.INPUT_ONLY)
+				continue;
+
+			String value = signals.get(connections.get(names[i]));
+			if (types[i] == EndData.INPUT_OUTPUT)
+				value = signals.get(names[i]);
+			if (value == null || value.length() != values[i].length())
+				value = values[i].replaceAll(".", "U");
+
+			out.writeShort(i);
+			VhdlSimulatorBatch.writeString(out, value);
+			answered++;
+		}
+		steps++;
+
+		byte[] signals = reply.toByteArray();
+		byte[] result = new byte[signals.length + 2];
+		result[0] = (byte) (answered >> 8);
+		result[1] = (byte) answered;
+		System.arraycopy(signals, 0, result, 2, signals.length);
+		return result;
+	}
+
+	public void stop() {
+		if (!running)
+			return;
+
+		running = false;
+		try {
+			socket.close();
+		} catch (IOException e) {
+			logger.error("Cannot close mock binder : {}", e.getMessage());
+		}
+	}
+}
@@ -58,7 +58,10 @@ import com.cburch.logisim.util.Softwares;
  * binder is ready. This way we ensure the socket is started before trying to
  * connect.
  * <p/>
- * To end the binder, we send an "end" flag through the socket and wait for it
+ * The signals of all VHDL entities of a simulation step are sent in a single
+ * frame, see VhdlSimulatorBatch for the protocol.
+ * <p/>
+ * To end the binder, we send an "end" frame through the socket and wait for it
  * to finish. This causes Logisim to hang if the binder doesn't listen to the
  * socker. That can happen when unexpected behavior of the simulation occurs.
  *
@@ -181,7 +184,8 @@ class VhdlSimulatorTclBinder {
 			return;
 
 		/* We ask the binder to end itself */
-		vhdlSimulator.getSocketClient().send("end");
+		vhdlSimulator.getSocketClient().sendFrame(
+				VhdlSimulatorBatch.command(VhdlSimulatorBatch.END));
 
 		/* Wait for the process to end */
 		/*
@@ -52,6 +52,21 @@ import com.cburch.logisim.util.GraphicsUtil;
 // TODO repropagate when rows/cols change
 
 public class DotMatrix extends InstanceFactory {
+	/** The attribute values that propagate needs. */
+	private static class Config {
+		private Object type;
+		private int rows;
+		private int cols;
+		private int persist;
+
+		Config(AttributeSet attrs) {
+			type = attrs.getValue(ATTR_INPUT_TYPE);
+			rows = attrs.getValue(ATTR_MATRIX_ROWS).intValue();
+			cols = attrs.getValue(ATTR_MATRIX_COLS).intValue();
+			persist = attrs.getValue(ATTR_PERSIST).intValue();
+		}
+	}
+
 	private static class State implements InstanceData, Cloneable {
 		private int rows;
 		private int cols;
@@ -206,6 +221,11 @@ public class DotMatrix extends InstanceFactory {
 		updatePorts(instance);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Config(attrs);
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		Object input = attrs.getValue(ATTR_INPUT_TYPE);
@@ -224,9 +244,9 @@ public class DotMatrix extends InstanceFactory {
 		}
 	}
 
-	private State getState(InstanceState state) {
-		int rows = state.getAttributeValue(ATTR_MATRIX_ROWS).intValue();
-		int cols = state.getAttributeValue(ATTR_MATRIX_COLS).intValue();
+	private State getState(InstanceState state, Config cfg) {
+		int rows = cfg.rows;
+		int cols = cfg.cols;
 		long clock = state.getTickCount();
 
 		State data = (State) state.getData();
@@ -254,7 +274,8 @@ public class DotMatrix extends InstanceFactory {
 		Color offColor = painter.getAttributeValue(Io.ATTR_OFF_COLOR);
 		boolean drawSquare = painter.getAttributeValue(ATTR_DOT_SHAPE) == SHAPE_SQUARE;
 
-		State data = getState(painter);
+		State data = getState(painter,
+				(Config) painter.getInstance().getConfiguration());
 		long ticks = painter.getTickCount();
 		Bounds bds = painter.getBounds();
 		boolean showState = painter.getShowState();
@@ -295,13 +316,14 @@ public class DotMatrix extends InstanceFactory {
 
 	@Override
 	public void propagate(InstanceState state) {
-		Object type = state.getAttributeValue(ATTR_INPUT_TYPE);
-		int rows = state.getAttributeValue(ATTR_MATRIX_ROWS).intValue();
-		int cols = state.getAttributeValue(ATTR_MATRIX_COLS).intValue();
+		Config cfg = (Config) state.getInstance().getConfiguration();
+		Object type = cfg.type;
+		int rows = cfg.rows;
+		int cols = cfg.cols;
 		long clock = state.getTickCount();
-		long persist = clock + state.getAttributeValue(ATTR_PERSIST).intValue();
+		long persist = clock + cfg.persist;
 
-		State data = getState(state);
+		State data = getState(state, cfg);
 		if (type == INPUT_ROW) {
 			for (int i = 0; i < rows; i++) {
 				data.setRow(i, state.getPortValue(i), persist);
@@ -37,6 +37,7 @@ import java.awt.Graphics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.cburch.logisim.circuit.StateElement;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
 import com.cburch.logisim.data.AttributeSet;
@@ -54,7 +55,7 @@ import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 
-public class Counter extends InstanceFactory {
+public class Counter extends InstanceFactory implements StateElement {
 
 	public static int SymbolWidth(int NrOfBits) {
 		return 150 + ((NrOfBits - 8) / 5) * 10;
@@ -34,6 +34,10 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
 import java.util.WeakHashMap;
 
 import com.cburch.hex.HexModel;
@@ -58,18 +62,10 @@ import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringGetter;
 
 abstract class Mem extends InstanceFactory {
-	// Note: The code is meant to be able to handle up to 32-bit addresses, but
-	// it
-	// hasn't been debugged thoroughly. There are two definite changes I would
-	// make if I were to extend the address bits: First, there would need to be
-	// some
-	// modification to the memory's graphical representation, because there
-	// isn't
-	// room in the box to include such long memory addresses with the current
-	// font
-	// size. And second, I'd alter the MemContents class's PAGE_SIZE_BITS
-	// constant
-	// to 14 so that its "page table" isn't quite so big.
+	// Note: MemContents only allocates the pages that hold non-zero data, so
+	// large address spaces cost little more than their page table. Addresses
+	// are still handled as non-negative ints in the simulation and drawing
+	// code, which is why the width stays below 31 bits.
 
 	static class MemListener implements HexModelListener {
 
@@ -88,9 +84,77 @@ abstract class Mem extends InstanceFactory {
 		}
 	}
 
+	/**
+	 * Parses contents saved by {@link #toContentsString}. The first line holds
+	 * the "addr/data:" header with the address and data widths, optionally
+	 * followed by the compression marker; the remaining lines hold the data.
+	 */
+	static MemContents parseContents(String value) {
+		int lineBreak = value.indexOf('\n');
+		String first = lineBreak < 0 ? value : value.substring(0, lineBreak);
+		String rest = lineBreak < 0 ? "" : value.substring(lineBreak + 1);
+		StringTokenizer toks = new StringTokenizer(first);
+		try {
+			String header = toks.nextToken();
+			if (!header.equals("addr/data:")) {
+				return null;
+			}
+			int addr = Integer.parseInt(toks.nextToken());
+			int data = Integer.parseInt(toks.nextToken());
+			boolean compressed = toks.hasMoreTokens()
+					&& toks.nextToken().equals(COMPRESSED_MARKER);
+			MemContents ret = MemContents.create(addr, data);
+			if (compressed) {
+				HexFile.openCompressed(ret, new StringReader(rest));
+			} else {
+				HexFile.open(ret, new StringReader(rest));
+			}
+			return ret;
+		} catch (IOException e) {
+			return null;
+		} catch (NumberFormatException e) {
+			return null;
+		} catch (NoSuchElementException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Formats contents for storage in a circuit file. Small contents are kept
+	 * as readable hex tokens; contents with more than COMPRESS_THRESHOLD used
+	 * words are deflated and base64-encoded, which keeps the XML small and
+	 * fast to parse, unless fewer than half of their pages hold data.
+	 */
+	static String toContentsString(MemContents state) {
+		int addr = state.getLogLength();
+		int data = state.getWidth();
+		long used = state.getUsedLength();
+		// deflating would first expand sparse contents to their full used
+		// length, while the hex tokens collapse their runs of zeros
+		boolean compress = used > COMPRESS_THRESHOLD
+				&& state.getPopulatedLength() * 2 >= used;
+		StringWriter ret = new StringWriter();
+		ret.write("addr/data: " + addr + " " + data);
+		ret.write(compress ? " " + COMPRESSED_MARKER + "\n" : "\n");
+		try {
+			if (compress) {
+				HexFile.saveCompressed(ret, state, used);
+			} else {
+				HexFile.save(ret, state);
+			}
+		} catch (IOException e) {
+		}
+		return ret.toString();
+	}
+
+	private static final String COMPRESSED_MARKER = "deflate";
+
+	private static final int COMPRESS_THRESHOLD = 4096;
+
 	public static final int SymbolWidth = 200;
+	public static final int MAX_ADDR_BITS = 28;
 	public static final Attribute<BitWidth> ADDR_ATTR = Attributes.forBitWidth(
-			"addrWidth", Strings.getter("ramAddrWidthAttr"), 2, 24);
+			"addrWidth", Strings.getter("ramAddrWidthAttr"), 2, MAX_ADDR_BITS);
 
 	public static final Attribute<BitWidth> DATA_ATTR = Attributes.forBitWidth(
 			"dataWidth", Strings.getter("ramDataWidthAttr"));
@@ -108,7 +172,7 @@ abstract class Mem extends InstanceFactory {
 		currentInstanceFiles = new WeakHashMap<Instance, File>();
 		setInstancePoker(MemPoker.class);
 		setKeyConfigurator(JoinedConfigurator.create(new BitWidthConfigurator(
-				ADDR_ATTR, 2, 24, 0), new BitWidthConfigurator(DATA_ATTR)));
+				ADDR_ATTR, 2, MAX_ADDR_BITS, 0), new BitWidthConfigurator(DATA_ATTR)));
 
 		setOffsetBounds(Bounds.create(-140, -40, 140, 80));
 	}
@@ -201,8 +265,13 @@ abstract class Mem extends InstanceFactory {
 
 	public void loadImage(InstanceState instanceState, File imageFile)
 			throws IOException {
+		loadImage(instanceState, imageFile, HexFile.detectFormat(imageFile));
+	}
+
+	public void loadImage(InstanceState instanceState, File imageFile,
+			int format) throws IOException {
 		MemState s = this.getState(instanceState);
-		HexFile.open(s.getContents(), imageFile);
+		HexFile.open(s.getContents(), imageFile, format);
 		this.setCurrentImage(instanceState.getInstance(), imageFile);
 	}
 
@@ -46,12 +46,29 @@ class MemContents implements Cloneable, HexModel {
 
 	private static final int PAGE_MASK = PAGE_SIZE - 1;
 
+	private static final int MAX_DIRTY_RANGES = 16;
+
 	private EventSourceWeakSupport<HexModelListener> listeners = null;
+	/*
+	 * Listeners owned by the simulation state of the memory itself. They hear
+	 * about edits but not about writes made through setDeferred, so that a
+	 * running simulation only tracks dirty ranges when an editor is open.
+	 */
+	private EventSourceWeakSupport<HexModelListener> stateListeners = null;
 	private int width;
 	private int addrBits;
 	private int mask;
 	private MemContentsSub.ContentsInterface[] pages;
 
+	/*
+	 * Ranges written by setDeferred that have not been published to the
+	 * listeners yet, as inclusive [start, end] pairs; guarded by dirtyLock.
+	 */
+	private Object dirtyLock = new Object();
+	private long[] dirtyStart = new long[MAX_DIRTY_RANGES];
+	private long[] dirtyEnd = new long[MAX_DIRTY_RANGES];
+	private int dirtyCount = 0;
+
 	private MemContents(int addrBits, int width) {
 		listeners = null;
 		setDimensions(addrBits, width);
@@ -66,6 +83,12 @@ class MemContents implements Cloneable, HexModel {
 		listeners.add(l);
 	}
 
+	void addStateListener(HexModelListener l) {
+		if (stateListeners == null)
+			stateListeners = new EventSourceWeakSupport<HexModelListener>();
+		stateListeners.add(l);
+	}
+
 	public void clear() {
 		for (int i = 0; i < pages.length; i++) {
 			if (pages[i] != null) {
@@ -86,6 +109,7 @@ class MemContents implements Cloneable, HexModel {
 				changed = true;
 		}
 		if (changed) {
+			page.release();
 			pages[index] = null;
 			fireBytesChanged(index << PAGE_SIZE_BITS, oldValues.length,
 					oldValues);
@@ -100,10 +124,15 @@ class MemContents implements Cloneable, HexModel {
 		try {
 			MemContents ret = (MemContents) super.clone();
 			ret.listeners = null;
+			ret.stateListeners = null;
+			ret.dirtyLock = new Object();
+			ret.dirtyStart = new long[MAX_DIRTY_RANGES];
+			ret.dirtyEnd = new long[MAX_DIRTY_RANGES];
+			ret.dirtyCount = 0;
 			ret.pages = new MemContentsSub.ContentsInterface[this.pages.length];
 			for (int i = 0; i < ret.pages.length; i++) {
 				if (this.pages[i] != null) {
-					ret.pages[i] = this.pages[i].clone();
+					ret.pages[i] = this.pages[i].share();
 				}
 			}
 			return ret;
@@ -112,10 +141,20 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
-	private void ensurePage(int index) {
-		if (pages[index] == null) {
-			pages[index] = MemContentsSub.createContents(PAGE_SIZE, width);
+	/**
+	 * Returns the page at the given index, ready for writing. A missing page
+	 * is allocated and a page shared with a clone is copied first.
+	 */
+	private MemContentsSub.ContentsInterface ensurePage(int index) {
+		MemContentsSub.ContentsInterface page = pages[index];
+		if (page == null) {
+			page = MemContentsSub.createContents(PAGE_SIZE, width);
+			pages[index] = page;
+		} else if (page.isShared()) {
+			page = page.unshare();
+			pages[index] = page;
 		}
+		return page;
 	}
 
 	public void fill(long start, long len, int value) {
@@ -129,11 +168,12 @@ class MemContents implements Cloneable, HexModel {
 		value &= mask;
 
 		if (pageStart == pageEnd) {
-			ensurePage(pageStart);
 			int[] vals = new int[(int) len];
 			Arrays.fill(vals, value);
 			MemContentsSub.ContentsInterface page = pages[pageStart];
-			if (!page.matches(vals, startOffs, mask)) {
+			if (page == null ? value != 0 : !page.matches(vals, startOffs,
+					mask)) {
+				page = ensurePage(pageStart);
 				int[] oldValues = page.get(startOffs, (int) len);
 				page.load(startOffs, vals, mask);
 				if (value == 0 && page.isClear())
@@ -147,11 +187,11 @@ class MemContents implements Cloneable, HexModel {
 				if (value == 0 && pages[pageStart] == null) {
 					// nothing to do
 				} else {
-					ensurePage(pageStart);
 					int[] vals = new int[PAGE_SIZE - startOffs];
 					Arrays.fill(vals, value);
 					MemContentsSub.ContentsInterface page = pages[pageStart];
-					if (!page.matches(vals, startOffs, mask)) {
+					if (page == null || !page.matches(vals, startOffs, mask)) {
+						page = ensurePage(pageStart);
 						int[] oldValues = page.get(startOffs, vals.length);
 						page.load(startOffs, vals, mask);
 						if (value == 0 && page.isClear())
@@ -170,9 +210,9 @@ class MemContents implements Cloneable, HexModel {
 				int[] vals = new int[PAGE_SIZE];
 				Arrays.fill(vals, value);
 				for (int i = pageStart + 1; i < pageEnd; i++) {
-					ensurePage(i);
 					MemContentsSub.ContentsInterface page = pages[i];
-					if (!page.matches(vals, 0, mask)) {
+					if (page == null || !page.matches(vals, 0, mask)) {
+						page = ensurePage(i);
 						int[] oldValues = page.get(0, PAGE_SIZE);
 						page.load(0, vals, mask);
 						fireBytesChanged((long) i << PAGE_SIZE_BITS, PAGE_SIZE,
@@ -185,10 +225,10 @@ class MemContents implements Cloneable, HexModel {
 				if (value == 0 && page == null) {
 					// nothing to do
 				} else {
-					ensurePage(pageEnd);
 					int[] vals = new int[endOffs + 1];
 					Arrays.fill(vals, value);
-					if (!page.matches(vals, 0, mask)) {
+					if (page == null || !page.matches(vals, 0, mask)) {
+						page = ensurePage(pageEnd);
 						int[] oldValues = page.get(0, endOffs + 1);
 						page.load(0, vals, mask);
 						if (value == 0 && page.isClear())
@@ -201,7 +241,71 @@ class MemContents implements Cloneable, HexModel {
 		}
 	}
 
+	/**
+	 * Publishes the writes recorded by {@link #setDeferred}. Each coalesced
+	 * range is reported with null old values.
+	 */
+	void flushDeferred() {
+		long[] starts;
+		long[] ends;
+		int count;
+		synchronized (dirtyLock) {
+			count = dirtyCount;
+			starts = Arrays.copyOf(dirtyStart, count);
+			ends = Arrays.copyOf(dirtyEnd, count);
+			dirtyCount = 0;
+		}
+		if (listeners == null)
+			return;
+		for (int i = 0; i < count; i++) {
+			for (HexModelListener l : listeners) {
+				l.bytesChanged(this, starts[i], ends[i] - starts[i] + 1, null);
+			}
+		}
+	}
+
+	private void markDirty(long addr) {
+		boolean schedule;
+		synchronized (dirtyLock) {
+			schedule = dirtyCount == 0;
+			for (int i = dirtyCount - 1; i >= 0; i--) {
+				if (addr >= dirtyStart[i] - 1 && addr <= dirtyEnd[i] + 1) {
+					dirtyStart[i] = Math.min(dirtyStart[i], addr);
+					dirtyEnd[i] = Math.max(dirtyEnd[i], addr);
+					return;
+				}
+			}
+			if (dirtyCount == MAX_DIRTY_RANGES) {
+				// too scattered: collapse everything into one bounding range
+				long start = addr;
+				long end = addr;
+				for (int i = 0; i < dirtyCount; i++) {
+					start = Math.min(start, dirtyStart[i]);
+					end = Math.max(end, dirtyEnd[i]);
+				}
+				dirtyStart[0] = start;
+				dirtyEnd[0] = end;
+				dirtyCount = 1;
+			} else {
+				dirtyStart[dirtyCount] = addr;
+				dirtyEnd[dirtyCount] = addr;
+				dirtyCount++;
+			}
+		}
+		if (schedule)
+			MemNotifyThread.schedule(this);
+	}
+
 	private void fireBytesChanged(long start, long numBytes, int[] oldValues) {
+		if (stateListeners != null) {
+			boolean found = false;
+			for (HexModelListener l : stateListeners) {
+				found = true;
+				l.bytesChanged(this, start, numBytes, oldValues);
+			}
+			if (!found)
+				stateListeners = null;
+		}
 		if (listeners == null)
 			return;
 		boolean found = false;
@@ -214,6 +318,15 @@ class MemContents implements Cloneable, HexModel {
 	}
 
 	private void fireMetainfoChanged() {
+		if (stateListeners != null) {
+			boolean found = false;
+			for (HexModelListener l : stateListeners) {
+				found = true;
+				l.metainfoChanged(this);
+			}
+			if (!found)
+				stateListeners = null;
+		}
 		if (listeners == null)
 			return;
 		boolean found = false;
@@ -253,6 +366,36 @@ class MemContents implements Cloneable, HexModel {
 		return width;
 	}
 
+	/**
+	 * Returns the number of words held in allocated pages. Untouched pages
+	 * are not allocated, so this is small for sparse contents.
+	 */
+	long getPopulatedLength() {
+		long ret = 0;
+		for (int i = 0; i < pages.length; i++) {
+			if (pages[i] != null)
+				ret += PAGE_SIZE;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the number of words up to and including the last non-zero one,
+	 * like HexFile.getUsedLength but without visiting unallocated pages.
+	 */
+	long getUsedLength() {
+		for (int i = pages.length - 1; i >= 0; i--) {
+			MemContentsSub.ContentsInterface page = pages[i];
+			if (page != null) {
+				for (int j = page.getLength() - 1; j >= 0; j--) {
+					if ((page.get(j) & mask) != 0)
+						return ((long) i << PAGE_SIZE_BITS) + j + 1;
+				}
+			}
+		}
+		return 0;
+	}
+
 	public boolean isClear() {
 		for (int i = 0; i < pages.length; i++) {
 			MemContentsSub.ContentsInterface page = pages[i];
@@ -269,7 +412,7 @@ class MemContents implements Cloneable, HexModel {
 	public void removeHexModelListener(HexModelListener l) {
 		if (listeners == null)
 			return;
-		listeners.add(l);
+		listeners.remove(l);
 		if (listeners.isEmpty())
 			listeners = null;
 	}
@@ -280,14 +423,30 @@ class MemContents implements Cloneable, HexModel {
 		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
 		int val = value & mask;
 		if (old != val) {
-			if (pages[page] == null) {
-				pages[page] = MemContentsSub.createContents(PAGE_SIZE, width);
-			}
-			pages[page].set(offs, val);
+			ensurePage(page).set(offs, val);
 			fireBytesChanged(addr, 1, new int[] { old });
 		}
 	}
 
+	/**
+	 * Sets a value as {@link #set(long, int)} does, but for writes made by a
+	 * running simulation: the change is not reported right away. Instead the
+	 * address is recorded and listeners are told about the coalesced ranges
+	 * a few times per second. Nothing is recorded unless a listener other
+	 * than the memory's own state is registered, such as an open hex editor.
+	 */
+	void setDeferred(long addr, int value) {
+		int page = (int) (addr >>> PAGE_SIZE_BITS);
+		int offs = (int) (addr & PAGE_MASK);
+		int old = pages[page] == null ? 0 : pages[page].get(offs) & mask;
+		int val = value & mask;
+		if (old != val) {
+			ensurePage(page).set(offs, val);
+			if (listeners != null)
+				markDirty(addr);
+		}
+	}
+
 	public void set(long start, int[] values) {
 		if (values.length == 0)
 			return;
@@ -298,9 +457,9 @@ class MemContents implements Cloneable, HexModel {
 		int endOffs = (int) ((start + values.length - 1) & PAGE_MASK);
 
 		if (pageStart == pageEnd) {
-			ensurePage(pageStart);
 			MemContentsSub.ContentsInterface page = pages[pageStart];
-			if (!page.matches(values, startOffs, mask)) {
+			if (page == null || !page.matches(values, startOffs, mask)) {
+				page = ensurePage(pageStart);
 				int[] oldValues = page.get(startOffs, values.length);
 				page.load(startOffs, values, mask);
 				if (page.isClear())
@@ -313,11 +472,11 @@ class MemContents implements Cloneable, HexModel {
 				pageStart--;
 				nextOffs = 0;
 			} else {
-				ensurePage(pageStart);
 				int[] vals = new int[PAGE_SIZE - startOffs];
 				System.arraycopy(values, 0, vals, 0, vals.length);
 				MemContentsSub.ContentsInterface page = pages[pageStart];
-				if (!page.matches(vals, startOffs, mask)) {
+				if (page == null || !page.matches(vals, startOffs, mask)) {
+					page = ensurePage(pageStart);
 					int[] oldValues = page.get(startOffs, vals.length);
 					page.load(startOffs, vals, mask);
 					if (page.isClear())
@@ -339,13 +498,13 @@ class MemContents implements Cloneable, HexModel {
 						}
 					}
 					if (!allZeroes) {
-						page = MemContentsSub.createContents(PAGE_SIZE, width);
-						pages[i] = page;
+						page = ensurePage(i);
 					}
 				}
 				if (page != null) {
 					System.arraycopy(values, offs, vals, 0, PAGE_SIZE);
-					if (!page.matches(vals, startOffs, mask)) {
+					if (!page.matches(vals, 0, mask)) {
+						page = ensurePage(i);
 						int[] oldValues = page.get(0, PAGE_SIZE);
 						page.load(0, vals, mask);
 						if (page.isClear())
@@ -356,11 +515,11 @@ class MemContents implements Cloneable, HexModel {
 				}
 			}
 			if (endOffs >= 0) {
-				ensurePage(pageEnd);
 				vals = new int[endOffs + 1];
 				System.arraycopy(values, offs, vals, 0, endOffs + 1);
 				MemContentsSub.ContentsInterface page = pages[pageEnd];
-				if (!page.matches(vals, startOffs, mask)) {
+				if (page == null || !page.matches(vals, 0, mask)) {
+					page = ensurePage(pageEnd);
 					int[] oldValues = page.get(0, endOffs + 1);
 					page.load(0, vals, mask);
 					if (page.isClear())
@@ -399,6 +558,7 @@ class MemContents implements Cloneable, HexModel {
 					for (int j = 0; j < m; j++) {
 						pages[i].set(j, oldPages[i].get(j));
 					}
+					oldPages[i].release();
 				}
 			}
 		}
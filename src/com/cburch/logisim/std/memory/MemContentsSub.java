@@ -86,17 +86,52 @@ class MemContentsSub {
 	}
 
 	static abstract class ContentsInterface implements Cloneable {
+		/*
+		 * Number of MemContents objects currently referring to this page.
+		 * Pages are shared between clones and only copied when one of the
+		 * owners is about to write to a shared page (copy-on-write).
+		 */
+		private int refCount = 1;
+
 		abstract void clear();
 
 		@Override
 		public ContentsInterface clone() {
 			try {
-				return (ContentsInterface) super.clone();
+				ContentsInterface ret = (ContentsInterface) super.clone();
+				ret.refCount = 1;
+				return ret;
 			} catch (CloneNotSupportedException e) {
 				return this;
 			}
 		}
 
+		synchronized boolean isShared() {
+			return refCount > 1;
+		}
+
+		synchronized void release() {
+			if (refCount > 0)
+				refCount--;
+		}
+
+		synchronized ContentsInterface share() {
+			refCount++;
+			return this;
+		}
+
+		/**
+		 * Returns a page that the caller may modify. If the page is shared
+		 * with other owners, a private copy is returned and this page loses
+		 * one reference; otherwise the page itself is returned.
+		 */
+		synchronized ContentsInterface unshare() {
+			if (refCount <= 1)
+				return this;
+			refCount--;
+			return clone();
+		}
+
 		abstract int get(int addr);
 
 		int[] get(int start, int len) {
@@ -166,7 +201,7 @@ class MemContentsSub {
 		void load(int start, int[] values, int mask) {
 			int n = Math.min(values.length, data.length - start);
 			for (int i = 0; i < n; i++) {
-				data[i] = values[i] & mask;
+				data[start + i] = values[i] & mask;
 			}
 		}
 
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.cburch.hex.HexModel;
+import com.cburch.hex.HexModelListener;
+
+public class MemContentsTest {
+
+	@Test
+	public final void testCloneIsIndependent() {
+		MemContents a = MemContents.create(16, 8);
+		a.set(0x10, 0x12);
+		a.set(0x2010, 0x34);
+		MemContents b = a.clone();
+		assertEquals(0x12, b.get(0x10));
+		assertEquals(0x34, b.get(0x2010));
+
+		// writes on either side must not leak into the other copy
+		b.set(0x10, 0x56);
+		a.set(0x2010, 0x78);
+		assertEquals(0x12, a.get(0x10));
+		assertEquals(0x56, b.get(0x10));
+		assertEquals(0x78, a.get(0x2010));
+		assertEquals(0x34, b.get(0x2010));
+	}
+
+	@Test
+	public final void testCloneOfCloneAndClear() {
+		MemContents a = MemContents.create(14, 16);
+		a.fill(0, 1 << 14, 0xabcd);
+		MemContents b = a.clone();
+		MemContents c = b.clone();
+		b.clear();
+		assertTrue(b.isClear());
+		assertEquals(0xabcd, a.get(0x3fff));
+		assertEquals(0xabcd, c.get(0x0000));
+		c.fill(0x1000, 0x1000, 0);
+		assertEquals(0, c.get(0x1800));
+		assertEquals(0xabcd, a.get(0x1800));
+	}
+
+	@Test
+	public final void testDeferredWritesAreCoalesced() {
+		final List<long[]> events = Collections
+				.synchronizedList(new ArrayList<long[]>());
+		HexModelListener l = new HexModelListener() {
+			public void bytesChanged(HexModel source, long start,
+					long numBytes, int[] oldValues) {
+				events.add(new long[] { start, numBytes });
+			}
+
+			public void metainfoChanged(HexModel source) {
+			}
+		};
+		MemContents a = MemContents.create(16, 8);
+		a.addHexModelListener(l);
+		for (int i = 0; i < 100; i++)
+			a.setDeferred(0x100 + i, i + 1);
+		a.setDeferred(0x8000, 1);
+		// the notifier thread may already have published the changes
+		a.flushDeferred();
+		assertEquals(2, events.size());
+		assertEquals(0x100, events.get(0)[0]);
+		assertEquals(100, events.get(0)[1]);
+		assertEquals(0x8000, events.get(1)[0]);
+		assertEquals(1, events.get(1)[1]);
+		assertEquals(100, a.get(0x163));
+		a.removeHexModelListener(l);
+	}
+
+	@Test
+	public final void testStateListenerSkipsDeferredWrites() {
+		final List<long[]> events = Collections
+				.synchronizedList(new ArrayList<long[]>());
+		HexModelListener l = new HexModelListener() {
+			public void bytesChanged(HexModel source, long start,
+					long numBytes, int[] oldValues) {
+				events.add(new long[] { start, numBytes });
+			}
+
+			public void metainfoChanged(HexModel source) {
+			}
+		};
+		MemContents a = MemContents.create(16, 8);
+		a.addStateListener(l);
+		a.setDeferred(0x10, 1);
+		a.flushDeferred();
+		assertTrue(events.isEmpty());
+		assertEquals(1, a.get(0x10));
+
+		// edits still reach the state listener
+		a.set(0x20, 2);
+		assertEquals(1, events.size());
+		assertEquals(0x20, events.get(0)[0]);
+	}
+}
@@ -40,6 +40,7 @@ import javax.swing.JFileChooser;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
+import javax.swing.filechooser.FileFilter;
 
 import com.cburch.logisim.circuit.CircuitState;
 import com.cburch.logisim.gui.hex.HexFile;
@@ -49,6 +50,35 @@ import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.tools.MenuExtender;
 
 class MemMenu implements ActionListener, MenuExtender {
+	private static class ImageFileFilter extends FileFilter {
+		private int format;
+		private String key;
+		private String[] extensions;
+
+		ImageFileFilter(int format, String key, String... extensions) {
+			this.format = format;
+			this.key = key;
+			this.extensions = extensions;
+		}
+
+		@Override
+		public boolean accept(File f) {
+			if (f.isDirectory() || extensions.length == 0)
+				return true;
+			String name = f.getName().toLowerCase();
+			for (String ext : extensions) {
+				if (name.endsWith(ext))
+					return true;
+			}
+			return false;
+		}
+
+		@Override
+		public String getDescription() {
+			return Strings.get(key);
+		}
+	}
+
 	private Mem factory;
 	private Instance instance;
 	private Project proj;
@@ -135,11 +165,29 @@ class MemMenu implements ActionListener, MenuExtender {
 		if (oldSelected != null)
 			chooser.setSelectedFile(oldSelected);
 		chooser.setDialogTitle(Strings.get("ramLoadDialogTitle"));
+		ImageFileFilter[] filters = {
+				new ImageFileFilter(HexFile.FORMAT_LOGISIM,
+						"ramLoadLogisimFilter"),
+				new ImageFileFilter(HexFile.FORMAT_INTEL_HEX,
+						"ramLoadIntelHexFilter", ".hex", ".ihx"),
+				new ImageFileFilter(HexFile.FORMAT_BINARY_LE,
+						"ramLoadBinaryLeFilter", ".bin"),
+				new ImageFileFilter(HexFile.FORMAT_BINARY_BE,
+						"ramLoadBinaryBeFilter", ".bin") };
+		for (ImageFileFilter filter : filters)
+			chooser.addChoosableFileFilter(filter);
+		chooser.setFileFilter(chooser.getAcceptAllFileFilter());
 		int choice = chooser.showOpenDialog(frame);
 		if (choice == JFileChooser.APPROVE_OPTION) {
 			File f = chooser.getSelectedFile();
 			try {
-				factory.loadImage(circState.getInstanceState(instance), f);
+				if (chooser.getFileFilter() instanceof ImageFileFilter) {
+					int format = ((ImageFileFilter) chooser.getFileFilter()).format;
+					factory.loadImage(circState.getInstanceState(instance), f,
+							format);
+				} else {
+					factory.loadImage(circState.getInstanceState(instance), f);
+				}
 			} catch (IOException e) {
 				JOptionPane.showMessageDialog(frame, e.getMessage(),
 						Strings.get("ramLoadErrorTitle"),
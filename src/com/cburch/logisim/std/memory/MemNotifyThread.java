@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import java.util.LinkedHashSet;
+
+/**
+ * Publishes the memory writes recorded by {@link MemContents#setDeferred}
+ * at screen refresh rate rather than on every write of a running simulation.
+ */
+class MemNotifyThread extends Thread {
+	private static final int NOTIFY_TIMESPAN = 40; // 40 ms between notifies
+
+	private static MemNotifyThread instance = null;
+
+	static synchronized void schedule(MemContents contents) {
+		if (instance == null) {
+			instance = new MemNotifyThread();
+			instance.start();
+		}
+		instance.add(contents);
+	}
+
+	private LinkedHashSet<MemContents> pending;
+
+	private MemNotifyThread() {
+		super("MemNotifyThread");
+		setDaemon(true);
+		pending = new LinkedHashSet<MemContents>();
+	}
+
+	private synchronized void add(MemContents contents) {
+		if (pending.add(contents) && pending.size() == 1)
+			notifyAll();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			MemContents[] toFlush;
+			synchronized (this) {
+				while (pending.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+					}
+				}
+			}
+			try {
+				Thread.sleep(NOTIFY_TIMESPAN);
+			} catch (InterruptedException e) {
+			}
+			synchronized (this) {
+				toFlush = pending.toArray(new MemContents[pending.size()]);
+				pending.clear();
+			}
+			for (MemContents contents : toFlush) {
+				contents.flushDeferred();
+			}
+		}
+	}
+}
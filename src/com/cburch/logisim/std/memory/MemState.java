@@ -62,7 +62,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 	MemState(MemContents contents) {
 		this.contents = contents;
 		setBits(contents.getLogLength(), contents.getWidth());
-		contents.addHexModelListener(this);
+		contents.addStateListener(this);
 	}
 
 	public void bytesChanged(HexModel source, long start, long numBytes,
@@ -120,7 +120,7 @@ class MemState implements InstanceData, Cloneable, HexModelListener {
 		try {
 			MemState ret = (MemState) super.clone();
 			ret.contents = contents.clone();
-			ret.contents.addHexModelListener(ret);
+			ret.contents.addStateListener(ret);
 			return ret;
 		} catch (CloneNotSupportedException e) {
 			return null;
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MemTest {
+
+	private static void assertSameContents(MemContents expected,
+			MemContents actual) {
+		assertEquals(expected.getLogLength(), actual.getLogLength());
+		assertEquals(expected.getWidth(), actual.getWidth());
+		for (long a = 0; a <= expected.getLastOffset(); a++)
+			assertEquals("word " + a, expected.get(a), actual.get(a));
+	}
+
+	private static MemContents roundTrip(MemContents mem) {
+		MemContents ret = Mem.parseContents(Mem.toContentsString(mem));
+		assertSameContents(mem, ret);
+		return ret;
+	}
+
+	@Test
+	public final void testSmallContentsStayReadable() {
+		MemContents mem = MemContents.create(8, 8);
+		mem.set(0, 0x12);
+		mem.fill(4, 10, 0xff);
+		mem.set(200, 0x7);
+		String text = Mem.toContentsString(mem);
+		assertTrue(text.startsWith("addr/data: 8 8\n"));
+		assertTrue(text.contains("10*ff"));
+		roundTrip(mem);
+		roundTrip(MemContents.create(4, 32));
+	}
+
+	@Test
+	public final void testLargeContentsAreCompressed() {
+		Random rand = new Random(0);
+		int[] widths = { 1, 7, 8, 12, 16, 24, 32 };
+		for (int width : widths) {
+			MemContents mem = MemContents.create(14, width);
+			for (long a = 0; a < 10000; a++)
+				mem.set(a, rand.nextInt());
+			String text = Mem.toContentsString(mem);
+			assertTrue(text.startsWith("addr/data: 14 " + width + " deflate\n"));
+			roundTrip(mem);
+		}
+	}
+
+	@Test
+	public final void testSparseContentsAreNotExpanded() {
+		MemContents mem = MemContents.create(24, 8);
+		Random rand = new Random(1);
+		for (long a = 0; a < 5000; a++)
+			mem.set(a, rand.nextInt());
+		mem.set(mem.getLastOffset(), 0x5a);
+		String text = Mem.toContentsString(mem);
+		assertFalse(text.contains("deflate"));
+		// the gap of some 16M zeros is a single token
+		assertTrue(text.length() < 20000);
+		MemContents back = Mem.parseContents(text);
+		assertEquals(0x5a, back.get(back.getLastOffset()));
+		for (long a = 0; a < 5000; a++)
+			assertEquals(mem.get(a), back.get(a));
+		assertEquals(0, back.get(1 << 20));
+		assertEquals(mem.getUsedLength(), back.getUsedLength());
+	}
+
+	@Test
+	public final void testUsedLength() {
+		MemContents mem = MemContents.create(16, 8);
+		assertEquals(0, mem.getUsedLength());
+		assertEquals(0, mem.getPopulatedLength());
+		mem.set(0x5000, 1);
+		mem.set(0x5001, 0);
+		assertEquals(0x5001, mem.getUsedLength());
+		assertTrue(mem.getPopulatedLength() > 0);
+		mem.set(0x5000, 0);
+		assertEquals(0, mem.getUsedLength());
+	}
+
+	/**
+	 * Contents as written before compression was introduced still load.
+	 */
+	@Test
+	public final void testOldFormatLoads() {
+		MemContents mem = Mem.parseContents("addr/data: 8 16\n"
+				+ "0 1 ffff 3 4 5 6 7\n" + "8 9 a b 16*0 c\n" + "5*1234\n");
+		assertEquals(8, mem.getLogLength());
+		assertEquals(16, mem.getWidth());
+		assertEquals(0, mem.get(0));
+		assertEquals(0xffff, mem.get(2));
+		assertEquals(0xb, mem.get(11));
+		assertEquals(0, mem.get(27));
+		assertEquals(0xc, mem.get(28));
+		assertEquals(0x1234, mem.get(29));
+		assertEquals(0x1234, mem.get(33));
+		assertEquals(0, mem.get(34));
+
+		assertNull(Mem.parseContents("8 16\n1 2 3\n"));
+		assertNull(Mem.parseContents("addr/data: 8 16 deflate\n!!!\n"));
+	}
+}
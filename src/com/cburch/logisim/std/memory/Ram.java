@@ -34,23 +34,18 @@ import java.awt.Graphics;
 import java.awt.Window;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
 
 import javax.swing.JLabel;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.circuit.CircuitState;
+import com.cburch.logisim.circuit.StateElement;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 import com.cburch.logisim.data.Value;
-import com.cburch.logisim.gui.hex.HexFile;
 import com.cburch.logisim.gui.hex.HexFrame;
 import com.cburch.logisim.gui.main.Frame;
 import com.cburch.logisim.instance.Instance;
@@ -62,7 +57,7 @@ import com.cburch.logisim.instance.StdAttr;
 import com.cburch.logisim.proj.Project;
 import com.cburch.logisim.util.GraphicsUtil;
 
-public class Ram extends Mem {
+public class Ram extends Mem implements StateElement {
 
 	static class ContentsAttribute extends Attribute<MemContents> {
 
@@ -78,28 +73,7 @@ public class Ram extends Mem {
 		}
 
 		public MemContents parse(String value) {
-			int lineBreak = value.indexOf('\n');
-			String first = lineBreak < 0 ? value : value
-					.substring(0, lineBreak);
-			String rest = lineBreak < 0 ? "" : value.substring(lineBreak + 1);
-			StringTokenizer toks = new StringTokenizer(first);
-			try {
-				String header = toks.nextToken();
-				if (!header.equals("addr/data:")) {
-					return null;
-				}
-				int addr = Integer.parseInt(toks.nextToken());
-				int data = Integer.parseInt(toks.nextToken());
-				MemContents ret = MemContents.create(addr, data);
-				HexFile.open(ret, new StringReader(rest));
-				return ret;
-			} catch (IOException e) {
-				return null;
-			} catch (NumberFormatException e) {
-				return null;
-			} catch (NoSuchElementException e) {
-				return null;
-			}
+			return parseContents(value);
 		}
 
 		@Override
@@ -109,15 +83,7 @@ public class Ram extends Mem {
 
 		@Override
 		public String toStandardString(MemContents state) {
-			int addr = state.getLogLength();
-			int data = state.getWidth();
-			StringWriter ret = new StringWriter();
-			ret.write("addr/data: " + addr + " " + data + "\n");
-			try {
-				HexFile.save(ret, state);
-			} catch (IOException e) {
-			}
-			return ret.toString();
+			return toContentsString(state);
 		}
 	}
 
@@ -817,7 +783,7 @@ public class Ram extends Mem {
 						mask >>= 8;
 					}
 				}
-				myState.getContents().set(addr, dataValue);
+				myState.getContents().setDeferred(addr, dataValue);
 			}
 			int val = myState.getContents().get(addr);
 			int currentValue = myState.GetCurrentData();
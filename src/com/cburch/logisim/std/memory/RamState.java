@@ -54,7 +54,7 @@ public class RamState extends MemState implements InstanceData,
 		if (parent != null) {
 			parent.getAttributeSet().addAttributeListener(this);
 		}
-		contents.addHexModelListener(listener);
+		contents.addStateListener(listener);
 	}
 
 	@Override
@@ -76,7 +76,7 @@ public class RamState extends MemState implements InstanceData,
 		RamState ret = (RamState) super.clone();
 		ret.parent = null;
 		ret.clockState = this.clockState.clone();
-		ret.getContents().addHexModelListener(listener);
+		ret.getContents().addStateListener(listener);
 		return ret;
 	}
 
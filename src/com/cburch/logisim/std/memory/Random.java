@@ -32,6 +32,7 @@ package com.cburch.logisim.std.memory;
 
 import java.awt.Graphics;
 
+import com.cburch.logisim.circuit.StateElement;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Attributes;
@@ -50,7 +51,7 @@ import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 
-public class Random extends InstanceFactory {
+public class Random extends InstanceFactory implements StateElement {
 	public static class Logger extends InstanceLogger {
 		@Override
 		public String getLogName(InstanceState state, Object option) {
@@ -34,6 +34,7 @@ import java.awt.Color;
 import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
+import com.cburch.logisim.circuit.StateElement;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Attributes;
@@ -51,7 +52,7 @@ import com.cburch.logisim.tools.key.BitWidthConfigurator;
 import com.cburch.logisim.util.GraphicsUtil;
 import com.cburch.logisim.util.StringUtil;
 
-public class Register extends InstanceFactory {
+public class Register extends InstanceFactory implements StateElement {
 	public static void DrawRegister(InstancePainter painter, int x, int y,
 			int nr_of_bits, boolean isLatch, boolean neg_active,
 			boolean has_we, String value) {
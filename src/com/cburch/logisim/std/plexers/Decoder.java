@@ -35,6 +35,8 @@ import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -78,6 +80,11 @@ public class Decoder extends InstanceFactory {
 		return Plexers.contains(loc, getOffsetBounds(attrs), facing);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Plexers.Config(attrs, BitWidth.ONE);
+	}
+
 	@Override
 	public Object getDefaultAttributeValue(Attribute<?> attr, LogisimVersion ver) {
 		if (attr == Plexers.ATTR_ENABLE) {
@@ -98,6 +105,31 @@ public class Decoder extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			if (instance.getAttributeValue(Plexers.ATTR_TRISTATE)
+					.booleanValue())
+				return null; // the other outputs would always float
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					BitWidth select = instance
+							.getAttributeValue(Plexers.ATTR_SELECT);
+					int outputs = 1 << select.getWidth();
+					long enabled = Plexers.computeEnabledSlice(state, instance,
+							outputs + 1);
+
+					for (int i = 0; i < outputs; i++) {
+						long chosen = enabled
+								& Plexers.computeSelectedSlice(state, outputs, i);
+						state.setPortSlices(i, new long[] { chosen });
+					}
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		Direction facing = attrs.getValue(StdAttr.FACING);
@@ -267,16 +299,15 @@ public class Decoder extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		// get attributes
-		BitWidth data = BitWidth.ONE;
-		BitWidth select = state.getAttributeValue(Plexers.ATTR_SELECT);
-		Boolean threeState = state.getAttributeValue(Plexers.ATTR_TRISTATE);
-		boolean enable = state.getAttributeValue(Plexers.ATTR_ENABLE)
-				.booleanValue();
-		int outputs = 1 << select.getWidth();
+		Plexers.Config cfg = (Plexers.Config) state.getInstance()
+				.getConfiguration();
+		BitWidth data = cfg.data;
+		boolean enable = cfg.enable;
+		int outputs = 1 << cfg.select.getWidth();
 
 		// determine default output values
 		Value others; // the default output
-		if (threeState.booleanValue()) {
+		if (cfg.threeState) {
 			others = Value.UNKNOWN;
 		} else {
 			others = Value.FALSE;
@@ -287,10 +318,7 @@ public class Decoder extends InstanceFactory {
 		Value out = null;
 		Value en = enable ? state.getPortValue(outputs + 1) : Value.TRUE;
 		if (en == Value.FALSE) {
-			Object opt = state.getAttributeValue(Plexers.ATTR_DISABLED);
-			Value base = opt == Plexers.DISABLED_ZERO ? Value.FALSE
-					: Value.UNKNOWN;
-			others = Value.repeat(base, data.getWidth());
+			others = cfg.disabled;
 		} else if (en == Value.ERROR && state.isPortConnected(outputs + 1)) {
 			others = Value.createError(data);
 		} else {
@@ -35,6 +35,8 @@ import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -81,6 +83,11 @@ public class Demultiplexer extends InstanceFactory {
 		return Plexers.contains(loc, getOffsetBounds(attrs), facing);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Plexers.Config(attrs, attrs.getValue(StdAttr.WIDTH));
+	}
+
 	@Override
 	public Object getDefaultAttributeValue(Attribute<?> attr, LogisimVersion ver) {
 		if (attr == Plexers.ATTR_ENABLE) {
@@ -103,6 +110,43 @@ public class Demultiplexer extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			if (instance.getAttributeValue(Plexers.ATTR_TRISTATE)
+					.booleanValue())
+				return null; // the other outputs would always float
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					BitWidth data = instance.getAttributeValue(StdAttr.WIDTH);
+					BitWidth select = instance
+							.getAttributeValue(Plexers.ATTR_SELECT);
+					boolean enable = instance.getAttributeValue(
+							Plexers.ATTR_ENABLE).booleanValue();
+					int outputs = 1 << select.getWidth();
+					long enabled = Plexers.computeEnabledSlice(state, instance,
+							outputs + 1);
+					long[] in = state.getPortSlices(outputs + (enable ? 2 : 1));
+					if (in == null) {
+						state.setUndefined(enabled);
+						in = new long[data.getWidth()];
+					}
+
+					for (int i = 0; i < outputs; i++) {
+						long chosen = enabled
+								& Plexers.computeSelectedSlice(state, outputs, i);
+						long[] out = new long[in.length];
+						for (int b = 0; b < out.length; b++) {
+							out[b] = chosen & in[b];
+						}
+						state.setPortSlices(i, out);
+					}
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		Direction facing = attrs.getValue(StdAttr.FACING);
@@ -266,17 +310,16 @@ public class Demultiplexer extends InstanceFactory {
 	@Override
 	public void propagate(InstanceState state) {
 		// get attributes
-		BitWidth data = state.getAttributeValue(StdAttr.WIDTH);
-		BitWidth select = state.getAttributeValue(Plexers.ATTR_SELECT);
-		Boolean threeState = state.getAttributeValue(Plexers.ATTR_TRISTATE);
-		boolean enable = state.getAttributeValue(Plexers.ATTR_ENABLE)
-				.booleanValue();
-		int outputs = 1 << select.getWidth();
+		Plexers.Config cfg = (Plexers.Config) state.getInstance()
+				.getConfiguration();
+		BitWidth data = cfg.data;
+		boolean enable = cfg.enable;
+		int outputs = 1 << cfg.select.getWidth();
 		Value en = enable ? state.getPortValue(outputs + 1) : Value.TRUE;
 
 		// determine output values
 		Value others; // the default output
-		if (threeState.booleanValue()) {
+		if (cfg.threeState) {
 			others = Value.createUnknown(data);
 		} else {
 			others = Value.createKnown(data, 0);
@@ -284,10 +327,7 @@ public class Demultiplexer extends InstanceFactory {
 		int outIndex = -1; // the special output
 		Value out = null;
 		if (en == Value.FALSE) {
-			Object opt = state.getAttributeValue(Plexers.ATTR_DISABLED);
-			Value base = opt == Plexers.DISABLED_ZERO ? Value.FALSE
-					: Value.UNKNOWN;
-			others = Value.repeat(base, data.getWidth());
+			others = cfg.disabled;
 		} else if (en == Value.ERROR && state.isPortConnected(outputs + 1)) {
 			others = Value.createError(data);
 		} else {
@@ -35,6 +35,8 @@ import java.awt.Graphics;
 
 import com.bfh.logisim.designrulecheck.CorrectLabel;
 import com.cburch.logisim.LogisimVersion;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.BitWidth;
@@ -100,6 +102,11 @@ public class Multiplexer extends InstanceFactory {
 		return Plexers.contains(loc, getOffsetBounds(attrs), facing);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Plexers.Config(attrs, attrs.getValue(StdAttr.WIDTH));
+	}
+
 	@Override
 	public Object getDefaultAttributeValue(Attribute<?> attr, LogisimVersion ver) {
 		if (attr == Plexers.ATTR_ENABLE) {
@@ -122,6 +129,40 @@ public class Multiplexer extends InstanceFactory {
 		return CompleteName.toString();
 	}
 
+	@Override
+	protected Object getInstanceFeature(final Instance instance, Object key) {
+		if (key == BitSliceComputer.class) {
+			return new BitSliceComputer() {
+				public void computeBitSlices(BitSliceState state) {
+					BitWidth data = instance.getAttributeValue(StdAttr.WIDTH);
+					BitWidth select = instance
+							.getAttributeValue(Plexers.ATTR_SELECT);
+					boolean enable = instance.getAttributeValue(
+							Plexers.ATTR_ENABLE).booleanValue();
+					int inputs = 1 << select.getWidth();
+					long enabled = Plexers.computeEnabledSlice(state, instance,
+							inputs + 1);
+
+					long[] out = new long[data.getWidth()];
+					for (int i = 0; i < inputs; i++) {
+						long chosen = enabled
+								& Plexers.computeSelectedSlice(state, inputs, i);
+						long[] in = state.getPortSlices(i);
+						if (in == null) {
+							state.setUndefined(chosen);
+							continue;
+						}
+						for (int b = 0; b < out.length; b++) {
+							out[b] |= chosen & in[b];
+						}
+					}
+					state.setPortSlices(inputs + (enable ? 2 : 1), out);
+				}
+			};
+		}
+		return super.getInstanceFeature(instance, key);
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		Direction dir = attrs.getValue(StdAttr.FACING);
@@ -281,18 +322,15 @@ public class Multiplexer extends InstanceFactory {
 
 	@Override
 	public void propagate(InstanceState state) {
-		BitWidth data = state.getAttributeValue(StdAttr.WIDTH);
-		BitWidth select = state.getAttributeValue(Plexers.ATTR_SELECT);
-		boolean enable = state.getAttributeValue(Plexers.ATTR_ENABLE)
-				.booleanValue();
-		int inputs = 1 << select.getWidth();
+		Plexers.Config cfg = (Plexers.Config) state.getInstance()
+				.getConfiguration();
+		BitWidth data = cfg.data;
+		boolean enable = cfg.enable;
+		int inputs = 1 << cfg.select.getWidth();
 		Value en = enable ? state.getPortValue(inputs + 1) : Value.TRUE;
 		Value out;
 		if (en == Value.FALSE) {
-			Object opt = state.getAttributeValue(Plexers.ATTR_DISABLED);
-			Value base = opt == Plexers.DISABLED_ZERO ? Value.FALSE
-					: Value.UNKNOWN;
-			out = Value.repeat(base, data.getWidth());
+			out = cfg.disabled;
 		} else if (en == Value.ERROR && state.isPortConnected(inputs + 1)) {
 			out = Value.createError(data);
 		} else {
@@ -33,19 +33,84 @@ package com.cburch.logisim.std.plexers;
 import java.awt.Graphics;
 import java.util.List;
 
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.data.Attribute;
 import com.cburch.logisim.data.AttributeOption;
+import com.cburch.logisim.data.AttributeSet;
 import com.cburch.logisim.data.Attributes;
 import com.cburch.logisim.data.BitWidth;
 import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
 import com.cburch.logisim.tools.FactoryDescription;
 import com.cburch.logisim.tools.Library;
 import com.cburch.logisim.tools.Tool;
 import com.cburch.logisim.util.GraphicsUtil;
 
 public class Plexers extends Library {
+	/**
+	 * The attribute values that the plexers' propagate methods need. An
+	 * attribute that a plexer lacks reads as false.
+	 */
+	static class Config {
+		final BitWidth data;
+		final BitWidth select;
+		final boolean enable;
+		final boolean threeState;
+		final boolean disabledZero;
+		/** The data output of a disabled plexer. */
+		final Value disabled;
+
+		Config(AttributeSet attrs, BitWidth data) {
+			this.data = data;
+			this.select = attrs.getValue(ATTR_SELECT);
+			this.enable = Boolean.TRUE.equals(attrs.getValue(ATTR_ENABLE));
+			this.threeState = Boolean.TRUE.equals(attrs
+					.getValue(ATTR_TRISTATE));
+			this.disabledZero = attrs.getValue(ATTR_DISABLED) == DISABLED_ZERO;
+			this.disabled = Value.repeat(disabledZero ? Value.FALSE
+					: Value.UNKNOWN, data.getWidth());
+		}
+	}
+
+	/**
+	 * Returns the vectors for which a plexer is enabled, and marks those for
+	 * which its outputs then float as undefined.
+	 */
+	static long computeEnabledSlice(BitSliceState state, Instance instance,
+			int enablePort) {
+		Config cfg = (Config) instance.getConfiguration();
+		if (!cfg.enable)
+			return -1L;
+		long[] en = state.getPortSlices(enablePort);
+		if (en == null)
+			return -1L;
+		if (!cfg.disabledZero)
+			state.setUndefined(~en[0]);
+		return en[0];
+	}
+
+	/**
+	 * Returns the vectors for which the select input holds the given index.
+	 * An unconnected select input selects nothing, and all vectors are marked
+	 * as undefined.
+	 */
+	static long computeSelectedSlice(BitSliceState state, int selectPort,
+			int index) {
+		long[] select = state.getPortSlices(selectPort);
+		if (select == null) {
+			state.setUndefined(-1L);
+			return 0;
+		}
+		long ret = -1L;
+		for (int i = 0; i < select.length; i++) {
+			ret &= ((index >> i) & 1) == 0 ? ~select[i] : select[i];
+		}
+		return ret;
+	}
+
 	static boolean contains(Location loc, Bounds bds, Direction facing) {
 		if (bds.contains(loc, 1)) {
 			int x = loc.getX();
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.std.plexers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.BitWidth;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.data.Value;
+import com.cburch.logisim.instance.Instance;
+import com.cburch.logisim.instance.StdAttr;
+
+public class PlexersTest {
+
+	@Test
+	public final void testConfigurationFollowsAttributes() {
+		Multiplexer mux = new Multiplexer();
+		AttributeSet attrs = mux.createAttributeSet();
+		Instance instance = Instance.getInstanceFor(mux.createComponent(
+				Location.create(100, 100), attrs));
+		Plexers.Config cfg = (Plexers.Config) instance.getConfiguration();
+		assertSame(cfg, instance.getConfiguration());
+		assertFalse(cfg.enable);
+		assertEquals(Value.FALSE, cfg.disabled);
+
+		attrs.setValue(Plexers.ATTR_ENABLE, Boolean.TRUE);
+		attrs.setValue(StdAttr.WIDTH, BitWidth.create(4));
+		attrs.setValue(Plexers.ATTR_DISABLED, Plexers.DISABLED_FLOATING);
+		cfg = (Plexers.Config) instance.getConfiguration();
+		assertTrue(cfg.enable);
+		assertEquals(4, cfg.data.getWidth());
+		assertEquals(Value.createUnknown(BitWidth.create(4)), cfg.disabled);
+	}
+}
@@ -71,6 +71,11 @@ public class PriorityEncoder extends InstanceFactory {
 		updatePorts(instance);
 	}
 
+	@Override
+	protected Object createConfiguration(AttributeSet attrs) {
+		return new Plexers.Config(attrs, attrs.getValue(Plexers.ATTR_SELECT));
+	}
+
 	@Override
 	public Bounds getOffsetBounds(AttributeSet attrs) {
 		Direction dir = attrs.getValue(StdAttr.FACING);
@@ -152,7 +157,9 @@ public class PriorityEncoder extends InstanceFactory {
 
 	@Override
 	public void propagate(InstanceState state) {
-		BitWidth select = state.getAttributeValue(Plexers.ATTR_SELECT);
+		Plexers.Config cfg = (Plexers.Config) state.getInstance()
+				.getConfiguration();
+		BitWidth select = cfg.select;
 		int n = 1 << select.getWidth();
 		boolean enabled = state.getPortValue(n + EN_IN) != Value.FALSE;
 
@@ -167,10 +174,7 @@ public class PriorityEncoder extends InstanceFactory {
 				}
 			}
 		} else {
-			Object opt = state.getAttributeValue(Plexers.ATTR_DISABLED);
-			Value base = opt == Plexers.DISABLED_ZERO ? Value.FALSE
-					: Value.UNKNOWN;
-			outDefault = Value.repeat(base, select.getWidth());
+			outDefault = cfg.disabled;
 		}
 		if (out < 0) {
 			state.setPort(n + OUT, outDefault, Plexers.DELAY);
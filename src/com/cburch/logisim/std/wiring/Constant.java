@@ -38,6 +38,8 @@ import java.util.Map;
 
 import com.cburch.logisim.analyze.model.Expression;
 import com.cburch.logisim.analyze.model.Expressions;
+import com.cburch.logisim.circuit.BitSliceComputer;
+import com.cburch.logisim.circuit.BitSliceState;
 import com.cburch.logisim.circuit.ExpressionComputer;
 import com.cburch.logisim.data.AbstractAttributeSet;
 import com.cburch.logisim.data.Attribute;
@@ -107,6 +109,26 @@ public class Constant extends InstanceFactory {
 		}
 	}
 
+	private static class ConstantBitSlices implements BitSliceComputer {
+		private Instance instance;
+
+		public ConstantBitSlices(Instance instance) {
+			this.instance = instance;
+		}
+
+		public void computeBitSlices(BitSliceState state) {
+			AttributeSet attrs = instance.getAttributeSet();
+			int width = attrs.getValue(StdAttr.WIDTH).getWidth();
+			int intValue = attrs.getValue(ATTR_VALUE).intValue();
+
+			long[] slices = new long[width];
+			for (int i = 0; i < width; i++) {
+				slices[i] = ((intValue >> i) & 1) == 0 ? 0 : -1L;
+			}
+			state.setPortSlices(0, slices);
+		}
+	}
+
 	private static class ConstantExpression implements ExpressionComputer {
 		private Instance instance;
 
@@ -163,6 +185,8 @@ public class Constant extends InstanceFactory {
 
 	@Override
 	protected Object getInstanceFeature(Instance instance, Object key) {
+		if (key == BitSliceComputer.class)
+			return new ConstantBitSlices(instance);
 		if (key == ExpressionComputer.class)
 			return new ConstantExpression(instance);
 		return super.getInstanceFeature(instance, key);
@@ -52,11 +52,6 @@ public class Wiring extends Library {
 			"gate", Strings.getter("wiringGateAttr"), new AttributeOption[] {
 					GATE_TOP_LEFT, GATE_BOTTOM_RIGHT });
 
-	private static Tool[] ADD_TOOLS = { new AddTool(SplitterFactory.instance),
-			new AddTool(Pin.FACTORY), new AddTool(Probe.FACTORY),
-			new AddTool(Tunnel.FACTORY), new AddTool(PullResistor.FACTORY),
-			new AddTool(Clock.FACTORY), new AddTool(Constant.FACTORY), };
-
 	private static FactoryDescription[] DESCRIPTIONS = {
 			new FactoryDescription("Power", Strings.getter("powerComponent"),
 					"power.gif", "Power"),
@@ -90,9 +85,14 @@ public class Wiring extends Library {
 	@Override
 	public List<Tool> getTools() {
 		if (tools == null) {
-			List<Tool> ret = new ArrayList<Tool>(ADD_TOOLS.length
+			Tool[] addTools = { new AddTool(SplitterFactory.instance),
+					new AddTool(Pin.FACTORY), new AddTool(Probe.FACTORY),
+					new AddTool(Tunnel.FACTORY),
+					new AddTool(PullResistor.FACTORY),
+					new AddTool(Clock.FACTORY), new AddTool(Constant.FACTORY), };
+			List<Tool> ret = new ArrayList<Tool>(addTools.length
 					+ DESCRIPTIONS.length);
-			for (Tool a : ADD_TOOLS) {
+			for (Tool a : addTools) {
 				ret.add(a);
 			}
 			ret.addAll(FactoryDescription.getTools(Wiring.class, DESCRIPTIONS));
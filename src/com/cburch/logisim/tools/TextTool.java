@@ -58,7 +58,7 @@ public class TextTool extends Tool {
 			}
 			int action = event.getAction();
 			if (action == CircuitEvent.ACTION_REMOVE) {
-				if (event.getData() == caretComponent) {
+				if (event.getComponents().contains(caretComponent)) {
 					caret.cancelEditing();
 				}
 			} else if (action == CircuitEvent.ACTION_CLEAR) {
@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import com.cburch.logisim.circuit.Wire;
@@ -43,24 +44,86 @@ import com.cburch.logisim.data.Bounds;
 import com.cburch.logisim.data.Location;
 
 class AvoidanceMap {
+	/*
+	 * The marks of the grid locations are kept in square tiles of two bits
+	 * per location. A clone shares the tiles of its original, and a tile is
+	 * copied when one of the maps first changes it. Locations off the grid are
+	 * rare and kept in a hash map.
+	 */
+	private static class Tile {
+		private final Object owner;
+		private final long[] cells;
+
+		private Tile(Object owner, long[] cells) {
+			this.owner = owner;
+			this.cells = cells;
+		}
+	}
+
 	static AvoidanceMap create(Collection<Component> elements, int dx, int dy) {
-		AvoidanceMap ret = new AvoidanceMap(new HashMap<Location, String>());
+		AvoidanceMap ret = new AvoidanceMap(new HashMap<Long, Tile>(),
+				new HashMap<Location, String>());
 		ret.markAll(elements, dx, dy);
 		return ret;
 	}
 
-	private final HashMap<Location, String> avoid;
+	private static long tileKey(int cx, int cy) {
+		return ((long) (cx >> TILE_BITS) << 32)
+				| ((cy >> TILE_BITS) & 0xffffffffL);
+	}
+
+	private static final int GRID = 10;
+	private static final int TILE_BITS = 6;
+	private static final int TILE_MASK = (1 << TILE_BITS) - 1;
+	private static final int TILE_WORDS = (1 << 2 * TILE_BITS) * 2 / 64;
+	private static final String[] MARKS = { null, Connector.ALLOW_VERTICAL,
+			Connector.ALLOW_HORIZONTAL, Connector.ALLOW_NEITHER };
 
-	private AvoidanceMap(HashMap<Location, String> map) {
-		avoid = map;
+	private final HashMap<Long, Tile> tiles;
+	private final HashMap<Location, String> offGrid;
+	private Object owner = new Object();
+	private long lastKey;
+	private Tile lastTile;
+
+	private AvoidanceMap(HashMap<Long, Tile> tiles,
+			HashMap<Location, String> offGrid) {
+		this.tiles = tiles;
+		this.offGrid = offGrid;
 	}
 
 	public AvoidanceMap cloneMap() {
-		return new AvoidanceMap(new HashMap<Location, String>(avoid));
+		// from now on neither map may change the tiles they share
+		owner = new Object();
+		return new AvoidanceMap(new HashMap<Long, Tile>(tiles),
+				new HashMap<Location, String>(offGrid));
 	}
 
 	public Object get(Location loc) {
-		return avoid.get(loc);
+		int x = loc.getX();
+		int y = loc.getY();
+		if (x % GRID != 0 || y % GRID != 0) {
+			return offGrid.get(loc);
+		}
+		int cx = x / GRID;
+		int cy = y / GRID;
+		Tile tile = getTile(tileKey(cx, cy));
+		if (tile == null) {
+			return null;
+		}
+		int index = ((cy & TILE_MASK) << TILE_BITS) | (cx & TILE_MASK);
+		return MARKS[(int) (tile.cells[index >> 5] >>> ((index & 31) << 1)) & 3];
+	}
+
+	private Tile getTile(long key) {
+		if (lastTile == null || lastKey != key) {
+			Tile tile = tiles.get(Long.valueOf(key));
+			if (tile == null) {
+				return null;
+			}
+			lastKey = key;
+			lastTile = tile;
+		}
+		return lastTile;
 	}
 
 	public void markAll(Collection<Component> elements, int dx, int dy) {
@@ -76,7 +139,6 @@ class AvoidanceMap {
 	}
 
 	public void markComponent(Component comp, int dx, int dy) {
-		HashMap<Location, String> avoid = this.avoid;
 		boolean translated = dx != 0 || dy != 0;
 		Bounds bds = comp.getBounds();
 		int x0 = bds.getX() + dx;
@@ -91,15 +153,15 @@ class AvoidanceMap {
 				// loc is most likely in the component, so go ahead and
 				// put it into the map as if it is - and in the rare event
 				// that loc isn't in the component, we can remove it.
-				String prev = avoid.put(loc, Connector.ALLOW_NEITHER);
+				String prev = put(loc, Connector.ALLOW_NEITHER);
 				if (prev != Connector.ALLOW_NEITHER) {
 					Location baseLoc = translated ? loc.translate(-dx, -dy)
 							: loc;
 					if (!comp.contains(baseLoc)) {
 						if (prev == null) {
-							avoid.remove(loc);
+							remove(loc);
 						} else {
-							avoid.put(loc, prev);
+							put(loc, prev);
 						}
 					}
 				}
@@ -108,7 +170,6 @@ class AvoidanceMap {
 	}
 
 	public void markWire(Wire w, int dx, int dy) {
-		HashMap<Location, String> avoid = this.avoid;
 		boolean translated = dx != 0 || dy != 0;
 		Location loc0 = w.getEnd0();
 		Location loc1 = w.getEnd1();
@@ -116,26 +177,26 @@ class AvoidanceMap {
 			loc0 = loc0.translate(dx, dy);
 			loc1 = loc1.translate(dx, dy);
 		}
-		avoid.put(loc0, Connector.ALLOW_NEITHER);
-		avoid.put(loc1, Connector.ALLOW_NEITHER);
+		put(loc0, Connector.ALLOW_NEITHER);
+		put(loc1, Connector.ALLOW_NEITHER);
 		int x0 = loc0.getX();
 		int y0 = loc0.getY();
 		int x1 = loc1.getX();
 		int y1 = loc1.getY();
 		if (x0 == x1) { // vertical wire
 			for (Location loc : Wire.create(loc0, loc1)) {
-				Object prev = avoid.put(loc, Connector.ALLOW_HORIZONTAL);
+				Object prev = put(loc, Connector.ALLOW_HORIZONTAL);
 				if (prev == Connector.ALLOW_NEITHER
 						|| prev == Connector.ALLOW_VERTICAL) {
-					avoid.put(loc, Connector.ALLOW_NEITHER);
+					put(loc, Connector.ALLOW_NEITHER);
 				}
 			}
 		} else if (y0 == y1) { // horizontal wire
 			for (Location loc : Wire.create(loc0, loc1)) {
-				Object prev = avoid.put(loc, Connector.ALLOW_VERTICAL);
+				Object prev = put(loc, Connector.ALLOW_VERTICAL);
 				if (prev == Connector.ALLOW_NEITHER
 						|| prev == Connector.ALLOW_HORIZONTAL) {
-					avoid.put(loc, Connector.ALLOW_NEITHER);
+					put(loc, Connector.ALLOW_NEITHER);
 				}
 			}
 		} else { // diagonal - shouldn't happen
@@ -144,6 +205,20 @@ class AvoidanceMap {
 	}
 
 	public void print(PrintStream stream) {
+		HashMap<Location, String> avoid = new HashMap<Location, String>(
+				offGrid);
+		for (Map.Entry<Long, Tile> entry : tiles.entrySet()) {
+			int tx = (int) (entry.getKey() >> 32) << TILE_BITS;
+			int ty = (int) (long) entry.getKey() << TILE_BITS;
+			for (int cy = ty; cy <= ty + TILE_MASK; cy++) {
+				for (int cx = tx; cx <= tx + TILE_MASK; cx++) {
+					Location loc = Location.create(cx * GRID, cy * GRID);
+					if (get(loc) != null) {
+						avoid.put(loc, (String) get(loc));
+					}
+				}
+			}
+		}
 		ArrayList<Location> list = new ArrayList<Location>(avoid.keySet());
 		Collections.sort(list);
 		for (int i = 0, n = list.size(); i < n; i++) {
@@ -151,15 +226,51 @@ class AvoidanceMap {
 		}
 	}
 
+	private String put(Location loc, String mark) {
+		int x = loc.getX();
+		int y = loc.getY();
+		if (x % GRID != 0 || y % GRID != 0) {
+			return mark == null ? offGrid.remove(loc) : offGrid.put(loc, mark);
+		}
+		int cx = x / GRID;
+		int cy = y / GRID;
+		long key = tileKey(cx, cy);
+		Tile tile = getTile(key);
+		if (tile == null || tile.owner != owner) {
+			if (tile == null && mark == null) {
+				return null;
+			}
+			long[] cells = tile == null ? new long[TILE_WORDS] : tile.cells
+					.clone();
+			tile = new Tile(owner, cells);
+			tiles.put(Long.valueOf(key), tile);
+			lastKey = key;
+			lastTile = tile;
+		}
+		int index = ((cy & TILE_MASK) << TILE_BITS) | (cx & TILE_MASK);
+		int shift = (index & 31) << 1;
+		long bits = tile.cells[index >> 5];
+		int code = mark == Connector.ALLOW_NEITHER ? 3
+				: mark == Connector.ALLOW_HORIZONTAL ? 2
+						: mark == Connector.ALLOW_VERTICAL ? 1 : 0;
+		tile.cells[index >> 5] = (bits & ~(3L << shift))
+				| ((long) code << shift);
+		return MARKS[(int) (bits >>> shift) & 3];
+	}
+
+	private String remove(Location loc) {
+		return put(loc, null);
+	}
+
 	public void unmarkLocation(Location loc) {
-		avoid.remove(loc);
+		remove(loc);
 	}
 
 	public void unmarkWire(Wire w, Location deletedEnd, Set<Location> unmarkable) {
 		Location loc0 = w.getEnd0();
 		Location loc1 = w.getEnd1();
 		if (unmarkable == null || unmarkable.contains(deletedEnd)) {
-			avoid.remove(deletedEnd);
+			remove(deletedEnd);
 		}
 		int x0 = loc0.getX();
 		int y0 = loc0.getY();
@@ -168,18 +279,18 @@ class AvoidanceMap {
 		if (x0 == x1) { // vertical wire
 			for (Location loc : w) {
 				if (unmarkable == null || unmarkable.contains(deletedEnd)) {
-					Object prev = avoid.remove(loc);
+					Object prev = remove(loc);
 					if (prev != Connector.ALLOW_HORIZONTAL && prev != null) {
-						avoid.put(loc, Connector.ALLOW_VERTICAL);
+						put(loc, Connector.ALLOW_VERTICAL);
 					}
 				}
 			}
 		} else if (y0 == y1) { // horizontal wire
 			for (Location loc : w) {
 				if (unmarkable == null || unmarkable.contains(deletedEnd)) {
-					Object prev = avoid.remove(loc);
+					Object prev = remove(loc);
 					if (prev != Connector.ALLOW_VERTICAL && prev != null) {
-						avoid.put(loc, Connector.ALLOW_HORIZONTAL);
+						put(loc, Connector.ALLOW_HORIZONTAL);
 					}
 				}
 			}
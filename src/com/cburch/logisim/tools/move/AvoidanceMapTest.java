@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.tools.move;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.data.Location;
+
+public class AvoidanceMapTest {
+	/* one change to a map: a wire to mark or a location to unmark */
+	private static class Change {
+		private final Wire wire;
+		private final Location loc;
+
+		Change(Wire wire, Location loc) {
+			this.wire = wire;
+			this.loc = loc;
+		}
+
+		void apply(AvoidanceMap map) {
+			if (wire != null) {
+				map.markWire(wire, 0, 0);
+			} else {
+				map.unmarkLocation(loc);
+			}
+		}
+	}
+
+	private static final int SIZE = 1000;
+
+	private static AvoidanceMap empty() {
+		return AvoidanceMap.create(Collections.<Component> emptyList(), 0, 0);
+	}
+
+	/* the maps span several tiles and hold some locations off the grid */
+	private static Change randomChange(Random random) {
+		int offset = random.nextInt(8) == 0 ? 5 : 0;
+		Location loc = Location.create(random.nextInt(SIZE / 10) * 10
+				+ offset, random.nextInt(SIZE / 10) * 10 + offset);
+		if (random.nextInt(4) == 0) {
+			return new Change(null, loc);
+		}
+		int length = (random.nextInt(20) + 1) * 10;
+		Location end = random.nextBoolean() ? loc.translate(length, 0) : loc
+				.translate(0, length);
+		return new Change(Wire.create(loc, end), null);
+	}
+
+	private static void assertSameMarks(AvoidanceMap expected,
+			AvoidanceMap actual) {
+		for (int x = 0; x < SIZE + 200; x += 5) {
+			for (int y = 0; y < SIZE + 200; y += 5) {
+				Location loc = Location.create(x, y);
+				assertEquals(loc.toString(), expected.get(loc), actual.get(loc));
+			}
+		}
+	}
+
+	@Test
+	public void testCloneIsIsolated() {
+		// the two wires lie in different tiles
+		Location a = Location.create(100, 100);
+		Location b = Location.create(100, 200);
+		Location far = Location.create(1500, 1500);
+		AvoidanceMap original = empty();
+		original.markWire(Wire.create(a, b), 0, 0);
+		original.markWire(Wire.create(far, far.translate(100, 0)), 0, 0);
+		AvoidanceMap clone = original.cloneMap();
+
+		clone.unmarkLocation(a);
+		assertNull(clone.get(a));
+		assertEquals(Connector.ALLOW_NEITHER, original.get(a));
+
+		original.unmarkLocation(far);
+		assertNull(original.get(far));
+		assertEquals(Connector.ALLOW_NEITHER, clone.get(far));
+
+		AvoidanceMap second = original.cloneMap();
+		second.unmarkLocation(b);
+		assertEquals(Connector.ALLOW_NEITHER, original.get(b));
+		assertEquals(Connector.ALLOW_NEITHER, clone.get(b));
+		assertNull(second.get(b));
+		assertNull(second.get(far));
+	}
+
+	@Test
+	public void testClonesMatchReplayedChanges() {
+		Random random = new Random(7);
+		List<AvoidanceMap> maps = new ArrayList<AvoidanceMap>();
+		List<List<Change>> changes = new ArrayList<List<Change>>();
+		maps.add(empty());
+		changes.add(new ArrayList<Change>());
+		for (int round = 0; round < 20; round++) {
+			for (int step = 0; step < 50; step++) {
+				int i = random.nextInt(maps.size());
+				if (random.nextInt(10) == 0) {
+					maps.add(maps.get(i).cloneMap());
+					changes.add(new ArrayList<Change>(changes.get(i)));
+				} else {
+					Change change = randomChange(random);
+					change.apply(maps.get(i));
+					changes.get(i).add(change);
+				}
+			}
+			// each map must look as if its own changes were all it ever saw
+			for (int i = 0; i < maps.size(); i++) {
+				AvoidanceMap expected = empty();
+				for (Change change : changes.get(i)) {
+					change.apply(expected);
+				}
+				assertSameMarks(expected, maps.get(i));
+			}
+		}
+	}
+}
@@ -38,7 +38,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import com.cburch.logisim.circuit.ReplacementMap;
 import com.cburch.logisim.circuit.Wire;
@@ -46,7 +50,50 @@ import com.cburch.logisim.data.Direction;
 import com.cburch.logisim.data.Location;
 
 class Connector {
+	private static class Trial implements Callable<MoveResult> {
+		private final MoveRequest req;
+		private final ArrayList<ConnectionData> connects;
+		private final int dx;
+		private final int dy;
+		private final HashMap<ConnectionData, Set<Location>> pathLocs;
+		private final HashMap<ConnectionData, List<SearchNode>> initNodes;
+		private final AvoidanceMap avoid;
+		private final long stopTime;
+
+		Trial(MoveRequest req, ArrayList<ConnectionData> connects, int dx,
+				int dy, HashMap<ConnectionData, Set<Location>> pathLocs,
+				HashMap<ConnectionData, List<SearchNode>> initNodes,
+				AvoidanceMap avoid, long stopTime) {
+			this.req = req;
+			this.connects = connects;
+			this.dx = dx;
+			this.dy = dy;
+			this.pathLocs = pathLocs;
+			this.initNodes = initNodes;
+			this.avoid = avoid;
+			this.stopTime = stopTime;
+		}
+
+		public MoveResult call() {
+			if (ConnectorThread.isCancelRequested()) {
+				return null;
+			}
+			return tryList(req, connects, dx, dy, pathLocs, initNodes, avoid,
+					stopTime);
+		}
+	}
+
 	static MoveResult computeWires(MoveRequest req) {
+		return computeWires(req, SHUFFLE, true);
+	}
+
+	/*
+	 * Without parallel, the orderings are tried one after the other, each on a
+	 * fresh copy of the avoidance map, the way they were before they ran in
+	 * parallel
+	 */
+	static MoveResult computeWires(MoveRequest req, Random random,
+			boolean parallel) {
 		MoveGesture gesture = req.getMoveGesture();
 		int dx = req.getDeltaX();
 		int dy = req.getDeltaY();
@@ -88,11 +135,13 @@ class Connector {
 			tries = MAX_ORDERING_TRIES;
 		}
 		long stopTime = System.currentTimeMillis() + MAX_SECONDS * 1000;
-		for (int tryNum = 0; tryNum < tries
-				&& stopTime - System.currentTimeMillis() > 0; tryNum++) {
-			if (ConnectorThread.isOverrideRequested()) {
-				return null;
-			}
+		AvoidanceMap avoid = gesture.getFixedAvoidanceMap().cloneMap();
+		avoid.markAll(gesture.getSelected(), dx, dy);
+		// the orderings are tried in parallel, each on its own copy of the
+		// avoidance map
+		ArrayList<ForkJoinTask<MoveResult>> trials;
+		trials = new ArrayList<ForkJoinTask<MoveResult>>();
+		for (int tryNum = 0; tryNum < tries; tryNum++) {
 			ArrayList<ConnectionData> connects;
 			connects = new ArrayList<ConnectionData>(baseConnects);
 			if (tryNum < 2) {
@@ -101,12 +150,27 @@ class Connector {
 					Collections.reverse(connects);
 				}
 			} else {
-				Collections.shuffle(connects);
+				Collections.shuffle(connects, random);
 			}
-
-			MoveResult candidate = tryList(req, gesture, connects, dx, dy,
-					pathLocs, initNodes, stopTime);
+			if (parallel) {
+				trials.add(POOL.submit(new Trial(req, connects, dx, dy,
+						pathLocs, initNodes, avoid.cloneMap(), stopTime)));
+			} else {
+				AvoidanceMap fresh = gesture.getFixedAvoidanceMap().cloneMap();
+				fresh.markAll(gesture.getSelected(), dx, dy);
+				ForkJoinTask<MoveResult> trial = ForkJoinTask.adapt(new Trial(
+						req, connects, dx, dy, pathLocs, initNodes, fresh,
+						stopTime));
+				trial.invoke();
+				trials.add(trial);
+			}
+		}
+		for (ForkJoinTask<MoveResult> trial : trials) {
+			MoveResult candidate = trial.join();
 			if (candidate == null) {
+				for (ForkJoinTask<MoveResult> other : trials) {
+					other.cancel(false);
+				}
 				return null;
 			} else if (bestResult == null) {
 				bestResult = candidate;
@@ -162,7 +226,7 @@ class Connector {
 		while (!q.isEmpty() && iters < MAX_SEARCH_ITERATIONS) {
 			iters++;
 			SearchNode n = q.remove();
-			if (iters % 64 == 0 && ConnectorThread.isOverrideRequested()
+			if (iters % 64 == 0 && ConnectorThread.isCancelRequested()
 					|| n == null) {
 				return null;
 			}
@@ -363,18 +427,16 @@ class Connector {
 		});
 	}
 
-	private static MoveResult tryList(MoveRequest req, MoveGesture gesture,
+	private static MoveResult tryList(MoveRequest req,
 			ArrayList<ConnectionData> connects, int dx, int dy,
 			HashMap<ConnectionData, Set<Location>> pathLocs,
-			HashMap<ConnectionData, List<SearchNode>> initNodes, long stopTime) {
-		AvoidanceMap avoid = gesture.getFixedAvoidanceMap().cloneMap();
-		avoid.markAll(gesture.getSelected(), dx, dy);
-
+			HashMap<ConnectionData, List<SearchNode>> initNodes,
+			AvoidanceMap avoid, long stopTime) {
 		ReplacementMap replacements = new ReplacementMap();
 		ArrayList<ConnectionData> unconnected = new ArrayList<ConnectionData>();
 		int totalDistance = 0;
 		for (ConnectionData conn : connects) {
-			if (ConnectorThread.isOverrideRequested()) {
+			if (ConnectorThread.isCancelRequested()) {
 				return null;
 			}
 			if (System.currentTimeMillis() - stopTime > 0) {
@@ -388,7 +450,7 @@ class Connector {
 				totalDistance += n.getDistance();
 				ArrayList<Location> path = convertToPath(n);
 				processPath(path, conn, avoid, replacements, connPathLocs);
-			} else if (ConnectorThread.isOverrideRequested()) {
+			} else if (ConnectorThread.isCancelRequested()) {
 				return null; // search was aborted: return null to indicate this
 			} else {
 				unconnected.add(conn);
@@ -397,6 +459,10 @@ class Connector {
 		return new MoveResult(req, replacements, unconnected, totalDistance);
 	}
 
+	private static final ForkJoinPool POOL = new ForkJoinPool();
+
+	private static final Random SHUFFLE = new Random();
+
 	private static final int MAX_SECONDS = 10;
 
 	private static final int MAX_ORDERING_TRIES = 10;
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * This file is part of logisim-evolution.
+ *
+ *   logisim-evolution is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   logisim-evolution is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with logisim-evolution.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ *   Original code by Carl Burch (http://www.cburch.com), 2011.
+ *   Subsequent modifications by :
+ *     + Haute École Spécialisée Bernoise
+ *       http://www.bfh.ch
+ *     + Haute École du paysage, d'ingénierie et d'architecture de Genève
+ *       http://hepia.hesge.ch/
+ *     + Haute École d'Ingénierie et de Gestion du Canton de Vaud
+ *       http://www.heig-vd.ch/
+ *   The project is currently maintained by :
+ *     + REDS Institute - HEIG-VD
+ *       Yverdon-les-Bains, Switzerland
+ *       http://reds.heig-vd.ch
+ *******************************************************************************/
+
+package com.cburch.logisim.tools.move;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cburch.logisim.circuit.Circuit;
+import com.cburch.logisim.circuit.CircuitMutation;
+import com.cburch.logisim.circuit.Wire;
+import com.cburch.logisim.comp.Component;
+import com.cburch.logisim.comp.ComponentFactory;
+import com.cburch.logisim.comp.EndData;
+import com.cburch.logisim.data.Attribute;
+import com.cburch.logisim.data.AttributeSet;
+import com.cburch.logisim.data.Location;
+import com.cburch.logisim.file.Loader;
+import com.cburch.logisim.file.LogisimFile;
+import com.cburch.logisim.std.wiring.Pin;
+import com.cburch.logisim.tools.AddTool;
+
+/**
+ * Moves a gate whose ends are wired to pins past a few other gates, and
+ * checks that trying the orderings in parallel picks the same wires as trying
+ * them one after the other.
+ */
+public class ConnectorTest {
+	private static final Loader LOADER = new Loader(null);
+
+	private static Component add(CircuitMutation xn, String name,
+			Location loc, String... attrValues) {
+		ComponentFactory factory = ((AddTool) LOADER.getBuiltin()
+				.getLibrary("Gates").getTool(name)).getFactory();
+		AttributeSet attrs = factory.createAttributeSet();
+		for (String attrValue : attrValues) {
+			String[] nameValue = attrValue.split("=", 2);
+			@SuppressWarnings("unchecked")
+			Attribute<Object> attr = (Attribute<Object>) attrs
+					.getAttribute(nameValue[0]);
+			attrs.setValue(attr, attr.parse(nameValue[1]));
+		}
+		Component comp = factory.createComponent(loc, attrs);
+		xn.add(comp);
+		return comp;
+	}
+
+	private static List<String> sorted(Collection<Wire> wires) {
+		List<String> ret = new ArrayList<String>();
+		for (Wire w : wires) {
+			ret.add(w.getEnd0() + "-" + w.getEnd1());
+		}
+		Collections.sort(ret);
+		return ret;
+	}
+
+	private static String describe(MoveResult result) {
+		return result.getUnsatisifiedConnections().size() + " "
+				+ result.getTotalDistance() + " "
+				+ sorted(result.getWiresToAdd()) + " "
+				+ sorted(result.getWiresToRemove());
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		Circuit circuit = LogisimFile.createNew(LOADER).getMainCircuit();
+		CircuitMutation xn = new CircuitMutation(circuit);
+		Component gate = add(xn, "AND Gate", Location.create(300, 300),
+				"inputs=5");
+		for (EndData end : gate.getEnds()) {
+			Location loc = end.getLocation();
+			Location pin = loc.translate(end.isOutput() ? 60 : -60, 0);
+			xn.add(Wire.create(loc, pin));
+			xn.add(Pin.FACTORY.createComponent(pin,
+					Pin.FACTORY.createAttributeSet()));
+		}
+		add(xn, "OR Gate", Location.create(380, 380));
+		add(xn, "NOT Gate", Location.create(250, 420));
+		add(xn, "XOR Gate", Location.create(420, 260));
+		xn.execute();
+
+		int[][] moves = { { 40, 30 }, { -30, 60 }, { 100, -50 }, { 20, 120 },
+				{ 130, 90 } };
+		int routed = 0;
+		for (int[] move : moves) {
+			for (int seed = 0; seed < 3; seed++) {
+				MoveGesture gesture = new MoveGesture(null, circuit,
+						Collections.singleton(gate));
+				MoveRequest req = new MoveRequest(gesture, move[0], move[1]);
+				MoveResult parallel = Connector.computeWires(req, new Random(
+						seed), true);
+				MoveResult sequential = Connector.computeWires(req,
+						new Random(seed), false);
+				assertEquals(move[0] + "," + move[1], describe(sequential),
+						describe(parallel));
+				routed += parallel.getWiresToAdd().size();
+			}
+		}
+		assertTrue(routed > 0);
+	}
+}
@@ -43,6 +43,14 @@ class ConnectorThread extends Thread {
 		}
 	}
 
+	/**
+	 * Tells whether the request being processed should be abandoned: either a
+	 * request was forced, or the user already moved the selection elsewhere.
+	 */
+	public static boolean isCancelRequested() {
+		return INSTANCE.overrideRequest || INSTANCE.nextRequest != null;
+	}
+
 	public static boolean isOverrideRequested() {
 		return INSTANCE.overrideRequest;
 	}
@@ -54,8 +62,8 @@ class ConnectorThread extends Thread {
 	}
 
 	private Object lock;
-	private transient boolean overrideRequest;
-	private MoveRequest nextRequest;
+	private transient volatile boolean overrideRequest;
+	private volatile MoveRequest nextRequest;
 	private MoveRequest processingRequest;
 
 	private ConnectorThread() {
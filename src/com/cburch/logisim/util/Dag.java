@@ -30,18 +30,19 @@
 
 package com.cburch.logisim.util;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 
 public class Dag {
 	private static class Node {
-		@SuppressWarnings("unused")
 		Object data;
 		HashSet<Node> succs = new HashSet<Node>(); // of Nodes
 		int numPreds = 0;
-		boolean mark;
+		int mark; // equal to the search that last reached it
 
 		Node(Object data) {
 			this.data = data;
@@ -49,6 +50,7 @@ public class Dag {
 	}
 
 	private HashMap<Object, Node> nodes = new HashMap<Object, Node>();
+	private int searches = 0;
 
 	public Dag() {
 	}
@@ -68,10 +70,9 @@ public class Dag {
 		if (base == query)
 			return false;
 
-		// mark all as unvisited
-		for (Node n : nodes.values()) {
-			n.mark = false; // will become true once reached
-		}
+		// a new mark leaves all nodes unvisited, so that the search costs
+		// only as much as the part of the graph it reaches
+		int mark = ++searches;
 
 		// Search starting at query: If base is found, then it follows
 		// the query already, and so query cannot follow base.
@@ -80,10 +81,10 @@ public class Dag {
 		while (!fringe.isEmpty()) {
 			Node n = fringe.removeFirst();
 			for (Node next : n.succs) {
-				if (!next.mark) {
+				if (next.mark != mark) {
 					if (next == base)
 						return false;
-					next.mark = true;
+					next.mark = mark;
 					fringe.addLast(next);
 				}
 			}
@@ -119,6 +120,40 @@ public class Dag {
 		return nodes.get(data);
 	}
 
+	/**
+	 * Returns the level of each node that has an edge: the number of edges on
+	 * the longest path leading to it. Every edge thus leads from a lower level
+	 * to a higher one, and nodes without predecessors are at level 0.
+	 */
+	public Map<Object, Integer> getLevels() {
+		HashMap<Node, Integer> waiting = new HashMap<Node, Integer>();
+		HashMap<Object, Integer> ret = new HashMap<Object, Integer>();
+		ArrayList<Node> ready = new ArrayList<Node>();
+		for (Node n : nodes.values()) {
+			if (n.numPreds == 0) {
+				ready.add(n);
+				ret.put(n.data, Integer.valueOf(0));
+			} else {
+				waiting.put(n, Integer.valueOf(n.numPreds));
+			}
+		}
+		// each node is placed once all of its predecessors are
+		for (int i = 0; i < ready.size(); i++) {
+			Node n = ready.get(i);
+			int next = ret.get(n.data).intValue() + 1;
+			for (Node succ : n.succs) {
+				Integer level = ret.get(succ.data);
+				if (level == null || level.intValue() < next)
+					ret.put(succ.data, Integer.valueOf(next));
+				int left = waiting.get(succ).intValue() - 1;
+				waiting.put(succ, Integer.valueOf(left));
+				if (left == 0)
+					ready.add(succ);
+			}
+		}
+		return ret;
+	}
+
 	public boolean hasPredecessors(Object data) {
 		Node from = findNode(data);
 		return from != null && from.numPreds != 0;
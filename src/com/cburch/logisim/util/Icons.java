@@ -33,6 +33,7 @@ package com.cburch.logisim.util;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.net.URL;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -40,9 +41,55 @@ import javax.swing.ImageIcon;
 import com.cburch.logisim.data.Direction;
 
 public class Icons {
+	/**
+	 * Icon whose image is read the first time it is painted or measured, so
+	 * that creating the factories and tools of a library does not start the
+	 * AWT toolkit. This matters when running without graphical interface.
+	 */
+	private static class LazyIcon implements Icon {
+		private URL url;
+		private Icon icon = null;
+
+		LazyIcon(URL url) {
+			this.url = url;
+		}
+
+		private Icon getLoadedIcon() {
+			if (icon == null)
+				icon = new ImageIcon(url);
+			return icon;
+		}
+
+		public int getIconHeight() {
+			return getLoadedIcon().getIconHeight();
+		}
+
+		public int getIconWidth() {
+			return getLoadedIcon().getIconWidth();
+		}
+
+		public void paintIcon(Component c, Graphics g, int x, int y) {
+			getLoadedIcon().paintIcon(c, g, x, y);
+		}
+	}
+
 	public static Icon getIcon(String name) {
-		java.net.URL url = Icons.class.getClassLoader().getResource(
-				path + "/" + name);
+		URL url = getIconURL(name);
+		if (url == null)
+			return null;
+		return new LazyIcon(url);
+	}
+
+	private static URL getIconURL(String name) {
+		return Icons.class.getClassLoader().getResource(path + "/" + name);
+	}
+
+	/**
+	 * Returns the icon with its image already loaded, for the code that needs
+	 * the image itself.
+	 */
+	public static ImageIcon getImageIcon(String name) {
+		URL url = getIconURL(name);
 		if (url == null)
 			return null;
 		return new ImageIcon(url);
@@ -29,8 +29,12 @@
  *******************************************************************************/
 package com.cburch.logisim.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -42,7 +46,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Socket client to talk to the binder.
+ * Socket client to talk to the binder. A connection either exchanges text
+ * lines, or frames made of a 32-bit big endian length followed by that many
+ * bytes.
  *
  * @author christian.mueller@heig-vd.ch
  */
@@ -59,6 +65,9 @@ public class SocketClient {
 	private BufferedReader socket_reader;
 	private PrintWriter socket_writer;
 
+	private DataInputStream frame_reader;
+	private DataOutputStream frame_writer;
+
 	public SocketClient() {
 
 		if (server == null) {
@@ -98,6 +107,18 @@ public class SocketClient {
 		}
 	}
 
+	public byte[] receiveFrame() {
+
+		try {
+			byte[] frame = new byte[frame_reader.readInt()];
+			frame_reader.readFully(frame);
+			return frame;
+		} catch (Exception e) {
+			logger.error("Cannot read from socket : {}", e.getMessage());
+			return null;
+		}
+	}
+
 	public void send(String message) {
 
 		try {
@@ -108,6 +129,18 @@ public class SocketClient {
 		}
 	}
 
+	public void sendFrame(byte[] frame) {
+
+		try {
+			frame_writer.writeInt(frame.length);
+			frame_writer.write(frame);
+			frame_writer.flush();
+		} catch (Exception e) {
+			logger.error("Cannot write frame of {} bytes to socket {}",
+					frame.length, e.getMessage());
+		}
+	}
+
 	public void start() {
 
 		try {
@@ -119,6 +152,12 @@ public class SocketClient {
 			socket_writer = new PrintWriter(new BufferedWriter(
 					new OutputStreamWriter(socket.getOutputStream())), true);
 
+			frame_reader = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream()));
+
+			frame_writer = new DataOutputStream(new BufferedOutputStream(
+					socket.getOutputStream()));
+
 			connected = true;
 			return;
 
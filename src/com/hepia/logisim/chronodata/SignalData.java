@@ -51,7 +51,7 @@ public class SignalData {
 	}
 
 	public ImageIcon getIcon() {
-		return (ImageIcon) Icons.getIcon("chronoSignal.gif");
+		return Icons.getImageIcon("chronoSignal.gif");
 	}
 
 	public String getName() {